@@ -83,6 +83,11 @@ public class Collection extends org.mmtk.vm.Collection {
     throw new OutOfMemory();
   }
 
+  @Override
+  public void bindToNumaNode(int node) {
+    // Nothing required: the harness schedules its own threads
+  }
+
   @Override
   public void spawnCollectorContext(CollectorContext context) {
     Clock.stop();
@@ -134,6 +134,60 @@ public class Memory extends org.mmtk.vm.Memory {
     return SimulatedMemory.unprotect(start, size);
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Simulated memory has no huge pages.
+   */
+  @Override
+  public boolean adviseHugePages(Address start, int size) {
+    return false;
+  }
+
+  @Override
+  public void preTouch(Address start, int size) {
+    // Nothing required
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Simulated memory is not returned; the area is zeroed instead, which
+   * has the same effect on its contents.
+   */
+  @Override
+  public boolean uncommit(Address start, Extent size) {
+    zero(false, start, size);
+    return true;
+  }
+
+  @Override
+  public long residentBytes() {
+    return 0;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * The simulated memory has a single node.
+   */
+  @Override
+  public int numaNodes() {
+    return 1;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int currentNumaNode() {
+    return 0;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void bindToNumaNode(Address start, Extent size, int node) {
+    // Nothing required
+  }
+
   /** {@inheritDoc} */
   @Override
   public void zero(boolean useNT, Address start, Extent len) {
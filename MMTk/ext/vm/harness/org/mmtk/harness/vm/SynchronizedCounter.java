@@ -15,7 +15,7 @@ package org.mmtk.harness.vm;
 import org.vmmagic.pragma.Uninterruptible;
 
 /**
- * A counter that supports atomic increment and reset.
+ * A counter that supports atomic increment, addition and reset.
  */
 @Uninterruptible
 public class SynchronizedCounter extends org.mmtk.vm.SynchronizedCounter {
@@ -35,6 +35,13 @@ public class SynchronizedCounter extends org.mmtk.vm.SynchronizedCounter {
     return value++;
   }
 
+  @Override
+  public synchronized int add(int delta) {
+    int old = value;
+    value += delta;
+    return old;
+  }
+
   @Override
   public int peek() {
     return value;
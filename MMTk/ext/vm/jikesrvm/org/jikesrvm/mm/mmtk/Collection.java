@@ -82,6 +82,11 @@ public class Collection extends org.mmtk.vm.Collection {
     throw RVMThread.getOutOfMemoryError();
   }
 
+  @Override
+  public void bindToNumaNode(int node) {
+    SysCall.sysCall.sysThreadBindNode(node);
+  }
+
   @Override
   public final void prepareMutator(MutatorContext m) {
     /*
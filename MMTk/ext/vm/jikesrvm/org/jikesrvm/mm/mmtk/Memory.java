@@ -28,6 +28,7 @@ import org.jikesrvm.VM;
 import org.jikesrvm.objectmodel.JavaHeader;
 import org.jikesrvm.runtime.BootRecord;
 import org.jikesrvm.runtime.Magic;
+import org.jikesrvm.runtime.SysCall;
 import org.mmtk.policy.ImmortalSpace;
 import org.mmtk.utility.heap.VMRequest;
 import org.vmmagic.pragma.Inline;
@@ -186,6 +187,41 @@ import org.vmmagic.unboxed.Offset;
                                                    org.jikesrvm.runtime.Memory.PROT_EXEC);
   }
 
+  @Override
+  public final boolean adviseHugePages(Address start, int size) {
+    return SysCall.sysCall.sysMAdviseHugePages(start, Extent.fromIntZeroExtend(size)) == 0;
+  }
+
+  @Override
+  public final void preTouch(Address start, int size) {
+    SysCall.sysCall.sysPreTouch(start, Extent.fromIntZeroExtend(size));
+  }
+
+  @Override
+  public final boolean uncommit(Address start, Extent size) {
+    return SysCall.sysCall.sysMAdviseFree(start, size) == 0;
+  }
+
+  @Override
+  public final long residentBytes() {
+    return SysCall.sysCall.sysResidentBytes();
+  }
+
+  @Override
+  public final int numaNodes() {
+    return SysCall.sysCall.sysNumaNodes();
+  }
+
+  @Override
+  public final int currentNumaNode() {
+    return SysCall.sysCall.sysNumaNode();
+  }
+
+  @Override
+  public final void bindToNumaNode(Address start, Extent size, int node) {
+    SysCall.sysCall.sysNumaBind(start, size, node);
+  }
+
   @Override
   public final void zero(boolean useNT, Address start, Extent len) {
     org.jikesrvm.runtime.Memory.zero(useNT, start,len);
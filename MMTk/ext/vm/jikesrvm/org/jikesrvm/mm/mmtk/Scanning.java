@@ -149,15 +149,18 @@ public final class Scanning extends org.mmtk.vm.Scanning {
       }
     }
 
-    /* scan jni global refs */
+    /* scan jni global refs, skipping free slots and the never used end of the table */
     Address jniGlobalRefs = Magic.objectAsAddress(JNIGlobalRefTable.JNIGlobalRefs);
-    size = JNIGlobalRefTable.JNIGlobalRefs.length();
+    size = JNIGlobalRefTable.highWaterMark();
     chunkSize = size / threads;
     start = cc.parallelWorkerOrdinal() * chunkSize;
-    end = (cc.parallelWorkerOrdinal() + 1 == threads) ? size : threads * chunkSize;
+    end = (cc.parallelWorkerOrdinal() + 1 == threads) ? size : start + chunkSize;
 
     for (int i = start; i < end; i++) {
-      trace.processRootEdge(jniGlobalRefs.plus(i << LOG_BYTES_IN_ADDRESS), true);
+      Address slot = jniGlobalRefs.plus(i << LOG_BYTES_IN_ADDRESS);
+      if (!JNIGlobalRefTable.isFreeSlot(slot.loadAddress())) {
+        trace.processRootEdge(slot, true);
+      }
     }
   }
 
@@ -20,7 +20,7 @@ import org.vmmagic.pragma.*;
 import org.vmmagic.unboxed.Offset;
 
 /**
- * A counter that supports atomic increment and reset.
+ * A counter that supports atomic increment, addition and reset.
  */
 @Uninterruptible
 public final class SynchronizedCounter extends org.mmtk.vm.SynchronizedCounter {
@@ -53,6 +53,12 @@ public final class SynchronizedCounter extends org.mmtk.vm.SynchronizedCounter {
     return Synchronization.fetchAndAdd(this, offset, 1);
   }
 
+  @Override
+  public int add(int delta) {
+    if (VM.VerifyAssertions) VM._assert(!offset.isMax());
+    return Synchronization.fetchAndAdd(this, offset, delta);
+  }
+
   @Override
   public int peek() {
     return count;
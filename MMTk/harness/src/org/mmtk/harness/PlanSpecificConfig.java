@@ -85,6 +85,11 @@ public class PlanSpecificConfig {
         .addExpectedSpaces("mc")
         .heapFactor(10496 / BASE_HEAP),
         "MC", "MarkCompact");
+    register(
+        new PlanSpecific("org.mmtk.plan.markcompact.parallel.PMC")
+        .addExpectedSpaces("pmc")
+        .heapFactor(10496 / BASE_HEAP),
+        "PMC", "ParallelMarkCompact");
     register(
         new PlanSpecific("org.mmtk.plan.marksweep.MS")
         .addExpectedSpaces("ms"),
@@ -112,6 +117,11 @@ public class PlanSpecificConfig {
         .addExpectedSpaces("nursery", "rclos", "rc")
         .heapFactor(9984 / BASE_HEAP),
         "GenRC");
+    register(
+        new PlanSpecific("org.mmtk.plan.refcount.immix.RCImmix")
+        .addExpectedSpaces("immix", "rclos", "rc")
+        .heapFactor(9984 / BASE_HEAP),
+        "RCImmix");
     register(
         new PlanSpecific("org.mmtk.plan.semispace.SS")
         .heapFactor(18816 / BASE_HEAP)
@@ -14,6 +14,7 @@ package org.mmtk.plan;
 
 import org.mmtk.utility.Log;
 import org.mmtk.utility.heap.HeapGrowthManager;
+import org.mmtk.utility.heap.PauseGoalController;
 import org.mmtk.utility.options.Options;
 import org.mmtk.vm.Monitor;
 import org.mmtk.vm.VM;
@@ -103,7 +104,11 @@ public class ControllerCollectorContext extends CollectorContext {
       // Heap growth logic
       long elapsedTime = VM.statistics.nanoTime() - startTime;
       HeapGrowthManager.recordGCTime(VM.statistics.nanosToMillis(elapsedTime));
-      if (VM.activePlan.global().lastCollectionFullHeap() && !internalTriggeredCollection) {
+      if (PauseGoalController.isEnabled()) {
+        // Don't consider changing the heap size if the application triggered the collection
+        PauseGoalController.collectionCompleted(elapsedTime, VM.activePlan.global().lastCollectionFullHeap(),
+            Options.variableSizeHeap.getValue() && !userTriggeredCollection && !internalTriggeredCollection);
+      } else if (VM.activePlan.global().lastCollectionFullHeap() && !internalTriggeredCollection) {
         if (Options.variableSizeHeap.getValue() && !userTriggeredCollection) {
           // Don't consider changing the heap size if the application triggered the collection
           if (Options.verbose.getValue() >= 5) Log.writeln("[STWController: Considering heap size.]");
@@ -18,6 +18,7 @@ import org.mmtk.policy.ImmortalLocal;
 import org.mmtk.policy.LargeObjectLocal;
 import org.mmtk.utility.alloc.Allocator;
 import org.mmtk.utility.alloc.BumpPointer;
+import org.mmtk.utility.heap.PageCache;
 import org.mmtk.utility.Log;
 
 import org.mmtk.vm.VM;
@@ -125,6 +126,9 @@ public abstract class MutatorContext {
   /** Per-mutator allocator into the non moving space */
   protected final MarkSweepLocal nonmove = new MarkSweepLocal(Plan.nonMovingSpace);
 
+  /** Per-mutator caches of blocks, indexed by space */
+  private final PageCache[] pageCaches = PageCache.createCaches();
+
 
   /****************************************************************************
    *
@@ -1222,6 +1226,16 @@ public abstract class MutatorContext {
     flushRememberedSets();
     smcode.flush();
     nonmove.flush();
+    flushPageCaches();
+  }
+
+  /**
+   * Return the blocks cached by this mutator to their spaces.
+   */
+  public final void flushPageCaches() {
+    for (PageCache cache : pageCaches) {
+      if (cache != null) cache.flush();
+    }
   }
 
   /**
@@ -1249,6 +1263,15 @@ public abstract class MutatorContext {
    * Miscellaneous
    */
 
+  /**
+   * @param space A space which caches pages
+   * @return this mutator's page cache for the space
+   */
+  @Inline
+  public final PageCache getPageCache(Space space) {
+    return pageCaches[space.getIndex()];
+  }
+
   /** @return the <code>Log</code> instance for this mutator context. */
   public final Log getLog() {
     return log;
@@ -12,6 +12,7 @@
  */
 package org.mmtk.plan;
 
+import org.mmtk.utility.heap.Numa;
 import org.mmtk.vm.VM;
 
 import org.vmmagic.pragma.*;
@@ -45,6 +46,7 @@ public abstract class ParallelCollector extends CollectorContext {
   @Override
   @Unpreemptible
   public void run() {
+    Numa.bindCollector(workerOrdinal);
     while (true) {
       park();
       collect();
@@ -83,6 +85,11 @@ public abstract class ParallelCollector extends CollectorContext {
     group.park(this);
   }
 
+  /** @return The group that this collector context is running in (may be null) */
+  public final ParallelCollectorGroup getGroup() {
+    return group;
+  }
+
   @Override
   public int parallelWorkerCount() {
     return group.activeWorkerCount();
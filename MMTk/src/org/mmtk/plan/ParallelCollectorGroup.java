@@ -52,6 +52,15 @@ public class ParallelCollectorGroup {
   /** Which rendezvous counter is currently in use */
   private volatile int currentRendezvousCounter;
 
+  /** The number of contexts that have run out of work in the current phase */
+  private volatile int idleContexts;
+
+  /** Have all contexts run out of work at once in the current phase? */
+  private volatile boolean workExhausted;
+
+  /** Incremented each time idle contexts are told that work has appeared */
+  private volatile int workSignal;
+
   /****************************************************************************
    *
    * Initialization
@@ -183,6 +192,8 @@ public class ParallelCollectorGroup {
     if (me == contexts.length - 1) {
       currentRendezvousCounter ^= 1;
       rendezvousCounter[currentRendezvousCounter] = 0;
+      idleContexts = 0;
+      workExhausted = false;
       lock.broadcast();
     } else {
       while (rendezvousCounter[i] < contexts.length) {
@@ -192,4 +203,92 @@ public class ParallelCollectorGroup {
     lock.unlock();
     return me;
   }
+
+  /****************************************************************************
+   *
+   * Termination detection for load-balanced work
+   */
+
+  /**
+   * Note that the calling context has run out of work.  Once every
+   * context in the group is out of work at the same time, no more work
+   * can be generated, so the work of the current phase is exhausted.
+   * This remains the case until the next rendezvous.
+   */
+  public void enterIdle() {
+    lock.lock();
+    idleContexts++;
+    if (idleContexts == contexts.length) {
+      workExhausted = true;
+      lock.broadcast();
+    }
+    lock.unlock();
+  }
+
+  /**
+   * The calling context, which previously called {@link #enterIdle()},
+   * has seen work that it may be able to take.
+   *
+   * @return {@code true} if the context may go back to work, or
+   * {@code false} if the work of this phase is already exhausted.
+   */
+  public boolean leaveIdle() {
+    lock.lock();
+    boolean resume = !workExhausted;
+    if (resume) {
+      idleContexts--;
+    }
+    lock.unlock();
+    return resume;
+  }
+
+  /**
+   * @return whether every context in the group has run out of work
+   * in the current phase
+   */
+  public boolean isWorkExhausted() {
+    return workExhausted;
+  }
+
+  /**
+   * @return whether any context is currently out of work, and so may be
+   * waiting in {@link #awaitWork(int)}
+   */
+  public boolean hasIdleContexts() {
+    return idleContexts > 0;
+  }
+
+  /**
+   * @return the current work signal, to be read by an idle context
+   * before it looks for work and passed to {@link #awaitWork(int)}
+   */
+  public int workSignal() {
+    return workSignal;
+  }
+
+  /**
+   * Wake the idle contexts, because work has been made available.
+   */
+  public void notifyWork() {
+    lock.lock();
+    workSignal++;
+    lock.broadcast();
+    lock.unlock();
+  }
+
+  /**
+   * Block an idle context until work may have been made available
+   * since it read the given signal, or until the work of the current
+   * phase is exhausted.
+   *
+   * @param signal the value of {@link #workSignal()} read before the
+   * calling context last looked for work
+   */
+  public void awaitWork(int signal) {
+    lock.lock();
+    while (workSignal == signal && !workExhausted) {
+      lock.await();
+    }
+    lock.unlock();
+  }
 }
@@ -24,6 +24,9 @@ import org.mmtk.utility.alloc.LinearScan;
 import org.mmtk.utility.Conversions;
 import org.mmtk.utility.HeaderByte;
 import org.mmtk.utility.heap.HeapGrowthManager;
+import org.mmtk.utility.heap.Numa;
+import org.mmtk.utility.heap.PageBacking;
+import org.mmtk.utility.heap.PauseGoalController;
 import org.mmtk.utility.heap.VMRequest;
 import org.mmtk.utility.heap.layout.HeapLayout;
 import org.mmtk.utility.Log;
@@ -165,15 +168,25 @@ public abstract class Plan {
     Options.metaDataLimit = new MetaDataLimit();
     Options.nurserySize = new NurserySize();
     Options.nurseryZeroing = new NurseryZeroing();
+    Options.numaPlacement = new NumaPlacement();
+    Options.pageCacheBatch = new PageCacheBatch();
     Options.pretenureThresholdFraction = new PretenureThresholdFraction();
     Options.variableSizeHeap = new VariableSizeHeap();
     Options.eagerMmapSpaces = new EagerMmapSpaces();
+    Options.hugePageSpaces = new HugePageSpaces();
+    Options.preTouch = new PreTouch();
+    Options.uncommit = new Uncommit();
+    Options.uncommitDelay = new UncommitDelay();
+    Options.uncommitHeadroom = new UncommitHeadroom();
+    Options.pauseTimeGoal = new PauseTimeGoal();
+    Options.throughputGoal = new ThroughputGoal();
     Options.sanityCheck = new SanityCheck();
     Options.debugAddress = new DebugAddress();
     Options.perfEvents = new PerfEvents();
     Options.useReturnBarrier = new UseReturnBarrier();
     Options.useShortStackScans = new UseShortStackScans();
     Options.threads = new Threads();
+    Options.workStealingTrace = new WorkStealingTrace();
     Options.cycleTriggerThreshold = new CycleTriggerThreshold();
     HeapLayout.vmMap.finalizeStaticSpaceMap();
     registerSpecializedMethods();
@@ -225,8 +238,11 @@ public abstract class Plan {
     VM.statistics.perfEventInit(Options.perfEvents.getValue());
     if (Options.verbose.getValue() > 2) Space.printVMMap();
     if (Options.verbose.getValue() > 3) VM.config.printConfig();
+    PauseGoalController.boot();
     if (Options.verbose.getValue() > 0) Stats.startAll();
+    PageBacking.boot();
     if (Options.eagerMmapSpaces.getValue()) Space.eagerlyMmapMMTkSpaces();
+    Numa.boot();
     pretenureThreshold = (int) ((Options.nurserySize.getMaxNursery() << LOG_BYTES_IN_PAGE) * Options.pretenureThresholdFraction.getValue());
   }
 
@@ -246,6 +262,8 @@ public abstract class Plan {
     preCollectorSpawn();
 
     spawnCollectorThreads(actualThreadCount);
+
+    PageBacking.enableCollection();
   }
 
   /**
@@ -368,6 +386,8 @@ public abstract class Plan {
       Log.writeln(" ms]");
     }
     if (Options.verboseTiming.getValue()) printDetailedTiming(true);
+    if (Numa.isEnabled() && Options.verbose.getValue() >= 1) Numa.printStats();
+    if (Options.uncommit.getValue() && Options.verbose.getValue() >= 1) PageBacking.printStats();
   }
 
   /**
@@ -300,6 +300,11 @@ import org.vmmagic.pragma.*;
     return false;
   }
 
+  /** @return {@code true} if this Plan requires a live object count for each immix line */
+  public boolean needsLineLiveCounts() {
+    return false;
+  }
+
   /** @return the maximum number of GC threads supported by this plan.
    * The return value must be a positive number. */
   public int maxNumGCThreads() {
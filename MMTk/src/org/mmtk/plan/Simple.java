@@ -15,6 +15,7 @@ package org.mmtk.plan;
 import org.mmtk.policy.Space;
 import org.mmtk.utility.Log;
 import org.mmtk.utility.alloc.Allocator;
+import org.mmtk.utility.heap.PageBacking;
 import org.mmtk.utility.options.*;
 import org.mmtk.utility.statistics.Timer;
 import org.mmtk.vm.VM;
@@ -247,6 +248,7 @@ public abstract class Simple extends Plan {
     }
 
     if (phaseId == COMPLETE) {
+      PageBacking.uncommitIdleMemory();
       setGCStatus(NOT_IN_GC);
       return;
     }
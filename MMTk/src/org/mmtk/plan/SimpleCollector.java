@@ -139,7 +139,8 @@ public abstract class SimpleCollector extends ParallelCollector {
     }
 
     if (phaseId == Simple.RELEASE) {
-      // Nothing to do
+      Plan.loSpace.parallelSweep();
+      if (Plan.USE_CODE_SPACE) Plan.largeCodeSpace.parallelSweep();
       return;
     }
 
@@ -48,6 +48,7 @@ public abstract class SimpleMutator extends MutatorContext {
         VM.collection.prepareMutator(this);
       }
       flushRememberedSets();
+      flushPageCaches();
       return;
     }
 
@@ -13,6 +13,7 @@
 package org.mmtk.plan;
 
 import org.mmtk.utility.deque.SharedDeque;
+import org.mmtk.utility.deque.WorkStealingDeque;
 import org.mmtk.policy.RawPageSpace;
 
 import org.vmmagic.pragma.*;
@@ -34,7 +35,7 @@ public class Trace {
    *  instance
    */
   public Trace(RawPageSpace metaDataSpace) {
-    valuePool = new SharedDeque("valuePool",metaDataSpace, 1);
+    valuePool = new WorkStealingDeque("valuePool",metaDataSpace, 1);
     rootLocationPool = new SharedDeque("rootLocations", metaDataSpace, 1);
   }
 
@@ -48,7 +49,9 @@ public class Trace {
 
   /**
    * Prepare for a new collection pass.
-   * All active GC threads take part.
+   * All active GC threads take part, balancing their work by
+   * stealing if {@link org.mmtk.utility.options.Options#workStealingTrace}
+   * is set.
    */
   public void prepare() {
     valuePool.prepare();
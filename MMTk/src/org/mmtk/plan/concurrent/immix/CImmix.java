@@ -0,0 +1,165 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.concurrent.immix;
+
+import org.mmtk.plan.*;
+import org.mmtk.plan.concurrent.Concurrent;
+import org.mmtk.policy.Space;
+import org.mmtk.policy.immix.ImmixSpace;
+import org.mmtk.policy.immix.ObjectHeader;
+import org.mmtk.utility.heap.VMRequest;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements the global state of a concurrent immix collector.<p>
+ *
+ * Collections that are triggered internally (i.e. not by an allocation
+ * failure, the user or an emergency) mark the immix space concurrently
+ * with the mutators, using the snapshot-at-the-beginning barrier of
+ * {@link Concurrent}.  Objects are marked in place and their lines are
+ * marked as they are scanned; objects allocated during the concurrent
+ * trace are allocated as marked.  Only the final release, which sweeps
+ * the line marks, is performed with the mutators stopped.<p>
+ *
+ * Objects can not be moved while the mutators are running, so
+ * defragmentation is restricted to collections that are performed
+ * entirely stop-the-world, which the immix defragmentation heuristics
+ * already favour (repeated collection attempts and emergency or
+ * user-triggered collections).
+ *
+ * @see org.mmtk.plan.immix.Immix
+ */
+@Uninterruptible
+public class CImmix extends Concurrent {
+
+  /****************************************************************************
+   * Class variables
+   */
+
+  /**
+   *
+   */
+  public static final ImmixSpace immixSpace = new ImmixSpace("immix", VMRequest.discontiguous());
+  public static final int IMMIX = immixSpace.getDescriptor();
+
+  static {
+    immixSpace.makeAllocAsMarked();
+    smallCodeSpace.makeAllocAsMarked();
+    nonMovingSpace.makeAllocAsMarked();
+  }
+
+  /****************************************************************************
+   * Instance variables
+   */
+
+  /**
+   *
+   */
+  public final Trace immixTrace = new Trace(metaDataSpace);
+  protected boolean lastGCWasDefrag = false;
+
+  /*****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public void collectionPhase(short phaseId) {
+    if (phaseId == SET_COLLECTION_KIND) {
+      super.collectionPhase(phaseId);
+      if (isConcurrentCollection()) {
+        immixSpace.decideWhetherToDefrag(false, false, 1, false);
+      } else {
+        immixSpace.decideWhetherToDefrag(emergencyCollection, true, collectionAttempt, userTriggeredCollection);
+      }
+      return;
+    }
+
+    if (phaseId == PREPARE) {
+      super.collectionPhase(phaseId);
+      immixTrace.prepareNonBlocking();
+      immixSpace.prepare(true);
+      return;
+    }
+
+    if (phaseId == RELEASE) {
+      immixTrace.release();
+      lastGCWasDefrag = immixSpace.release(true);
+      super.collectionPhase(phaseId);
+      return;
+    }
+
+    super.collectionPhase(phaseId);
+  }
+
+  /**
+   * The closure of a collection is only performed concurrently if the
+   * collection was triggered internally and is not an emergency
+   * collection (see {@link Phase}).
+   *
+   * @return {@code true} if the closure of the current collection may be
+   * performed concurrently with the mutators
+   */
+  private static boolean isConcurrentCollection() {
+    return Plan.isInternalTriggeredCollection() && !Plan.isEmergencyCollection();
+  }
+
+  @Override
+  public boolean lastCollectionWasExhaustive() {
+    return lastGCWasDefrag;
+  }
+
+  /*****************************************************************************
+   *
+   * Accounting
+   */
+
+  /**
+   * {@inheritDoc}
+   * The superclass accounts for its spaces, we just
+   * augment this with the immix space's contribution.
+   */
+  @Override
+  public int getPagesUsed() {
+    return immixSpace.reservedPages() + super.getPagesUsed();
+  }
+
+  /**
+   * Return the number of pages reserved for collection.
+   */
+  @Override
+  public int getCollectionReserve() {
+    return super.getCollectionReserve() + immixSpace.defragHeadroomPages();
+  }
+
+  @Override
+  public boolean willNeverMove(ObjectReference object) {
+    if (Space.isInSpace(IMMIX, object)) {
+      ObjectHeader.pinObject(object);
+      return true;
+    }
+    return super.willNeverMove(object);
+  }
+
+  @Override
+  @Interruptible
+  public void preCollectorSpawn() {
+    immixSpace.initializeDefrag();
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.concurrent.immix;
+
+import static org.mmtk.policy.immix.ImmixConstants.MARK_LINE_AT_SCAN_TIME;
+
+import org.mmtk.plan.Plan;
+import org.mmtk.plan.TraceLocal;
+import org.mmtk.plan.Trace;
+import org.mmtk.policy.Space;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements the thread-local functionality for a defragmenting
+ * transitive closure over an immix space.  Defragmenting collections are
+ * always performed with the mutators stopped.
+ */
+@Uninterruptible
+public final class CImmixDefragTraceLocal extends TraceLocal {
+
+  /**
+   * @param trace the global trace class to use
+   */
+  public CImmixDefragTraceLocal(Trace trace) {
+    super(trace);
+  }
+
+  /****************************************************************************
+   *
+   * Externally visible Object processing and tracing
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isLive(ObjectReference object) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(CImmix.immixSpace.inImmixDefragCollection());
+    if (object.isNull()) return false;
+    if (Space.isInSpace(CImmix.IMMIX, object)) {
+      return CImmix.immixSpace.isLive(object);
+    }
+    return super.isLive(object);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this instance, we refer objects in the immix space to the
+   * immixSpace for tracing, and defer to the superclass for all others.
+   */
+  @Override
+  @Inline
+  public ObjectReference traceObject(ObjectReference object) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(CImmix.immixSpace.inImmixDefragCollection());
+    if (object.isNull()) return object;
+    if (Space.isInSpace(CImmix.IMMIX, object))
+      return CImmix.immixSpace.traceObject(this, object, Plan.ALLOC_DEFAULT);
+    return super.traceObject(object);
+  }
+
+  @Override
+  public boolean willNotMoveInCurrentCollection(ObjectReference object) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(CImmix.immixSpace.inImmixDefragCollection());
+    if (Space.isInSpace(CImmix.IMMIX, object))
+      return CImmix.immixSpace.willNotMoveThisGC(object);
+    return true;
+  }
+
+  @Inline
+  @Override
+  protected void scanObject(ObjectReference object) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(CImmix.immixSpace.inImmixDefragCollection());
+    super.scanObject(object);
+    if (MARK_LINE_AT_SCAN_TIME && Space.isInSpace(CImmix.IMMIX, object))
+      CImmix.immixSpace.markLines(object);
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.generational;
+
+import org.mmtk.plan.Plan;
+import org.mmtk.utility.Log;
+import org.mmtk.utility.options.Options;
+import org.mmtk.vm.Lock;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+
+/**
+ * This class records the survival of sampled nursery objects by
+ * allocation site, and decides which sites should be pretenured.<p>
+ *
+ * Each mutator samples its nursery allocations by volume (see
+ * {@link GenMutator}) and, at the end of each collection, reports
+ * whether each sampled object survived.  A site whose sampled objects
+ * almost all survive is marked for pretenuring, after which its
+ * allocations are made directly into the mature space.  The decision
+ * is consulted on the allocation fast path, so it is a single load from
+ * a direct-mapped table tagged with the site.  Sites are never
+ * un-pretenured, since objects allocated into the mature space are no
+ * longer sampled.<p>
+ *
+ * Sites that collide in the table evict each other, which can only
+ * delay a decision.
+ */
+@Uninterruptible
+public final class AllocationSiteProfile {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /** Log of the number of entries in the site table */
+  private static final int LOG_SITES = 12;
+  private static final int SITES = 1 << LOG_SITES;
+  private static final int SITE_MASK = SITES - 1;
+
+  /** The number of samples required before a site may be pretenured */
+  private static final int MIN_SAMPLES = 32;
+  /** Sample counts are halved when they reach this, to favour recent behaviour */
+  private static final int MAX_SAMPLES = 1024;
+  /** The percentage of sampled objects which must survive for a site to be pretenured */
+  private static final int SURVIVAL_PERCENT = 90;
+
+  /** The site (plus one) whose statistics are held in each entry, or zero */
+  private static final int[] owner = new int[SITES];
+  /** The site (plus one) of each entry if the site is pretenured, or zero */
+  private static final int[] pretenured = new int[SITES];
+  private static final int[] samples = new int[SITES];
+  private static final int[] survivors = new int[SITES];
+  private static int pretenuredSites = 0;
+
+  private static final Lock lock = VM.newLock("AllocationSiteProfile");
+
+  /****************************************************************************
+   *
+   * Mutator-time queries
+   */
+
+  /**
+   * @param site An allocation site
+   * @return {@code true} if objects allocated at the site should be
+   * allocated directly into the mature space
+   */
+  @Inline
+  public static boolean shouldPretenure(int site) {
+    return site >= 0 && pretenured[site & SITE_MASK] == site + 1;
+  }
+
+  /****************************************************************************
+   *
+   * Collection-time recording
+   */
+
+  /**
+   * Acquire the lock protecting the profile.  Mutators report their
+   * samples in parallel, each holding the lock for a batch of reports.
+   */
+  public static void acquireLock() {
+    lock.acquire();
+  }
+
+  /**
+   * Release the lock protecting the profile.
+   */
+  public static void releaseLock() {
+    lock.release();
+  }
+
+  /**
+   * Record whether a sampled object allocated at a site survived a
+   * collection, and decide whether the site should be pretenured.  The
+   * caller must hold the lock.
+   *
+   * @param site The allocation site of the sampled object
+   * @param survived {@code true} if the sampled object survived
+   */
+  public static void record(int site, boolean survived) {
+    if (site == Plan.DEFAULT_SITE) return;
+    int entry = site & SITE_MASK;
+    if (owner[entry] != site + 1) {
+      owner[entry] = site + 1;
+      if (pretenured[entry] != 0) {
+        pretenured[entry] = 0;
+        pretenuredSites--;
+      }
+      samples[entry] = 0;
+      survivors[entry] = 0;
+    }
+    samples[entry]++;
+    if (survived) survivors[entry]++;
+    if (samples[entry] >= MIN_SAMPLES && pretenured[entry] == 0 &&
+        survivors[entry] * 100 >= samples[entry] * SURVIVAL_PERCENT) {
+      pretenured[entry] = site + 1;
+      pretenuredSites++;
+      if (Options.verbose.getValue() >= 2) {
+        Log.write("[Pretenuring allocation site "); Log.write(site);
+        Log.write(": "); Log.write(survivors[entry]); Log.write("/");
+        Log.write(samples[entry]); Log.writeln(" samples survived]");
+      }
+    }
+    if (samples[entry] >= MAX_SAMPLES) {
+      samples[entry] >>= 1;
+      survivors[entry] >>= 1;
+    }
+  }
+
+  /****************************************************************************
+   *
+   * Statistics
+   */
+
+  /**
+   * @param site An allocation site
+   * @return The number of objects sampled at the site and not yet
+   * aged out, or zero if the site is not in the table
+   */
+  public static int getSamples(int site) {
+    if (site < 0 || owner[site & SITE_MASK] != site + 1) return 0;
+    return samples[site & SITE_MASK];
+  }
+
+  /**
+   * @param site An allocation site
+   * @return The number of objects sampled at the site which survived a
+   * collection, or zero if the site is not in the table
+   */
+  public static int getSurvivors(int site) {
+    if (site < 0 || owner[site & SITE_MASK] != site + 1) return 0;
+    return survivors[site & SITE_MASK];
+  }
+
+  /**
+   * @return The number of sites currently pretenured
+   */
+  public static int getPretenuredSites() {
+    return pretenuredSites;
+  }
+
+  /**
+   * Print the survival statistics of each site in the table.
+   */
+  public static void printStats() {
+    Log.write("Allocation site survival ("); Log.write(pretenuredSites);
+    Log.writeln(" sites pretenured)");
+    Log.writeln("site\tsamples\tsurvived\tpretenured");
+    for (int entry = 0; entry < SITES; entry++) {
+      if (owner[entry] == 0) continue;
+      Log.write(owner[entry] - 1); Log.write("\t");
+      Log.write(samples[entry]); Log.write("\t");
+      Log.write(survivors[entry]); Log.write("\t");
+      Log.writeln(pretenured[entry] != 0);
+    }
+  }
+}
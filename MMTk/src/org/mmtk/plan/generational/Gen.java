@@ -18,11 +18,13 @@ import org.mmtk.plan.*;
 import org.mmtk.policy.CopySpace;
 import org.mmtk.policy.Space;
 
+import org.mmtk.utility.CardTable;
 import org.mmtk.utility.deque.*;
 import org.mmtk.utility.heap.VMRequest;
 import org.mmtk.utility.heap.layout.HeapLayout;
 import org.mmtk.utility.Log;
 import org.mmtk.utility.options.Options;
+import org.mmtk.utility.options.SitePretenuring;
 import org.mmtk.utility.sanitychecker.SanityChecker;
 import org.mmtk.utility.statistics.*;
 
@@ -65,6 +67,8 @@ public abstract class Gen extends StopTheWorld {
   public static final boolean USE_OBJECT_BARRIER_FOR_AASTORE = false; // choose between slot and object barriers
   public static final boolean USE_OBJECT_BARRIER_FOR_PUTFIELD = false; // choose between slot and object barriers
   public static final boolean USE_OBJECT_BARRIER = USE_OBJECT_BARRIER_FOR_AASTORE || USE_OBJECT_BARRIER_FOR_PUTFIELD;
+  /** Remember old-to-young pointers by card marking rather than in remset buffers (build-time mmtk.cardMarking) */
+  public static final boolean USE_CARD_MARKING = VM.config.CARD_MARKING;
 
   /** Fraction of available virtual memory to give to the nursery (if contiguous) */
   protected static final float NURSERY_VM_FRACTION = 0.15f;
@@ -103,6 +107,9 @@ public abstract class Gen extends StopTheWorld {
   public static final CopySpace nurserySpace = new CopySpace("nursery", false, vmRequest);
 
   public static final int NURSERY = nurserySpace.getDescriptor();
+
+  /* The card table, when card marking is used in place of the remset buffers */
+  public static final CardTable cardTable = USE_CARD_MARKING ? new CardTable("cards") : null;
   private static final Address NURSERY_START = nurserySpace.getStart();
 
   /*****************************************************************************
@@ -152,6 +159,13 @@ public abstract class Gen extends StopTheWorld {
     }
   }
 
+  /****************************************************************************
+   * Constructor.
+   */
+  public Gen() {
+    Options.sitePretenuring = new SitePretenuring();
+  }
+
   /*****************************************************************************
    *
    * Collection
@@ -186,6 +200,8 @@ public abstract class Gen extends StopTheWorld {
         // we can throw away the remsets (but not modbuf) for a full heap GC
         remsetPool.clearDeque(1);
         arrayRemsetPool.clearDeque(2);
+        // the full heap trace leaves the nursery empty and rebuilds the slot map
+        if (USE_CARD_MARKING) cardTable.clear();
       }
       return;
     }
@@ -279,6 +295,21 @@ public abstract class Gen extends StopTheWorld {
     return ((int)(getCollectionReserve() * WORST_CASE_COPY_EXPANSION)) >= getMaturePhysicalPagesAvail();
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Print the allocation site survival statistics if pretenuring by
+   * allocation site is enabled.
+   */
+  @Override
+  @Interruptible
+  public void notifyExit(int value) {
+    super.notifyExit(value);
+    if (Options.sitePretenuring.getValue() && Options.verbose.getValue() >= 1) {
+      AllocationSiteProfile.printStats();
+    }
+  }
+
   /*****************************************************************************
    *
    * Correctness
@@ -114,6 +114,22 @@ public abstract class GenMatureTraceLocal extends TraceLocal {
     return super.traceObject(object);
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * When card marking, the reference fields of each object scanned by a
+   * full heap trace are recorded in the slot map, which is rebuilt by
+   * each full heap collection.
+   */
+  @Override
+  @Inline
+  protected void scanObject(ObjectReference object) {
+    super.scanObject(object);
+    if (Gen.USE_CARD_MARKING && !Gen.inNursery(object)) {
+      Gen.cardTable.recordObject(object);
+    }
+  }
+
   /**
    * Process any remembered set entries.
    */
@@ -18,6 +18,7 @@ import org.mmtk.policy.Space;
 import org.mmtk.utility.HeaderByte;
 import org.mmtk.utility.deque.*;
 import org.mmtk.utility.alloc.Allocator;
+import org.mmtk.utility.options.Options;
 import org.mmtk.utility.statistics.Stats;
 import org.mmtk.vm.VM;
 import static org.mmtk.plan.generational.Gen.USE_OBJECT_BARRIER_FOR_AASTORE;
@@ -56,6 +57,15 @@ import org.vmmagic.unboxed.*;
   protected final WriteBuffer remset;           /* remember modified array fields */
   protected final AddressPairDeque arrayRemset; /* remember modified array ranges */
 
+  /* Allocation site sampling, see AllocationSiteProfile */
+  private static final int SITE_SAMPLE_BYTES = 1 << 15;    /* bytes allocated between samples */
+  private static final int MAX_SITE_SAMPLES = 256;         /* samples held between collections */
+  private final AddressArray siteSampleRegions = AddressArray.create(MAX_SITE_SAMPLES);
+  private final int[] siteSampleSites = new int[MAX_SITE_SAMPLES];
+  private int siteSamples;          /* samples taken since the last collection */
+  private int siteSampleCountdown;  /* bytes to allocate before the next sample */
+  private int siteSampleRandom = 1; /* xorshift state for reservoir sampling */
+
   /****************************************************************************
    *
    * Initialization
@@ -87,19 +97,86 @@ import org.vmmagic.unboxed.*;
   @Inline
   public Address alloc(int bytes, int align, int offset, int allocator, int site) {
     if (allocator == Gen.ALLOC_NURSERY) {
+      if (AllocationSiteProfile.shouldPretenure(site)) {
+        return alloc(bytes, align, offset, Gen.ALLOC_MATURE, site);
+      }
       if (Stats.GATHER_MARK_CONS_STATS) Gen.nurseryCons.inc(bytes);
-      return nursery.alloc(bytes, align, offset);
+      Address region = nursery.alloc(bytes, align, offset);
+      siteSampleCountdown -= bytes;
+      if (siteSampleCountdown < 0) sampleSite(region, site);
+      return region;
     }
     return super.alloc(bytes, align, offset, allocator, site);
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Nursery allocations that were pretenured by allocation site are
+   * initialized as mature space allocations.  When card marking, objects
+   * allocated directly outside the nursery have their reference fields
+   * recorded in the slot map, since they will not be scanned until the
+   * next full heap collection.
+   */
   @Override
   @Inline
   public void postAlloc(ObjectReference ref, ObjectReference typeRef,
       int bytes, int allocator) {
     if (allocator != Gen.ALLOC_NURSERY) {
       super.postAlloc(ref, typeRef, bytes, allocator);
+      if (Gen.USE_CARD_MARKING) Gen.cardTable.recordObject(ref);
+    } else if (!Gen.inNursery(ref)) {
+      postAlloc(ref, typeRef, bytes, Gen.ALLOC_MATURE);
+      if (Gen.USE_CARD_MARKING) Gen.cardTable.recordObject(ref);
+    }
+  }
+
+  /**
+   * Take a sample of a nursery allocation, whose survival will be
+   * reported to the allocation site profile at the next collection.
+   * Samples are taken by allocation volume, and a reservoir of samples
+   * is kept so that those held are uniformly distributed over all of
+   * the allocation since the last collection.
+   *
+   * @param region The start of the sampled object
+   * @param site The allocation site of the sampled object
+   */
+  @NoInline
+  private void sampleSite(Address region, int site) {
+    if (!Options.sitePretenuring.getValue()) {
+      siteSampleCountdown = Integer.MAX_VALUE;
+      return;
+    }
+    siteSampleCountdown = SITE_SAMPLE_BYTES;
+    if (site == Plan.DEFAULT_SITE) return;
+    int index = siteSamples++;
+    if (index >= MAX_SITE_SAMPLES) {
+      siteSampleRandom ^= siteSampleRandom << 13;
+      siteSampleRandom ^= siteSampleRandom >>> 17;
+      siteSampleRandom ^= siteSampleRandom << 5;
+      index = (siteSampleRandom & Integer.MAX_VALUE) % siteSamples;
+      if (index >= MAX_SITE_SAMPLES) return;
+    }
+    siteSampleRegions.set(index, region);
+    siteSampleSites[index] = site;
+  }
+
+  /**
+   * Report the survival of each sampled nursery allocation to the
+   * allocation site profile.  This must be done before the nursery is
+   * released, while the forwarding state of its objects is intact.
+   */
+  private void reportSiteSamples() {
+    int count = Math.min(siteSamples, MAX_SITE_SAMPLES);
+    if (count == 0) return;
+    AllocationSiteProfile.acquireLock();
+    for (int i = 0; i < count; i++) {
+      ObjectReference object = VM.objectModel.getObjectFromStartAddress(siteSampleRegions.get(i));
+      if (object.isNull()) continue;
+      AllocationSiteProfile.record(siteSampleSites[i], Gen.nurserySpace.isLive(object));
     }
+    AllocationSiteProfile.releaseLock();
+    siteSamples = 0;
   }
 
   @Override
@@ -115,7 +192,8 @@ import org.vmmagic.unboxed.*;
 
   /**
    * Perform the write barrier fast path, which may involve remembering
-   * a reference if necessary.
+   * a reference if necessary.  When card marking, the card holding the
+   * slot is dirtied unconditionally.
    *
    * @param src The object into which the new reference will be stored
    * @param slot The address into which the new reference will be
@@ -126,7 +204,15 @@ import org.vmmagic.unboxed.*;
   @Inline
   private void fastPath(ObjectReference src, Address slot, ObjectReference tgt, int mode) {
     if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.wbFast.inc();
-    if ((mode == ARRAY_ELEMENT && USE_OBJECT_BARRIER_FOR_AASTORE) ||
+    if (Gen.USE_CARD_MARKING) {
+      if (!Space.isInSpace(Plan.VM_SPACE, slot)) {
+        Gen.cardTable.dirty(slot);
+      } else if (Gen.inNursery(tgt)) {
+        /* the boot image is never scanned by the collector, so its slots are remembered precisely */
+        if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.wbSlow.inc();
+        remset.insert(slot);
+      }
+    } else if ((mode == ARRAY_ELEMENT && USE_OBJECT_BARRIER_FOR_AASTORE) ||
         (mode == INSTANCE_FIELD && USE_OBJECT_BARRIER_FOR_PUTFIELD)) {
       if (HeaderByte.isUnlogged(src)) {
         if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.wbSlow.inc();
@@ -218,7 +304,11 @@ import org.vmmagic.unboxed.*;
   public final boolean objectReferenceBulkCopy(ObjectReference src, Offset srcOffset, ObjectReference dst, Offset dstOffset, int bytes) {
     if (!Gen.inNursery(dst)) {
       Address start = dst.toAddress().plus(dstOffset);
-      arrayRemset.insert(start, start.plus(bytes));
+      if (Gen.USE_CARD_MARKING && !Space.isInSpace(Plan.VM_SPACE, dst)) {
+        Gen.cardTable.dirtyRange(start, start.plus(bytes));
+      } else {
+        arrayRemset.insert(start, start.plus(bytes));
+      }
     }
     return false;
   }
@@ -266,6 +356,7 @@ import org.vmmagic.unboxed.*;
     }
 
     if (phaseId == Gen.RELEASE) {
+      reportSiteSamples();
       if (global().traceFullHeap()) {
         super.collectionPhase(phaseId, primary);
       }
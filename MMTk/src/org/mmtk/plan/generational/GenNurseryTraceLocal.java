@@ -41,6 +41,9 @@ public final class GenNurseryTraceLocal extends TraceLocal {
   private final ObjectReferenceDeque modbuf;
   private final AddressDeque remset;
   private final AddressPairDeque arrayRemset;
+  private final GenCollector collector;
+  /** Have the dirty cards been scanned by this thread in the current collection? */
+  private boolean cardsScanned;
 
   /**
    * @param trace the global trace class to use
@@ -51,6 +54,13 @@ public final class GenNurseryTraceLocal extends TraceLocal {
     this.modbuf = plan.modbuf;
     this.remset = plan.remset;
     this.arrayRemset = plan.arrayRemset;
+    this.collector = plan;
+  }
+
+  @Override
+  public void prepare() {
+    super.prepare();
+    cardsScanned = false;
   }
 
   /****************************************************************************
@@ -80,12 +90,32 @@ public final class GenNurseryTraceLocal extends TraceLocal {
     return object;
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * When card marking, the reference fields of each object scanned by a
+   * nursery trace (each promoted object) are recorded in the slot map.
+   */
+  @Override
+  @Inline
+  protected void scanObject(ObjectReference object) {
+    super.scanObject(object);
+    if (Gen.USE_CARD_MARKING && !Gen.inNursery(object)) {
+      Gen.cardTable.recordObject(object);
+    }
+  }
+
   /**
    * Process any remembered set entries.
    */
   @Override
   @Inline
   protected void processRememberedSets() {
+    if (Gen.USE_CARD_MARKING && !cardsScanned) {
+      logMessage(5, "processing dirty cards");
+      cardsScanned = true;
+      Gen.cardTable.scanDirtyCards(this, Gen.nurserySpace, collector.parallelWorkerOrdinal(), collector.parallelWorkerCount());
+    }
     logMessage(5, "processing modbuf");
     ObjectReference obj;
     while (!(obj = modbuf.pop()).isNull()) {
@@ -81,7 +81,6 @@ public class GenImmixMutator extends GenMutator {
   @Inline
   public final Address alloc(int bytes, int align, int offset, int allocator, int site) {
     if (allocator == GenImmix.ALLOC_MATURE) {
-      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(false); // no pretenuring yet
       return mature.alloc(bytes, align, offset);
     }
     return super.alloc(bytes, align, offset, allocator, site);
@@ -92,7 +91,7 @@ public class GenImmixMutator extends GenMutator {
   public final void postAlloc(ObjectReference ref, ObjectReference typeRef,
       int bytes, int allocator) {
     if (allocator == GenImmix.ALLOC_MATURE) {
-      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(false); // no pretenuring yet
+      GenImmix.immixSpace.postAlloc(ref, bytes);
     } else {
       super.postAlloc(ref, typeRef, bytes, allocator);
     }
@@ -0,0 +1,212 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.markcompact.parallel;
+
+import org.mmtk.plan.*;
+import org.mmtk.policy.RegionCompactSpace;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.heap.VMRequest;
+import org.mmtk.utility.sanitychecker.SanityChecker;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.ObjectReference;
+
+/**
+ * This class implements the global state of a parallel, region-based
+ * sliding mark-compact collector.<p>
+ *
+ * The collection follows the same schedule as
+ * {@link org.mmtk.plan.markcompact.MC}: a marking trace, a linear pass
+ * that decides where every live object will go, a second trace that
+ * updates every reference to its forwarded value, and a linear pass that
+ * slides the objects.  Unlike MC, no object
+ * header word is needed to hold the forwarding address.  The space is
+ * split into regions that are compacted independently, and the summarize
+ * pass records a small summary table from which the forwarding address
+ * of any live object is recomputed (see {@link RegionCompactSpace}).
+ * The collector threads each claim regions from the space, so that the
+ * summarize and compact passes both proceed in parallel.<p>
+ *
+ * This halves the per-object space overhead of mark-compact collection
+ * relative to MC, which matters when the heap is tight enough
+ * that compaction is the only option.
+ *
+ * @see RegionCompactSpace
+ * @see org.mmtk.policy.RegionCompactCollector
+ */
+@Uninterruptible public class PMC extends StopTheWorld {
+
+  /****************************************************************************
+   * Class variables
+   */
+
+  /** The mark compact space itself */
+  public static final RegionCompactSpace pmcSpace = new RegionCompactSpace("pmc", VMRequest.fraction(0.6f));
+
+  /** The space descriptor */
+  public static final int REGION_COMPACT = pmcSpace.getDescriptor();
+
+  /** Specialized method identifier for the MARK phase */
+  public static final int SCAN_MARK    = 0;
+
+  /** Specialized method identifier for the FORWARD phase */
+  public static final int SCAN_FORWARD = 1;
+
+  /* Phases */
+  public static final short PREPARE_FORWARD     = Phase.createSimple("fw-prepare");
+  public static final short FORWARD_CLOSURE     = Phase.createSimple("fw-closure");
+  public static final short RELEASE_FORWARD     = Phase.createSimple("fw-release");
+
+  /** Build the forwarding summary table via a linear scan over the heap */
+  public static final short SUMMARIZE           = Phase.createSimple("summarize");
+
+  /** Perform compaction via a linear scan over the heap */
+  public static final short COMPACT             = Phase.createSimple("compact");
+
+  // CHECKSTYLE:OFF
+
+  /**
+   * This is the phase that is executed to perform a mark-compact collection.
+   *
+   * FIXME: Far too much duplication and inside knowledge of StopTheWorld
+   * (shared with MC)
+   */
+  public short pmcCollection = Phase.createComplex("collection", null,
+      Phase.scheduleComplex  (initPhase),
+      Phase.scheduleComplex  (rootClosurePhase),
+      Phase.scheduleComplex  (refTypeClosurePhase),
+      Phase.scheduleComplex  (completeClosurePhase),
+      Phase.scheduleCollector(SUMMARIZE),
+      Phase.scheduleGlobal   (PREPARE_FORWARD),
+      Phase.scheduleCollector(PREPARE_FORWARD),
+      Phase.scheduleMutator  (PREPARE),
+      Phase.scheduleCollector(STACK_ROOTS),
+      Phase.scheduleCollector(ROOTS),
+      Phase.scheduleGlobal   (ROOTS),
+      Phase.scheduleComplex  (forwardPhase),
+      Phase.scheduleCollector(FORWARD_CLOSURE),
+      Phase.scheduleMutator  (RELEASE),
+      Phase.scheduleCollector(RELEASE_FORWARD),
+      Phase.scheduleGlobal   (RELEASE_FORWARD),
+      Phase.scheduleCollector(COMPACT),
+      Phase.scheduleComplex  (finishPhase));
+
+  // CHECKSTYLE:ON
+
+  /****************************************************************************
+   * Instance variables
+   */
+
+  /** This trace sets the mark bit in live objects */
+  public final Trace markTrace;
+
+  /** This trace updates pointers with the forwarded references */
+  public final Trace forwardTrace;
+
+  /**
+   * Constructor.
+   */
+  public PMC() {
+    markTrace = new Trace(metaDataSpace);
+    forwardTrace = new Trace(metaDataSpace);
+    collection = pmcCollection;
+  }
+
+  /*****************************************************************************
+   *
+   * Collection
+   */
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public final void collectionPhase(short phaseId) {
+    if (phaseId == PREPARE) {
+      super.collectionPhase(phaseId);
+      markTrace.prepare();
+      pmcSpace.prepare();
+      return;
+    }
+    if (phaseId == CLOSURE) {
+      markTrace.prepare();
+      return;
+    }
+    if (phaseId == RELEASE) {
+      markTrace.release();
+      pmcSpace.release();
+      super.collectionPhase(phaseId);
+      return;
+    }
+
+    if (phaseId == PREPARE_FORWARD) {
+      super.collectionPhase(PREPARE);
+      forwardTrace.prepare();
+      pmcSpace.prepare();
+      return;
+    }
+    if (phaseId == RELEASE_FORWARD) {
+      forwardTrace.release();
+      pmcSpace.release();
+      super.collectionPhase(RELEASE);
+      return;
+    }
+
+    super.collectionPhase(phaseId);
+  }
+
+  /*****************************************************************************
+   *
+   * Accounting
+   */
+
+  /**
+   * {@inheritDoc}
+   * The superclass accounts for its spaces, we just
+   * augment this with the mark-compact space's contribution.
+   */
+  @Override
+  public int getPagesUsed() {
+    return (pmcSpace.reservedPages() + super.getPagesUsed());
+  }
+
+  @Override
+  public boolean willNeverMove(ObjectReference object) {
+    if (Space.isInSpace(REGION_COMPACT, object))
+      return false;
+    return super.willNeverMove(object);
+  }
+
+  @Override
+  public int sanityExpectedRC(ObjectReference object, int sanityRootRC) {
+    Space space = Space.getSpaceForObject(object);
+
+    if (space == PMC.pmcSpace) {
+      // We are never sure about objects in PMC.
+      // This is not very satisfying but allows us to use the sanity checker to
+      // detect dangling pointers.
+      return SanityChecker.UNSURE;
+    }
+    return super.sanityExpectedRC(object, sanityRootRC);
+  }
+
+  @Override
+  @Interruptible
+  protected void registerSpecializedMethods() {
+    TransitiveClosure.registerSpecializedScan(SCAN_MARK, PMCMarkTraceLocal.class);
+    TransitiveClosure.registerSpecializedScan(SCAN_FORWARD, PMCForwardTraceLocal.class);
+    super.registerSpecializedMethods();
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.markcompact.parallel;
+
+import org.mmtk.plan.*;
+import org.mmtk.policy.RegionCompactCollector;
+
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+
+/**
+ * This class implements <i>per-collector thread</i> behavior
+ * and state for the <i>PMC</i> plan, which implements a full-heap
+ * region-based parallel mark-compact collector.<p>
+ *
+ * Specifically, this class defines <i>PMC</i> collection behavior
+ * (through <code>trace</code> and the <code>collectionPhase</code>
+ * method), and collection-time allocation.<p>
+ *
+ * @see PMC for an overview of the mark-compact algorithm
+ * @see PMCMutator
+ * @see StopTheWorldCollector
+ * @see CollectorContext
+ */
+@Uninterruptible
+public class PMCCollector extends StopTheWorldCollector {
+
+  private static final boolean TRACE_MARK = false;
+  private static final boolean TRACE_FORWARD = true;
+
+  /****************************************************************************
+   * Instance fields
+   */
+
+  /**
+   *
+   */
+  private final PMCMarkTraceLocal markTrace;
+  private final PMCForwardTraceLocal forwardTrace;
+  private final RegionCompactCollector pmc;
+  private boolean currentTrace;
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * Constructor
+   */
+  public PMCCollector() {
+    markTrace = new PMCMarkTraceLocal(global().markTrace);
+    pmc = new RegionCompactCollector(PMC.pmcSpace);
+    forwardTrace = new PMCForwardTraceLocal(global().forwardTrace, pmc.getForwardingCursor());
+  }
+
+  /****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public final void collectionPhase(short phaseId, boolean primary) {
+    if (phaseId == PMC.PREPARE) {
+      currentTrace = TRACE_MARK;
+      super.collectionPhase(phaseId, primary);
+      markTrace.prepare();
+      return;
+    }
+
+    if (phaseId == PMC.CLOSURE) {
+      markTrace.completeTrace();
+      return;
+    }
+
+    if (phaseId == PMC.SUMMARIZE) {
+      pmc.summarize();
+      return;
+    }
+
+    if (phaseId == PMC.COMPACT) {
+      pmc.compact();
+      return;
+    }
+
+    if (phaseId == PMC.RELEASE) {
+      markTrace.release();
+      super.collectionPhase(phaseId, primary);
+      return;
+    }
+
+    if (phaseId == PMC.PREPARE_FORWARD) {
+      currentTrace = TRACE_FORWARD;
+      super.collectionPhase(PMC.PREPARE, primary);
+      forwardTrace.prepare();
+      return;
+    }
+
+    if (phaseId == PMC.FORWARD_CLOSURE) {
+      forwardTrace.completeTrace();
+      return;
+    }
+
+    if (phaseId == PMC.RELEASE_FORWARD) {
+      forwardTrace.release();
+      super.collectionPhase(PMC.RELEASE, primary);
+      return;
+    }
+
+    super.collectionPhase(phaseId, primary);
+  }
+
+  /****************************************************************************
+   *
+   * Miscellaneous
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final TraceLocal getCurrentTrace() {
+    if (currentTrace == TRACE_MARK) {
+      return markTrace;
+    }
+    return forwardTrace;
+  }
+
+  /** @return The active global plan as a <code>PMC</code> instance. */
+  @Inline
+  private static PMC global() {
+    return (PMC) VM.activePlan.global();
+  }
+}
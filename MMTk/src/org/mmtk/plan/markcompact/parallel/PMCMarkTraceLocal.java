@@ -0,0 +1,83 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.markcompact.parallel;
+
+import org.mmtk.plan.TraceLocal;
+import org.mmtk.plan.Trace;
+import org.mmtk.policy.Space;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements the thread-local functionality for a transitive
+ * closure over a mark-compact space during the initial marking phase.
+ */
+@Uninterruptible
+public final class PMCMarkTraceLocal extends TraceLocal {
+
+  /**
+   * @param trace the associated global trace
+   */
+  public PMCMarkTraceLocal(Trace trace) {
+    super(PMC.SCAN_MARK, trace);
+  }
+
+  /****************************************************************************
+   *
+   * Externally visible Object processing and tracing
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isLive(ObjectReference object) {
+    if (object.isNull()) return false;
+    if (Space.isInSpace(PMC.REGION_COMPACT, object)) {
+      return PMC.pmcSpace.isLive(object);
+    }
+    return super.isLive(object);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this instance, we refer objects in the mark-compact space to the
+   * pmcSpace for tracing, and defer to the superclass for all others.
+   *
+   * @param object The object to be traced.
+   * @return The new reference to the same object instance.
+   */
+  @Override
+  @Inline
+  public ObjectReference traceObject(ObjectReference object) {
+    if (object.isNull()) return object;
+    if (Space.isInSpace(PMC.REGION_COMPACT, object))
+      return PMC.pmcSpace.traceMarkObject(this, object);
+    return super.traceObject(object);
+  }
+
+  /**
+   * Will this object move from this point on, during the current trace ?
+   *
+   * @param object The object to query.
+   * @return <code>true</code> if the object will not move.
+   */
+  @Override
+  public boolean willNotMoveInCurrentCollection(ObjectReference object) {
+    // All objects in the PMC space may move
+    return !Space.isInSpace(PMC.REGION_COMPACT, object);
+  }
+
+}
@@ -0,0 +1,138 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.markcompact.parallel;
+
+import org.mmtk.plan.StopTheWorldMutator;
+import org.mmtk.policy.RegionCompactLocal;
+import org.mmtk.policy.Space;
+
+import org.mmtk.utility.alloc.Allocator;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements <i>per-mutator thread</i> behavior
+ * and state for the <i>PMC</i> plan, which implements a full-heap
+ * region-based parallel mark-compact collector.<p>
+ *
+ * Specifically, this class defines <i>PMC</i> mutator-time allocation
+ * and per-mutator thread collection semantics (flushing and restoring
+ * per-mutator allocator state).<p>
+ *
+ * See {@link PMC} for an overview of the mark-compact algorithm.
+ *
+ * @see PMC
+ * @see PMCCollector
+ * @see org.mmtk.plan.StopTheWorldMutator
+ * @see org.mmtk.plan.MutatorContext
+ */
+@Uninterruptible public class PMCMutator extends StopTheWorldMutator {
+
+  /****************************************************************************
+   * Instance fields
+   */
+  private final RegionCompactLocal pmc;
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * Constructor
+   */
+  public PMCMutator() {
+    pmc = new RegionCompactLocal(PMC.pmcSpace);
+  }
+
+  /****************************************************************************
+   *
+   * Mutator-time allocation
+   */
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * This class handles the default allocator from the mark-compact space,
+   * and delegates everything else to the superclass.
+   */
+  @Override
+  @Inline
+  public Address alloc(int bytes, int align, int offset, int allocator, int site) {
+    if (allocator == PMC.ALLOC_DEFAULT) {
+      return pmc.alloc(bytes, align, offset);
+    }
+    return super.alloc(bytes, align, offset, allocator, site);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Initialize the object header for objects in the mark-compact space,
+   * and delegate to the superclass for other objects.
+   */
+  @Override
+  @Inline
+  public void postAlloc(ObjectReference ref, ObjectReference typeRef,
+      int bytes, int allocator) {
+    if (allocator == PMC.ALLOC_DEFAULT)
+      PMC.pmcSpace.initializeHeader(ref);
+    else
+      super.postAlloc(ref, typeRef, bytes, allocator);
+  }
+
+  @Override
+  public Allocator getAllocatorFromSpace(Space space) {
+    if (space == PMC.pmcSpace) return pmc;
+    return super.getAllocatorFromSpace(space);
+  }
+
+
+  /****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public final void collectionPhase(short phaseId, boolean primary) {
+    if (phaseId == PMC.PREPARE) {
+      pmc.prepare();
+      super.collectionPhase(phaseId, primary);
+      return;
+    }
+
+    if (phaseId == PMC.RELEASE) {
+      super.collectionPhase(phaseId, primary);
+      return;
+    }
+    super.collectionPhase(phaseId, primary);
+  }
+
+  /**
+   * Flush the pages this mutator has allocated back to the global
+   * dirty page list, where the collectors can find them.
+   */
+  @Override
+  public void flush() {
+    super.flush();
+    pmc.flush();
+  }
+
+
+
+}
@@ -20,6 +20,7 @@ import org.mmtk.plan.refcount.backuptrace.BTSweeper;
 import org.mmtk.policy.ExplicitFreeListSpace;
 import org.mmtk.policy.ExplicitLargeObjectSpace;
 import org.mmtk.policy.Space;
+import org.mmtk.policy.immix.ImmixSpace;
 import org.mmtk.utility.Log;
 import org.mmtk.utility.alloc.LinearScan;
 import org.mmtk.utility.deque.SharedDeque;
@@ -58,6 +59,9 @@ public class RCBase extends StopTheWorld {
   /** True if we are building for generational RC */
   public static final boolean BUILD_FOR_GENRC = ((RCBaseConstraints) VM.activePlan.constraints()).buildForGenRC();
 
+  /** True if we are building for reference counting over an immix heap */
+  public static final boolean BUILD_FOR_RCIMMIX = ((RCBaseConstraints) VM.activePlan.constraints()).buildForRCImmix();
+
   // CHECKSTYLE:OFF
 
   /**
@@ -145,9 +149,12 @@ public class RCBase extends StopTheWorld {
    */
   public static final ExplicitFreeListSpace rcSpace = new ExplicitFreeListSpace("rc", VMRequest.discontiguous());
   public static final ExplicitLargeObjectSpace rcloSpace = new ExplicitLargeObjectSpace("rclos", VMRequest.discontiguous());
+  /** The immix space, which holds the default allocations of RC-Immix */
+  public static final ImmixSpace rcImmixSpace = BUILD_FOR_RCIMMIX ? new ImmixSpace("immix", VMRequest.discontiguous()) : null;
 
   public static final int REF_COUNT = rcSpace.getDescriptor();
   public static final int REF_COUNT_LOS = rcloSpace.getDescriptor();
+  public static final int REF_COUNT_IMMIX = BUILD_FOR_RCIMMIX ? rcImmixSpace.getDescriptor() : 0;
 
   public final SharedDeque modPool = new SharedDeque("mod", metaDataSpace, 1);
   public final SharedDeque decPool = new SharedDeque("dec", metaDataSpace, 1);
@@ -201,7 +208,8 @@ public class RCBase extends StopTheWorld {
    * @return whether the object is subject to collection by reference counting
    */
   public static final boolean isRCObject(ObjectReference object) {
-    return !object.isNull() && (Space.isInSpace(REF_COUNT, object) || Space.isInSpace(REF_COUNT_LOS, object));
+    return !object.isNull() && (Space.isInSpace(REF_COUNT, object) || Space.isInSpace(REF_COUNT_LOS, object) ||
+        (BUILD_FOR_RCIMMIX && Space.isInSpace(REF_COUNT_IMMIX, object)));
   }
 
   @Override
@@ -230,6 +238,7 @@ public class RCBase extends StopTheWorld {
       rootTrace.prepare();
       rcSpace.prepare();
       if (CC_BACKUP_TRACE && performCycleCollection) {
+        RCHeader.advanceMarkState();
         backupTrace.prepare();
       }
       return;
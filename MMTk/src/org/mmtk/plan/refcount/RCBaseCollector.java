@@ -137,7 +137,7 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
                 modBuffer.push(current);
               }
             }
-            backupTrace.processNode(current);
+            backupTrace.processMarkedNode(current);
           } else {
             if (RCBase.BUILD_FOR_GENRC) {
               RCHeader.incRC(current);
@@ -206,6 +206,8 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
               RCBase.rcSpace.free(current);
             } else if (Space.isInSpace(RCBase.REF_COUNT_LOS, current)) {
               RCBase.rcloSpace.free(current);
+            } else if (RCBase.BUILD_FOR_RCIMMIX && Space.isInSpace(RCBase.REF_COUNT_IMMIX, current)) {
+              RCBase.rcImmixSpace.decLineCounts(current);
             } else if (Space.isInSpace(RCBase.IMMORTAL, current)) {
               VM.scanning.scanObject(zero, current);
             }
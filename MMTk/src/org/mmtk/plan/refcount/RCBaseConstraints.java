@@ -49,4 +49,8 @@ public class RCBaseConstraints extends StopTheWorldConstraints {
   public boolean buildForGenRC() {
     return false;
   }
+  /** @return {@code true} if we are building for reference counting over an immix heap */
+  public boolean buildForRCImmix() {
+    return false;
+  }
 }
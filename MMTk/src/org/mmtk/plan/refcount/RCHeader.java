@@ -128,12 +128,20 @@ public class RCHeader {
    * RC header word
    */
 
-  /** The mark bit used for backup tracing. */
+  /**
+   * The mark bits used for backup tracing.  RC-Immix does not sweep the
+   * objects in its immix space, so cannot clear their marks; it uses two
+   * bits and moves through three mark states instead.  A cleared mark is
+   * never the current mark state.
+   */
   public static final int MARK_BIT = LOG_BIT + 2;
-  public static final Word MARK_BIT_MASK = Word.one().lsh(MARK_BIT);
+  public static final int MARK_BITS = ((RCBaseConstraints) VM.activePlan.constraints()).buildForRCImmix() ? 2 : 1;
+  public static final Word MARK_INCREMENT = Word.one().lsh(MARK_BIT);
+  public static final Word MARK_BIT_MASK = Word.one().lsh(MARK_BITS).minus(Word.one()).lsh(MARK_BIT);
+  private static Word markState = MARK_INCREMENT;
 
   /** The bit used for newly allocated objects. */
-  public static final int NEW_BIT = MARK_BIT + 1;
+  public static final int NEW_BIT = MARK_BIT + MARK_BITS;
   public static final Word NEW_BIT_MASK = Word.one().lsh(NEW_BIT);
 
   /** Current not using any bits for cycle detection, etc */
@@ -163,6 +171,15 @@ public class RCHeader {
   public static final Word WRITE_MASK = refSticky.not();
   public static final Word READ_MASK = refSticky;
 
+  /**
+   * Move to the next mark state, before a backup trace.  This is a
+   * no-op unless more than one mark bit is in use.
+   */
+  public static void advanceMarkState() {
+    markState = markState.plus(MARK_INCREMENT).and(MARK_BIT_MASK);
+    if (markState.isZero()) markState = MARK_INCREMENT;
+  }
+
   /**
    * @param object an object
    * @return whether the object been marked by the most recent backup trace
@@ -192,7 +209,7 @@ public class RCHeader {
    */
   @Inline
   private static boolean isHeaderMarked(Word header) {
-    return header.and(MARK_BIT_MASK).EQ(MARK_BIT_MASK);
+    return header.and(MARK_BIT_MASK).EQ(markState);
   }
 
   /**
@@ -210,7 +227,7 @@ public class RCHeader {
       if (isHeaderMarked(oldValue)) {
         return false;
       }
-      newValue = oldValue.or(MARK_BIT_MASK);
+      newValue = oldValue.and(MARK_BIT_MASK.not()).or(markState);
     } while (!VM.objectModel.attemptAvailableBits(object, oldValue, newValue));
     return true;
   }
@@ -233,6 +250,37 @@ public class RCHeader {
     return header.and(NEW_BIT_MASK).NE(NEW_BIT_MASK);
   }
 
+  /**
+   * Is an object young, i.e. allocated since the last collection and
+   * not yet processed by this one?  Only meaningful for objects in the
+   * immix space of RC-Immix, where young objects have a zero header
+   * (and so are neither logged nor new) until they either die or are
+   * made mature, and where a young object may be forwarded during a
+   * collection.  Mature objects are never being logged during a
+   * collection.
+   *
+   * @param object an object
+   * @return whether the object is young
+   */
+  @Inline
+  public static boolean isYoung(ObjectReference object) {
+    Word header = VM.objectModel.readAvailableBitsWord(object);
+    return header.and(BEING_LOGGED.xor(UNLOGGED)).NE(Word.zero()) || isHeaderNew(header);
+  }
+
+  /**
+   * Make a young object mature, with a zero reference count, and
+   * unlogged, so that its first subsequent mutation is logged.
+   *
+   * @param object the object, which may be a copy of the young object
+   * @param status the header of the young object before it was forwarded
+   */
+  @Inline
+  public static void makeMature(ObjectReference object, Word status) {
+    Word value = status.and(LOGGING_MASK.or(MARK_BIT_MASK).or(READ_MASK).not());
+    VM.objectModel.writeAvailableBitsWord(object, value.or(UNLOGGED).or(NEW_BIT_MASK));
+  }
+
   /**
    * Perform any required initialization of the GC portion of the header.
    *
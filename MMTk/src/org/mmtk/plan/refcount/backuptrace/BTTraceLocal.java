@@ -16,6 +16,7 @@ import org.mmtk.plan.TraceLocal;
 import org.mmtk.plan.Trace;
 import org.mmtk.plan.refcount.RCBase;
 import org.mmtk.plan.refcount.RCHeader;
+import org.mmtk.policy.Space;
 
 import org.vmmagic.pragma.*;
 import org.vmmagic.unboxed.*;
@@ -62,11 +63,26 @@ public BTTraceLocal(Trace trace) {
     if (RCBase.isRCObject(object)) {
       if (RCHeader.testAndMark(object)) {
         RCHeader.initRC(object);
-        processNode(object);
+        processMarkedNode(object);
       } else {
         RCHeader.incRC(object);
       }
     }
     return object;
   }
+
+  /**
+   * Enqueue an object which has just been marked, first accounting for
+   * the lines it occupies if it is in the immix space of RC-Immix, whose
+   * line live counts are recomputed by the backup trace.
+   *
+   * @param object The newly marked object.
+   */
+  @Inline
+  public void processMarkedNode(ObjectReference object) {
+    if (RCBase.BUILD_FOR_RCIMMIX && Space.isInSpace(RCBase.REF_COUNT_IMMIX, object)) {
+      RCBase.rcImmixSpace.incLineCounts(object);
+    }
+    processNode(object);
+  }
 }
@@ -0,0 +1,130 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.refcount.immix;
+
+import org.mmtk.plan.refcount.RCBase;
+import org.mmtk.plan.refcount.RCHeader;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.Log;
+import org.mmtk.utility.options.Options;
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.ObjectReference;
+
+/**
+ * This class implements the global state of RC-Immix, a deferred
+ * reference counting collector over an immix line and block heap.
+ * See Shahriyar et al for details of and rationale for the design
+ * (http://dx.doi.org/10.1145/2509136.2509527).<p>
+ *
+ * Objects are allocated into the immix space by bump pointer.  An object
+ * is <i>young</i> until the first collection after its allocation: it is
+ * not logged and has no reference count, just as the nursery objects of
+ * generational RC.  Young objects which survive are found from the roots
+ * and from the modified fields of mature objects, and are then either
+ * copied into free lines, or made mature in place when free space is too
+ * scarce to copy them.  Mature objects are never moved.<p>
+ *
+ * Each line has a count of the mature live objects which overlap it.
+ * The count is incremented when an object becomes mature and decremented
+ * when its reference count drops to zero, and the line marks are derived
+ * from the counts before the blocks are swept.  A line is therefore free
+ * for reuse as soon as no mature object overlaps it.  The backup trace
+ * which collects cycles recomputes the counts from scratch.
+ */
+@Uninterruptible
+public class RCImmix extends RCBase {
+
+  /** The allocator used to copy surviving young objects */
+  public static final int ALLOC_COPY = RCBase.ALLOCATORS + 1;
+
+  /** Are surviving young objects copied in the current collection? */
+  static boolean copyYoungObjects = false;
+
+  /*****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * @param object an object reference
+   * @return whether the object is a young object in the immix space
+   */
+  @Inline
+  public static boolean isYoung(ObjectReference object) {
+    return Space.isInSpace(REF_COUNT_IMMIX, object) && RCHeader.isYoung(object);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final void collectionPhase(short phaseId) {
+    if (phaseId == SET_COLLECTION_KIND) {
+      super.collectionPhase(phaseId);
+      copyYoungObjects = !emergencyCollection && collectionAttempt <= 1 &&
+          getPagesAvail() > rcImmixSpace.getPagesAllocated();
+      if (!copyYoungObjects && Options.verbose.getValue() > 0) Log.write(" [in place] ");
+      return;
+    }
+
+    if (phaseId == PREPARE) {
+      rcImmixSpace.prepare(true);
+      super.collectionPhase(phaseId);
+      return;
+    }
+
+    if (phaseId == RELEASE) {
+      super.collectionPhase(phaseId);
+      rcImmixSpace.release(true);
+      return;
+    }
+
+    super.collectionPhase(phaseId);
+  }
+
+  @Override
+  public final boolean collectionRequired(boolean spaceFull, Space space) {
+    boolean youngFull = rcImmixSpace.getPagesAllocated() > Options.nurserySize.getMaxNursery();
+    return super.collectionRequired(spaceFull, space) || youngFull;
+  }
+
+  /*****************************************************************************
+   *
+   * Accounting
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getPagesUsed() {
+    return rcImmixSpace.reservedPages() + super.getPagesUsed();
+  }
+
+  @Override
+  public boolean willNeverMove(ObjectReference object) {
+    if (Space.isInSpace(REF_COUNT_IMMIX, object)) {
+      return !RCHeader.isYoung(object);
+    }
+    if (Space.isInSpace(REF_COUNT_LOS, object)) {
+      return true;
+    }
+    return super.willNeverMove(object);
+  }
+
+  @Override
+  @Interruptible
+  public void preCollectorSpawn() {
+    rcImmixSpace.initializeDefrag();
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.refcount.immix;
+
+import org.mmtk.plan.TraceLocal;
+import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.plan.refcount.RCBase;
+import org.mmtk.plan.refcount.RCBaseCollector;
+import org.mmtk.plan.refcount.RCHeader;
+import org.mmtk.policy.immix.CollectorLocal;
+import org.mmtk.utility.alloc.ImmixAllocator;
+import org.mmtk.vm.VM;
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.ObjectReference;
+
+/**
+ * This class implements the collector context for RC-Immix.  Surviving
+ * young objects are copied into free lines of the immix space.
+ */
+@Uninterruptible
+public class RCImmixCollector extends RCBaseCollector {
+  private final RCImmixFindRootSetTraceLocal rootTrace;
+  private final RCImmixModifiedProcessor modProcessor;
+  private final CollectorLocal immix;
+  private final ImmixAllocator copy;
+
+  public RCImmixCollector() {
+    rootTrace = new RCImmixFindRootSetTraceLocal(global().rootTrace, newRootBuffer);
+    modProcessor = new RCImmixModifiedProcessor(rootTrace);
+    immix = new CollectorLocal(RCImmix.rcImmixSpace);
+    copy = new ImmixAllocator(RCImmix.rcImmixSpace, true, true);
+  }
+
+  /****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final void collectionPhase(short phaseId, boolean primary) {
+    if (phaseId == RCBase.PREPARE) {
+      super.collectionPhase(phaseId, primary);
+      immix.prepare(true);
+      copy.reset();
+      if (RCBase.performCycleCollection) immix.clearLineCounts();
+      return;
+    }
+
+    if (phaseId == RCBase.RELEASE) {
+      immix.release(true);
+      super.collectionPhase(phaseId, primary);
+      return;
+    }
+
+    super.collectionPhase(phaseId, primary);
+  }
+
+  /****************************************************************************
+   *
+   * Collection-time allocation
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public final Address allocCopy(ObjectReference original, int bytes,
+      int align, int offset, int allocator) {
+    if (VM.VERIFY_ASSERTIONS) {
+      VM.assertions._assert(allocator == RCImmix.ALLOC_COPY);
+    }
+    return copy.alloc(bytes, align, offset);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * The copy is mature, and its lines are counted unless the backup
+   * trace is about to recompute the line counts.
+   */
+  @Override
+  @Inline
+  public final void postCopy(ObjectReference object, ObjectReference typeRef,
+                             int bytes, int allocator) {
+    RCHeader.makeMature(object, VM.objectModel.readAvailableBitsWord(object));
+    if (!RCBase.performCycleCollection) RCImmix.rcImmixSpace.incLineCounts(object);
+  }
+
+  @Override
+  protected final TransitiveClosure getModifiedProcessor() {
+    return modProcessor;
+  }
+
+  @Override
+  protected final TraceLocal getRootTrace() {
+    return rootTrace;
+  }
+}
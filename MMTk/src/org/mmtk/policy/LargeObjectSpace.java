@@ -27,7 +27,15 @@ import org.vmmagic.unboxed.*;
 
 /**
  * Each instance of this class corresponds to one explicitly managed
- * large object space.
+ * large object space.<p>
+ *
+ * Dead objects are swept in parallel: each collector thread pops
+ * objects from the treadmill and releases their pages during its
+ * release phase, and the global release sweeps whatever remains.
+ * Released page runs are kept in size bins by the page resource, so
+ * that objects of a recurring size reuse them without a search of the
+ * free list.  The bins are returned to the free list as each
+ * collection starts.
  */
 @Uninterruptible
 public final class LargeObjectSpace extends BaseLargeObjectSpace {
@@ -56,6 +64,8 @@ public final class LargeObjectSpace extends BaseLargeObjectSpace {
    */
   private byte markState;
   private boolean inNurseryGC;
+  /** Has the space been prepared for a collection, but not yet swept? */
+  private boolean sweepPending;
   private final Treadmill treadmill;
 
   /****************************************************************************
@@ -87,6 +97,7 @@ public final class LargeObjectSpace extends BaseLargeObjectSpace {
   public LargeObjectSpace(String name, boolean zeroed, VMRequest vmRequest) {
     super(name, zeroed, vmRequest);
     treadmill = new Treadmill(LOG_BYTES_IN_PAGE, true);
+    ((FreeListPageResource) pr).enableRunBins();
     markState = 0;
   }
 
@@ -111,11 +122,26 @@ public final class LargeObjectSpace extends BaseLargeObjectSpace {
     }
     treadmill.flip(fullHeap);
     inNurseryGC = !fullHeap;
+    ((FreeListPageResource) pr).releaseRunBins();
+    sweepPending = true;
+  }
+
+  /**
+   * Sweep the large pages in parallel with the other collector threads.
+   * This is called by each collector thread once tracing is complete,
+   * before the (single threaded) {@link #release(boolean)}.  It does
+   * nothing if the space was not prepared for this collection.
+   */
+  public void parallelSweep() {
+    if (!sweepPending) return;
+    sweepLargePages(true);
+    if (!inNurseryGC) sweepLargePages(false);
   }
 
   /**
    * A new collection increment has completed.  For the mark-sweep
-   * collector this means we can perform the sweep phase.
+   * collector this means we can perform the sweep phase, which
+   * releases any large pages not already swept in parallel.
    *
    * @param fullHeap whether the collection was full heap
    */
@@ -124,6 +150,7 @@ public final class LargeObjectSpace extends BaseLargeObjectSpace {
     sweepLargePages(true);                // sweep the nursery
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(treadmill.nurseryEmpty());
     if (fullHeap) sweepLargePages(false); // sweep the mature space
+    sweepPending = false;
   }
 
   /**
@@ -0,0 +1,202 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.policy;
+
+import org.mmtk.utility.alloc.BumpPointer;
+import org.mmtk.vm.VM;
+import org.vmmagic.pragma.Inline;
+import org.vmmagic.pragma.Uninterruptible;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.Extent;
+import org.vmmagic.unboxed.ObjectReference;
+
+/**
+ * This class implements unsynchronized (local) per-collector-thread elements of a
+ * sliding mark-compact collector that keeps its forwarding addresses in a
+ * summary table.
+ *<p>
+ * Specifically, this class provides the methods that
+ * <ul>
+ *  <li>Summarize the live objects of (part of) the heap, in a linear pass
+ *   that simulates compacting them and records the state of the copy cursor
+ *   at the first live object of each summary block</li>
+ *  <li>Performs the compaction pass over the heap.</li>
+ * </ul>
+ *<p>
+ * Each collector thread maintains a private list of the regions that it compacts.
+ * If it runs out of work during the summarize pass, it requests a new region
+ * from the global RegionCompactSpace.  Objects are only ever moved to regions
+ * earlier in the same list, so collector threads summarize and compact their
+ * lists independently of each other.  Regions compacted by a collector remain
+ * local to the collector.
+ *
+ * @see RegionCompactSpace
+ * @see RegionCompactLocal
+ */
+@Uninterruptible
+public final class RegionCompactCollector {
+
+  private final RegionCompactSpace space;
+
+  /**
+   * This collector's work list
+   */
+  private Address regions = Address.zero();
+
+  /** The simulated (or real) copy cursor */
+  private final RegionCompactSpace.ForwardingCursor toCursor = new RegionCompactSpace.ForwardingCursor();
+
+  /**
+   * Constructor
+   *
+   * @param space The space to bump point into.
+   */
+  public RegionCompactCollector(RegionCompactSpace space) {
+    this.space = space;
+  }
+
+  /**
+   * @return The cursor used by this collector's forwarding trace to
+   * recompute forwarding addresses
+   */
+  public RegionCompactSpace.ForwardingCursor getForwardingCursor() {
+    return toCursor;
+  }
+
+  /**
+   * Perform a linear scan through the regions in this collector's list,
+   * taking further regions from the space when the list is exhausted, and
+   * simulate copying each live object to its position after compaction.
+   * Whenever the first live object of a summary block is reached, the
+   * position of the copy cursor is recorded in the summary table.
+   */
+  public void summarize() {
+    if (regions.isZero()) {
+      regions = space.getNextRegion();
+    }
+
+    if (regions.isZero())
+      return;
+
+    toCursor.init(regions, BumpPointer.getDataStart(regions));
+    ObjectReference lastLive = ObjectReference.nullReference();
+
+    Address region = regions;
+    while (!region.isZero()) {
+      if (VM.VERIFY_ASSERTIONS) BumpPointer.checkRegionMetadata(region);
+      Address cursor = BumpPointer.getDataStart(region);
+      Address limit = BumpPointer.getDataEnd(region);
+
+      /* Loop through the objects in the current region */
+      while (cursor.LT(limit)) {
+        ObjectReference current = VM.objectModel.getObjectFromStartAddress(cursor);
+        cursor = VM.objectModel.getObjectEndAddress(current);
+
+        if (RegionCompactSpace.isMarked(current)) {
+          if (lastLive.isNull() || !RegionCompactSpace.inSameSummaryBlock(current, lastLive)) {
+            RegionCompactSpace.setSummary(current, toCursor);
+          }
+          toCursor.forward(current);
+          lastLive = current;
+        }
+      }
+      region = nextForwardableRegion(region);
+    }
+  }
+
+  /**
+   * Advance to the next region in this collector's list, or to a new
+   * region taken from the global list.
+   *
+   * @param region The region that has just been summarized
+   * @return The next region, or zero if there are no more regions
+   */
+  private Address nextForwardableRegion(Address region) {
+    Address nextRegion = BumpPointer.getNextRegion(region);
+    if (nextRegion.isZero()) {
+      nextRegion = space.getNextRegion();
+      if (nextRegion.isZero()) {
+        return Address.zero();
+      }
+      BumpPointer.setNextRegion(region, nextRegion);
+      BumpPointer.clearNextRegion(nextRegion);
+    }
+    return nextRegion;
+  }
+
+  /**
+   * Perform the compacting phase of the collection, replaying the
+   * calculation of the summarize pass.
+   */
+  public void compact() {
+    if (regions.isZero()) return;
+
+    toCursor.init(regions, BumpPointer.getDataStart(regions));
+
+    Address region = regions;
+    while (!region.isZero()) {
+      Address cursor = BumpPointer.getDataStart(region);
+      Address limit = BumpPointer.getDataEnd(region);
+
+      /* Loop through the objects in the region */
+      while (cursor.LT(limit)) {
+        ObjectReference current = VM.objectModel.getObjectFromStartAddress(cursor);
+        cursor = VM.objectModel.getObjectEndAddress(current);
+
+        if (RegionCompactSpace.isMarked(current)) {
+          Address toRegion = toCursor.getRegion();
+          Address start = toCursor.get();
+          ObjectReference copyTo = toCursor.forward(current);
+          if (!toCursor.getRegion().EQ(toRegion)) {
+            // Update metadata and move on
+            finish(toRegion, start);
+            start = BumpPointer.getDataStart(toCursor.getRegion());
+          }
+          VM.objectModel.copyTo(current, copyTo, start);
+          RegionCompactSpace.clearGCBits(copyTo);
+        }
+      }
+      region = BumpPointer.getNextRegion(region);
+    }
+
+    /* Fix up the last region, and terminate the list there */
+    Address lastRegion = toCursor.getRegion();
+    region = BumpPointer.getNextRegion(lastRegion);
+    BumpPointer.clearNextRegion(lastRegion);
+    finish(lastRegion, toCursor.get());
+
+    /*
+     * Return unused pages to the global page resource
+     */
+    while (!region.isZero()) {
+      Address nextRegion = BumpPointer.getNextRegion(region);
+      space.release(region);
+      region = nextRegion;
+    }
+  }
+
+  /**
+   * Update the metadata of a region that has been compacted into, and
+   * zero the region from the end of its data to its limit.
+   *
+   * @param region The region
+   * @param dataEnd The end of the compacted data in the region
+   */
+  @Inline
+  private static void finish(Address region, Address dataEnd) {
+    Extent zeroBytes = BumpPointer.getRegionLimit(region).diff(dataEnd).toWord().toExtent();
+    VM.memory.zero(false, dataEnd, zeroBytes);
+    BumpPointer.setDataEnd(region, dataEnd);
+    if (VM.VERIFY_ASSERTIONS) BumpPointer.checkRegionMetadata(region);
+  }
+}
@@ -0,0 +1,454 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.policy;
+
+import static org.mmtk.utility.Constants.*;
+
+import org.mmtk.plan.TraceLocal;
+import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.utility.Conversions;
+import org.mmtk.utility.alloc.Allocator;
+import org.mmtk.utility.alloc.BumpPointer;
+import org.mmtk.utility.alloc.EmbeddedMetaData;
+import org.mmtk.utility.heap.*;
+
+import org.mmtk.vm.Lock;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.unboxed.*;
+import org.vmmagic.pragma.*;
+
+/**
+ * This class implements a sliding mark-compact space that does not
+ * need a forwarding word in the object header.<p>
+ *
+ * The space is divided into <i>summary blocks</i> of
+ * {@link #BYTES_IN_SUMMARY_BLOCK} bytes.  When the forwarding addresses
+ * are calculated, a summary table kept in the meta data of each chunk
+ * records, for every summary block that contains a live object, the
+ * first live object in the block and the position of the (simulated)
+ * copy cursor just before that object is forwarded.  The forwarding
+ * address of any live object is recomputed on demand from the entry
+ * for its block, by replaying the cursor over the live objects that
+ * precede it in the block (see {@link ForwardingCursor}).  Compaction
+ * replays the same calculation, so no forwarding addresses are stored
+ * in the objects at all.<p>
+ *
+ * The regions of the space are independent units of compaction: each
+ * collector thread takes regions from a shared list, and slides the live
+ * objects of its regions into the earlier regions of its own list, so
+ * that all collector threads calculate forwarding addresses and compact
+ * in parallel.
+ *
+ * @see RegionCompactCollector
+ */
+@Uninterruptible public final class RegionCompactSpace extends Space {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /**
+   *
+   */
+  public static final int LOCAL_GC_BITS_REQUIRED = 2;
+  public static final int GLOBAL_GC_BITS_REQUIRED = 0;
+  public static final int GC_HEADER_WORDS_REQUIRED = 0;
+
+  /** Set on live objects by the mark trace, cleared when they are compacted */
+  private static final Word GC_MARK_BIT_MASK = Word.one();
+  /** Set on live objects by the forwarding trace */
+  private static final Word GC_FORWARDED_BIT_MASK = Word.fromIntZeroExtend(2);
+
+  /** The (log of the) size of the blocks the summary table describes */
+  public static final int LOG_BYTES_IN_SUMMARY_BLOCK = 9;
+  public static final int BYTES_IN_SUMMARY_BLOCK = 1 << LOG_BYTES_IN_SUMMARY_BLOCK;
+
+  /*
+   * The summary table is made up of three word-sized columns, each
+   * covering a chunk: the first live object of a summary block, and the
+   * copy cursor and to-region just before it is forwarded.
+   */
+  private static final int LOG_SUMMARY_COVERAGE = LOG_BYTES_IN_SUMMARY_BLOCK - LOG_BYTES_IN_WORD;
+  private static final int SUMMARY_COLUMN_BYTES = EmbeddedMetaData.BYTES_IN_REGION >> LOG_SUMMARY_COVERAGE;
+  private static final Offset FIRST_LIVE_OFFSET = Offset.zero();
+  private static final Offset TO_CURSOR_OFFSET = Offset.fromIntSignExtend(SUMMARY_COLUMN_BYTES);
+  private static final Offset TO_REGION_OFFSET = Offset.fromIntSignExtend(2 * SUMMARY_COLUMN_BYTES);
+  public static final int META_DATA_PAGES_PER_REGION =
+    Conversions.bytesToPages(Extent.fromIntSignExtend(3 * SUMMARY_COLUMN_BYTES));
+
+  private static final Lock lock = VM.newLock("rcSpace");
+
+  /****************************************************************************
+   *
+   * Instance variables
+   */
+
+  /** The list of occupied regions */
+  private Address regionList = Address.zero();
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * The caller specifies the region of virtual memory to be used for
+   * this space.  If this region conflicts with an existing space,
+   * then the constructor will fail.
+   *
+   * @param name The name of this space (used when printing error messages etc)
+   * @param vmRequest An object describing the virtual memory requested.
+   */
+  public RegionCompactSpace(String name, VMRequest vmRequest) {
+    super(name, true, false, true, vmRequest);
+    if (vmRequest.isDiscontiguous()) {
+      pr = new FreeListPageResource(this, META_DATA_PAGES_PER_REGION);
+    } else {
+      pr = new FreeListPageResource(this, start, extent, META_DATA_PAGES_PER_REGION);
+    }
+  }
+
+  /**
+   * Prepare for a collection
+   */
+  public void prepare() {
+  }
+
+  /**
+   * Release after a collection
+   */
+  public void release() {
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Regions are released by the collector that compacted them.
+   */
+  @Override
+  @Inline
+  public void release(Address start) {
+    ((FreeListPageResource)pr).releasePages(start);
+  }
+
+  /****************************************************************************
+   *
+   * Tracing
+   */
+
+  @Override
+  @Inline
+  public ObjectReference traceObject(TransitiveClosure trace, ObjectReference object) {
+    if (VM.VERIFY_ASSERTIONS)
+      VM.assertions._assert(false);
+    return null;
+  }
+
+  /**
+   * Trace an object during the marking trace, marking it and queuing
+   * it for scanning if it was not already marked.
+   *
+   * @param trace The trace being conducted.
+   * @param object The object to be marked.
+   * @return The object (which is not moved by this trace)
+   */
+  @Inline
+  public ObjectReference traceMarkObject(TraceLocal trace, ObjectReference object) {
+    if (testAndSetBit(object, GC_MARK_BIT_MASK)) {
+      trace.processNode(object);
+    }
+    return object;
+  }
+
+  /**
+   * Trace an object during the forwarding trace, queuing it for
+   * scanning the first time it is reached, and return the address it
+   * will have after compaction.
+   *
+   * @param trace The trace being conducted.
+   * @param object The object to be forwarded.
+   * @param cursor The calling thread's cursor for recomputing forwarding
+   * addresses
+   * @return The forwarded object.
+   */
+  @Inline
+  public ObjectReference traceForwardObject(TraceLocal trace, ObjectReference object, ForwardingCursor cursor) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isMarked(object));
+    if (testAndSetBit(object, GC_FORWARDED_BIT_MASK)) {
+      trace.processNode(object);
+    }
+    return cursor.getForwardingPointer(object);
+  }
+
+  @Override
+  public boolean isLive(ObjectReference object) {
+    return isMarked(object);
+  }
+
+  @Override
+  public boolean isReachable(ObjectReference object) {
+    return isMarked(object);
+  }
+
+  /****************************************************************************
+   *
+   * Header manipulation
+   */
+
+  /**
+   * Initialise the header of a newly allocated object.
+   *
+   * @param object The object to initialise
+   */
+  @Inline
+  public void initializeHeader(ObjectReference object) {
+    // nothing to do
+  }
+
+  /**
+   * @param object the object in question
+   * @return {@code true} if the object is marked
+   */
+  @Inline
+  public static boolean isMarked(ObjectReference object) {
+    Word oldValue = VM.objectModel.readAvailableBitsWord(object);
+    return !oldValue.and(GC_MARK_BIT_MASK).isZero();
+  }
+
+  /**
+   * Clear the collection state of an object once it has been compacted.
+   *
+   * @param object The object
+   */
+  @Inline
+  public static void clearGCBits(ObjectReference object) {
+    Word oldValue = VM.objectModel.readAvailableBitsWord(object);
+    VM.objectModel.writeAvailableBitsWord(object, oldValue.and(GC_MARK_BIT_MASK.or(GC_FORWARDED_BIT_MASK).not()));
+  }
+
+  /**
+   * Atomically set a header bit.
+   *
+   * @param object The object
+   * @param bit The bit to set
+   * @return {@code true} if this call set the bit
+   */
+  @Inline
+  private static boolean testAndSetBit(ObjectReference object, Word bit) {
+    Word oldValue;
+    do {
+      oldValue = VM.objectModel.prepareAvailableBits(object);
+      if (!oldValue.and(bit).isZero()) return false;
+    } while (!VM.objectModel.attemptAvailableBits(object, oldValue, oldValue.or(bit)));
+    return true;
+  }
+
+  /****************************************************************************
+   *
+   * Summary table
+   */
+
+  /**
+   * @param object An object in this space
+   * @return The address of the summary table entry (in its first
+   * column) for the summary block containing the object
+   */
+  @Inline
+  private static Address summaryEntry(ObjectReference object) {
+    Address address = object.toAddress();
+    return EmbeddedMetaData.getMetaDataBase(address).plus(
+        EmbeddedMetaData.getMetaDataOffset(address, LOG_SUMMARY_COVERAGE, LOG_BYTES_IN_WORD));
+  }
+
+  /**
+   * @param a An object
+   * @param b Another object
+   * @return {@code true} if the two objects are in the same summary block
+   */
+  @Inline
+  static boolean inSameSummaryBlock(ObjectReference a, ObjectReference b) {
+    return a.toAddress().toWord().rshl(LOG_BYTES_IN_SUMMARY_BLOCK).EQ(
+        b.toAddress().toWord().rshl(LOG_BYTES_IN_SUMMARY_BLOCK));
+  }
+
+  /**
+   * Record the first live object of a summary block.
+   *
+   * @param firstLive The first live object in the block
+   * @param cursor The copy cursor just before the object is forwarded
+   */
+  @Inline
+  static void setSummary(ObjectReference firstLive, ForwardingCursor cursor) {
+    Address entry = summaryEntry(firstLive);
+    entry.store(firstLive, FIRST_LIVE_OFFSET);
+    entry.store(cursor.cursor, TO_CURSOR_OFFSET);
+    entry.store(cursor.region, TO_REGION_OFFSET);
+  }
+
+  /****************************************************************************
+   *
+   * Region lists
+   */
+
+  /**
+   * @return A region of this space that has net yet been compacted during
+   *   the current collection
+   */
+  public Address getNextRegion() {
+    lock.acquire();
+    if (regionList.isZero()) {
+      lock.release();
+      return Address.zero();
+    }
+    Address result = regionList;
+    regionList = BumpPointer.getNextRegion(regionList);
+    BumpPointer.clearNextRegion(result);
+    lock.release();
+    return result;
+  }
+
+  /**
+   * Append a region or list of regions to the global list
+   * @param region the region to append
+   */
+  public void append(Address region) {
+    lock.acquire();
+    if (regionList.isZero()) {
+      regionList = region;
+    } else {
+      MarkCompactSpace.appendRegion(regionList, region);
+    }
+    lock.release();
+  }
+
+  /****************************************************************************
+   *
+   * Forwarding
+   */
+
+  /**
+   * A copy cursor over a list of regions, which allocates (or simulates
+   * allocating) the live objects of the regions in address order.  The
+   * same calculation is used to build the summary table, to recompute
+   * forwarding addresses from it, and to compact, so all three agree on
+   * where each object goes.
+   */
+  @Uninterruptible
+  public static final class ForwardingCursor {
+
+    /** The region being copied into */
+    private Address region;
+
+    /** The limit of the region being copied into */
+    private Address limit;
+
+    /** The next free address in the region being copied into */
+    private Address cursor;
+
+    /**
+     * Start copying into the given region.
+     *
+     * @param region The region to copy into
+     * @param cursor The first free address in the region
+     */
+    void init(Address region, Address cursor) {
+      this.region = region;
+      this.limit = BumpPointer.getRegionLimit(region);
+      this.cursor = cursor;
+    }
+
+    /**
+     * @return The region being copied into
+     */
+    Address getRegion() {
+      return region;
+    }
+
+    /**
+     * @return The next free address in the region being copied into
+     */
+    Address get() {
+      return cursor;
+    }
+
+    /**
+     * @param object An object
+     * @return {@code true} if the object is in the region being copied into
+     */
+    @Inline
+    private boolean isInRegion(ObjectReference object) {
+      Address addr = VM.objectModel.refToAddress(object);
+      return addr.GE(BumpPointer.getDataStart(region)) && addr.LE(limit);
+    }
+
+    /**
+     * Allocate the destination of the next live object.  Objects are
+     * allocated in order into the current region, moving to the next
+     * region in the list when an object does not fit.  An object that
+     * would not move to a lower address stays where it is.
+     *
+     * @param object The next live object
+     * @return The address of the object after compaction
+     */
+    @Inline
+    ObjectReference forward(ObjectReference object) {
+      int size = VM.objectModel.getSizeWhenCopied(object);
+      int align = VM.objectModel.getAlignWhenCopied(object);
+      int offset = VM.objectModel.getAlignOffsetWhenCopied(object);
+      cursor = Allocator.alignAllocationNoFill(cursor, align, offset);
+      if (!isInRegion(object) && cursor.plus(size).GT(limit)) {
+        // The cursor trails the objects, so there is always a next region
+        init(BumpPointer.getNextRegion(region), Address.zero());
+        if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!region.isZero());
+        cursor = Allocator.alignAllocationNoFill(BumpPointer.getDataStart(region), align, offset);
+      }
+      ObjectReference target = VM.objectModel.getReferenceWhenCopiedTo(object, cursor);
+      if (isInRegion(object) && target.toAddress().GE(object.toAddress())) {
+        // Don't move the object.
+        cursor = VM.objectModel.getObjectEndAddress(object);
+        return object;
+      }
+      cursor = cursor.plus(size);
+      return target;
+    }
+
+    /**
+     * Recompute the forwarding address of a live object from the summary
+     * table, by replaying this cursor over the live objects that precede
+     * it in its summary block.  This overwrites the state of the cursor.
+     *
+     * @param object A live object
+     * @return The address of the object after compaction
+     */
+    ObjectReference getForwardingPointer(ObjectReference object) {
+      Address entry = summaryEntry(object);
+      ObjectReference current = entry.loadObjectReference(FIRST_LIVE_OFFSET);
+      init(entry.loadAddress(TO_REGION_OFFSET), entry.loadAddress(TO_CURSOR_OFFSET));
+      while (true) {
+        if (VM.VERIFY_ASSERTIONS) {
+          VM.assertions._assert(inSameSummaryBlock(current, object));
+          VM.assertions._assert(current.toAddress().LE(object.toAddress()));
+        }
+        ObjectReference target = forward(current);
+        if (current.toAddress().EQ(object.toAddress())) {
+          return target;
+        }
+        do {
+          current = VM.objectModel.getObjectFromStartAddress(VM.objectModel.getObjectEndAddress(current));
+        } while (!isMarked(current));
+      }
+    }
+  }
+}
@@ -18,11 +18,15 @@ import static org.mmtk.utility.heap.layout.VMLayoutConstants.*;
 
 import org.mmtk.plan.Plan;
 import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.utility.heap.FreeListPageResource;
+import org.mmtk.utility.heap.PageBacking;
+import org.mmtk.utility.heap.PageCache;
 import org.mmtk.utility.heap.PageResource;
 import org.mmtk.utility.heap.SpaceDescriptor;
 import org.mmtk.utility.heap.VMRequest;
 import org.mmtk.utility.heap.layout.HeapLayout;
 import org.mmtk.utility.options.Options;
+import org.mmtk.utility.CardTable;
 import org.mmtk.utility.Conversions;
 import org.mmtk.utility.Log;
 
@@ -71,6 +75,9 @@ public abstract class Space {
   private static Address heapCursor = HEAP_START;
   private static Address heapLimit = HEAP_END;
 
+  /** The card table whose entries are mapped as spaces grow, if any */
+  private static CardTable cardTable;
+
   /****************************************************************************
    *
    * Instance variables
@@ -95,6 +102,12 @@ public abstract class Space {
   protected final Extent extent;
   protected Address headDiscontiguousRegion;
 
+  /** Should the pages of this space be backed by huge pages? */
+  private boolean hugePages;
+
+  /** The size in pages of the blocks cached by each mutator, or zero if none are cached */
+  private int pageCacheUnit = 0;
+
   /****************************************************************************
    *
    * Initialization
@@ -235,6 +248,44 @@ public abstract class Space {
     return movable;
   }
 
+  /** @return {@code true} if the pages of this space should be backed by huge pages */
+  public final boolean usesHugePages() {
+    return hugePages;
+  }
+
+  /**
+   * Set whether the pages of this space should be backed by huge pages.
+   *
+   * @param hugePages {@code true} if huge pages should be used
+   */
+  @Interruptible
+  public final void setHugePages(boolean hugePages) {
+    this.hugePages = hugePages;
+  }
+
+  /**
+   * Have each mutator cache blocks of this space, taking them from the
+   * page resource in batches.  Mutator requests for exactly this many
+   * pages are then satisfied from the mutator's {@link PageCache}.  The
+   * space must use a {@link FreeListPageResource}, and must not depend
+   * on the pages it acquires being returned via its own release path.
+   *
+   * @param pages The size in pages of the blocks to cache
+   */
+  protected final void setPageCacheUnit(int pages) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(pr instanceof FreeListPageResource);
+    pageCacheUnit = pages;
+  }
+
+  /**
+   * @return A new mutator page cache for this space, or {@code null}
+   * if mutators do not cache blocks of this space
+   */
+  @Interruptible
+  public final PageCache newPageCache() {
+    return pageCacheUnit == 0 ? null : new PageCache((FreeListPageResource) pr, pageCacheUnit);
+  }
+
   /** @return The number of reserved pages */
   public final int reservedPages() {
     return pr.reservedPages();
@@ -431,6 +482,9 @@ public abstract class Space {
   public final Address acquire(int pages) {
     boolean allowPoll = VM.activePlan.isMutator() && Plan.isInitialized();
 
+    if (allowPoll && pages == pageCacheUnit && Options.pageCacheBatch.getValue() > 1)
+      return acquireCached(VM.activePlan.mutator().getPageCache(this), Options.pageCacheBatch.getValue());
+
     /* Check page budget */
     int pagesReserved = pr.reservePages(pages);
 
@@ -456,6 +510,38 @@ public abstract class Space {
     return rtn;
   }
 
+  /**
+   * Acquire a block through a mutator's page cache.  When the cache is
+   * empty it is refilled with a batch of blocks, for which the page
+   * budget is checked (and a GC triggered if necessary) as a whole.
+   *
+   * @param cache The mutator's page cache for this space
+   * @param batch The number of blocks to take when refilling the cache
+   * @return The start of the block acquired, or zero on failure
+   */
+  private Address acquireCached(PageCache cache, int batch) {
+    Address rtn = cache.pop();
+    if (!rtn.isZero()) return rtn;
+
+    int pagesReserved = pr.reservePages(batch * pageCacheUnit);
+
+    if (VM.activePlan.global().poll(false, this)) {
+      pr.clearRequest(pagesReserved);
+      VM.collection.blockForGC();
+      return Address.zero();
+    }
+
+    if (cache.refill(pagesReserved, batch, zeroed) == 0) {
+      boolean gcPerformed = VM.activePlan.global().poll(true, this);
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(gcPerformed, "GC not performed when forced.");
+      pr.clearRequest(pagesReserved);
+      VM.collection.blockForGC();
+      return Address.zero();
+    }
+
+    return cache.pop();
+  }
+
   /**
    * Extend the virtual memory associated with a particular discontiguous
    * space.  This simply involves requesting a suitable number of chunks
@@ -469,6 +555,7 @@ public abstract class Space {
     if (newHead.isZero()) {
       return Address.zero();
     }
+    PageBacking.chunksAcquired(this, newHead, chunks << LOG_BYTES_IN_CHUNK);
     return headDiscontiguousRegion = newHead;
   }
 
@@ -487,12 +574,27 @@ public abstract class Space {
    * This hook is called by page resources each time a space grows.  The space may
    * tap into the hook to monitor heap growth.  The call is made from within the
    * page resources' critical region, immediately before yielding the lock.
+   * Overriding spaces must call this method, which maps the card table
+   * for the new pages when one is in use.
    *
    * @param start The start of the newly allocated space
    * @param bytes The size of the newly allocated space
    * @param newChunk {@code true} if the new space encroached upon or started a new chunk or chunks.
    */
-  public void growSpace(Address start, Extent bytes, boolean newChunk) {}
+  public void growSpace(Address start, Extent bytes, boolean newChunk) {
+    if (cardTable != null) cardTable.acquirePages(start, bytes);
+  }
+
+  /**
+   * Register the card table whose cards and slot map must be mapped and
+   * cleared for every page acquired by any space.
+   *
+   * @param table The card table
+   */
+  public static void setCardTable(CardTable table) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(cardTable == null);
+    cardTable = table;
+  }
 
   /**
    * Release one or more contiguous chunks associated with a discontiguous
@@ -521,6 +623,26 @@ public abstract class Space {
     headDiscontiguousRegion = Address.zero();
   }
 
+  /**
+   * Prepare to return idle free pages of this space to the operating
+   * system (see {@link PageBacking}).
+   */
+  @Interruptible
+  public void enableUncommit() {
+    pr.enableUncommit();
+  }
+
+  /**
+   * Return the physical memory backing free pages of this space to the
+   * operating system (see {@link PageBacking}).
+   *
+   * @param keepPages The number of free pages to keep committed
+   * @param idleSince The latest release time of pages that may be uncommitted
+   */
+  public void uncommitFreePages(int keepPages, long idleSince) {
+    pr.uncommitFreePages(keepPages, idleSince);
+  }
+
   /**
    * Release a unit of allocation (a page or pages)
    *
@@ -163,6 +163,25 @@ public class Block  {
     return markCount;
   }
 
+  /**
+   * Derive the line marks of a block from its line live counts, so
+   * that the block can then be swept as usual.  A line is marked with
+   * the current mark state if any live object overlaps it.
+   *
+   * @param block the block's address
+   * @param markState the current line mark state
+   */
+  static void markLinesFromCounts(Address block, final byte markState) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(LINE_LIVE_COUNTS && isAligned(block));
+    Address markTable = Line.getBlockMarkTable(block);
+    Address countTable = Line.getBlockCountTable(block);
+    for (int line = 0; line < LINES_IN_BLOCK; line++) {
+      int count = countTable.loadInt(Offset.fromIntZeroExtend(line << Line.LOG_BYTES_IN_LINE_COUNT));
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(count >= 0);
+      markTable.store(count > 0 ? markState : 0, Offset.fromIntZeroExtend(line << Line.LOG_BYTES_IN_LINE_STATUS));
+    }
+  }
+
   /****************************************************************************
    * Block defrag state
    */
@@ -55,6 +55,7 @@ public class Chunk {
       Address block = chunk.plus(index << LOG_BYTES_IN_BLOCK);
       if (block.GT(end)) break;
       final boolean defragSource = space.inImmixDefragCollection() && Block.isDefragSource(block);
+      if (LINE_LIVE_COUNTS && !Block.isUnusedState(cursor)) Block.markLinesFromCounts(block, markValue);
       short marked = Block.sweepOneBlock(block, markHistogram, markValue, resetMarks);
       if (marked == 0) {
         if (!Block.isUnusedState(cursor)) {
@@ -100,6 +101,17 @@ public class Chunk {
     }
   }
 
+  /**
+   * Zero the line live counts of every block in a chunk, before they
+   * are recomputed by a full heap trace.
+   *
+   * @param chunk the chunk's address
+   */
+  static void clearLineCounts(Address chunk) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(LINE_LIVE_COUNTS && isAligned(chunk));
+    VM.memory.zero(false, chunk.plus(LINE_COUNT_TABLE_OFFSET), Extent.fromIntZeroExtend(Line.LINE_COUNT_TABLE_BYTES));
+  }
+
   static void updateHighWater(Address value) {
     Address chunk = align(value);
     if (getHighWater(chunk).LT(value)) {
@@ -156,7 +168,8 @@ public class Chunk {
   static final int BLOCK_DEFRAG_STATE_TABLE_OFFSET = BLOCK_STATE_TABLE_OFFSET + Block.BLOCK_STATE_TABLE_BYTES;
   static final int HIGHWATER_OFFSET = BLOCK_DEFRAG_STATE_TABLE_OFFSET + Block.BLOCK_DEFRAG_STATE_TABLE_BYTES;
   static final int MAP_OFFSET = HIGHWATER_OFFSET + HIGHWATER_BYTES;
-  static final int METADATA_BYTES_PER_CHUNK = MAP_OFFSET + MAP_BYTES;
+  static final int LINE_COUNT_TABLE_OFFSET = MAP_OFFSET + MAP_BYTES;
+  static final int METADATA_BYTES_PER_CHUNK = LINE_COUNT_TABLE_OFFSET + (LINE_LIVE_COUNTS ? Line.LINE_COUNT_TABLE_BYTES : 0);
 
   /* FIXME we round the metadata up to block sizes just to ensure the underlying allocator gives us aligned requests */
   private static final int BLOCK_MASK = (1 << LOG_BYTES_IN_BLOCK) - 1;
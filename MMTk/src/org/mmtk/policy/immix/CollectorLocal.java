@@ -95,6 +95,20 @@ public final class CollectorLocal {
     }
   }
 
+  /**
+   * Zero the line live counts, in parallel with the other collectors,
+   * so that they can be recomputed by a full heap trace.
+   */
+  public void clearLineCounts() {
+    int stride = VM.activePlan.collector().parallelWorkerCount();
+    int ordinal = VM.activePlan.collector().parallelWorkerOrdinal();
+    Address chunk = chunkMap.firstChunk(ordinal, stride);
+    while (!chunk.isZero()) {
+      Chunk.clearLineCounts(chunk);
+      chunk = chunkMap.nextChunk(chunk, ordinal, stride);
+    }
+  }
+
   /**
    * Finish up after a collection.
    *
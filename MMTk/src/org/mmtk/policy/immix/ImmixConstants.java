@@ -22,6 +22,8 @@ import org.vmmagic.unboxed.Word;
 
 public class ImmixConstants {
   public static final boolean BUILD_FOR_STICKYIMMIX = Plan.NEEDS_LOG_BIT_IN_HEADER;
+  /** Are line marks derived from per-line live object counts (for reference counting)? */
+  public static final boolean LINE_LIVE_COUNTS = VM.activePlan.constraints().needsLineLiveCounts();
 
   /* start temporary experimental constants --- should not be allowed to lurk longer than necessary */
   public static final int TMP_MIN_SPILL_THRESHOLD = 2;
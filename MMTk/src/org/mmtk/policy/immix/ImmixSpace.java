@@ -67,6 +67,7 @@ public final class ImmixSpace extends Space {
           byte lineMarkState = RESET_LINE_MARK_STATE;
   private byte lineUnavailState = RESET_LINE_MARK_STATE;
   private boolean inCollection;
+  private boolean isAllocAsMarked = false;
   private int linesConsumed = 0;
 
   private final Lock mutatorLock = VM.newLock(getName() + "mutator");
@@ -116,6 +117,7 @@ public final class ImmixSpace extends Space {
       pr = new FreeListPageResource(this, Chunk.getRequiredMetaDataPages());
     else
       pr = new FreeListPageResource(this, start, extent, Chunk.getRequiredMetaDataPages());
+    setPageCacheUnit(PAGES_IN_BLOCK);
     defrag = new Defrag((FreeListPageResource) pr);
   }
 
@@ -374,6 +376,11 @@ public final class ImmixSpace extends Space {
       ObjectHeader.markAsStraddling(object);
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(ObjectHeader.isNewObject(object));
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!ForwardingWord.isForwardedOrBeingForwarded(object));
+    if (isAllocAsMarked && inCollection) {
+      /* allocated during a concurrent trace: the object and its lines are live */
+      ObjectHeader.writeMarkState(object, markState, bytes > BYTES_IN_LINE);
+      markLines(object);
+    }
   }
 
  /**
@@ -601,6 +608,37 @@ public final class ImmixSpace extends Space {
       Line.markMultiLine(address, object, lineMarkState);
   }
 
+  /**
+   * Increment the live counts of the line/s occupied by an object which
+   * has become (or been found to be) live.  Used by plans which derive
+   * line marks from live counts rather than by tracing.
+   *
+   * @param object The object which is live.
+   */
+  public void incLineCounts(ObjectReference object) {
+    Address line = Line.align(VM.objectModel.objectStartRef(object));
+    Address end = VM.objectModel.getObjectEndAddress(object);
+    while (line.LT(end)) {
+      Line.incCount(line);
+      line = line.plus(BYTES_IN_LINE);
+    }
+  }
+
+  /**
+   * Decrement the live counts of the line/s occupied by an object which
+   * has died.
+   *
+   * @param object The object which has died.
+   */
+  public void decLineCounts(ObjectReference object) {
+    Address line = Line.align(VM.objectModel.objectStartRef(object));
+    Address end = VM.objectModel.getObjectEndAddress(object);
+    while (line.LT(end)) {
+      Line.decCount(line);
+      line = line.plus(BYTES_IN_LINE);
+    }
+  }
+
   public int getNextUnavailableLine(Address baseLineAvailAddress, int line) {
     return Line.getNextUnavailable(baseLineAvailAddress, line, lineUnavailState);
   }
@@ -796,6 +834,15 @@ public final class ImmixSpace extends Space {
     return ptr.toWord().and(RECYCLE_ALLOC_CHUNK_MASK).EQ(Word.zero());
   }
 
+  /**
+   * Objects allocated while this space is being collected are allocated
+   * as marked (and with their lines marked). This is required by collectors
+   * that trace this space concurrently with the mutators.
+   */
+  public void makeAllocAsMarked() {
+    isAllocAsMarked = true;
+  }
+
   ChunkList getChunkMap() {
     return chunkMap;
   }
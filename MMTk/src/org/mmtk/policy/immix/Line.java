@@ -13,6 +13,7 @@
 package org.mmtk.policy.immix;
 
 import static org.mmtk.policy.immix.ImmixConstants.*;
+import static org.mmtk.utility.Constants.LOG_BYTES_IN_INT;
 
 import org.mmtk.vm.VM;
 
@@ -64,6 +65,61 @@ public class Line {
     }
   }
 
+  /***************************************************************************
+   * Line live counts
+   */
+
+  /**
+   * Atomically increment the live object count of a line.
+   *
+   * @param address the line's address
+   */
+  @Inline
+  static void incCount(Address address) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(LINE_LIVE_COUNTS && !Block.isUnused(Block.align(address)));
+    Address count = getCountAddress(address);
+    int old;
+    do {
+      old = count.prepareInt();
+    } while (!count.attempt(old, old + 1));
+  }
+
+  /**
+   * Atomically decrement the live object count of a line.
+   *
+   * @param address the line's address
+   */
+  @Inline
+  static void decCount(Address address) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(LINE_LIVE_COUNTS);
+    Address count = getCountAddress(address);
+    int old;
+    do {
+      old = count.prepareInt();
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(old > 0);
+    } while (!count.attempt(old, old - 1));
+  }
+
+  /**
+   * @param block the block's address
+   * @return the address of the live count table for the block
+   */
+  static Address getBlockCountTable(Address block) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Block.isAligned(block));
+    return getCountAddress(block);
+  }
+
+  private static Address getCountAddress(Address address) {
+    Address chunk = Chunk.align(address);
+    int index = getChunkIndex(address);
+    Address rtn = chunk.plus(Chunk.LINE_COUNT_TABLE_OFFSET + (index << LOG_BYTES_IN_LINE_COUNT));
+    if (VM.VERIFY_ASSERTIONS) {
+      boolean valid = rtn.GE(chunk.plus(Chunk.LINE_COUNT_TABLE_OFFSET)) && rtn.LT(chunk.plus(Chunk.LINE_COUNT_TABLE_OFFSET + LINE_COUNT_TABLE_BYTES));
+      VM.assertions._assert(valid);
+    }
+    return rtn;
+  }
+
   /***************************************************************************
    * Scanning through avail lines
    */
@@ -134,4 +190,11 @@ public class Line {
   static final int LINE_MARK_TABLE_BYTES = LINES_IN_CHUNK << LOG_BYTES_IN_LINE_STATUS;
   static final int LOG_LINE_MARK_BYTES_PER_BLOCK = LOG_LINES_IN_BLOCK + LOG_BYTES_IN_LINE_STATUS;
   static final int LINE_MARK_BYTES_PER_BLOCK = (1 << LOG_LINE_MARK_BYTES_PER_BLOCK);
+
+  /* per-line live counts (only present when LINE_LIVE_COUNTS) */
+
+  static final int LOG_BYTES_IN_LINE_COUNT = LOG_BYTES_IN_INT;
+  static final int BYTES_IN_LINE_COUNT = 1 << LOG_BYTES_IN_LINE_COUNT;
+
+  static final int LINE_COUNT_TABLE_BYTES = LINES_IN_CHUNK << LOG_BYTES_IN_LINE_COUNT;
 }
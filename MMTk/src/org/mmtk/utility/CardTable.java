@@ -0,0 +1,363 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility;
+
+import static org.mmtk.utility.Constants.*;
+
+import org.mmtk.plan.TraceLocal;
+import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.policy.RawPageSpace;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.heap.VMRequest;
+import org.mmtk.utility.heap.layout.HeapLayout;
+import org.mmtk.utility.heap.layout.VMLayoutConstants;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements a byte-per-card table over the whole heap, for
+ * use as a remembered set by generational collectors.<p>
+ *
+ * The write barrier unconditionally dirties the card holding each
+ * updated slot, so repeated stores to the same region of a long-lived
+ * object cost a single byte store each and never grow a buffer.  At
+ * nursery collection time the dirty cards are scanned and cleaned.<p>
+ *
+ * MMTk heaps can not be parsed from an arbitrary card boundary, so
+ * alongside the cards we keep a <i>slot map</i> with one bit per word
+ * of heap, set for each reference field of each object outside the
+ * nursery.  Scanning a dirty card therefore visits exactly the reference
+ * slots it covers.  Bits are set as objects are scanned by the
+ * collector (which covers every promoted object and, after a full heap
+ * collection, every live mature object) and as objects are allocated
+ * directly outside the nursery.  The whole map is cleared at the start
+ * of each full heap collection and rebuilt by its trace, and the map is
+ * cleared for pages as they are acquired by a space, so stale bits never
+ * describe memory that is reused between full heap collections.<p>
+ *
+ * Both tables are indexed directly by heap address and live in a
+ * dedicated raw page space; they are mapped on demand as the spaces
+ * they describe grow.
+ */
+@Uninterruptible
+public final class CardTable {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /** Log of the number of heap bytes covered by each card */
+  public static final int LOG_BYTES_IN_CARD = 9;
+  public static final int BYTES_IN_CARD = 1 << LOG_BYTES_IN_CARD;
+
+  private static final byte CARD_CLEAN = 0;
+  private static final byte CARD_DIRTY = 1;
+
+  /** Log of the number of heap bytes described by each byte of the slot map */
+  private static final int LOG_HEAP_BYTES_PER_MAP_BYTE = LOG_BYTES_IN_ADDRESS + LOG_BITS_IN_BYTE;
+  /** Log of the number of heap bytes described by each word of the slot map */
+  private static final int LOG_HEAP_BYTES_PER_MAP_WORD = LOG_BYTES_IN_ADDRESS + LOG_BITS_IN_WORD;
+  private static final int MAP_WORDS_PER_CARD = Math.max(1, BYTES_IN_CARD >> LOG_HEAP_BYTES_PER_MAP_WORD);
+
+  private static final Address HEAP_START = VMLayoutConstants.HEAP_START;
+  private static final Extent HEAP_BYTES = VMLayoutConstants.HEAP_END.diff(HEAP_START).toWord().toExtent();
+  private static final Extent CARD_TABLE_BYTES = Conversions.chunkAlign(HEAP_BYTES.toWord().rshl(LOG_BYTES_IN_CARD).toExtent(), false);
+  private static final Extent SLOT_MAP_BYTES = Conversions.chunkAlign(HEAP_BYTES.toWord().rshl(LOG_HEAP_BYTES_PER_MAP_BYTE).toExtent(), false);
+  private static final int LOG_BYTES_IN_MMAP_CHUNK = VMLayoutConstants.LOG_MMAP_CHUNK_BYTES;
+
+  /****************************************************************************
+   *
+   * Instance variables
+   */
+
+  /** The card covering the start of the heap */
+  private final Address cards;
+  /** The slot map word for the first word of the heap */
+  private final Address slotMap;
+  /** Sets the slot map bit of each reference field of an object */
+  private final SlotRecorder slotRecorder;
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * Reserve virtual memory for a card table and slot map covering the
+   * whole heap, and arrange for them to be mapped as the heap grows.
+   *
+   * @param name The name of the space holding the tables
+   */
+  public CardTable(String name) {
+    RawPageSpace space = new RawPageSpace(name, VMRequest.fixedExtent(CARD_TABLE_BYTES.plus(SLOT_MAP_BYTES), false));
+    cards = space.getStart();
+    slotMap = cards.plus(CARD_TABLE_BYTES);
+    slotRecorder = new SlotRecorder(this);
+    Space.setCardTable(this);
+  }
+
+  /****************************************************************************
+   *
+   * Mutator-time operations
+   */
+
+  /**
+   * Dirty the card holding a slot.  This is the whole of the write
+   * barrier fast path.
+   *
+   * @param slot The slot being updated
+   */
+  @Inline
+  public void dirty(Address slot) {
+    getCard(slot).store(CARD_DIRTY);
+  }
+
+  /**
+   * Dirty all of the cards overlapping a range of slots.
+   *
+   * @param start The first slot in the range
+   * @param end The end of the range (exclusive)
+   */
+  @Inline
+  public void dirtyRange(Address start, Address end) {
+    Address card = getCard(start);
+    Address last = getCard(end.minus(BYTES_IN_ADDRESS));
+    while (card.LE(last)) {
+      card.store(CARD_DIRTY);
+      card = card.plus(1);
+    }
+  }
+
+  /**
+   * Set the slot map bits for each reference field of an object,
+   * so that its fields are visited when its cards are dirty.
+   *
+   * @param object The object, which must not be in the nursery
+   */
+  @Inline
+  public void recordObject(ObjectReference object) {
+    VM.scanning.scanObject(slotRecorder, object);
+  }
+
+  /**
+   * Set the slot map bit for a reference slot.  Collector threads set
+   * bits in parallel, so the update is atomic.
+   *
+   * @param slot The reference slot
+   */
+  @Inline
+  public void recordSlot(Address slot) {
+    Address word = getSlotMapWord(slot);
+    Word mask = Word.one().lsh(slot.toWord().rshl(LOG_BYTES_IN_ADDRESS).toInt() & (BITS_IN_WORD - 1));
+    Word old;
+    do {
+      old = word.prepareWord();
+      if (old.and(mask).EQ(mask)) return;
+    } while (!word.attempt(old, old.or(mask)));
+  }
+
+  /****************************************************************************
+   *
+   * Collection-time operations
+   */
+
+  /**
+   * Visit every recorded slot in each dirty card, cleaning the card.  The
+   * card table is divided among the collector threads by page.
+   *
+   * @param trace The trace with which to process each slot
+   * @param skip Cards within this space (the nursery) are cleaned but not scanned
+   * @param ordinal The ordinal of the calling collector thread
+   * @param workers The number of collector threads scanning cards
+   */
+  public void scanDirtyCards(TraceLocal trace, Space skip, int ordinal, int workers) {
+    Address end = cards.plus(CARD_TABLE_BYTES);
+    int page = 0;
+    for (Address chunk = cards; chunk.LT(end); chunk = chunk.plus(1 << LOG_BYTES_IN_MMAP_CHUNK)) {
+      if (!HeapLayout.mmapper.addressIsMapped(chunk)) {
+        page += 1 << (LOG_BYTES_IN_MMAP_CHUNK - LOG_BYTES_IN_PAGE);
+        continue;
+      }
+      Address chunkEnd = chunk.plus(1 << LOG_BYTES_IN_MMAP_CHUNK);
+      for (Address p = chunk; p.LT(chunkEnd); p = p.plus(BYTES_IN_PAGE), page++) {
+        if (page % workers == ordinal) {
+          scanCardPage(trace, skip, p);
+        }
+      }
+    }
+  }
+
+  /**
+   * Scan the dirty cards in one page of the card table.
+   *
+   * @param trace The trace with which to process each slot
+   * @param skip Cards within this space are cleaned but not scanned
+   * @param page The page of cards
+   */
+  private void scanCardPage(TraceLocal trace, Space skip, Address page) {
+    Address end = page.plus(BYTES_IN_PAGE);
+    for (Address cardWord = page; cardWord.LT(end); cardWord = cardWord.plus(BYTES_IN_WORD)) {
+      if (cardWord.loadWord().isZero()) continue;
+      for (int i = 0; i < BYTES_IN_WORD; i++) {
+        Address card = cardWord.plus(i);
+        if (card.loadByte() == CARD_CLEAN) continue;
+        card.store(CARD_CLEAN);
+        Address heap = getCardStart(card);
+        if (!Space.isInSpace(skip.getDescriptor(), heap)) {
+          scanCard(trace, heap);
+        }
+      }
+    }
+  }
+
+  /**
+   * Process each recorded slot in a card.
+   *
+   * @param trace The trace with which to process each slot
+   * @param start The start of the heap memory covered by the card
+   */
+  @Inline
+  private void scanCard(TraceLocal trace, Address start) {
+    Address word = getSlotMapWord(start);
+    for (int i = 0; i < MAP_WORDS_PER_CARD; i++) {
+      Word bits = word.loadWord();
+      Address slot = start;
+      while (!bits.isZero()) {
+        if (!bits.and(Word.one()).isZero()) {
+          trace.processRootEdge(slot, false);
+        }
+        bits = bits.rshl(1);
+        slot = slot.plus(BYTES_IN_ADDRESS);
+      }
+      word = word.plus(BYTES_IN_WORD);
+      start = start.plus(1 << LOG_HEAP_BYTES_PER_MAP_WORD);
+    }
+  }
+
+  /**
+   * Clean every card and clear the whole slot map.  This is done at the
+   * start of a full heap collection, whose trace rebuilds the slot map
+   * and leaves the nursery empty.
+   */
+  public void clear() {
+    clearMapped(cards, cards.plus(CARD_TABLE_BYTES));
+    clearMapped(slotMap, slotMap.plus(SLOT_MAP_BYTES));
+  }
+
+  /**
+   * Zero the mapped parts of a range of the tables.
+   *
+   * @param start The start of the range
+   * @param end The end of the range
+   */
+  private static void clearMapped(Address start, Address end) {
+    for (Address chunk = start; chunk.LT(end); chunk = chunk.plus(1 << LOG_BYTES_IN_MMAP_CHUNK)) {
+      if (HeapLayout.mmapper.addressIsMapped(chunk)) {
+        Memory.zero(chunk, Extent.fromIntZeroExtend(1 << LOG_BYTES_IN_MMAP_CHUNK));
+      }
+    }
+  }
+
+  /****************************************************************************
+   *
+   * Heap growth
+   */
+
+  /**
+   * Map the cards and slot map for pages that have been acquired by a
+   * space, and clear them of any state left by a previous use of the
+   * pages.
+   *
+   * @param start The start of the acquired pages
+   * @param bytes The size of the acquired pages
+   */
+  public void acquirePages(Address start, Extent bytes) {
+    Address end = start.plus(bytes);
+    ensureMapped(getCard(start), getCard(end));
+    ensureMapped(getSlotMapWord(start), getSlotMapWord(end));
+    Memory.zero(getCard(start), bytes.toWord().rshl(LOG_BYTES_IN_CARD).toExtent());
+    Memory.zero(getSlotMapWord(start), bytes.toWord().rshl(LOG_HEAP_BYTES_PER_MAP_BYTE).toExtent());
+  }
+
+  /**
+   * Ensure that the pages holding a range of a table are mapped.
+   *
+   * @param start The start of the range
+   * @param end The end of the range
+   */
+  private static void ensureMapped(Address start, Address end) {
+    Address first = Conversions.pageAlign(start);
+    int pages = Conversions.bytesToPagesUp(end.diff(first).toWord().toExtent());
+    HeapLayout.mmapper.ensureMapped(first, Math.max(pages, 1));
+  }
+
+  /****************************************************************************
+   *
+   * Address arithmetic
+   */
+
+  /**
+   * @param address An address in the heap
+   * @return The address of the card covering the given address
+   */
+  @Inline
+  private Address getCard(Address address) {
+    return cards.plus(address.diff(HEAP_START).toWord().rshl(LOG_BYTES_IN_CARD).toExtent());
+  }
+
+  /**
+   * @param card The address of a card
+   * @return The start of the heap memory covered by the card
+   */
+  @Inline
+  private Address getCardStart(Address card) {
+    return HEAP_START.plus(card.diff(cards).toWord().lsh(LOG_BYTES_IN_CARD).toExtent());
+  }
+
+  /**
+   * @param address An address in the heap
+   * @return The address of the slot map word describing the given address
+   */
+  @Inline
+  private Address getSlotMapWord(Address address) {
+    Word index = address.diff(HEAP_START).toWord().rshl(LOG_HEAP_BYTES_PER_MAP_WORD);
+    return slotMap.plus(index.lsh(LOG_BYTES_IN_WORD).toExtent());
+  }
+
+  /****************************************************************************
+   *
+   * Slot recording
+   */
+
+  /**
+   * A closure which records each reference field of the objects it is
+   * applied to in the slot map of a card table.
+   */
+  @Uninterruptible
+  private static final class SlotRecorder extends TransitiveClosure {
+    private final CardTable table;
+
+    SlotRecorder(CardTable table) {
+      this.table = table;
+    }
+
+    @Override
+    @Inline
+    public void processEdge(ObjectReference source, Address slot) {
+      table.recordSlot(slot);
+    }
+  }
+}
@@ -126,6 +126,18 @@ import org.vmmagic.unboxed.*;
   public void remove(Address node) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isNode(node));
     if (lock != null) lock.acquire();
+    unlink(node);
+    if (lock != null) lock.release();
+  }
+
+  /**
+   * Splice a node out of the list.  The caller must hold the lock, if
+   * there is one.
+   *
+   * @param node the node to remove
+   */
+  @Inline
+  private void unlink(Address node) {
     Address prev = node.loadAddress(PREV_OFFSET);
     Address next = node.loadAddress(NEXT_OFFSET);
     // Splice the node out of the list
@@ -138,7 +150,6 @@ import org.vmmagic.unboxed.*;
     // Null out node's reference to the list
     node.store(Address.zero(), PREV_OFFSET);
     node.store(Address.zero(), NEXT_OFFSET);
-    if (lock != null) lock.release();
   }
 
   @Inline
@@ -151,11 +162,20 @@ import org.vmmagic.unboxed.*;
     return node.loadAddress(NEXT_OFFSET);
   }
 
+  /**
+   * Remove the first node of the list.  If the list is shared, this
+   * may be called by several threads at once, each of which receives
+   * a distinct node.
+   *
+   * @return the node removed, or zero if the list is empty
+   */
   @Inline
   public Address pop() {
+    if (lock != null) lock.acquire();
     Address first = head;
     if (!first.isZero())
-      remove(first);
+      unlink(first);
+    if (lock != null) lock.release();
     return first;
   }
 
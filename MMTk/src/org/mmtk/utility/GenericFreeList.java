@@ -212,6 +212,19 @@ public abstract class GenericFreeList {
     return getSize(unit);
   }
 
+  /**
+   * Iterate over the free lumps of units, most recently freed first.
+   *
+   * @param unit The index of the first unit of a free lump, or
+   * {@link #FAILURE} to start the iteration
+   * @return The index of the first unit of the next free lump, or
+   * {@link #FAILURE} if there are no more
+   */
+  public final int nextFree(int unit) {
+    int next = getNext(unit == FAILURE ? head : unit);
+    return next == head ? FAILURE : next;
+  }
+
   /****************************************************************************
    *
    * Private fields and methods
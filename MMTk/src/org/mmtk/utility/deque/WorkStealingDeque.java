@@ -0,0 +1,406 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.deque;
+
+import static org.mmtk.utility.Constants.*;
+
+import org.mmtk.plan.CollectorContext;
+import org.mmtk.plan.ParallelCollector;
+import org.mmtk.plan.ParallelCollectorGroup;
+import org.mmtk.policy.RawPageSpace;
+import org.mmtk.utility.options.Options;
+import org.mmtk.utility.statistics.EventCounter;
+import org.mmtk.vm.VM;
+import org.vmmagic.pragma.Inline;
+import org.vmmagic.pragma.Uninterruptible;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.AddressArray;
+import org.vmmagic.unboxed.Offset;
+
+/**
+ * A shared deque whose buffers are balanced between the threads of a
+ * parallel collector group by work stealing.<p>
+ *
+ * Each thread of the group that prepared the deque owns a bounded,
+ * lock-free deque of buffers (after Chase and Lev, "Dynamic Circular
+ * Work-Stealing Deque", SPAA 2005).  Buffers flushed by a thread are
+ * pushed onto its own deque and popped back in LIFO order, so that a
+ * thread mostly works on its own recently produced buffers without
+ * taking a lock.  A thread that runs out of work takes a buffer from the
+ * shared list (which holds the buffers that did not fit on a deque, and
+ * those enqueued by other threads), and then steals the oldest buffer
+ * from another thread's deque.  If there is nothing to steal, it waits
+ * until work appears or until every thread of the group has run out of
+ * work (see {@link ParallelCollectorGroup#enterIdle()}).<p>
+ *
+ * Stealing is selected by the {@link Options#workStealingTrace} option,
+ * and is only used when the deque is prepared for blocking operation.
+ * Otherwise, and for threads outside the group, this behaves exactly
+ * like a {@link SharedDeque}.
+ */
+@Uninterruptible
+public class WorkStealingDeque extends SharedDeque {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /**
+   * The maximum number of threads that own a deque.  Further threads
+   * of the group take part in stealing and termination detection, but
+   * push their buffers onto the shared list.
+   */
+  private static final int MAX_WORKERS = 64;
+
+  /*
+   * Each per-thread deque occupies one page.  The index of the oldest
+   * entry (top) is updated by thieves, the index of the next free entry
+   * (bottom) only by the owner, so they are kept on separate cache lines.
+   */
+  private static final Offset TOP_OFFSET = Offset.zero();
+  private static final Offset BOTTOM_OFFSET = Offset.fromIntSignExtend(64);
+  private static final int ENTRIES_OFFSET = 128;
+  private static final int CAPACITY = (BYTES_IN_PAGE - ENTRIES_OFFSET) >> LOG_BYTES_IN_ADDRESS;
+
+  /* Statistics, which together give the efficiency of the load balancing */
+  private static final EventCounter localPushes = new EventCounter("wsLocalPush");
+  private static final EventCounter sharedPushes = new EventCounter("wsSharedPush");
+  private static final EventCounter steals = new EventCounter("wsSteal");
+  private static final EventCounter failedSteals = new EventCounter("wsStealFail");
+  private static final EventCounter idleWaits = new EventCounter("wsIdle");
+
+  /****************************************************************************
+   *
+   * Instance variables
+   */
+
+  /** The per-thread deques, indexed by worker ordinal, zero until first used */
+  private final AddressArray workerDeques = AddressArray.create(MAX_WORKERS);
+
+  /** The group whose threads own deques, or null if stealing is not in use */
+  private ParallelCollectorGroup workers;
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * @param name the queue's human-readable name
+   * @param rps the space to get pages from
+   * @param arity the arity (number of words per entry) of this queue
+   */
+  public WorkStealingDeque(String name, RawPageSpace rps, int arity) {
+    super(name, rps, arity);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * If work stealing is selected, the threads in the group of the
+   * calling collector balance their work through their own deques.
+   */
+  @Override
+  public void prepare() {
+    CollectorContext collector = VM.activePlan.collector();
+    if (Options.workStealingTrace.getValue() && collector instanceof ParallelCollector) {
+      workers = ((ParallelCollector) collector).getGroup();
+      super.prepareNonBlocking();
+    } else {
+      workers = null;
+      super.prepare();
+    }
+  }
+
+  @Override
+  public void prepareNonBlocking() {
+    workers = null;
+    super.prepareNonBlocking();
+  }
+
+  @Override
+  public void reset() {
+    for (int i = 0; i < MAX_WORKERS; i++) {
+      Address deque = workerDeques.get(i);
+      if (!deque.isZero()) {
+        if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(size(deque) == 0);
+        deque.store(0, TOP_OFFSET);
+        deque.store(0, BOTTOM_OFFSET);
+      }
+    }
+    super.reset();
+  }
+
+  @Override
+  public int enqueuedPages() {
+    int buffers = 0;
+    for (int i = 0; i < MAX_WORKERS; i++) {
+      Address deque = workerDeques.get(i);
+      if (!deque.isZero() && size(deque) > 0) {
+        buffers += size(deque);
+      }
+    }
+    return super.enqueuedPages() + buffers * PAGES_PER_BUFFER;
+  }
+
+  /****************************************************************************
+   *
+   * Enqueuing and dequeuing buffers
+   */
+
+  @Override
+  void enqueue(Address buf, int arity, boolean toTail) {
+    int ordinal = ownerOrdinal();
+    boolean pushed = false;
+    if (ordinal >= 0) {
+      pushed = push(ordinal, buf);
+      if (pushed) {
+        localPushes.inc();
+      } else {
+        sharedPushes.inc();
+      }
+    }
+    if (!pushed) {
+      super.enqueue(buf, arity, toTail);
+    }
+    ParallelCollectorGroup group = workers;
+    if (group != null) {
+      /* Make the buffer visible before checking for idle threads to wake */
+      VM.memory.sync();
+      if (group.hasIdleContexts()) {
+        group.notifyWork();
+      }
+    }
+  }
+
+  @Override
+  Address dequeue(int arity, boolean fromTail) {
+    if (workers == null) {
+      return super.dequeue(arity, fromTail);
+    }
+    return take(arity, fromTail, ownerOrdinal());
+  }
+
+  @Override
+  Address dequeueAndWait(int arity, boolean fromTail) {
+    if (workers == null) {
+      return super.dequeueAndWait(arity, fromTail);
+    }
+    int ordinal = ownerOrdinal();
+    Address buf = take(arity, fromTail, ordinal);
+    if (!buf.isZero() || !isWorker() || workers.isWorkExhausted()) {
+      return buf;
+    }
+
+    /*
+     * Wait for work to be made available, or for all work to be done.
+     * Every thread of the group must take part, whether or not it owns
+     * a deque, since the work is only exhausted once all are idle.
+     */
+    idleWaits.inc();
+    workers.enterIdle();
+    while (!workers.isWorkExhausted()) {
+      int signal = workers.workSignal();
+      if (hasBuffers()) {
+        if (!workers.leaveIdle()) {
+          break;
+        }
+        buf = take(arity, fromTail, ordinal);
+        if (!buf.isZero()) {
+          return buf;
+        }
+        workers.enterIdle();
+      } else {
+        workers.awaitWork(signal);
+      }
+    }
+    return Address.zero();
+  }
+
+  /**
+   * Take a buffer from the calling thread's own deque, from the shared
+   * list, or from another thread's deque, in that order.
+   *
+   * @param arity the arity of this queue
+   * @param fromTail whether to dequeue from the tail of the shared list
+   * @param ordinal the ordinal of the calling thread's deque, or -1
+   * @return a buffer, or zero if none could be found
+   */
+  private Address take(int arity, boolean fromTail, int ordinal) {
+    if (ordinal >= 0) {
+      Address buf = pop(ordinal);
+      if (!buf.isZero()) return buf;
+    }
+    Address buf = super.dequeue(arity, fromTail);
+    if (!buf.isZero()) return buf;
+
+    for (int i = 1; i <= MAX_WORKERS; i++) {
+      Address victim = workerDeques.get((ordinal + i) % MAX_WORKERS);
+      if (!victim.isZero() && size(victim) > 0) {
+        buf = steal(victim);
+        if (!buf.isZero()) {
+          steals.inc();
+          return buf;
+        }
+        failedSteals.inc();
+      }
+    }
+    return Address.zero();
+  }
+
+  /**
+   * @return whether there are buffers on the shared list or on any deque
+   */
+  private boolean hasBuffers() {
+    return enqueuedPages() > 0;
+  }
+
+  /**
+   * @return whether the calling thread belongs to the group that
+   * balances its work through this deque
+   */
+  private boolean isWorker() {
+    if (workers == null || VM.activePlan.isMutator()) {
+      return false;
+    }
+    CollectorContext collector = VM.activePlan.collector();
+    return collector instanceof ParallelCollector && ((ParallelCollector) collector).getGroup() == workers;
+  }
+
+  /**
+   * @return the ordinal of the calling thread's deque, or -1 if
+   * the calling thread does not own a deque
+   */
+  private int ownerOrdinal() {
+    if (!isWorker()) {
+      return -1;
+    }
+    int ordinal = ((ParallelCollector) VM.activePlan.collector()).parallelWorkerOrdinal();
+    return ordinal < MAX_WORKERS ? ordinal : -1;
+  }
+
+  /****************************************************************************
+   *
+   * The per-thread deques
+   */
+
+  /**
+   * Push a buffer onto the bottom of a thread's own deque.
+   *
+   * @param ordinal the ordinal of the calling thread's deque
+   * @param buf the buffer to push
+   * @return {@code false} if the deque is full
+   */
+  private boolean push(int ordinal, Address buf) {
+    Address deque = workerDeques.get(ordinal);
+    if (deque.isZero()) {
+      deque = alloc();
+      deque.store(0, TOP_OFFSET);
+      deque.store(0, BOTTOM_OFFSET);
+      VM.memory.sync();
+      workerDeques.set(ordinal, deque);
+    }
+    int bottom = deque.loadInt(BOTTOM_OFFSET);
+    int top = deque.loadInt(TOP_OFFSET);
+    if (bottom - top >= CAPACITY) {
+      return false;
+    }
+    entry(deque, bottom).store(buf);
+    VM.memory.sync();
+    deque.store(bottom + 1, BOTTOM_OFFSET);
+    return true;
+  }
+
+  /**
+   * Pop a buffer from the bottom of a thread's own deque.
+   *
+   * @param ordinal the ordinal of the calling thread's deque
+   * @return the buffer, or zero if the deque is empty
+   */
+  private Address pop(int ordinal) {
+    Address deque = workerDeques.get(ordinal);
+    if (deque.isZero() || size(deque) <= 0) {
+      return Address.zero();
+    }
+    int bottom = deque.loadInt(BOTTOM_OFFSET) - 1;
+    deque.store(bottom, BOTTOM_OFFSET);
+    VM.memory.sync();
+    int top = deque.loadInt(TOP_OFFSET);
+    if (top > bottom) {
+      /* A thief took the last buffer */
+      deque.store(top, BOTTOM_OFFSET);
+      return Address.zero();
+    }
+    Address buf = entry(deque, bottom).loadAddress();
+    if (top == bottom) {
+      /* Race any thieves for the last buffer */
+      if (!casTop(deque, top)) {
+        buf = Address.zero();
+      }
+      deque.store(top + 1, BOTTOM_OFFSET);
+    }
+    return buf;
+  }
+
+  /**
+   * Steal a buffer from the top of another thread's deque.
+   *
+   * @param deque the deque to steal from
+   * @return the buffer, or zero if the deque is empty or the steal
+   * lost a race with the owner or another thief
+   */
+  private Address steal(Address deque) {
+    int top = deque.loadInt(TOP_OFFSET);
+    VM.memory.sync();
+    int bottom = deque.loadInt(BOTTOM_OFFSET);
+    if (top >= bottom) {
+      return Address.zero();
+    }
+    Address buf = entry(deque, top).loadAddress();
+    return casTop(deque, top) ? buf : Address.zero();
+  }
+
+  /**
+   * Atomically advance the top index of a deque.
+   *
+   * @param deque the deque
+   * @param top the expected value of the top index
+   * @return {@code true} if the top index was advanced
+   */
+  private static boolean casTop(Address deque, int top) {
+    if (deque.prepareInt(TOP_OFFSET) != top) {
+      return false;
+    }
+    return deque.attempt(top, top + 1, TOP_OFFSET);
+  }
+
+  /**
+   * @param deque a deque
+   * @return the number of buffers on the deque (which may be stale)
+   */
+  @Inline
+  private static int size(Address deque) {
+    return deque.loadInt(BOTTOM_OFFSET) - deque.loadInt(TOP_OFFSET);
+  }
+
+  /**
+   * @param deque a deque
+   * @param index an index into the deque
+   * @return the address of the entry for the given index
+   */
+  @Inline
+  private static Address entry(Address deque, int index) {
+    return deque.plus(ENTRIES_OFFSET + ((index % CAPACITY) << LOG_BYTES_IN_ADDRESS));
+  }
+}
@@ -27,6 +27,7 @@ import org.vmmagic.pragma.Inline;
 import org.vmmagic.pragma.Interruptible;
 import org.vmmagic.pragma.Uninterruptible;
 import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.AddressArray;
 import org.vmmagic.unboxed.Extent;
 
 /**
@@ -39,11 +40,30 @@ import org.vmmagic.unboxed.Extent;
 public final class FreeListPageResource extends PageResource {
 
   private static final boolean VERBOSE = false;
+  /** At most 1/2^LOG_BINNED_FRACTION of the heap may be held in run bins */
+  private static final int LOG_BINNED_FRACTION = 3;
 
   private final GenericFreeList freeList;
   private int highWaterMark = 0;
+  /** The page offset beyond the highest page ever allocated */
+  private int peakPage = 0;
   private final int metaDataPagesPerRegion;
   private int pagesCurrentlyOnFreeList = 0;
+  /** Free runs kept by size for reuse, or {@code null} if runs are not binned */
+  private PageRunBins runBins = null;
+
+  /** log2 of the pages in a chunk, the unit of idle time tracking */
+  private static final int LOG_PAGES_IN_CHUNK = LOG_BYTES_IN_CHUNK - LOG_BYTES_IN_PAGE;
+  /** The free pages of the chunk are uncommitted, or were never used */
+  private static final long UNCOMMITTED = 0;
+  /** The free pages of the chunk are being uncommitted by the current sweep */
+  private static final long UNCOMMITTING = -1;
+  /**
+   * For each chunk of this resource, the time at which pages in it were
+   * last released, or one of {@link #UNCOMMITTED} and
+   * {@link #UNCOMMITTING}.  {@code null} unless uncommitting is enabled.
+   */
+  private long[] chunkReleased = null;
 
   /**
    * Constructor
@@ -152,41 +172,116 @@ public final class FreeListPageResource extends PageResource {
   @Override
   @Inline
   protected Address allocPages(int reservedPages, int requiredPages, boolean zeroed) {
-    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(metaDataPagesPerRegion == 0 || requiredPages <= PAGES_IN_CHUNK - metaDataPagesPerRegion);
     lock();
+    Address rtn = allocPagesLocked(requiredPages);
+    if (rtn.isZero()) {
+      unlock();
+      return rtn;
+    }
+    // The meta-data portion of reserved Pages was committed by allocPagesLocked.
+    commitPages(reservedPages, requiredPages);
+    unlock();
+    preparePages(rtn, requiredPages, zeroed);
+    return rtn;
+  }
+
+  /**
+   * Allocate up to <code>units</code> runs of <code>unitPages</code>
+   * pages each from this resource, taking the lock once for the whole
+   * batch.  The pages are mapped and zeroed as for {@link #allocPages}.
+   * If no run can be allocated the pending request is left for the
+   * caller to clear, as for a failed {@link #getNewPages}.
+   *
+   * @param reservedPages The number of pages reserved due to the initial request.
+   * @param unitPages The number of pages in each run
+   * @param units The number of runs requested
+   * @param rtn Receives the start of each run allocated, from index zero
+   * @param zeroed If true allocated pages are zeroed.
+   * @return The number of runs allocated
+   */
+  public int allocPageBatch(int reservedPages, int unitPages, int units, AddressArray rtn, boolean zeroed) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(units <= rtn.length());
+    lock();
+    int allocated = 0;
+    while (allocated < units) {
+      Address run = allocPagesLocked(unitPages);
+      if (run.isZero()) break;
+      rtn.set(allocated++, run);
+    }
+    if (allocated > 0)
+      commitPages(reservedPages, allocated * unitPages);
+    unlock();
+    for (int i = 0; i < allocated; i++)
+      preparePages(rtn.get(i), unitPages, zeroed);
+    return allocated;
+  }
+
+  /**
+   * Find <code>requiredPages</code> pages on the free list, growing the
+   * space if necessary, and account for any meta-data pages that
+   * become committed as a result.  The caller must hold the lock, and
+   * must commit the pages.
+   *
+   * @param requiredPages The number of pages required to be allocated.
+   * @return The start of the first page if successful, zero on
+   * failure.
+   */
+  private Address allocPagesLocked(int requiredPages) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(metaDataPagesPerRegion == 0 || requiredPages <= PAGES_IN_CHUNK - metaDataPagesPerRegion);
+    if (runBins != null) {
+      Address run = runBins.take(requiredPages);
+      if (!run.isZero()) {
+        pagesCurrentlyOnFreeList -= requiredPages;
+        space.growSpace(run, Conversions.pagesToBytes(requiredPages), false);
+        return run;
+      }
+    }
     boolean newChunk = false;
     int pageOffset = freeList.alloc(requiredPages);
+    if (pageOffset == GenericFreeList.FAILURE && runBins != null && runBins.binnedPages() > 0) {
+      // binned runs may coalesce into a large enough run
+      releaseRunBinsLocked();
+      pageOffset = freeList.alloc(requiredPages);
+    }
     if (pageOffset == GenericFreeList.FAILURE && growable) {
       pageOffset = allocateContiguousChunks(requiredPages);
       newChunk = true;
     }
-    if (pageOffset == GenericFreeList.FAILURE) {
-      unlock();
+    if (pageOffset == GenericFreeList.FAILURE)
       return Address.zero();
-    } else {
-      pagesCurrentlyOnFreeList -= requiredPages;
-      if (pageOffset > highWaterMark) {
-        if (highWaterMark == 0 || (pageOffset ^ highWaterMark) > EmbeddedMetaData.PAGES_IN_REGION) {
-          int regions = 1 + ((pageOffset - highWaterMark) >> EmbeddedMetaData.LOG_PAGES_IN_REGION);
-          int metapages = regions * metaDataPagesPerRegion;
-          reserved += metapages;
-          committed += metapages;
-          newChunk = true;
-        }
-        highWaterMark = pageOffset;
+    pagesCurrentlyOnFreeList -= requiredPages;
+    if (pageOffset > highWaterMark) {
+      if (highWaterMark == 0 || (pageOffset ^ highWaterMark) > EmbeddedMetaData.PAGES_IN_REGION) {
+        int regions = 1 + ((pageOffset - highWaterMark) >> EmbeddedMetaData.LOG_PAGES_IN_REGION);
+        int metapages = regions * metaDataPagesPerRegion;
+        reserved += metapages;
+        committed += metapages;
+        newChunk = true;
       }
-      Address rtn = start.plus(Conversions.pagesToBytes(pageOffset));
-      Extent bytes = Conversions.pagesToBytes(requiredPages);
-      // The meta-data portion of reserved Pages was committed above.
-      commitPages(reservedPages, requiredPages);
-      space.growSpace(rtn, bytes, newChunk);
-      unlock();
-      HeapLayout.mmapper.ensureMapped(rtn, requiredPages);
-      if (zeroed)
-        VM.memory.zero(zeroNT, rtn, bytes);
-      VM.events.tracePageAcquired(space, rtn, requiredPages);
-      return rtn;
+      highWaterMark = pageOffset;
     }
+    if (pageOffset + requiredPages > peakPage)
+      peakPage = pageOffset + requiredPages;
+    Address rtn = start.plus(Conversions.pagesToBytes(pageOffset));
+    space.growSpace(rtn, Conversions.pagesToBytes(requiredPages), newChunk);
+    return rtn;
+  }
+
+  /**
+   * Map, place and optionally zero newly allocated pages.  This is done
+   * outside the lock.
+   *
+   * @param rtn The start of the pages
+   * @param pages The number of pages
+   * @param zeroed If true the pages are zeroed.
+   */
+  private void preparePages(Address rtn, int pages, boolean zeroed) {
+    HeapLayout.mmapper.ensureMapped(rtn, pages);
+    if (Numa.isEnabled())
+      Numa.placePages(rtn, pages);
+    if (zeroed)
+      VM.memory.zero(zeroNT, rtn, Conversions.pagesToBytes(pages));
+    VM.events.tracePageAcquired(space, rtn, pages);
   }
 
   /**
@@ -199,6 +294,43 @@ public final class FreeListPageResource extends PageResource {
    */
   @Inline
   public void releasePages(Address first) {
+    int pages = sizeForRelease(first);
+    long now = chunkReleased == null ? UNCOMMITTED : VM.statistics.nanoTime();
+    lock();
+    releasePagesLocked(first, pages, now);
+    unlock();
+    VM.events.tracePageReleased(space, first, pages);
+  }
+
+  /**
+   * Release a batch of page groups, each as for {@link #releasePages},
+   * taking the lock once for the whole batch.
+   *
+   * @param groups The first page of each group of pages
+   * @param count The number of groups, starting at index zero
+   */
+  public void releasePageBatch(AddressArray groups, int count) {
+    for (int i = 0; i < count; i++) {
+      // the groups are not yet on the free list, so cannot be re-acquired before they are traced
+      VM.events.tracePageReleased(space, groups.get(i), sizeForRelease(groups.get(i)));
+    }
+    long now = chunkReleased == null ? UNCOMMITTED : VM.statistics.nanoTime();
+    lock();
+    for (int i = 0; i < count; i++) {
+      Address first = groups.get(i);
+      releasePagesLocked(first, freeList.size(Conversions.bytesToPages(first.diff(start))), now);
+    }
+    unlock();
+  }
+
+  /**
+   * Prepare a group of pages for release, zeroing them if required.
+   * This is done outside the lock.
+   *
+   * @param first The first page in the group
+   * @return The number of pages in the group
+   */
+  private int sizeForRelease(Address first) {
     if (VM.VERIFY_ASSERTIONS)
       VM.assertions._assert(Conversions.isPageAligned(first));
 
@@ -212,19 +344,146 @@ public final class FreeListPageResource extends PageResource {
       LazyMmapper.protect(first, pages);
      */
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(pages <= committed);
+    return pages;
+  }
 
-    lock();
+  /**
+   * Return a group of pages to the free list.  The caller must hold
+   * the lock.
+   *
+   * @param first The first page in the group
+   * @param pages The number of pages in the group
+   * @param now The time of the release, if uncommitting is enabled
+   */
+  private void releasePagesLocked(Address first, int pages, long now) {
     reserved -= pages;
     committed -= pages;
-    int freed = freeList.free(pageOffset, true);
     pagesCurrentlyOnFreeList += pages;
+    noteReleased(Conversions.bytesToPages(first.diff(start)), pages, now);
+    if (runBins != null && runBins.put(first, pages, VM.activePlan.global().getTotalPages() >> LOG_BINNED_FRACTION))
+      return;
+    freeRun(first);
+  }
+
+  /**
+   * Return a run of pages, already accounted as free, to the free list.
+   * The caller must hold the lock.
+   *
+   * @param first The first page of the run
+   */
+  private void freeRun(Address first) {
+    int freed = freeList.free(Conversions.bytesToPages(first.diff(start)), true);
 
     if (!contiguous) // only discontiguous spaces use chunks
       releaseFreeChunks(first, freed);
+  }
+
+  /**
+   * Keep released runs of pages in bins by size, and satisfy requests
+   * from a bin when a run of exactly the requested size is available.
+   * Binned runs are returned to the free list by
+   * {@link #releaseRunBins()}, or when the free list cannot satisfy a
+   * request.
+   */
+  @Interruptible
+  public void enableRunBins() {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(metaDataPagesPerRegion == 0);
+    runBins = new PageRunBins();
+  }
 
+  /**
+   * Return all binned runs to the free list, so that they may coalesce
+   * with their neighbours.
+   */
+  public void releaseRunBins() {
+    if (runBins == null) return;
+    lock();
+    releaseRunBinsLocked();
     unlock();
+  }
 
-    VM.events.tracePageReleased(space, first, pages);
+  /**
+   * Return all binned runs to the free list.  The caller must hold the
+   * lock.
+   */
+  private void releaseRunBinsLocked() {
+    for (Address run = runBins.takeAny(); !run.isZero(); run = runBins.takeAny())
+      freeRun(run);
+  }
+
+  /**
+   * Record the chunks of this resource in which pages may be uncommitted
+   * once they have been idle for long enough.  The pages of a growable
+   * resource are allocated from its start, so only as many chunks as the
+   * largest heap could use are tracked.
+   */
+  @Override
+  @Interruptible
+  public void enableUncommit() {
+    Extent range = contiguous ? space.getExtent() : AVAILABLE_BYTES;
+    if (growable && HeapGrowthManager.getMaxHeapSize().LT(range))
+      range = HeapGrowthManager.getMaxHeapSize();
+    chunkReleased = new long[range.toWord().rshl(LOG_BYTES_IN_CHUNK).toInt() + 1];
+  }
+
+  /**
+   * Note that pages have been released, so that the chunks containing
+   * them are not uncommitted until they have been idle for long enough.
+   *
+   * @param pageOffset The first page released
+   * @param pages The number of pages released
+   * @param now The time of the release
+   */
+  private void noteReleased(int pageOffset, int pages, long now) {
+    if (chunkReleased == null) return;
+    int last = (pageOffset + pages - 1) >> LOG_PAGES_IN_CHUNK;
+    if (last >= chunkReleased.length) last = chunkReleased.length - 1;
+    for (int chunk = pageOffset >> LOG_PAGES_IN_CHUNK; chunk <= last; chunk++)
+      chunkReleased[chunk] = now;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * The free lumps are visited most recently freed first, so the
+   * pages kept committed are those most likely to be reused.  Pages
+   * above the highest ever allocated have never been touched.  The
+   * free pages of a chunk are uncommitted only if no page in the chunk
+   * has been released since <code>idleSince</code>, and only once: the
+   * chunk is not visited again until pages in it are next released.
+   */
+  @Override
+  public void uncommitFreePages(int keepPages, long idleSince) {
+    if (chunkReleased == null) return;
+    lock();
+    for (int unit = freeList.nextFree(GenericFreeList.FAILURE); unit != GenericFreeList.FAILURE; unit = freeList.nextFree(unit)) {
+      int first = unit;
+      int end = unit + freeList.size(unit);
+      if (end > peakPage) end = peakPage;
+      if (keepPages > 0 && first < end) {
+        int kept = keepPages < end - first ? keepPages : end - first;
+        keepPages -= kept;
+        first += kept;
+      }
+      while (first < end) {
+        int chunk = first >> LOG_PAGES_IN_CHUNK;
+        int next = (chunk + 1) << LOG_PAGES_IN_CHUNK;
+        if (next > end) next = end;
+        if (chunk < chunkReleased.length) {
+          long released = chunkReleased[chunk];
+          if (released == UNCOMMITTING || (released != UNCOMMITTED && released <= idleSince)) {
+            PageBacking.uncommit(start.plus(Conversions.pagesToBytes(first)), Conversions.pagesToBytes(next - first));
+            chunkReleased[chunk] = UNCOMMITTING;
+          }
+        }
+        first = next;
+      }
+    }
+    for (int chunk = 0; chunk < chunkReleased.length; chunk++) {
+      if (chunkReleased[chunk] == UNCOMMITTING)
+        chunkReleased[chunk] = UNCOMMITTED;
+    }
+    unlock();
   }
 
   /**
@@ -297,6 +556,9 @@ public final class FreeListPageResource extends PageResource {
         }
         pagesCurrentlyOnFreeList += PAGES_IN_CHUNK - metaDataPagesPerRegion;
       }
+      // the chunks may still be committed by the space that last used them
+      if (chunkReleased != null)
+        noteReleased(regionStart, requiredChunks * PAGES_IN_CHUNK, VM.statistics.nanoTime());
       rtn = freeList.alloc(pages); // re-do the request which triggered this call
     }
     return rtn;
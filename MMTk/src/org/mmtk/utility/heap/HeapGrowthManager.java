@@ -167,10 +167,21 @@ import org.vmmagic.unboxed.*;
    * @return {@code true} if heap size was changed, {@code false} otherwise
    */
   public static boolean considerHeapSize() {
-    Extent oldSize = currentHeapSize;
     Extent reserved = Plan.reservedMemory();
     double liveRatio = reserved.toLong() / ((double) currentHeapSize.toLong());
-    double ratio = computeHeapChangeRatio(liveRatio);
+    return resizeHeap(computeHeapChangeRatio(liveRatio));
+  }
+
+  /**
+   * Grow or shrink the heap by a ratio, keeping it at least as large as
+   * the memory in use and no larger than the maximum heap size.
+   *
+   * @param ratio The ratio of the new heap size to the current one
+   * @return {@code true} if heap size was changed, {@code false} otherwise
+   */
+  public static boolean resizeHeap(double ratio) {
+    Extent oldSize = currentHeapSize;
+    Extent reserved = Plan.reservedMemory();
     Extent newSize = Word.fromIntSignExtend((int)(ratio * (oldSize.toLong() >> LOG_BYTES_IN_MBYTE))).lsh(LOG_BYTES_IN_MBYTE).toExtent(); // do arith in MB to avoid overflow
     if (newSize.LT(reserved)) newSize = reserved;
     newSize = newSize.plus(BYTES_IN_MBYTE - 1).toWord().rshl(LOG_BYTES_IN_MBYTE).lsh(LOG_BYTES_IN_MBYTE).toExtent(); // round to next megabyte
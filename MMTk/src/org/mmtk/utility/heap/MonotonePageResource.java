@@ -63,6 +63,15 @@ public final class MonotonePageResource extends PageResource {
   /** Current limit of zeroing.  If zeroingCursor < zeroingSentinel, zeroing is still happening. */
   private Address zeroingSentinel;
 
+  /** The highest cursor since free pages were last uncommitted (contiguous only) */
+  private Address peakCursor;
+
+  /** The time at which {@link #peakCursor} was last reset */
+  private long peakReset = 0;
+
+  /** The end of the pages which may be committed (contiguous only) */
+  private Address residentLimit;
+
   /**
    * Constructor
    *
@@ -83,6 +92,8 @@ public final class MonotonePageResource extends PageResource {
     this.zeroingCursor = this.sentinel;
     this.zeroingSentinel = start;
     this.metaDataPagesPerRegion = metaDataPagesPerRegion;
+    this.peakCursor = start;
+    this.residentLimit = start;
   }
 
   /**
@@ -184,10 +195,16 @@ public final class MonotonePageResource extends PageResource {
       if (contiguous && Conversions.chunkAlign(cursor, true).NE(currentChunk)) {
         currentChunk = Conversions.chunkAlign(cursor, true);
       }
+      if (contiguous && cursor.GT(peakCursor)) {
+        peakCursor = cursor;
+        if (cursor.GT(residentLimit)) residentLimit = cursor;
+      }
       commitPages(reservedPages, requiredPages);
       space.growSpace(old, bytes, newChunk);
       unlock();
       HeapLayout.mmapper.ensureMapped(old, requiredPages);
+      if (Numa.isEnabled())
+        Numa.placePages(old, requiredPages);
       if (zeroed) {
         if (!zeroConcurrent) {
           VM.memory.zero(zeroNT, old, bytes);
@@ -250,6 +267,30 @@ public final class MonotonePageResource extends PageResource {
     unlock();
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Only the pages of a contiguous resource above the highest cursor
+   * reached since the peak was last reset are idle, so they are only
+   * uncommitted once the peak has been tracked since
+   * <code>idleSince</code>.  A discontiguous resource returns its chunks
+   * to the global pool when it is reset, and keeps no free pages.
+   */
+  @Override
+  public void uncommitFreePages(int keepPages, long idleSince) {
+    if (!contiguous || zeroConcurrent) return;
+    if (peakReset > idleSince) return;
+    lock();
+    Address free = peakCursor.plus(Conversions.pagesToBytes(keepPages));
+    if (free.LT(residentLimit)) {
+      PageBacking.uncommit(free, residentLimit.diff(free).toWord().toExtent());
+      residentLimit = free;
+    }
+    peakCursor = cursor;
+    peakReset = VM.statistics.nanoTime();
+    unlock();
+  }
+
   /**
    * Notify that several pages are no longer in use.
    *
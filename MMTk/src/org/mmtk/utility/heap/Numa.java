@@ -0,0 +1,145 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.heap;
+
+import static org.mmtk.utility.Constants.LOG_BYTES_IN_MBYTE;
+import static org.mmtk.utility.Constants.LOG_BYTES_IN_PAGE;
+
+import org.mmtk.utility.Conversions;
+import org.mmtk.utility.Log;
+import org.mmtk.utility.options.Options;
+import org.mmtk.vm.Lock;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class places heap pages on NUMA memory nodes.<p>
+ *
+ * When enabled, each group of pages handed out by a page resource is
+ * bound to the memory node of the thread that acquired it, so mutators
+ * allocate into node-local memory.  Parallel collector threads are
+ * bound to nodes round-robin, so the to-space pages they acquire while
+ * copying, and hence the objects they copy, are local to the collector
+ * that traced them.<p>
+ *
+ * The number of pages placed on each node is recorded, separately for
+ * mutators and collectors, and reported at exit.
+ */
+@Uninterruptible
+public final class Numa {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /** The largest number of nodes for which pages are placed */
+  private static final int MAX_NODES = 64;
+
+  private static boolean enabled = false;
+  private static int nodes = 1;
+
+  /** The number of pages placed on each node by mutators */
+  private static final int[] mutatorPages = new int[MAX_NODES];
+  /** The number of pages placed on each node by collectors */
+  private static final int[] collectorPages = new int[MAX_NODES];
+
+  private static final Lock lock = VM.newLock("Numa");
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * Enable placement if it was requested and the machine has more
+   * than one memory node.  Called once options have been processed.
+   */
+  @Interruptible
+  public static void boot() {
+    if (!Options.numaPlacement.getValue()) return;
+    nodes = VM.memory.numaNodes();
+    if (nodes > MAX_NODES) nodes = MAX_NODES;
+    enabled = nodes > 1;
+    if (Options.verbose.getValue() >= 1) {
+      Log.write("[NUMA placement ");
+      if (enabled) {
+        Log.write("over "); Log.write(nodes); Log.writeln(" nodes]");
+      } else {
+        Log.writeln("disabled: single node]");
+      }
+    }
+  }
+
+  /**
+   * @return {@code true} if pages are being placed by node
+   */
+  @Inline
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /****************************************************************************
+   *
+   * Placement
+   */
+
+  /**
+   * Bind a newly acquired group of pages to the memory node of the
+   * current thread.  Pages that have already been touched on another
+   * node are migrated.
+   *
+   * @param start The start of the pages
+   * @param pages The number of pages
+   */
+  public static void placePages(Address start, int pages) {
+    int node = VM.memory.currentNumaNode();
+    if (node < 0 || node >= nodes) return;
+    lock.acquire();
+    if (VM.activePlan.isMutator())
+      mutatorPages[node] += pages;
+    else
+      collectorPages[node] += pages;
+    lock.release();
+    VM.memory.bindToNumaNode(start, Conversions.pagesToBytes(pages), node);
+  }
+
+  /**
+   * Bind the current collector thread to a memory node.
+   *
+   * @param ordinal The index of the collector thread within its group
+   */
+  public static void bindCollector(int ordinal) {
+    if (enabled) VM.collection.bindToNumaNode(ordinal % nodes);
+  }
+
+  /****************************************************************************
+   *
+   * Statistics
+   */
+
+  /**
+   * Print the number of megabytes placed on each node.
+   */
+  public static void printStats() {
+    Log.writeln("NUMA placement (MB)");
+    Log.writeln("node\tmutator\tcollector");
+    for (int node = 0; node < nodes; node++) {
+      Log.write(node); Log.write("\t");
+      Log.write(mutatorPages[node] >> (LOG_BYTES_IN_MBYTE - LOG_BYTES_IN_PAGE)); Log.write("\t");
+      Log.writeln(collectorPages[node] >> (LOG_BYTES_IN_MBYTE - LOG_BYTES_IN_PAGE));
+    }
+  }
+}
@@ -0,0 +1,255 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.heap;
+
+import static org.mmtk.utility.Constants.LOG_BYTES_IN_MBYTE;
+import static org.mmtk.utility.Constants.LOG_BYTES_IN_PAGE;
+import static org.mmtk.utility.heap.layout.VMLayoutConstants.LOG_MMAP_CHUNK_BYTES;
+
+import org.mmtk.policy.Space;
+import org.mmtk.utility.Log;
+import org.mmtk.utility.heap.layout.HeapLayout;
+import org.mmtk.utility.heap.layout.Mmapper;
+import org.mmtk.utility.options.Options;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class controls how the operating system backs the pages of the
+ * heap.<p>
+ *
+ * Spaces named by the <code>HugePageSpaces</code> option have their
+ * pages advised to be backed by transparent huge pages, reducing TLB
+ * misses over large heaps.  If the advice fails, for example because
+ * the kernel does not support huge pages, base pages are used.<p>
+ *
+ * When the <code>PreTouch</code> option is set, heap pages are faulted
+ * in by a background thread (see {@link PreTouchContext}) as soon as
+ * they are mapped, so that allocation does not take first-touch page
+ * faults.<p>
+ *
+ * Pages mapped lazily are handled as each mmap chunk is mapped.  When
+ * <code>EagerMmapSpaces</code> is set, the discontiguous region is
+ * mapped before it is owned by any space, so its chunks are handled as
+ * each space acquires them.  Eagerly mapped contiguous spaces are
+ * advised but not pre-touched, since their whole virtual extent is
+ * mapped.<p>
+ *
+ * When the <code>Uncommit</code> option is set, the physical memory
+ * backing free pages that have not been used for
+ * <code>UncommitDelay</code> is returned to the operating system at the
+ * end of a collection.  Each space keeps <code>UncommitHeadroom</code>
+ * free pages committed.  The
+ * uncommitted pages stay mapped and read as zero when they are reused,
+ * so a page resource that zeroes pages on allocation does no more than
+ * it would otherwise.  The resident set size before and after each
+ * uncommit is recorded, so that it can be compared with the pages MMTk
+ * has committed.
+ */
+@Uninterruptible
+public final class PageBacking {
+
+  private static boolean hugePages = false;
+  private static boolean preTouch = false;
+  private static PreTouchContext preTouchContext;
+
+  private static int uncommits = 0;
+  /** The total reduction in resident memory due to uncommits */
+  private static long uncommittedBytes = 0;
+
+  /**
+   * Select the spaces backed by huge pages and prepare the pre-touch
+   * thread, as requested by the options.  Called before any space is
+   * eagerly mapped.  Pre-touch requests made before threads can be
+   * spawned are queued until {@link #enableCollection()}.
+   */
+  @Interruptible
+  public static void boot() {
+    final String names = Options.hugePageSpaces.getValue();
+    if (names.length() > 0) {
+      Space.visitSpaces(new Space.SpaceVisitor() {
+        @Override
+        public void visit(Space space) {
+          if (isListed(names, space.getName())) {
+            space.setHugePages(true);
+            hugePages = true;
+          }
+        }
+      });
+    }
+    if (Options.preTouch.getValue() && !Options.protectOnRelease.getValue()) {
+      preTouchContext = new PreTouchContext();
+      preTouch = true;
+    }
+    if (Options.uncommit.getValue()) {
+      Space.visitSpaces(new Space.SpaceVisitor() {
+        @Override
+        public void visit(Space space) {
+          space.enableUncommit();
+        }
+      });
+    }
+  }
+
+  /**
+   * Start the pre-touch thread, if one was requested.  Called once it
+   * is safe to spawn collector contexts.
+   */
+  @Interruptible
+  public static void enableCollection() {
+    if (preTouch) {
+      VM.collection.spawnCollectorContext(preTouchContext);
+    }
+  }
+
+  /**
+   * @param names A comma separated list of names
+   * @param name A name
+   * @return {@code true} if the name is in the list
+   */
+  @Interruptible
+  private static boolean isListed(String names, String name) {
+    for (String listed : names.split(",")) {
+      if (listed.trim().equals(name)) return true;
+    }
+    return false;
+  }
+
+  /****************************************************************************
+   *
+   * Hooks
+   */
+
+  /**
+   * An mmap chunk has just been demand-zero mapped.
+   *
+   * @param start The start of the chunk
+   * @param bytes The size of the chunk
+   */
+  public static void chunkMapped(Address start, int bytes) {
+    if (!hugePages && !preTouch) return;
+    Space space = HeapLayout.vmMap.getSpaceForAddress(start);
+    if (space == null) return;
+    if (hugePages && space.usesHugePages()) advise(start, bytes);
+    if (preTouch && !Options.eagerMmapSpaces.getValue()) preTouchContext.request(start, bytes);
+  }
+
+  /**
+   * A discontiguous space has acquired chunks of virtual memory, some of
+   * which may already be mapped (if spaces were mapped eagerly, or the
+   * chunks were previously used by another space).
+   *
+   * @param space The space
+   * @param start The start of the chunks
+   * @param bytes The size of the chunks
+   */
+  public static void chunksAcquired(Space space, Address start, int bytes) {
+    if (!hugePages && !preTouch) return;
+    Address end = start.plus(bytes);
+    for (Address chunk = start; chunk.LT(end); chunk = chunk.plus(1 << LOG_MMAP_CHUNK_BYTES)) {
+      if (!HeapLayout.mmapper.addressIsMapped(chunk)) continue;
+      if (hugePages && space.usesHugePages()) advise(chunk, 1 << LOG_MMAP_CHUNK_BYTES);
+      if (preTouch) preTouchContext.request(chunk, 1 << LOG_MMAP_CHUNK_BYTES);
+    }
+  }
+
+  /****************************************************************************
+   *
+   * Uncommitting free memory
+   */
+
+  /**
+   * Uncommit the free pages of every space that have not been used for
+   * at least the delay, if the option is set.  Called by a single thread
+   * at the end of a collection.
+   */
+  public static void uncommitIdleMemory() {
+    if (!Options.uncommit.getValue()) return;
+    long idleSince = VM.statistics.nanoTime() - Options.uncommitDelay.getMicroseconds() * 1000L;
+
+    long before = VM.memory.residentBytes();
+    Space[] spaces = Space.getSpaces();
+    for (int i = 0; i < Space.getSpaceCount(); i++) {
+      if (spaces[i] != VM.memory.getVMSpace())
+        spaces[i].uncommitFreePages(Options.uncommitHeadroom.getPages(), idleSince);
+    }
+    long after = VM.memory.residentBytes();
+    uncommits++;
+    if (after < before) uncommittedBytes += before - after;
+    if (Options.verbose.getValue() >= 2) {
+      Log.write("[Uncommit: resident "); Log.write(before >> LOG_BYTES_IN_MBYTE);
+      Log.write("MB->"); Log.write(after >> LOG_BYTES_IN_MBYTE);
+      Log.write("MB, committed "); Log.write(committedPages() >> (LOG_BYTES_IN_MBYTE - LOG_BYTES_IN_PAGE));
+      Log.writeln("MB]");
+    }
+  }
+
+  /**
+   * Uncommit a range of free pages, skipping any that are not mapped.
+   * The caller must ensure the pages are not in use.
+   *
+   * @param start The start of the range
+   * @param bytes The size of the range
+   */
+  public static void uncommit(Address start, Extent bytes) {
+    Address end = start.plus(bytes);
+    while (start.LT(end)) {
+      Address next = Mmapper.chunkAlignDown(start).plus(1 << LOG_MMAP_CHUNK_BYTES);
+      if (next.GT(end)) next = end;
+      if (HeapLayout.mmapper.addressIsMapped(start))
+        VM.memory.uncommit(start, next.diff(start).toWord().toExtent());
+      start = next;
+    }
+  }
+
+  /**
+   * @return The number of pages committed by all spaces
+   */
+  private static int committedPages() {
+    int pages = 0;
+    Space[] spaces = Space.getSpaces();
+    for (int i = 0; i < Space.getSpaceCount(); i++) {
+      pages += spaces[i].committedPages();
+    }
+    return pages;
+  }
+
+  /**
+   * Print the resident and committed memory, and the memory uncommitted.
+   */
+  public static void printStats() {
+    Log.write("Uncommit: "); Log.write(uncommits);
+    Log.write(" uncommits released "); Log.write(uncommittedBytes >> LOG_BYTES_IN_MBYTE);
+    Log.write("MB; resident "); Log.write(VM.memory.residentBytes() >> LOG_BYTES_IN_MBYTE);
+    Log.write("MB, committed "); Log.write(committedPages() >> (LOG_BYTES_IN_MBYTE - LOG_BYTES_IN_PAGE));
+    Log.writeln("MB");
+  }
+
+  /**
+   * Advise that a mapped range be backed by huge pages, falling back
+   * to base pages for the rest of the run if the advice fails.
+   *
+   * @param start The start of the range
+   * @param bytes The size of the range
+   */
+  private static void advise(Address start, int bytes) {
+    if (!VM.memory.adviseHugePages(start, bytes)) {
+      hugePages = false;
+      if (Options.verbose.getValue() >= 1) {
+        Log.writeln("[Huge pages are not available, using base pages]");
+      }
+    }
+  }
+}
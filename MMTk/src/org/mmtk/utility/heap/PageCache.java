@@ -0,0 +1,114 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.heap;
+
+import static org.mmtk.utility.heap.layout.HeapParameters.MAX_SPACES;
+
+import org.mmtk.policy.Space;
+import org.mmtk.vm.VM;
+import org.vmmagic.pragma.Inline;
+import org.vmmagic.pragma.Interruptible;
+import org.vmmagic.pragma.Uninterruptible;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.AddressArray;
+
+/**
+ * This class implements a per-mutator cache of free blocks, in front
+ * of the page resource of a space whose thread-local allocators
+ * acquire pages in runs of a fixed size.<p>
+ *
+ * When its cache is empty a mutator takes a batch of blocks from the
+ * page resource, with a single page budget check and a single
+ * acquisition of the page resource lock, and then hands them out to
+ * its allocators without synchronization.  Blocks still cached at a
+ * collection are returned to the page resource as a batch, again under
+ * a single acquisition of the lock.  Cached blocks are committed to the
+ * space but have never been handed out, so the space holds no other
+ * state for them.
+ *
+ * @see Space#acquire(int)
+ */
+@Uninterruptible
+public final class PageCache {
+
+  /** The maximum number of blocks held by a cache */
+  public static final int CAPACITY = 32;
+
+  /** The page resource from which blocks are taken */
+  private final FreeListPageResource pr;
+  /** The number of pages in each block */
+  private final int unitPages;
+  /** The cached blocks, of which the first <code>count</code> are valid */
+  private final AddressArray blocks = AddressArray.create(CAPACITY);
+  private int count = 0;
+
+  /**
+   * Constructor
+   *
+   * @param pr The page resource from which blocks are taken
+   * @param unitPages The number of pages in each block
+   */
+  public PageCache(FreeListPageResource pr, int unitPages) {
+    this.pr = pr;
+    this.unitPages = unitPages;
+  }
+
+  /**
+   * Create a page cache for each space which caches pages.
+   *
+   * @return The page caches, indexed by space, with {@code null}
+   * entries for spaces which do not cache pages
+   */
+  @Interruptible
+  public static PageCache[] createCaches() {
+    PageCache[] caches = new PageCache[MAX_SPACES];
+    for (int i = 0; i < Space.getSpaceCount(); i++) {
+      caches[i] = Space.getSpaces()[i].newPageCache();
+    }
+    return caches;
+  }
+
+  /**
+   * @return A cached block, or zero if the cache is empty
+   */
+  @Inline
+  public Address pop() {
+    if (count == 0) return Address.zero();
+    return blocks.get(--count);
+  }
+
+  /**
+   * Fill the empty cache with a batch of blocks from the page resource.
+   * The caller must already have reserved the pages for the batch.
+   *
+   * @param reservedPages The number of pages reserved for the batch
+   * @param batch The number of blocks requested
+   * @param zeroed If true the blocks are zeroed
+   * @return The number of blocks cached, which is zero on failure
+   */
+  public int refill(int reservedPages, int batch, boolean zeroed) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(count == 0);
+    count = pr.allocPageBatch(reservedPages, unitPages, batch, blocks, zeroed);
+    return count;
+  }
+
+  /**
+   * Return all cached blocks to the page resource.
+   */
+  public void flush() {
+    if (count > 0) {
+      pr.releasePageBatch(blocks, count);
+      count = 0;
+    }
+  }
+}
@@ -17,6 +17,7 @@ import org.mmtk.utility.options.ProtectOnRelease;
 import org.mmtk.utility.options.Options;
 
 import org.mmtk.vm.Lock;
+import org.mmtk.vm.SynchronizedCounter;
 import org.mmtk.vm.VM;
 
 import org.vmmagic.pragma.*;
@@ -42,10 +43,14 @@ public abstract class PageResource {
    * Class variables
    */
 
-  /** lock protecting count of total cumulative pages committed */
+  /** lock protecting the folding of recent commits into the cumulative count */
   private static final Lock classLock;
-  /** cumulative count of pages ever committed */
+  /** cumulative count of pages ever committed, less those counted by <code>recentlyCommitted</code> */
   private static long cumulativeCommitted = 0;
+  /** count of pages committed since they were last folded into <code>cumulativeCommitted</code> */
+  private static final SynchronizedCounter recentlyCommitted;
+  /** the number of recently committed pages folded into the cumulative count at a time */
+  private static final int FOLD_PAGES = 1 << 30;
 
 
   /****************************************************************************
@@ -82,6 +87,7 @@ public abstract class PageResource {
    */
   static {
     classLock = VM.newLock("PageResource");
+    recentlyCommitted = VM.newSynchronizedCounter();
     Options.protectOnRelease = new ProtectOnRelease();
   }
 
@@ -218,6 +224,26 @@ public abstract class PageResource {
 
   abstract Address allocPages(int reservedPages, int requiredPages, boolean zeroed);
 
+  /**
+   * Prepare to record how long free pages stay unused, so that they
+   * can be uncommitted (see {@link PageBacking}).
+   */
+  @Interruptible
+  public void enableUncommit() {
+  }
+
+  /**
+   * Return the physical memory backing free pages of this resource to
+   * the operating system, keeping some free pages committed.  Only
+   * pages that have been free since before <code>idleSince</code> are
+   * uncommitted.
+   *
+   * @param keepPages The number of free pages to keep committed
+   * @param idleSince The latest release time, from
+   * {@code VM.statistics.nanoTime()}, of pages that may be uncommitted
+   */
+  public abstract void uncommitFreePages(int keepPages, long idleSince);
+
   /**
    * Adjust a page request to include metadata requirements for a request
    * of the given size. This must be a pure function, that is it does not
@@ -296,18 +322,25 @@ public abstract class PageResource {
    * @return The cumulative number of committed pages.
    */
   public static long cumulativeCommittedPages() {
-    return cumulativeCommitted;
+    return cumulativeCommitted + recentlyCommitted.peek();
   }
 
   /**
-   * Add to the total cumulative committed page count.
+   * Add to the total cumulative committed page count.  The pages are
+   * added atomically to a 32-bit count, and only the thread which takes
+   * that count past {@link #FOLD_PAGES} takes the lock, to fold them
+   * into the 64-bit total.
    *
    * @param pages The number of pages to be added.
    */
   private static void addToCommitted(int pages) {
-    classLock.acquire();
-    cumulativeCommitted += pages;
-    classLock.release();
+    int old = recentlyCommitted.add(pages);
+    if (old < FOLD_PAGES && old + pages >= FOLD_PAGES) {
+      classLock.acquire();
+      cumulativeCommitted += FOLD_PAGES;
+      recentlyCommitted.add(-FOLD_PAGES);
+      classLock.release();
+    }
   }
 
   /**
@@ -0,0 +1,134 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.heap;
+
+import static org.mmtk.utility.Constants.BYTES_IN_ADDRESS;
+
+import org.vmmagic.pragma.Uninterruptible;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.AddressArray;
+import org.vmmagic.unboxed.Offset;
+
+/**
+ * This class keeps runs of free pages in bins by size, so that a
+ * {@link FreeListPageResource} can satisfy a request with a run of
+ * exactly the size requested, without searching its free list, and can
+ * release a run without coalescing it.  This suits spaces such as the
+ * large object space, whose objects often recur at the same few sizes.<p>
+ *
+ * Runs are binned by the log of their size in pages, and are linked
+ * through their first two words, which hold the next run in the bin
+ * and the size of the run.  A binned run remains allocated on the free
+ * list, but is free as far as the page budget is concerned.<p>
+ *
+ * All methods must be called with the page resource's lock held.
+ */
+@Uninterruptible
+final class PageRunBins {
+
+  /** The number of bins: runs of up to 2^BINS - 1 pages are binned */
+  private static final int BINS = 13;
+  /** The maximum number of runs in each bin, which bounds the cost of a search */
+  private static final int MAX_RUNS_PER_BIN = 64;
+  private static final Offset PAGES_OFFSET = Offset.fromIntZeroExtend(BYTES_IN_ADDRESS);
+
+  /** The first run in each bin */
+  private final AddressArray heads = AddressArray.create(BINS);
+  /** The number of runs in each bin */
+  private final int[] runs = new int[BINS];
+  /** The total number of pages binned */
+  private int pages = 0;
+
+  /**
+   * @return The total number of pages binned
+   */
+  int binnedPages() {
+    return pages;
+  }
+
+  /**
+   * Add a run to its bin, unless the bin is full or the run is too large.
+   *
+   * @param run The first page of the run
+   * @param runPages The number of pages in the run
+   * @param maxPages The maximum total number of pages that may be binned
+   * @return {@code true} if the run was binned
+   */
+  boolean put(Address run, int runPages, int maxPages) {
+    int bin = binFor(runPages);
+    if (bin >= BINS || runs[bin] >= MAX_RUNS_PER_BIN || pages + runPages > maxPages)
+      return false;
+    run.store(heads.get(bin));
+    run.store(runPages, PAGES_OFFSET);
+    heads.set(bin, run);
+    runs[bin]++;
+    pages += runPages;
+    return true;
+  }
+
+  /**
+   * Remove a run of exactly the given size from its bin.
+   *
+   * @param runPages The number of pages required
+   * @return The first page of the run, or zero if there is none
+   */
+  Address take(int runPages) {
+    int bin = binFor(runPages);
+    if (bin >= BINS) return Address.zero();
+    Address prev = Address.zero();
+    for (Address run = heads.get(bin); !run.isZero(); run = run.loadAddress()) {
+      if (run.loadInt(PAGES_OFFSET) == runPages) {
+        unlink(bin, prev, run);
+        return run;
+      }
+      prev = run;
+    }
+    return Address.zero();
+  }
+
+  /**
+   * Remove any run.
+   *
+   * @return The first page of the run, or zero if all bins are empty
+   */
+  Address takeAny() {
+    for (int bin = 0; bin < BINS; bin++) {
+      Address run = heads.get(bin);
+      if (!run.isZero()) {
+        unlink(bin, Address.zero(), run);
+        return run;
+      }
+    }
+    return Address.zero();
+  }
+
+  private void unlink(int bin, Address prev, Address run) {
+    Address next = run.loadAddress();
+    if (prev.isZero())
+      heads.set(bin, next);
+    else
+      prev.store(next);
+    runs[bin]--;
+    pages -= run.loadInt(PAGES_OFFSET);
+  }
+
+  /**
+   * @param runPages A number of pages
+   * @return The bin for runs of that many pages
+   */
+  private static int binFor(int runPages) {
+    int bin = 0;
+    while ((runPages >> (bin + 1)) != 0) bin++;
+    return bin;
+  }
+}
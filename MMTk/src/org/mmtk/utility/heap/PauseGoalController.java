@@ -0,0 +1,199 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.heap;
+
+import static org.mmtk.utility.Constants.LOG_BYTES_IN_MBYTE;
+import static org.mmtk.utility.Constants.LOG_BYTES_IN_PAGE;
+
+import org.mmtk.utility.Log;
+import org.mmtk.utility.options.Options;
+import org.mmtk.utility.statistics.EventCounter;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+
+/**
+ * This class sizes the nursery and the heap after each collection to
+ * meet a pause time goal and a throughput goal, in place of the
+ * live ratio and GC load tables of {@link HeapGrowthManager}.<p>
+ *
+ * Pause times and the GC load (the fraction of time spent collecting)
+ * are tracked as exponentially decaying averages, separately for
+ * nursery and full heap collections.  The pause time goal takes
+ * priority:
+ * <ul>
+ * <li>If nursery pauses exceed the goal, the nursery is shrunk in
+ *     proportion; otherwise, if the GC load exceeds the throughput
+ *     goal, the nursery is grown.</li>
+ * <li>If full heap pauses exceed the goal, the heap is shrunk;
+ *     otherwise, if the GC load exceeds the throughput goal, the heap
+ *     is grown, and if the GC load is well within the goal the heap is
+ *     shrunk slowly to reduce its footprint.</li>
+ * </ul>
+ * Each decision is counted in the statistics, and logged at verbosity
+ * 2 and above.
+ */
+@Uninterruptible
+public final class PauseGoalController {
+
+  /** The weight of the newest sample in the decaying averages */
+  private static final double SAMPLE_WEIGHT = 0.3;
+  /** The ratio by which the nursery or heap grows to improve throughput */
+  private static final double GROW_RATIO = 1.2;
+  /** The smallest ratio by which the nursery or heap shrinks to meet the pause goal */
+  private static final double MIN_SHRINK_RATIO = 0.5;
+  /** The ratio by which the heap shrinks when both goals are comfortably met */
+  private static final double FOOTPRINT_SHRINK_RATIO = 0.95;
+
+  private static boolean enabled = false;
+
+  private static long lastCollectionEnd;
+  private static double gcLoad;
+  private static double nurseryPauseMillis;
+  private static double fullHeapPauseMillis;
+  private static int nurseryPages;
+
+  private static EventCounter nurseryGrown;
+  private static EventCounter nurseryShrunk;
+  private static EventCounter heapGrown;
+  private static EventCounter heapShrunk;
+
+  /**
+   * Enable the controller if a pause time goal was given.  Called
+   * before statistics are started, so that its counters are reported.
+   */
+  @Interruptible
+  public static void boot() {
+    if (Options.pauseTimeGoal.getMicroseconds() == 0) return;
+    enabled = true;
+    nurseryGrown = new EventCounter("ptgNurseryGrow");
+    nurseryShrunk = new EventCounter("ptgNurseryShrink");
+    heapGrown = new EventCounter("ptgHeapGrow");
+    heapShrunk = new EventCounter("ptgHeapShrink");
+    nurseryPages = Options.nurserySize.getMaxNursery();
+    lastCollectionEnd = VM.statistics.nanoTime();
+  }
+
+  /**
+   * @return {@code true} if the nursery and heap are sized to meet a
+   * pause time goal
+   */
+  @Inline
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Record a completed collection and resize the nursery or heap.
+   *
+   * @param pauseNanos The length of the collection pause
+   * @param fullHeap {@code true} if the collection was of the full heap
+   * @param resizeHeap {@code true} if the heap may be resized after this
+   * collection
+   */
+  public static void collectionCompleted(long pauseNanos, boolean fullHeap, boolean resizeHeap) {
+    long now = VM.statistics.nanoTime();
+    double pause = VM.statistics.nanosToMillis(pauseNanos);
+    double interval = VM.statistics.nanosToMillis(now - lastCollectionEnd);
+    lastCollectionEnd = now;
+    gcLoad = decay(gcLoad, interval > pause ? pause / interval : 1.0);
+
+    double goal = Options.pauseTimeGoal.getMicroseconds() / 1000.0;
+    double loadGoal = 1.0 - Options.throughputGoal.getValue();
+    if (fullHeap) {
+      fullHeapPauseMillis = decay(fullHeapPauseMillis, pause);
+      if (!resizeHeap) return;
+      if (fullHeapPauseMillis > goal) {
+        if (HeapGrowthManager.resizeHeap(shrinkRatio(fullHeapPauseMillis, goal))) {
+          heapShrunk.inc();
+          log("heap shrunk: pause ", fullHeapPauseMillis);
+        }
+      } else if (gcLoad > loadGoal) {
+        if (HeapGrowthManager.resizeHeap(GROW_RATIO)) {
+          heapGrown.inc();
+          log("heap grown: load ", gcLoad);
+        }
+      } else if (gcLoad < loadGoal / 2) {
+        if (HeapGrowthManager.resizeHeap(FOOTPRINT_SHRINK_RATIO)) {
+          heapShrunk.inc();
+          log("heap shrunk: load ", gcLoad);
+        }
+      }
+    } else {
+      nurseryPauseMillis = decay(nurseryPauseMillis, pause);
+      if (nurseryPauseMillis > goal) {
+        if (resizeNursery(shrinkRatio(nurseryPauseMillis, goal))) {
+          nurseryShrunk.inc();
+          log("nursery shrunk: pause ", nurseryPauseMillis);
+        }
+      } else if (gcLoad > loadGoal) {
+        if (resizeNursery(GROW_RATIO)) {
+          nurseryGrown.inc();
+          log("nursery grown: load ", gcLoad);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param average The current average
+   * @param sample A new sample
+   * @return The average, decayed to include the sample
+   */
+  private static double decay(double average, double sample) {
+    return average + SAMPLE_WEIGHT * (sample - average);
+  }
+
+  /**
+   * @param pause The average pause
+   * @param goal The pause time goal
+   * @return The ratio by which to shrink, assuming pauses scale with size
+   */
+  private static double shrinkRatio(double pause, double goal) {
+    double ratio = goal / pause;
+    return ratio < MIN_SHRINK_RATIO ? MIN_SHRINK_RATIO : ratio;
+  }
+
+  /**
+   * Resize the nursery, keeping it no smaller than the minimum nursery
+   * size and no larger than half the heap.
+   *
+   * @param ratio The ratio of the new nursery size to the current one
+   * @return {@code true} if the nursery size was changed
+   */
+  private static boolean resizeNursery(double ratio) {
+    int maxPages = (int) (HeapGrowthManager.getCurrentHeapSize().toLong() >> (LOG_BYTES_IN_PAGE + 1));
+    int pages = (int) (nurseryPages * ratio);
+    if (pages < Options.nurserySize.getMinNursery()) pages = Options.nurserySize.getMinNursery();
+    if (pages > maxPages) pages = maxPages;
+    if (pages == nurseryPages) return false;
+    nurseryPages = pages;
+    Options.nurserySize.setAdaptiveNursery(pages);
+    return true;
+  }
+
+  /**
+   * Log a decision, with the nursery and heap sizes that result.
+   *
+   * @param decision The decision and the measure that prompted it
+   * @param value The value of the measure
+   */
+  private static void log(String decision, double value) {
+    if (Options.verbose.getValue() >= 2) {
+      Log.write("[Pause goal: "); Log.write(decision); Log.write(value);
+      Log.write(", nursery "); Log.write(nurseryPages >> (LOG_BYTES_IN_MBYTE - LOG_BYTES_IN_PAGE));
+      Log.write("MB, heap "); Log.write(HeapGrowthManager.getCurrentHeapSize().toLong() >> LOG_BYTES_IN_MBYTE);
+      Log.writeln("MB]");
+    }
+  }
+}
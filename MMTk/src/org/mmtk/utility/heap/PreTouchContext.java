@@ -0,0 +1,86 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.heap;
+
+import org.mmtk.plan.CollectorContext;
+import org.mmtk.utility.Log;
+import org.mmtk.utility.options.Options;
+import org.mmtk.vm.Monitor;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This context faults in newly mapped heap pages in the background
+ * (see {@link PageBacking}).  Requests are queued in a bounded buffer;
+ * if the buffer is full a request is dropped, since pre-touching is
+ * only an optimization.
+ */
+@Uninterruptible
+public class PreTouchContext extends CollectorContext {
+
+  /** The number of requests that can be queued */
+  private static final int QUEUE_SIZE = 256;
+
+  private final AddressArray starts;
+  private final int[] sizes;
+  private final Monitor lock;
+  /** The index of the oldest queued request */
+  private int head;
+  /** The number of queued requests */
+  private int count;
+
+  public PreTouchContext() {
+    this.starts = AddressArray.create(QUEUE_SIZE);
+    this.sizes = new int[QUEUE_SIZE];
+    this.lock = VM.newHeavyCondLock("PreTouchLock");
+  }
+
+  /**
+   * Queue a range of mapped pages to be faulted in.
+   *
+   * @param start The start of the range
+   * @param bytes The size of the range
+   */
+  public void request(Address start, int bytes) {
+    lock.lock();
+    if (count < QUEUE_SIZE) {
+      int tail = (head + count) % QUEUE_SIZE;
+      starts.set(tail, start);
+      sizes[tail] = bytes;
+      count++;
+      lock.broadcast();
+    }
+    lock.unlock();
+  }
+
+  @Override
+  public void run() {
+    if (Options.verbose.getValue() >= 2) {
+      Log.writeln("PreTouchThread running");
+    }
+    while (true) {
+      lock.lock();
+      while (count == 0) {
+        lock.await();
+      }
+      Address start = starts.get(head);
+      int bytes = sizes[head];
+      head = (head + 1) % QUEUE_SIZE;
+      count--;
+      lock.unlock();
+      VM.memory.preTouch(start, bytes);
+    }
+  }
+}
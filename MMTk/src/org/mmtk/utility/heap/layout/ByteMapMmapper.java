@@ -15,6 +15,7 @@ package org.mmtk.utility.heap.layout;
 import static org.mmtk.utility.Constants.*;
 
 import org.mmtk.utility.*;
+import org.mmtk.utility.heap.PageBacking;
 
 import org.mmtk.vm.Lock;
 import org.mmtk.vm.VM;
@@ -157,6 +158,7 @@ public final class ByteMapMmapper extends Mmapper {
             Log.write("mmap succeeded at chunk "); Log.write(chunk);  Log.write("  "); Log.write(mmapStart);
             Log.write(" with len = "); Log.writeln(MMAP_CHUNK_BYTES);
           }
+          PageBacking.chunkMapped(mmapStart, MMAP_CHUNK_BYTES);
         }
       }
       if (mapped[chunk] == PROTECTED) {
@@ -16,6 +16,7 @@ import static org.mmtk.utility.Constants.*;
 
 import org.mmtk.utility.Conversions;
 import org.mmtk.utility.Log;
+import org.mmtk.utility.heap.PageBacking;
 import org.mmtk.utility.statistics.EventCounter;
 import org.mmtk.vm.Lock;
 import org.mmtk.vm.VM;
@@ -416,6 +417,7 @@ public final class FragmentedMmapper extends Mmapper {
               Log.write("    mmap succeeded at chunk "); Log.write(chunk);  Log.write("  "); Log.write(mmapStart);
               Log.write(" with len = "); Log.writeln(MMAP_CHUNK_BYTES);
             }
+            PageBacking.chunkMapped(mmapStart, MMAP_CHUNK_BYTES);
           }
         }
         if (mapped[chunk] == PROTECTED) {
@@ -0,0 +1,27 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * The spaces whose pages should be backed by huge pages.
+ */
+public final class HugePageSpaces extends org.vmutil.options.StringOption {
+  /**
+   * Create the option.
+   */
+  public HugePageSpaces() {
+    super(Options.set, "Huge Page Spaces",
+        "A comma separated list of the names of spaces (e.g. nursery,ix,los) whose pages should be backed by huge pages",
+        "");
+  }
+}
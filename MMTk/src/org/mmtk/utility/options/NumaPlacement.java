@@ -0,0 +1,28 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * Should heap pages be placed on, and collector threads bound to,
+ * NUMA memory nodes?
+ */
+public final class NumaPlacement extends org.vmutil.options.BooleanOption {
+  /**
+   * Create the option.
+   */
+  public NumaPlacement() {
+    super(Options.set, "Numa Placement",
+          "Should heap pages be placed on the memory node of the allocating thread, and collector threads bound to nodes?",
+          false);
+  }
+}
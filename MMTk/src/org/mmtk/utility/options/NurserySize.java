@@ -22,6 +22,8 @@ public final class NurserySize {
   // values
   private final FixedNursery fixedNursery;
   private final BoundedNursery boundedNursery;
+  /** The nursery size chosen to meet the pause time goal, or zero */
+  private int adaptivePages;
 
   /**
    * Create the options.
@@ -38,7 +40,19 @@ public final class NurserySize {
    */
   @Uninterruptible
   public int getMaxNursery() {
-    return boundedNursery.getPages();
+    return adaptivePages > 0 ? adaptivePages : boundedNursery.getPages();
+  }
+
+  /**
+   * Override the upper bound of the nursery size, to meet the pause
+   * time goal.
+   *
+   * @param pages maximum number of pages in the nursery, or zero to
+   * use the bound given by the options.
+   */
+  @Uninterruptible
+  public void setAdaptiveNursery(int pages) {
+    adaptivePages = pages;
   }
 
   /**
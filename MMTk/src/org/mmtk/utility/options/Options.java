@@ -45,26 +45,37 @@ public final class Options {
   public static GCTimeCap gcTimeCap;
   public static GenCycleDetection genCycleDetection;
   public static HarnessAll harnessAll;
+  public static HugePageSpaces hugePageSpaces;
   public static IgnoreSystemGC ignoreSystemGC;
   public static LineReuseRatio lineReuseRatio;
   public static MarkSweepMarkBits markSweepMarkBits;
   public static MetaDataLimit metaDataLimit;
   public static NoFinalizer noFinalizer;
   public static NoReferenceTypes noReferenceTypes;
+  public static NumaPlacement numaPlacement;
   public static NurserySize nurserySize;
+  public static PageCacheBatch pageCacheBatch;
+  public static PauseTimeGoal pauseTimeGoal;
   public static PerfEvents perfEvents;
   public static PretenureThresholdFraction pretenureThresholdFraction;
+  public static PreTouch preTouch;
   public static PrintPhaseStats printPhaseStats;
   public static ProtectOnRelease protectOnRelease;
   public static SanityCheck sanityCheck;
+  public static SitePretenuring sitePretenuring;
   public static StressFactor stressFactor;
+  public static ThroughputGoal throughputGoal;
   public static Threads threads;
   public static TraceRate traceRate;
+  public static Uncommit uncommit;
+  public static UncommitDelay uncommitDelay;
+  public static UncommitHeadroom uncommitHeadroom;
   public static UseReturnBarrier useReturnBarrier;
   public static UseShortStackScans useShortStackScans;
   public static VariableSizeHeap variableSizeHeap;
   public static VerboseFragmentationStats verboseFragmentationStats;
   public static Verbose verbose;
   public static VerboseTiming verboseTiming;
+  public static WorkStealingTrace workStealingTrace;
   public static XmlStats xmlStats;
 }
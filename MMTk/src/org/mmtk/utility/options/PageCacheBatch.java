@@ -0,0 +1,38 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+import org.mmtk.utility.heap.PageCache;
+
+/**
+ * The number of blocks each mutator takes from a space at a time.
+ */
+public final class PageCacheBatch extends org.vmutil.options.IntOption {
+  /**
+   * Create the option.
+   */
+  public PageCacheBatch() {
+    super(Options.set, "Page Cache Batch",
+          "Number of blocks each mutator takes from a space at a time (1 disables the per-mutator page caches)",
+          4);
+  }
+
+  /**
+   * Only accept values between 1 and the capacity of a page cache (inclusive)
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value <= 0, "Page cache batch must be at least 1");
+    failIf(this.value > PageCache.CAPACITY, "Page cache batch exceeds the page cache capacity");
+  }
+}
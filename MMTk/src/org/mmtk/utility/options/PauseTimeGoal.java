@@ -0,0 +1,37 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * The target maximum collection pause.  When set, the nursery and heap
+ * are sized after each collection to meet this goal and the
+ * throughput goal.
+ */
+public final class PauseTimeGoal extends org.vmutil.options.MicrosecondsOption {
+  /**
+   * Create the option.
+   */
+  public PauseTimeGoal() {
+    super(Options.set, "Pause Time Goal",
+          "Size the nursery and heap to keep collection pauses below this goal (zero disables)",
+          0);
+  }
+
+  /**
+   * Ensure the value is valid.
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value < 0, "Pause time goal must not be negative");
+  }
+}
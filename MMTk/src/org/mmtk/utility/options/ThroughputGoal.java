@@ -0,0 +1,36 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * The target fraction of time spent outside collection, used with the
+ * pause time goal.
+ */
+public final class ThroughputGoal extends org.vmutil.options.FloatOption {
+  /**
+   * Create the option.
+   */
+  public ThroughputGoal() {
+    super(Options.set, "Throughput Goal",
+          "The fraction of time that should be spent outside collection when sizing to a pause time goal",
+          0.99f);
+  }
+
+  /**
+   * Ensure the value is valid.
+   */
+  @Override
+  protected void validate() {
+    failIf((this.value <= 0 || this.value >= 1.0), "Throughput goal must be a float between 0 and 1");
+  }
+}
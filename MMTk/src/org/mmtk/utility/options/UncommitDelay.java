@@ -0,0 +1,28 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * How long free heap pages must stay unused before they are returned
+ * to the operating system.
+ */
+public final class UncommitDelay extends org.vmutil.options.MicrosecondsOption {
+  /**
+   * Create the option.
+   */
+  public UncommitDelay() {
+    super(Options.set, "Uncommit Delay",
+          "Free pages beyond the headroom are returned to the operating system once they have been unused for this long",
+          5000000);
+  }
+}
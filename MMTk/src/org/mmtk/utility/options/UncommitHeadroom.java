@@ -0,0 +1,28 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * How much free heap memory is kept committed when free chunks are
+ * returned to the operating system.
+ */
+public final class UncommitHeadroom extends org.vmutil.options.PagesOption {
+  /**
+   * Create the option.
+   */
+  public UncommitHeadroom() {
+    super(Options.set, "Uncommit Headroom",
+          "The most recently freed chunks, up to this volume, are kept committed",
+          4096);
+  }
+}
@@ -125,4 +125,12 @@ import org.vmmagic.pragma.*;
    * Fail with an out of memory error.
    */
   public abstract void outOfMemory();
+
+  /**
+   * Bind the current (collector) thread to the processors of a NUMA
+   * memory node.
+   *
+   * @param node the memory node
+   */
+  public abstract void bindToNumaNode(int node);
 }
@@ -25,10 +25,14 @@ public class Config {
   /** Zero pages on release? */
   public final boolean ZERO_PAGES_ON_RELEASE;
 
+  /** Card marking in place of remembered set buffers in generational plans? */
+  public final boolean CARD_MARKING;
+
   Config(BuildTimeConfig config) {
     ACTIVE_PLAN            = config.getPlanName();
     HEADER_MARK_BITS        = config.getBooleanProperty("mmtk.headerMarkBit",true);
     ZERO_PAGES_ON_RELEASE  = config.getBooleanProperty("mmtk.zeroPagesOnRelease",false);
+    CARD_MARKING           = config.getBooleanProperty("mmtk.cardMarking",false);
   }
 
   public void printConfig() {
@@ -36,6 +40,7 @@ public class Config {
     Log.write("plan = "); Log.writeln(ACTIVE_PLAN);
     Log.write("HEADER_MARK_BITS = ");  Log.writeln(HEADER_MARK_BITS);
     Log.write("ZERO_PAGES_ON_RELEASE = ");  Log.writeln(ZERO_PAGES_ON_RELEASE);
+    Log.write("CARD_MARKING = ");  Log.writeln(CARD_MARKING);
     Log.writeln("====================================================");
   }
 
@@ -44,6 +49,7 @@ public class Config {
     Xml.configItem("plan",ACTIVE_PLAN);
     Xml.configItem("header-mark-bit",HEADER_MARK_BITS);
     Xml.configItem("zero-pages-on-release",ZERO_PAGES_ON_RELEASE);
+    Xml.configItem("card-marking",CARD_MARKING);
     Log.writeln("</config>");
   }
 }
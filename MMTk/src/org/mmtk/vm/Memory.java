@@ -97,6 +97,65 @@ import org.vmmagic.pragma.*;
    */
   public abstract boolean munprotect(Address start, int size);
 
+  /**
+   * Asks for a mapped area of virtual memory to be backed by huge pages.
+   *
+   * @param start the address of the start of the area
+   * @param size the size, in bytes, of the area
+   * @return <code>true</code> if successful, otherwise
+   * <code>false</code> (for example, if huge pages are not supported)
+   */
+  public abstract boolean adviseHugePages(Address start, int size);
+
+  /**
+   * Faults in every page of a mapped area of virtual memory without
+   * changing its contents.  The area may be in use by other threads.
+   *
+   * @param start the address of the start of the area
+   * @param size the size, in bytes, of the area
+   */
+  public abstract void preTouch(Address start, int size);
+
+  /**
+   * Returns the physical memory backing a mapped area of virtual memory
+   * to the operating system.  The area stays mapped, and reads as zero
+   * when it is next used.
+   *
+   * @param start the address of the start of the area
+   * @param size the size, in bytes, of the area
+   * @return <code>true</code> if successful, otherwise
+   * <code>false</code>
+   */
+  public abstract boolean uncommit(Address start, Extent size);
+
+  /**
+   * @return the number of bytes of physical memory used by the process,
+   * or 0 if this is not known
+   */
+  public abstract long residentBytes();
+
+  /**
+   * @return the number of NUMA memory nodes, 1 if the VM does not
+   * support memory placement
+   */
+  public abstract int numaNodes();
+
+  /**
+   * @return the NUMA memory node of the processor on which the current
+   * thread is running
+   */
+  public abstract int currentNumaNode();
+
+  /**
+   * Prefers a NUMA memory node for an area of virtual memory.  Pages of
+   * the area already resident on another node may be migrated.
+   *
+   * @param start the address of the start of the area
+   * @param size the size, in bytes, of the area
+   * @param node the memory node
+   */
+  public abstract void bindToNumaNode(Address start, Extent size, int node);
+
 
   /**
    * Zero a region of memory.
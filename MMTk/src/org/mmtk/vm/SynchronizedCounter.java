@@ -16,7 +16,7 @@ import org.vmmagic.pragma.Uninterruptible;
 
 
 /**
- * A counter that supports atomic increment and reset.
+ * A counter that supports atomic increment, addition and reset.
  */
 @Uninterruptible public abstract class SynchronizedCounter {
 
@@ -34,6 +34,14 @@ import org.vmmagic.pragma.Uninterruptible;
    */
   public abstract int increment();
 
+  /**
+   * Adds a value to the counter.
+   *
+   * @param delta the value to add, which may be negative
+   * @return the value before the add
+   */
+  public abstract int add(int delta);
+
   /**
    * Peek at the counter
    *
@@ -30,6 +30,7 @@ import org.jikesrvm.adaptive.util.AOSLogging;
 import org.jikesrvm.adaptive.util.AOSOptions;
 import org.jikesrvm.adaptive.util.BlockingPriorityQueue;
 import org.jikesrvm.compilers.baseline.EdgeCounts;
+import org.jikesrvm.compilers.baseline.ReceiverTypeProfiles;
 import org.jikesrvm.compilers.common.RecompilationManager;
 import org.jikesrvm.runtime.Callbacks;
 import org.jikesrvm.scheduler.RVMThread;
@@ -84,10 +85,10 @@ public class Controller implements Callbacks.ExitMonitor,
   public static ControllerThread controllerThread = null;
 
   /**
-   * Thread that will perform opt-compilations as directed by the controller
-   * (the thread sets this field when it is created.)
+   * Threads that will perform opt-compilations as directed by the controller
+   * (the controller thread sets this field when it creates them.)
    */
-  public static CompilationThread compilationThread = null;
+  public static CompilationThread[] compilationThreads = null;
 
   /**
    * Thread collecting osr request and pass it to controllerThread
@@ -265,8 +266,16 @@ public class Controller implements Callbacks.ExitMonitor,
       organizer.report();
     }
 
+    if (options.FINAL_REPORT_LEVEL >= 1 && compilationThreads != null) {
+      VM.sysWriteln("Compilation Thread Stats");
+      for (CompilationThread ct : compilationThreads) {
+        ct.report();
+      }
+    }
+
     if (options.FINAL_REPORT_LEVEL >= 2) {
       EdgeCounts.dumpCounts();
+      ReceiverTypeProfiles.dumpProfiles();
       dcg.dumpGraph();
     }
 
@@ -292,7 +301,11 @@ public class Controller implements Callbacks.ExitMonitor,
       Organizer organizer = e.nextElement();
       organizer.stop(threadDeath);
     }
-    compilationThread.stop(threadDeath);
+    if (compilationThreads != null) {
+      for (CompilationThread ct : compilationThreads) {
+        ct.stop(threadDeath);
+      }
+    }
     controllerThread.stop(threadDeath);
     RuntimeMeasurements.stop();
     report();
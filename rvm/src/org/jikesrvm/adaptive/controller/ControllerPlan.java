@@ -20,6 +20,7 @@ import org.jikesrvm.compilers.common.CompiledMethod;
 import org.jikesrvm.compilers.common.CompiledMethods;
 import org.jikesrvm.compilers.common.RuntimeCompiler;
 import org.jikesrvm.compilers.opt.driver.CompilationPlan;
+import org.jikesrvm.runtime.Time;
 
 /**
  * An instance of this class describes a compilation decision made by
@@ -82,6 +83,12 @@ public final class ControllerPlan {
    */
   private int timeCompleted = -1;
 
+  /**
+   *  The wall clock time (in nanoseconds) this plan was put on the
+   *  compilation queue
+   */
+  private long timeQueued = -1;
+
   /**
    *  The speedup we were expecting
    */
@@ -151,6 +158,7 @@ public final class ControllerPlan {
     if (Controller.options
         .BACKGROUND_RECOMPILATION ||
                                   getCompPlan().getMethod().getDeclaringClass().isInBootImage()) {
+      timeQueued = Time.nanoTime();
       Controller.compilationQueue.insert(getPriority(), this);
       AOSLogging.logger.recompilationScheduled(getCompPlan(), getPriority());
       return true;
@@ -174,8 +182,21 @@ public final class ControllerPlan {
    *  method otherwise
    */
   public CompiledMethod doRecompile() {
-    CompilationPlan cp = getCompPlan();
+    return doRecompile(getCompPlan(), false);
+  }
 
+  /**
+   * Like {@link #doRecompile()}, but compiles with the given compilation
+   * plan, which must be equivalent to {@link #getCompPlan}.
+   *
+   * @param cp the compilation plan to compile with
+   * @param privatePlan whether the optimization plan of {@code cp} is
+   *  private to the calling thread, so that the compilation need not be
+   *  serialized with other opt compilations
+   * @return {@code null} if the compilation was aborted, the new compiled
+   *  method otherwise
+   */
+  public CompiledMethod doRecompile(CompilationPlan cp, boolean privatePlan) {
     setTimeInitiated(Controller.controllerClock);
     AOSLogging.logger.recompilationStarted(cp);
 
@@ -184,7 +205,7 @@ public final class ControllerPlan {
     }
 
     // Compile the method.
-    int newCMID = RuntimeCompiler.recompileWithOpt(cp);
+    int newCMID = privatePlan ? RuntimeCompiler.recompileWithOptConcurrently(cp) : RuntimeCompiler.recompileWithOpt(cp);
     int prevCMID = getPrevCMID();
 
     if (Controller.options.sampling()) {
@@ -281,6 +302,14 @@ public final class ControllerPlan {
     timeCompleted = t;
   }
 
+  /**
+   * @return the wall clock time (in nanoseconds) this plan was put on
+   *  the compilation queue, or -1 if it never was
+   */
+  public long getTimeQueued() {
+    return timeQueued;
+  }
+
   /**
    * @return CMID (compiled method id) associated with the code produced
    * by executing this plan
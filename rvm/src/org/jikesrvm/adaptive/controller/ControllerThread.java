@@ -113,7 +113,7 @@ public final class ControllerThread extends SystemThread {
       }
       Controller.osrOrganizer = new OSROrganizerThread();
       Controller.osrOrganizer.start();
-      createCompilationThread();
+      createCompilationThreads();
       // We're running an AOS bootimage with a non-adaptive primary strategy.
       // We already set up any requested profiling infrastructure, so nothing
       // left to do but exit.
@@ -139,8 +139,8 @@ public final class ControllerThread extends SystemThread {
     // Create the organizerThreads and schedule them
     createOrganizerThreads();
 
-    // Create the compilationThread and schedule it
-    createCompilationThread();
+    // Create the compilation threads and schedule them
+    createCompilationThreads();
 
     if (Controller.options.sampling()) {
       // Create our set of standard optimization plans.
@@ -221,12 +221,18 @@ public final class ControllerThread extends SystemThread {
   ///////////////////////
 
   /**
-   *  Creates and schedules the compilationThread.
+   *  Creates and schedules the compilation threads.
    */
-  private void createCompilationThread() {
-    CompilationThread ct = new CompilationThread();
-    Controller.compilationThread = ct;
-    ct.start();
+  private void createCompilationThreads() {
+    int n = Math.max(1, Controller.options.COMPILATION_THREADS);
+    CompilationThread[] threads = new CompilationThread[n];
+    for (int i = 0; i < n; i++) {
+      threads[i] = new CompilationThread(i, n > 1);
+    }
+    Controller.compilationThreads = threads;
+    for (CompilationThread ct : threads) {
+      ct.start();
+    }
   }
 
   /**
@@ -12,10 +12,18 @@
  */
 package org.jikesrvm.adaptive.recompilation;
 
+import org.jikesrvm.VM;
 import org.jikesrvm.adaptive.OnStackReplacementPlan;
 import org.jikesrvm.adaptive.controller.Controller;
 import org.jikesrvm.adaptive.controller.ControllerPlan;
+import org.jikesrvm.compilers.common.CompiledMethod;
+import org.jikesrvm.compilers.opt.OptOptions;
+import org.jikesrvm.compilers.opt.driver.CompilationPlan;
+import org.jikesrvm.compilers.opt.driver.OptimizationPlanElement;
+import org.jikesrvm.compilers.opt.driver.OptimizationPlanner;
+import org.jikesrvm.runtime.Time;
 import org.jikesrvm.scheduler.SystemThread;
+import org.jikesrvm.util.IdentityHashMapRVM;
 import org.vmmagic.pragma.NonMoving;
 
 /**
@@ -24,17 +32,67 @@ import org.vmmagic.pragma.NonMoving;
  *  thread will pick the highest priority compilation plan from the queue
  *  and invoke the OPT compiler to perform the plan.
  *  <p>
+ *  There may be several compilation threads (see the
+ *  <code>compilation_threads</code> AOS option).  In that case each
+ *  thread compiles controller plans with its own copies of the
+ *  optimization plans, so that compilations by different threads can
+ *  proceed in parallel.
+ *  <p>
  *  No intelligence is contained in this class.  All policy decisions are
  *  made by the ControllerThread.
  */
 @NonMoving
 public final class CompilationThread extends SystemThread {
 
+  /**
+   * Index of this thread among the compilation threads
+   */
+  private final int id;
+
+  /**
+   * Should controller plans be compiled with optimization plans private to
+   * this thread?
+   */
+  private final boolean usePrivatePlans;
+
+  /**
+   * Private copies of the options of the compilation plans this thread has
+   * executed, keyed by the (shared) options they were copied from.
+   */
+  private final IdentityHashMapRVM<OptOptions, OptOptions> privateOptions =
+    new IdentityHashMapRVM<OptOptions, OptOptions>();
+
+  /**
+   * Optimization plans built from the private options, keyed by those options.
+   */
+  private final IdentityHashMapRVM<OptOptions, OptimizationPlanElement[]> privatePlans =
+    new IdentityHashMapRVM<OptOptions, OptimizationPlanElement[]>();
+
+  /** Number of controller plans this thread has executed */
+  private int numPlans;
+
+  /** Number of controller plans that produced a new compiled method */
+  private int numCompiled;
+
+  /** Total time (in nanoseconds) plans spent on the queue before this thread took them */
+  private long totalQueueTime;
+
+  /** Longest time (in nanoseconds) a plan spent on the queue before this thread took it */
+  private long maxQueueTime;
+
+  /** Total time (in nanoseconds) this thread spent executing plans */
+  private long totalCompileTime;
+
   /**
    * constructor
+   * @param id index of this thread among the compilation threads
+   * @param usePrivatePlans whether to compile with thread-private
+   *  optimization plans (required if there is more than one compilation thread)
    */
-  public CompilationThread() {
-    super("CompilationThread");
+  public CompilationThread(int id, boolean usePrivatePlans) {
+    super("CompilationThread" + (id == 0 ? "" : "-" + id));
+    this.id = id;
+    this.usePrivatePlans = usePrivatePlans;
   }
 
   /**
@@ -49,12 +107,66 @@ public final class CompilationThread extends SystemThread {
     while (true) {
       Object plan = Controller.compilationQueue.deleteMin();
       if (plan instanceof ControllerPlan) {
-        ((ControllerPlan) plan).doRecompile();
+        ControllerPlan controllerPlan = (ControllerPlan) plan;
+        long start = Time.nanoTime();
+        if (controllerPlan.getTimeQueued() != -1) {
+          long queueTime = start - controllerPlan.getTimeQueued();
+          totalQueueTime += queueTime;
+          if (queueTime > maxQueueTime) maxQueueTime = queueTime;
+        }
+        CompiledMethod cm;
+        if (usePrivatePlans) {
+          cm = controllerPlan.doRecompile(privatize(controllerPlan.getCompPlan()), true);
+        } else {
+          cm = controllerPlan.doRecompile();
+        }
+        totalCompileTime += Time.nanoTime() - start;
+        numPlans++;
+        if (cm != null) numCompiled++;
       } else if (plan instanceof OnStackReplacementPlan) {
         ((OnStackReplacementPlan) plan).execute();
       }
     }
   }
 
-}
+  /**
+   * Returns a copy of the given compilation plan that uses this thread's
+   * own optimization plan and options, creating them if necessary.
+   *
+   * @param cp a compilation plan whose optimization plan may be shared
+   * @return an equivalent compilation plan that this thread can execute
+   *  concurrently with other compilations
+   */
+  private CompilationPlan privatize(CompilationPlan cp) {
+    OptOptions options = privateOptions.get(cp.options);
+    if (options == null) {
+      options = cp.options.dup();
+      privateOptions.put(cp.options, options);
+      privatePlans.put(options, OptimizationPlanner.createOptimizationPlan(options));
+    }
+    CompilationPlan result =
+      new CompilationPlan(cp.method, cp.params, privatePlans.get(options), cp.instrumentationPlan, options);
+    result.setInlineOracle(cp.inlinePlan);
+    result.analyzeOnly = cp.analyzeOnly;
+    result.irGeneration = cp.irGeneration;
+    return result;
+  }
 
+  /**
+   * Print statistics about the plans this thread has executed.
+   */
+  public void report() {
+    VM.sysWrite("\tCompilationThread ", id);
+    VM.sysWrite(": plans ", numPlans);
+    VM.sysWrite(", compiled ", numCompiled);
+    VM.sysWrite(", compile time (ms) ");
+    VM.sysWrite(Time.nanosToMillis(totalCompileTime), 1);
+    VM.sysWrite(", methods/s ");
+    VM.sysWrite(totalCompileTime == 0 ? 0.0 : numCompiled / (Time.nanosToMillis(totalCompileTime) / 1000), 1);
+    VM.sysWrite(", avg queue latency (ms) ");
+    VM.sysWrite(numPlans == 0 ? 0.0 : Time.nanosToMillis(totalQueueTime) / numPlans, 2);
+    VM.sysWrite(", max queue latency (ms) ");
+    VM.sysWrite(Time.nanosToMillis(maxQueueTime), 2);
+    VM.sysWriteln();
+  }
+}
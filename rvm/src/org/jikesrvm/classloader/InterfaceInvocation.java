@@ -34,11 +34,14 @@ import org.vmmagic.pragma.Entrypoint;
  * We support two mechanisms:
  * <pre>
  *   IMT-based (Alpern, Cocchi, Fink, Grove, and Lieber OOPSLA'01).
- *   ITable-based (searched at dispatch time with 1 entry move-to-front cache)
-  * </pre>
+ *   ITable-based (found at dispatch time in a per-TIB hash table keyed by interface id)
+ * </pre>
  */
 public class InterfaceInvocation {
 
+  /** The length of a newly created ITableArray; always a power of two */
+  private static final int MIN_ITABLE_ARRAY_LENGTH = 4;
+
   /*
    * PART I: runtime routines to implement the invokeinterface bytecode.
    *         these routines are called from the generated code
@@ -77,6 +80,14 @@ public class InterfaceInvocation {
   /**
    * Return a reference to the itable for a given class, interface pair
    * We might not have created the iTable yet, in which case we will do that and then return it.
+   * <p>
+   * The ITableArray of a TIB is an open-addressed hash table whose length
+   * is a power of two, indexed by interface id with linear probing.  It is
+   * never more than half full, so the search is expected to take constant
+   * time however many interfaces the class implements.  Entries are only
+   * ever added (under the class lock), so an unsynchronized search that
+   * reaches an empty slot can safely conclude the iTable has not yet been
+   * installed.
    *
    * @param tib the TIB for the class
    * @param id interface id of the interface sought (NOT dictionary id!!)
@@ -88,19 +99,11 @@ public class InterfaceInvocation {
     // Search for the right ITable
     RVMType I = RVMClass.getInterface(id);
     if (iTables != null) {
-      // check the cache at slot 0
-      ITable iTable = iTables.get(0);
-      if (iTable.isFor(I)) {
-        return iTable; // cache hit :)
-      }
-
-      // cache miss :(
-      // Have to search the 'real' entries for the iTable
-      for (int i = 1; i < iTables.length(); i++) {
-        iTable = iTables.get(i);
+      int mask = iTables.length() - 1;
+      for (int i = id & mask; ; i = (i + 1) & mask) {
+        ITable iTable = iTables.get(i);
+        if (iTable == null) break;
         if (iTable.isFor(I)) {
-          // found it; update cache
-          iTables.set(0, iTable);
           return iTable;
         }
       }
@@ -220,32 +223,64 @@ public class InterfaceInvocation {
     tib.setImt(IMT);
   }
 
+  /**
+   * Add the iTable for an interface to the ITableArray hash table of a
+   * class (see {@link #findITable}), unless another thread has already
+   * done so.  The caller must hold the lock on the class.<p>
+   *
+   * The table is grown by building a complete copy of twice the size
+   * before it is installed in the TIB, so that concurrent searches of the
+   * old table remain valid.
+   *
+   * @param C the class
+   * @param I the interface the class implements
+   */
   private static void installITable(RVMClass C, RVMClass I) {
     TIB tib = C.getTypeInformationBlock();
     ITableArray iTables = tib.getITableArray();
 
     if (iTables == null) {
-      iTables = MemoryManager.newITableArray(2);
-      tib.setITableArray(iTables);
+      iTables = MemoryManager.newITableArray(MIN_ITABLE_ARRAY_LENGTH);
     } else {
+      int count = 0;
       for (int i = 0; i < iTables.length(); i++) {
-        if (iTables.get(i).isFor(I)) {
-          return; // some other thread just built the iTable
+        ITable iTable = iTables.get(i);
+        if (iTable != null) {
+          if (iTable.isFor(I)) {
+            return; // some other thread just built the iTable
+          }
+          count++;
         }
       }
-      ITableArray tmp = MemoryManager.newITableArray(iTables.length() + 1);
-      for (int i = 0; i < iTables.length(); i++) {
-        tmp.set(i, iTables.get(i));
+      if (2 * (count + 1) > iTables.length()) {
+        ITableArray tmp = MemoryManager.newITableArray(2 * iTables.length());
+        for (int i = 0; i < iTables.length(); i++) {
+          ITable iTable = iTables.get(i);
+          if (iTable != null) {
+            insertITable(tmp, iTable.getInterfaceClass().getInterfaceId(), iTable);
+          }
+        }
+        iTables = tmp;
       }
-      iTables = tmp;
-      tib.setITableArray(iTables);
     }
-    if (VM.VerifyAssertions) VM._assert(iTables.get(iTables.length() - 1) == null);
-    ITable iTable = buildITable(C, I);
-    iTables.set(iTables.length() - 1, iTable);
-    // iTables[0] is a move to front cache; fill it here so we can
-    // assume it always contains some iTable.
-    iTables.set(0, iTable);
+    insertITable(iTables, I.getInterfaceId(), buildITable(C, I));
+    tib.setITableArray(iTables);
+  }
+
+  /**
+   * Insert an iTable into the first free slot of its probe sequence.
+   *
+   * @param iTables the hash table, which must have a free slot
+   * @param id the interface id of the iTable
+   * @param iTable the iTable
+   */
+  private static void insertITable(ITableArray iTables, int id, ITable iTable) {
+    int mask = iTables.length() - 1;
+    int i = id & mask;
+    while (iTables.get(i) != null) {
+      i = (i + 1) & mask;
+    }
+    iTables.set(i, iTable);
   }
 
   private static ITable buildITable(RVMClass C, RVMClass I) {
@@ -72,6 +72,22 @@ public abstract class BaselineCompiler extends TemplateCompilerFramework {
    */
   protected int edgeCounterIdx;
 
+  /**
+   * Should the receiver types of the virtual and interface calls
+   * of the method being compiled be profiled?
+   */
+  protected boolean profileReceiverTypes;
+
+  /**
+   * Bytecode indices of the call sites whose receiver types are profiled
+   */
+  private int[] receiverSites;
+
+  /**
+   * Number of call sites whose receiver types are profiled
+   */
+  private int numReceiverSites;
+
   /**
    * Reference maps for method being compiled
    */
@@ -85,6 +101,24 @@ public abstract class BaselineCompiler extends TemplateCompilerFramework {
     return method.getId();
   }
 
+  /**
+   * Allocate a receiver type profile entry for the call at the current
+   * bytecode.
+   * @return the number of the call site to pass to
+   *  {@link ReceiverTypeProfiles#recordReceiver}
+   */
+  protected final int allocateReceiverSite() {
+    if (receiverSites == null) {
+      receiverSites = new int[8];
+    } else if (numReceiverSites == receiverSites.length) {
+      int[] tmp = new int[receiverSites.length * 2];
+      System.arraycopy(receiverSites, 0, tmp, 0, numReceiverSites);
+      receiverSites = tmp;
+    }
+    receiverSites[numReceiverSites] = biStart;
+    return numReceiverSites++;
+  }
+
   /**
    * The types that locals can take.
    * There are two types of locals:
@@ -289,6 +323,14 @@ public abstract class BaselineCompiler extends TemplateCompilerFramework {
         ((BaselineCompiledMethod) compiledMethod).setHasCounterArray(); // yes, we will inject counters for this method.
       }
 
+      // determine if we are going to profile receiver types for this method.
+      // Receiver profiling calls an uninterruptible helper, so it is not
+      // done for uninterruptible methods (including the helper itself).
+      profileReceiverTypes = options.PROFILE_RECEIVER_TYPES &&
+          method.isInterruptible() &&
+          !method.getDeclaringClass().hasBridgeFromNativeAnnotation() &&
+          !(VM.BuildForAdaptiveSystem && method.isForOsrSpecialization());
+
       //do platform specific tasks before generating code;
       initializeCompiler();
 
@@ -341,6 +383,9 @@ public abstract class BaselineCompiler extends TemplateCompilerFramework {
       if (edgeCounterIdx > 0) {
         EdgeCounts.allocateCounters(method, edgeCounterIdx);
       }
+      if (numReceiverSites > 0) {
+        ReceiverTypeProfiles.allocateProfiles(method, receiverSites, numReceiverSites);
+      }
       if (shouldPrint) {
         ((BaselineCompiledMethod) compiledMethod).printExceptionTable();
         printEndHeader(method);
@@ -33,6 +33,13 @@ public final class ConditionalBranchProfile extends BranchProfile {
     backwards = bw;
   }
 
+  /**
+   * @return the number of times the branch was taken
+   */
+  public float getTakenFrequency() {
+    return taken;
+  }
+
   public float getTakenProbability() {
     if (freq > 0) {
       return taken / freq;
@@ -0,0 +1,122 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.baseline;
+
+import org.jikesrvm.classloader.RVMType;
+
+/**
+ * A snapshot of the receiver type histogram of a single
+ * <code>invokevirtual</code> or <code>invokeinterface</code> call site.
+ * The recorded types are ordered by decreasing count.
+ *
+ * @see ReceiverTypeProfiles
+ */
+public final class ReceiverTypeProfile {
+  /** Bytecode index of the call site */
+  private final int bci;
+  /** Recorded receiver types, most frequent first */
+  private final RVMType[] types;
+  /** Number of times each of the recorded types was seen */
+  private final int[] counts;
+  /** Number of receivers whose type was not recorded */
+  private final int other;
+  /** Total number of receivers seen */
+  private final long total;
+
+  /**
+   * @param d the profile data of the method containing the call site
+   * @param base the index of the call site's entry in d
+   */
+  ReceiverTypeProfile(int[] d, int base) {
+    bci = d[base + ReceiverTypeProfiles.BCI];
+    RVMType[] t = new RVMType[ReceiverTypeProfiles.ROWS];
+    int[] c = new int[ReceiverTypeProfiles.ROWS];
+    int n = 0;
+    long sum = 0;
+    for (int i = 0; i < ReceiverTypeProfiles.ROWS; i++) {
+      int row = base + ReceiverTypeProfiles.FIRST_ROW + 2 * i;
+      RVMType type = ReceiverTypeProfiles.getType(d[row]);
+      int count = d[row + 1];
+      if (type == null || count == 0) continue;
+      // insertion sort by decreasing count
+      int j = n++;
+      while (j > 0 && c[j - 1] < count) {
+        t[j] = t[j - 1];
+        c[j] = c[j - 1];
+        j--;
+      }
+      t[j] = type;
+      c[j] = count;
+      sum += count;
+    }
+    if (n != t.length) {
+      RVMType[] nt = new RVMType[n];
+      int[] nc = new int[n];
+      System.arraycopy(t, 0, nt, 0, n);
+      System.arraycopy(c, 0, nc, 0, n);
+      t = nt;
+      c = nc;
+    }
+    types = t;
+    counts = c;
+    other = d[base + ReceiverTypeProfiles.OTHER];
+    total = sum + other;
+  }
+
+  /** @return the bytecode index of the call site */
+  public int getBytecodeIndex() {
+    return bci;
+  }
+
+  /** @return the number of distinct receiver types recorded */
+  public int getNumberOfTypes() {
+    return types.length;
+  }
+
+  /**
+   * @param i a number between 0 and {@link #getNumberOfTypes()} - 1
+   * @return the i-th most frequent receiver type
+   */
+  public RVMType getType(int i) {
+    return types[i];
+  }
+
+  /**
+   * @param i a number between 0 and {@link #getNumberOfTypes()} - 1
+   * @return the number of times the i-th most frequent receiver type was seen
+   */
+  public int getCount(int i) {
+    return counts[i];
+  }
+
+  /** @return the number of receivers whose type was not recorded */
+  public int getOtherCount() {
+    return other;
+  }
+
+  /** @return the total number of (non-null) receivers seen at the call site */
+  public long getTotalCount() {
+    return total;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder ans = new StringBuilder();
+    ans.append(bci).append("\treceivers <");
+    for (int i = 0; i < types.length; i++) {
+      ans.append(' ').append(types[i]).append(' ').append(counts[i]).append(',');
+    }
+    ans.append(" other ").append(other).append(" >");
+    return ans.toString();
+  }
+}
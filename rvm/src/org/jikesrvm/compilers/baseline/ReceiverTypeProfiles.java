@@ -0,0 +1,212 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.baseline;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import org.jikesrvm.VM;
+import org.jikesrvm.classloader.MemberReference;
+import org.jikesrvm.classloader.NormalMethod;
+import org.jikesrvm.classloader.RVMType;
+import org.jikesrvm.runtime.Callbacks;
+import org.jikesrvm.runtime.Magic;
+import org.vmmagic.pragma.Entrypoint;
+import org.vmmagic.pragma.Uninterruptible;
+
+/**
+ * A repository of receiver type histograms for the <code>invokevirtual</code>
+ * and <code>invokeinterface</code> call sites of baseline compiled methods.
+ * <p>
+ * Baseline code calls {@link #recordReceiver} with the receiver just before
+ * the dispatch of every profiled call site.  Each site has room for
+ * {@link #ROWS} distinct receiver types; receivers of any further type are
+ * only counted.  Updates are not synchronized, so concurrent updates may
+ * occasionally lose a count or record a type in a row another thread just
+ * claimed; the histograms are only used as hints.
+ *
+ * @see ReceiverTypeProfile
+ */
+public final class ReceiverTypeProfiles implements Callbacks.ExitMonitor {
+  /** Number of distinct receiver types recorded per call site */
+  public static final int ROWS = 3;
+  /** Offset of the bytecode index of the call site in a site's entry */
+  static final int BCI = 0;
+  /** Offset of the first (type id, count) row in a site's entry */
+  static final int FIRST_ROW = 1;
+  /** Offset of the count of receivers that did not fit in a row */
+  static final int OTHER = FIRST_ROW + 2 * ROWS;
+  /** Number of ints used per call site */
+  static final int SITE_WORDS = OTHER + 1;
+
+  /** For a non-adaptive system, have we registered the exit call back yet? */
+  private static boolean registered = false;
+
+  /**
+   * Array of receiver profile data. The first index is the ID of the
+   * method, the second index is the site number times {@link #SITE_WORDS}
+   * plus the offset of the desired field within the site's entry.
+   */
+  private static int[][] data;
+
+  @Override
+  public void notifyExit(int value) {
+    dumpProfiles();
+  }
+
+  /**
+   * Record the type of the receiver of a profiled call site.
+   * Called from baseline compiled code before the call is dispatched,
+   * i.e. while the arguments of the call are still on the caller's
+   * expression stack. This method must therefore not be a GC point.
+   *
+   * @param receiver the receiver of the call (may be {@code null})
+   * @param methodId the id of the method containing the call site
+   * @param site the number of the call site within the method
+   */
+  @Entrypoint
+  @Uninterruptible
+  static void recordReceiver(Object receiver, int methodId, int site) {
+    if (receiver == null) return; // call will raise a NullPointerException
+    int[][] all = data;
+    if (all == null || methodId >= all.length) return;
+    int[] d = all[methodId];
+    if (d == null) return; // profile not allocated yet
+    int typeId = Magic.getObjectType(receiver).getId();
+    int base = site * SITE_WORDS;
+    for (int row = base + FIRST_ROW; row < base + OTHER; row += 2) {
+      int t = d[row];
+      if (t == typeId) {
+        int c = d[row + 1];
+        if (c != Integer.MAX_VALUE) d[row + 1] = c + 1;
+        return;
+      }
+      if (t == 0) {
+        // type ids start at 1, so 0 marks an unused row
+        d[row] = typeId;
+        d[row + 1] = 1;
+        return;
+      }
+    }
+    int c = d[base + OTHER];
+    if (c != Integer.MAX_VALUE) d[base + OTHER] = c + 1;
+  }
+
+  /**
+   * Allocate the profile data of a method.
+   *
+   * @param m the method
+   * @param siteBytecodeIndices bytecode index of each profiled call site,
+   *  in the order the sites were numbered by the baseline compiler
+   * @param numSites number of valid entries in siteBytecodeIndices
+   */
+  public static synchronized void allocateProfiles(NormalMethod m, int[] siteBytecodeIndices, int numSites) {
+    if (numSites == 0) return;
+    if (!VM.BuildForAdaptiveSystem && !registered) {
+      // As for edge counters, the user must want to see the profiles when
+      // the system exits if they enabled them in a non-adaptive system.
+      registered = true;
+      Callbacks.addExitMonitor(new ReceiverTypeProfiles());
+    }
+    int id = m.getId();
+    if (data == null) {
+      data = new int[id + 500][];
+    }
+    if (id >= data.length) {
+      int newSize = data.length * 2;
+      if (newSize <= id) newSize = id + 500;
+      int[][] tmp = new int[newSize][];
+      System.arraycopy(data, 0, tmp, 0, data.length);
+      Magic.sync();
+      data = tmp;
+    }
+    int[] d = new int[numSites * SITE_WORDS];
+    for (int i = 0; i < numSites; i++) {
+      d[i * SITE_WORDS + BCI] = siteBytecodeIndices[i];
+    }
+    Magic.sync();
+    data[id] = d;
+  }
+
+  /**
+   * Get the receiver type profile of a call site.
+   *
+   * @param m the method containing the call site
+   * @param bcIndex the bytecode index of the call site
+   * @return the profile or {@code null} if the call site was not profiled
+   */
+  public static ReceiverTypeProfile getProfile(NormalMethod m, int bcIndex) {
+    int id = m.getId();
+    int[][] all = data;
+    if (all == null || id >= all.length) return null;
+    int[] d = all[id];
+    if (d == null) return null;
+    // sites are numbered in bytecode order
+    int low = 0;
+    int high = d.length / SITE_WORDS - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int bci = d[mid * SITE_WORDS + BCI];
+      if (bci == bcIndex) {
+        return new ReceiverTypeProfile(d, mid * SITE_WORDS);
+      }
+      if (bci > bcIndex) {
+        high = mid - 1;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Dump all the profile data to the file BaselineCompiler.options.PROFILE_RECEIVER_FILE
+   */
+  public static void dumpProfiles() {
+    PrintStream f;
+    try {
+      f = new PrintStream(new FileOutputStream(BaselineCompiler.options.PROFILE_RECEIVER_FILE));
+    } catch (IOException e) {
+      VM.sysWrite("\n\nReceiverTypeProfiles.dumpProfiles: Error opening output file!!\n\n");
+      return;
+    }
+    dumpProfilesToStream(f);
+    f.close();
+  }
+
+  /**
+   * Dumps receiver type profiles to a stream for debugging purposes.
+   *
+   * @param stream the stream to use (e.g. {@code System.out})
+   */
+  public static void dumpProfilesToStream(PrintStream stream) {
+    if (data == null) return;
+    for (int i = 0; i < data.length; i++) {
+      int[] d = data[i];
+      if (d != null) {
+        stream.println("M " + (d.length / SITE_WORDS) + " " + MemberReference.getMethodRef(i));
+        for (int site = 0; site < d.length; site += SITE_WORDS) {
+          stream.println("\t" + new ReceiverTypeProfile(d, site));
+        }
+      }
+    }
+  }
+
+  /**
+   * @param typeId a type id recorded in a profile
+   * @return the type or {@code null} if there is no such type
+   */
+  static RVMType getType(int typeId) {
+    return typeId == 0 ? null : RVMType.getType(typeId);
+  }
+}
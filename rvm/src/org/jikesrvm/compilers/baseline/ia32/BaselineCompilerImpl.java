@@ -2842,10 +2842,11 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
 
   @Override
   protected void emit_unresolved_invokevirtual(MethodReference methodRef) {
-    emitDynamicLinkingSequence(asm, T0, methodRef, true);            // T0 has offset of method
     int methodRefparameterWords = methodRef.getParameterWords() + 1; // +1 for "this" parameter
     Offset objectOffset =
       Offset.fromIntZeroExtend(methodRefparameterWords << LG_WORDSIZE).minus(WORDSIZE); // object offset into stack
+    if (profileReceiverTypes) genRecordReceiverType(objectOffset);
+    emitDynamicLinkingSequence(asm, T0, methodRef, true);            // T0 has offset of method
     stackMoveHelper(T1, objectOffset);                               // T1 has "this" parameter
     asm.baselineEmitLoadTIB(S0, T1);                                // S0 has TIB
     if (VM.BuildFor32Addr) {
@@ -2864,6 +2865,7 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
     Offset methodRefOffset = methodRef.peekResolvedMethod().getOffset();
     Offset objectOffset =
       Offset.fromIntZeroExtend(methodRefparameterWords << LG_WORDSIZE).minus(WORDSIZE); // object offset into stack
+    if (profileReceiverTypes) genRecordReceiverType(objectOffset);
     stackMoveHelper(T1, objectOffset);                               // T1 has "this" parameter
     asm.baselineEmitLoadTIB(S0, T1);                                 // S0 has TIB
     genParameterRegisterLoad(methodRef, true);
@@ -2919,6 +2921,8 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
     RVMMethod resolvedMethod = null;
     resolvedMethod = methodRef.peekInterfaceMethod();
 
+    if (profileReceiverTypes) genRecordReceiverType(Offset.fromIntZeroExtend((count - 1) << LG_WORDSIZE));
+
     // (1) Emit dynamic type checking sequence if required to do so inline.
     if (VM.BuildForIMTInterfaceInvocation) {
       if (methodRef.isMiranda()) {
@@ -3767,6 +3771,22 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
     }
   }
 
+  /**
+   * Generate a call to record the type of the receiver of a virtual or
+   * interface call in the receiver type profile of the method.
+   * The receiver stays on the expression stack.
+   * @param objectOffset offset of the receiver from the stack pointer
+   */
+  private void genRecordReceiverType(Offset objectOffset) {
+    int site = allocateReceiverSite();
+    stackMoveHelper(T0, objectOffset);       // T0 = receiver
+    asm.emitPUSH_Reg(T0);                    // push receiver
+    asm.emitPUSH_Imm(method.getId());        // push id of this method
+    asm.emitPUSH_Imm(site);                  // push call site number
+    genParameterRegisterLoad(asm, 3);        // pass 3 parameter words
+    asm.generateJTOCcall(Entrypoints.recordReceiverTypeMethod.getOffset());
+  }
+
   /**
    * Copy parameters from operand stack into registers.
    * Assumption: parameters are laid out on the stack in order
@@ -2504,6 +2504,7 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
   @Override
   protected void emit_unresolved_invokevirtual(MethodReference methodRef) {
     int objectIndex = methodRef.getParameterWords(); // +1 for "this" parameter, -1 to load it
+    if (profileReceiverTypes) genRecordReceiverType(objectIndex);
     emitDynamicLinkingSequence(T2, methodRef, true); // leaves method offset in T2
     peekAddr(T0, objectIndex);
     asm.baselineEmitLoadTIB(T1, T0); // load TIB
@@ -2517,6 +2518,7 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
   @Override
   protected void emit_resolved_invokevirtual(MethodReference methodRef) {
     int objectIndex = methodRef.getParameterWords(); // +1 for "this" parameter, -1 to load it
+    if (profileReceiverTypes) genRecordReceiverType(objectIndex);
     peekAddr(T0, objectIndex);
     asm.baselineEmitLoadTIB(T1, T0); // load TIB
     Offset methodOffset = methodRef.peekResolvedMethod().getOffset();
@@ -2527,6 +2529,22 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
     genPopParametersAndPushReturnValue(true, methodRef);
   }
 
+  /**
+   * Generate a call to record the type of the receiver of a virtual or
+   * interface call in the receiver type profile of the method.
+   * The receiver stays on the expression stack.
+   * @param objectIndex index of the receiver on the expression stack
+   */
+  private void genRecordReceiverType(int objectIndex) {
+    int site = allocateReceiverSite();
+    asm.emitLAddrToc(T0, Entrypoints.recordReceiverTypeMethod.getOffset());
+    asm.emitMTCTR(T0);
+    peekAddr(T0, objectIndex);              // the receiver
+    asm.emitLVAL(T1, method.getId());       // id of this method
+    asm.emitLVAL(T2, site);                 // call site number
+    asm.emitBCCTRL();
+  }
+
   @Override
   protected void emit_resolved_invokespecial(MethodReference methodRef, RVMMethod target) {
     if (target.isObjectInitializer()) { // invoke via method's jtoc slot
@@ -2579,6 +2597,8 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
     RVMMethod resolvedMethod = null;
     resolvedMethod = methodRef.peekInterfaceMethod();
 
+    if (profileReceiverTypes) genRecordReceiverType(count - 1);
+
     // (1) Emit dynamic type checking sequence if required to
     // do so inline.
     if (VM.BuildForIMTInterfaceInvocation) {
@@ -26,6 +26,7 @@ import org.jikesrvm.compilers.opt.runtimesupport.OptCompiledMethod;
 import org.jikesrvm.jni.JNICompiledMethod;
 import org.jikesrvm.runtime.Magic;
 import org.jikesrvm.runtime.Memory;
+import org.jikesrvm.scheduler.SpinLock;
 import org.jikesrvm.util.Services;
 import org.vmmagic.pragma.Uninterruptible;
 import org.vmmagic.unboxed.Address;
@@ -61,6 +62,35 @@ public class CompiledMethods {
    */
   private static boolean scanForObsoleteMethods = false;
 
+  /**
+   * Ids of the compiled methods whose code has been installed, ordered by
+   * the start address of their code arrays. Lets
+   * {@link #findMethodForInstruction} binary search instead of scanning
+   * every compiled method.
+   */
+  private static int[] codeIndex = new int[1 << LOG_ROW_SIZE];
+
+  /**
+   * Number of valid entries in {@link #codeIndex}.
+   */
+  private static int codeIndexSize = 0;
+
+  /**
+   * Is {@link #codeIndex} known to be in address order? Entries added
+   * while writing the boot image (where code addresses are meaningless) and
+   * code arrays moved by the collector leave the index unsorted until the
+   * next time it is sorted.
+   */
+  private static boolean codeIndexSorted = false;
+
+  /**
+   * Guards updates to {@link #codeIndex}. Lookups don't take the lock:
+   * every candidate they find is checked with
+   * {@link CompiledMethod#containsReturnAddress}, and a failed lookup
+   * falls back to a linear scan.
+   */
+  private static final SpinLock codeIndexLock = new SpinLock();
+
   /**
    * Ensure space in backing array for id.
    *
@@ -164,8 +194,11 @@ public class CompiledMethods {
    * Assumption: caller has disabled gc (otherwise collector could move
    *                objects without fixing up the raw <code>ip</code> pointer)<p>
    *
-   * Note: this method is highly inefficient. Normally you should use the
-   * following instead:
+   * Note: this method binary searches an index of installed code ordered
+   * by address, falling back to a linear scan of all compiled methods when
+   * the index misses (e.g. because code has moved since it was last sorted).
+   * It is still much slower than the following, which you should normally use
+   * instead:
    *
    * <code>
    * RVMClassLoader.getCompiledMethod(Magic.getCompiledMethodID(fp))
@@ -185,13 +218,25 @@ public class CompiledMethods {
    */
   @Uninterruptible
   public static CompiledMethod findMethodForInstruction(Address ip) {
+    CompiledMethod compiledMethod = searchCodeIndex(ip);
+    if (compiledMethod != null) {
+      return compiledMethod;
+    }
+
     for (int i = 0, n = numCompiledMethods(); i < n; ++i) {
-      CompiledMethod compiledMethod = getCompiledMethodUnchecked(i);
+      compiledMethod = getCompiledMethodUnchecked(i);
       if (compiledMethod == null || !compiledMethod.isCompiled()) {
         continue; // empty slot
       }
 
       if (compiledMethod.containsReturnAddress(ip)) {
+        // The index missed a method that it should know about: code has
+        // moved since it was last sorted. Re-sort it unless someone else
+        // is already updating it.
+        if (VM.runningVM && codeIndexLock.tryLock()) {
+          sortCodeIndex();
+          codeIndexLock.unlock();
+        }
         return compiledMethod;
       }
     }
@@ -199,6 +244,167 @@ public class CompiledMethods {
     return null;
   }
 
+  /**
+   * Binary search {@link #codeIndex} for the method whose code contains the
+   * given return address.
+   *
+   * @param ip the instruction address, as for {@link #findMethodForInstruction}
+   * @return the method, or {@code null} if the index couldn't find it
+   */
+  @Uninterruptible
+  private static CompiledMethod searchCodeIndex(Address ip) {
+    Magic.isync();  // see potential update from other procs
+    if (!codeIndexSorted) return null;
+    int[] index = codeIndex;
+    int size = codeIndexSize;
+    if (size > index.length) size = index.length;
+
+    // find the last method whose code starts before ip
+    int low = 0;
+    int high = size - 1;
+    CompiledMethod candidate = null;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      CompiledMethod cm = getCompiledMethodUnchecked(index[mid]);
+      if (cm == null || !cm.isCompiled()) return null;
+      if (codeStart(cm).LT(ip)) {
+        candidate = cm;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    if (candidate != null && candidate.containsReturnAddress(ip)) {
+      return candidate;
+    }
+    return null;
+  }
+
+  /**
+   * Add a compiled method to the code index once its code is installed.
+   *
+   * @param cm the compiled method whose code has just been installed
+   */
+  static synchronized void addToCodeIndex(CompiledMethod cm) {
+    if (codeIndexSize == codeIndex.length) {
+      int[] tmp = new int[codeIndex.length << 1];
+      codeIndexLock.lock();
+      for (int i = 0; i < codeIndexSize; i++) {
+        tmp[i] = codeIndex[i];
+      }
+      codeIndex = tmp;
+      Magic.sync();
+      codeIndexLock.unlock();
+    }
+    codeIndexLock.lock();
+    insertIntoCodeIndex(cm);
+    codeIndexLock.unlock();
+  }
+
+  /**
+   * Insert a compiled method into {@link #codeIndex}, keeping it in address
+   * order if it already is. Caller must hold {@link #codeIndexLock} and
+   * have ensured there is room for another entry.
+   *
+   * @param cm the compiled method to insert
+   */
+  @Uninterruptible
+  private static void insertIntoCodeIndex(CompiledMethod cm) {
+    int id = cm.getId();
+    if (!VM.runningVM) {
+      // code addresses are not known until the boot image is written
+      codeIndex[codeIndexSize++] = id;
+      codeIndexSorted = false;
+      return;
+    }
+    if (!codeIndexSorted) {
+      codeIndex[codeIndexSize++] = id;
+      sortCodeIndex();
+      return;
+    }
+    Address start = codeStart(cm);
+    int pos = codeIndexSize;
+    // Shift larger entries up one slot; a concurrent lookup may briefly
+    // see an entry twice, which is harmless.
+    while (pos > 0 && start.LT(codeStart(getCompiledMethodUnchecked(codeIndex[pos - 1])))) {
+      codeIndex[pos] = codeIndex[pos - 1];
+      pos--;
+    }
+    codeIndex[pos] = id;
+    Magic.sync();
+    codeIndexSize++;
+    Magic.sync();
+  }
+
+  /**
+   * Sort {@link #codeIndex} by code address. Heapsort, so that it works in
+   * place and doesn't allocate. Caller must hold {@link #codeIndexLock}.
+   */
+  @Uninterruptible
+  private static void sortCodeIndex() {
+    codeIndexSorted = false;
+    Magic.sync();
+    int n = codeIndexSize;
+    for (int i = (n >> 1) - 1; i >= 0; i--) {
+      siftDown(i, n);
+    }
+    for (int end = n - 1; end > 0; end--) {
+      int tmp = codeIndex[0];
+      codeIndex[0] = codeIndex[end];
+      codeIndex[end] = tmp;
+      siftDown(0, end);
+    }
+    Magic.sync();
+    codeIndexSorted = true;
+    Magic.sync();
+  }
+
+  @Uninterruptible
+  private static void siftDown(int root, int end) {
+    while (true) {
+      int child = (root << 1) + 1;
+      if (child >= end) return;
+      if (child + 1 < end && codeStartForId(codeIndex[child]).LT(codeStartForId(codeIndex[child + 1]))) {
+        child++;
+      }
+      if (!codeStartForId(codeIndex[root]).LT(codeStartForId(codeIndex[child]))) return;
+      int tmp = codeIndex[root];
+      codeIndex[root] = codeIndex[child];
+      codeIndex[child] = tmp;
+      root = child;
+    }
+  }
+
+  /**
+   * Remove the entries of snipped compiled methods from {@link #codeIndex},
+   * preserving the order of the rest. Caller must hold
+   * {@link #codeIndexLock}.
+   */
+  @Uninterruptible
+  private static void compactCodeIndex() {
+    int to = 0;
+    for (int from = 0; from < codeIndexSize; from++) {
+      int id = codeIndex[from];
+      if (getCompiledMethodUnchecked(id) != null) {
+        codeIndex[to++] = id;
+      }
+    }
+    Magic.sync();
+    codeIndexSize = to;
+    Magic.sync();
+  }
+
+  @Uninterruptible
+  private static Address codeStartForId(int cmid) {
+    CompiledMethod cm = getCompiledMethodUnchecked(cmid);
+    return cm == null ? Address.zero() : codeStart(cm);
+  }
+
+  @Uninterruptible
+  private static Address codeStart(CompiledMethod cm) {
+    return Magic.objectAsAddress(cm.getEntryCodeArray());
+  }
+
   // We keep track of compiled methods that become obsolete because they have
   // been replaced by another version. These are candidates for GC. But, they
   // can only be collected once we are certain that they are no longer being
@@ -225,6 +431,7 @@ public class CompiledMethods {
     scanForObsoleteMethods = false;
     Magic.sync();
 
+    boolean snipped = false;
     int max = numCompiledMethods();
     for (int i = 0; i < max; i++) {
       CompiledMethod cm = getCompiledMethodUnchecked(i);
@@ -240,10 +447,16 @@ public class CompiledMethods {
           if (cm.isObsolete()) {
             // obsolete and not active on a thread stack: it's garbage!
             setCompiledMethod(i, null);
+            snipped = true;
           }
         }
       }
     }
+    if (snipped) {
+      codeIndexLock.lock();
+      compactCodeIndex();
+      codeIndexLock.unlock();
+    }
   }
 
   /**
@@ -99,23 +99,27 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
   /** is the opt compiler usable? This will be the case after booting. */
   protected static boolean compilerEnabled;
 
-  // FIXME Make opt compiler reentrant and update documentation accordingly.
-
-  /**
-   * is opt compiler currently in use? This flag is used to detect/avoid
-   * recursive opt compilation (ie when opt compilation causes a method to be
-   * compiled). We also make all public entrypoints static synchronized methods
-   * because the opt compiler is not reentrant. There are two cases here:
+  /*
+   * Opt compilation state lives in the IR and in the optimization plan
+   * (whose elements hold per-compilation state), so the opt compiler is
+   * reentrant as long as no two compilations in progress share an
+   * optimization plan.  This is what the boot image compiler relies on.
+   * There are two cases to guard against:
    * <ol>
-   *   <li>recursive opt compilation by the same thread (always bad)
-   *   <li>parallel opt compilation (currently bad because opt compiler
-   *     is not reentrant, future ok)
+   *   <li>recursive opt compilation by the same thread (always bad). Each
+   *     thread records whether it is opt compiling in
+   *     RVMThread.isOptCompiling, and nested requests are refused or fall
+   *     back to the baseline compiler.
+   *   <li>parallel opt compilation with a shared optimization plan (bad).
+   *     Compilations that may use a shared plan (the default plan below and
+   *     the plans of the recompilation strategy) are serialized on the
+   *     RuntimeCompiler class.  Callers that own a private plan, such as the
+   *     compilation threads, use recompileWithOptConcurrently instead.
    * </ol>
    * <p>
    * NOTE: The associated code can be quite subtle, so please be absolutely sure
    * you know what you're doing before modifying it!!!
    */
-  protected static boolean compilationInProgress;
 
   // Cache objects needed to cons up compilation plans
   // TODO: cutting link to opt compiler by declaring type as object.
@@ -346,7 +350,7 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
    * Attempt to compile the passed method with the Compiler.
    * Don't handle OptimizingCompilerExceptions
    *   (leave it up to caller to decide what to do)<p>
-   * Precondition: compilationInProgress "lock" has been acquired
+   * Precondition: the current thread has been marked as opt compiling
    * @param method the method to compile
    * @param plan the plan to use for compiling the method
    * @return a compiled method
@@ -355,7 +359,7 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
       throws OptimizingCompilerException {
     if (VM.BuildForOptCompiler) {
       if (VM.VerifyAssertions) {
-        VM._assert(compilationInProgress, "Failed to acquire compilationInProgress \"lock\"");
+        VM._assert(isOptCompiling(), "Opt compiling without marking the current thread as opt compiling");
       }
 
       Callbacks.notifyMethodCompile(method, CompiledMethod.OPT);
@@ -397,13 +401,14 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
    * @return a compiled method (opt when possible, baseline when the opt compiler
    *  busy)
    */
-  public static synchronized CompiledMethod optCompileWithFallBack(NormalMethod method) {
+  public static CompiledMethod optCompileWithFallBack(NormalMethod method) {
     if (VM.BuildForOptCompiler) {
-      if (compilationInProgress) {
+      if (isOptCompiling()) {
         return fallback(method);
-      } else {
+      }
+      synchronized (RuntimeCompiler.class) {
         try {
-          compilationInProgress = true;
+          setOptCompiling(true);
           CompilationPlan plan =
               new CompilationPlan(method,
                                       (OptimizationPlanElement[]) optimizationPlan,
@@ -411,7 +416,7 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
                                       (OptOptions) options);
           return optCompileWithFallBackInternal(method, plan);
         } finally {
-          compilationInProgress = false;
+          setOptCompiling(false);
         }
       }
     } else {
@@ -432,17 +437,18 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
    * @return a compiled method (opt when possible, baseline when the opt compiler
    *  busy)
    */
-  public static synchronized CompiledMethod optCompileWithFallBack(NormalMethod method,
-                                                                      CompilationPlan plan) {
+  public static CompiledMethod optCompileWithFallBack(NormalMethod method,
+                                                         CompilationPlan plan) {
     if (VM.BuildForOptCompiler) {
-      if (compilationInProgress) {
+      if (isOptCompiling()) {
         return fallback(method);
-      } else {
+      }
+      synchronized (RuntimeCompiler.class) {
         try {
-          compilationInProgress = true;
+          setOptCompiling(true);
           return optCompileWithFallBackInternal(method, plan);
         } finally {
-          compilationInProgress = false;
+          setOptCompiling(false);
         }
       }
     } else {
@@ -494,39 +500,41 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
       if (VM.VerifyAssertions) {
         VM._assert(plan.method.isForOsrSpecialization());
       }
-      if (compilationInProgress) {
+      if (isOptCompiling()) {
         return null;
       }
 
-      try {
-        compilationInProgress = true;
+      synchronized (RuntimeCompiler.class) {
+        try {
+          setOptCompiling(true);
 
-        // the compiler will check if isForOsrSpecialization of the method
-        CompiledMethod cm = optCompile(plan.method, plan);
+          // the compiler will check if isForOsrSpecialization of the method
+          CompiledMethod cm = optCompile(plan.method, plan);
 
-        // we do not replace the compiledMethod of original method,
-        // because it is temporary method
-        return cm;
-      } catch (OptimizingCompilerException e) {
-        e.printStackTrace();
-        String msg =
-            "Optimizing compiler " +
-            "(via recompileWithOptOnStackSpecialization): " +
-            "can't optimize \"" +
-            plan
-                .method +
-                        "\" (error was: " +
-                        e +
-                        ")\n";
+          // we do not replace the compiledMethod of original method,
+          // because it is temporary method
+          return cm;
+        } catch (OptimizingCompilerException e) {
+          e.printStackTrace();
+          String msg =
+              "Optimizing compiler " +
+              "(via recompileWithOptOnStackSpecialization): " +
+              "can't optimize \"" +
+              plan
+                  .method +
+                          "\" (error was: " +
+                          e +
+                          ")\n";
 
-        if (e.isFatal && VM.ErrorsFatal) {
-          VM.sysFail(msg);
-        } else {
-          VM.sysWrite(msg);
+          if (e.isFatal && VM.ErrorsFatal) {
+            VM.sysFail(msg);
+          } else {
+            VM.sysWrite(msg);
+          }
+          return null;
+        } finally {
+          setOptCompiling(false);
         }
-        return null;
-      } finally {
-        compilationInProgress = false;
       }
     } else {
       if (VM.VerifyAssertions) VM._assert(VM.NOT_REACHED);
@@ -546,41 +554,80 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
    *    recompilation failed.
    *
    **/
-  public static synchronized int recompileWithOpt(CompilationPlan plan) {
+  public static int recompileWithOpt(CompilationPlan plan) {
     if (VM.BuildForOptCompiler) {
-      if (compilationInProgress) {
+      if (isOptCompiling()) {
         return -1;
-      } else {
+      }
+      synchronized (RuntimeCompiler.class) {
+        return recompileWithOptInternal(plan);
+      }
+    } else {
+      if (VM.VerifyAssertions) VM._assert(VM.NOT_REACHED);
+      return -1;
+    }
+  }
+
+  /**
+   * Like {@link #recompileWithOpt(CompilationPlan)}, but doesn't serialize
+   * the compilation with other opt compilations. The caller must guarantee
+   * that the optimization plan and options of the compilation plan are not
+   * used by any other compilation that may be in progress at the same time.
+   *
+   * @param plan the compilation plan to use, with a private optimization plan
+   * @return the CMID of the new method if successful, -1 if the
+   *    recompilation failed.
+   */
+  public static int recompileWithOptConcurrently(CompilationPlan plan) {
+    if (VM.BuildForOptCompiler) {
+      if (isOptCompiling()) {
+        return -1;
+      }
+      return recompileWithOptInternal(plan);
+    } else {
+      if (VM.VerifyAssertions) VM._assert(VM.NOT_REACHED);
+      return -1;
+    }
+  }
+
+  /**
+   * Performs the recompilation for {@link #recompileWithOpt(CompilationPlan)}
+   * and {@link #recompileWithOptConcurrently(CompilationPlan)}.
+   * @param plan the compilation plan to use
+   * @return the CMID of the new method if successful, -1 if the
+   *    recompilation failed.
+   */
+  private static int recompileWithOptInternal(CompilationPlan plan) {
+    if (VM.BuildForOptCompiler) {
+      try {
+        setOptCompiling(true);
+        CompiledMethod cm = optCompile(plan.method, plan);
         try {
-          compilationInProgress = true;
-          CompiledMethod cm = optCompile(plan.method, plan);
-          try {
-            plan.method.replaceCompiledMethod(cm);
-          } catch (Throwable e) {
-            String msg = "Failure in RVMMethod.replaceCompiledMethod (via recompileWithOpt): while replacing \"" + plan
-                .method + "\" (error was: " + e + ")\n";
-            if (VM.ErrorsFatal) {
-              e.printStackTrace();
-              VM.sysFail(msg);
-            } else {
-              VM.sysWrite(msg);
-            }
-            return -1;
-          }
-          return cm.getId();
-        } catch (OptimizingCompilerException e) {
-          String msg = "Optimizing compiler (via recompileWithOpt): can't optimize \"" + plan
+          plan.method.replaceCompiledMethod(cm);
+        } catch (Throwable e) {
+          String msg = "Failure in RVMMethod.replaceCompiledMethod (via recompileWithOpt): while replacing \"" + plan
               .method + "\" (error was: " + e + ")\n";
-          if (e.isFatal && VM.ErrorsFatal) {
+          if (VM.ErrorsFatal) {
             e.printStackTrace();
             VM.sysFail(msg);
           } else {
-            // VM.sysWrite(msg);
+            VM.sysWrite(msg);
           }
           return -1;
-        } finally {
-          compilationInProgress = false;
         }
+        return cm.getId();
+      } catch (OptimizingCompilerException e) {
+        String msg = "Optimizing compiler (via recompileWithOpt): can't optimize \"" + plan
+            .method + "\" (error was: " + e + ")\n";
+        if (e.isFatal && VM.ErrorsFatal) {
+          e.printStackTrace();
+          VM.sysFail(msg);
+        } else {
+          // VM.sysWrite(msg);
+        }
+        return -1;
+      } finally {
+        setOptCompiling(false);
       }
     } else {
       if (VM.VerifyAssertions) VM._assert(VM.NOT_REACHED);
@@ -621,6 +668,17 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
     return baselineCompile(method);
   }
 
+  /**
+   * @return whether the current thread is already running the opt compiler
+   */
+  private static boolean isOptCompiling() {
+    return RVMThread.getCurrentThread().isOptCompiling;
+  }
+
+  private static void setOptCompiling(boolean value) {
+    RVMThread.getCurrentThread().isOptCompiling = value;
+  }
+
   public static void boot() {
     if (VM.MeasureCompilation) {
       Callbacks.addExitMonitor(new RuntimeCompiler());
@@ -24,6 +24,7 @@ import static org.jikesrvm.compilers.opt.bc2ir.IRGenOptions.DBG_STACK;
 import static org.jikesrvm.compilers.opt.bc2ir.IRGenOptions.MAX_RETURN_ADDRESSES;
 import static org.jikesrvm.compilers.opt.driver.OptConstants.RECTIFY_BCI;
 
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.NoSuchElementException;
@@ -67,6 +68,9 @@ final class BBSet {
   /** associated generation context */
   private final GenerationContext gc;
 
+  /** uncommon trap blocks, which are not generated from bytecodes */
+  private ArrayList<BasicBlock> uncommonTraps;
+
   /** associated bytecodes */
   private final BytecodeStream bcodes;
 
@@ -394,6 +398,19 @@ final class BBSet {
     }
   }
 
+  /**
+   * Record a block holding an uncommon trap, to be added to the code
+   * order by {@link #finalPass}.
+   *
+   * @param trap the trap block
+   */
+  void addUncommonTrap(BasicBlock trap) {
+    if (uncommonTraps == null) {
+      uncommonTraps = new ArrayList<BasicBlock>();
+    }
+    uncommonTraps.add(trap);
+  }
+
   private void injectMove(BasicBlock block, RegisterOperand res, Operand val) {
     Instruction move = Move.create(IRTools.getMoveOp(res.getType()), res, val);
     move.setSourcePosition(RECTIFY_BCI, gc.getInlineSequence());
@@ -599,6 +616,19 @@ final class BBSet {
       }
       curr = next;
     }
+    // The last block in the code order does not fall through, and nor
+    // do uncommon traps, so the traps can follow it.  A trap whose
+    // branch was regenerated is unreachable and is dropped.
+    if (uncommonTraps != null) {
+      for (BasicBlock trap : uncommonTraps) {
+        if (trap.hasZeroIn()) {
+          trap.deleteOut();
+        } else {
+          gc.getCfg().insertAfterInCodeOrder(cop, trap);
+          cop = trap;
+        }
+      }
+    }
     // If the epilogue was unreachable, remove it from the code order and cfg
     // and set gc.epilogue to null.
     boolean removedSomethingFromCodeOrdering = inlinedSomething;
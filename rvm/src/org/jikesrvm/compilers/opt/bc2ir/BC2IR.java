@@ -35,6 +35,7 @@ import org.jikesrvm.classloader.RVMField;
 import org.jikesrvm.classloader.RVMMethod;
 import org.jikesrvm.classloader.RVMType;
 import org.jikesrvm.classloader.TypeReference;
+import org.jikesrvm.compilers.baseline.ConditionalBranchProfile;
 import org.jikesrvm.compilers.baseline.SwitchBranchProfile;
 import org.jikesrvm.compilers.common.CompiledMethod;
 import org.jikesrvm.compilers.common.CompiledMethods;
@@ -106,6 +107,7 @@ import org.jikesrvm.compilers.opt.ir.operand.TrapCodeOperand;
 import org.jikesrvm.compilers.opt.ir.operand.TrueGuardOperand;
 import org.jikesrvm.compilers.opt.ir.operand.TypeOperand;
 import org.jikesrvm.osr.ObjectHolder;
+import org.jikesrvm.osr.UncommonTraps;
 import org.jikesrvm.osr.bytecodes.InvokeStatic;
 import org.jikesrvm.runtime.Entrypoints;
 import org.jikesrvm.runtime.Magic;
@@ -200,6 +202,25 @@ public final class BC2IR {
   // OSR field
   private boolean osrGuardedInline = false;
 
+  /**
+   * OSR field: replace branch edges that the baseline profile never saw
+   * taken with uncommon traps?
+   */
+  private boolean uncommonTraps = false;
+
+  /** The branch being generated has no cold edge */
+  private static final int NO_COLD_EDGE = 0;
+  /** The branch being generated was never taken */
+  private static final int COLD_TAKEN = 1;
+  /** The branch being generated never fell through */
+  private static final int COLD_FALL_THROUGH = 2;
+
+  /**
+   * OSR field: which edge of the conditional branch being generated
+   * should become an uncommon trap.
+   */
+  private int coldEdge = NO_COLD_EDGE;
+
   /**
    * OSR field: TODO rework this mechanism!
    * adjustment of bcIndex of instructions because of
@@ -326,6 +347,11 @@ public final class BC2IR {
        OptimizingCompiler.getAppStarted() &&
        (Controller.options != null) &&
        Controller.options.ENABLE_RECOMPILATION;
+
+    // Traps need the OSR barriers that guarded inlining saves at call sites
+    this.uncommonTraps = this.osrGuardedInline &&
+       context.getOptions().OSR_UNCOMMON_TRAPS &&
+       context.getOptions().frequencyCounters();
   }
 
   private void finish(GenerationContext context) {
@@ -451,6 +477,11 @@ public final class BC2IR {
 
       lastOsrBarrier = null;
 
+      coldEdge = NO_COLD_EDGE;
+      if (uncommonTraps && (code >= JBC_ifeq && code <= JBC_if_acmpne || code == JBC_ifnull || code == JBC_ifnonnull)) {
+        coldEdge = findColdEdge();
+      }
+
       switch (code) {
         case JBC_nop:
           break;
@@ -1779,6 +1810,13 @@ public final class BC2IR {
             if (generated) break; // all done.
           }
 
+          // The atomic and volatile accessors of sun.misc.Unsafe are
+          // also generated inline.
+          if (GenerateUnsafe.isUnsafe(ref)) {
+            boolean generated = GenerateUnsafe.generateUnsafe(this, gc, ref);
+            if (generated) break; // all done.
+          }
+
           /* just create an osr barrier right before _callHelper
            * changes the states of locals and stacks.
            */
@@ -2640,7 +2678,17 @@ public final class BC2IR {
       }
 
       if (s != null && !currentBBLE.isSelfRegen()) {
+        BasicBlock trap = null;
+        if (coldEdge == COLD_FALL_THROUGH && IfCmp.conforms(s)) {
+          trap = createUncommonTrap(bcodes.index());
+        }
         appendInstruction(s);
+        if (trap != null) {
+          // the branch is the hot edge; the block ends by going to the trap
+          appendInstruction(trap.makeGOTO());
+          currentBBLE.block.insertOut(trap);
+          fallThrough = false;
+        }
       }
 
       // check runoff
@@ -3928,6 +3976,14 @@ public final class BC2IR {
   }
 
   private BranchOperand generateTarget(int offset) {
+    if (coldEdge == COLD_TAKEN) {
+      BasicBlock trap = createUncommonTrap(offset + instrIndex);
+      if (trap != null) {
+        currentBBLE.block.insertOut(trap);
+        endOfBasicBlock = true;
+        return trap.makeJumpTarget();
+      }
+    }
     BasicBlockLE targetbble = getOrCreateBlock(offset + instrIndex);
     currentBBLE.block.insertOut(targetbble.block);
     endOfBasicBlock = true;
@@ -3939,6 +3995,8 @@ public final class BC2IR {
 
   // GOTO
   private Instruction _gotoHelper(int offset) {
+    // a branch folded to a goto is always taken, so it is never a trap
+    coldEdge = NO_COLD_EDGE;
     return Goto.create(GOTO, generateTarget(offset));
   }
 
@@ -4953,6 +5011,60 @@ public final class BC2IR {
     return t.copyD2U();
   }
 
+  /**
+   * Uses the baseline profile of the conditional branch being generated
+   * to find an edge that was never taken.
+   *
+   * @return the edge that should become an uncommon trap, or
+   *  {@link #NO_COLD_EDGE} if neither should
+   */
+  private int findColdEdge() {
+    ConditionalBranchProfile bp = gc.getConditionalBranchProfile(instrIndex - bciAdjustment);
+    if (bp == null || bp.getFrequency() < gc.getOptions().OSR_UNCOMMON_TRAP_MIN_EXECUTIONS) {
+      return NO_COLD_EDGE;
+    }
+    if (bp.getTakenFrequency() == 0f) {
+      return COLD_TAKEN;
+    } else if (bp.getTakenFrequency() == bp.getFrequency()) {
+      return COLD_FALL_THROUGH;
+    }
+    return NO_COLD_EDGE;
+  }
+
+  /**
+   * Creates a block holding an uncommon trap: an OSR point that resumes
+   * in the baseline code at the target of the cold edge.  The operands
+   * of the branch have already been popped, so the OSR barrier records
+   * the state expected at the target.  The caller must add the CFG edge
+   * to the trap.
+   *
+   * @param resumeIndex the bytecode index of the cold edge's target
+   * @return the trap block, or {@code null} if a trap here has already
+   *  fired and the edge must be generated normally
+   */
+  private BasicBlock createUncommonTrap(int resumeIndex) {
+    coldEdge = NO_COLD_EDGE;
+    if (UncommonTraps.isDisabled(gc.getMethod(), resumeIndex)) {
+      return null;
+    }
+    Instruction barrier = _createOsrBarrier();
+    barrier.setSourcePosition(resumeIndex, gc.getInlineSequence());
+    Instruction osr = _osrHelper(barrier, gc);
+    osr.setSourcePosition(resumeIndex, gc.getInlineSequence());
+
+    BasicBlock trap = new BasicBlock(resumeIndex, gc.getInlineSequence(), gc.getCfg());
+    trap.setExceptionHandlers(currentBBLE.block.exceptionHandlers());
+    trap.appendInstruction(osr);
+    trap.insertOut(gc.getExit());
+    trap.setInfrequent();
+    blocks.addUncommonTrap(trap);
+    UncommonTraps.register(gc.getMethod(), resumeIndex, gc.getOptions().OSR_UNCOMMON_TRAP_FIRE_LIMIT);
+    if (DBG_CFG || DBG_SELECTED) {
+      db("Created uncommon trap " + trap + " resuming at " + resumeIndex);
+    }
+    return trap;
+  }
+
   /**
    * Creates an OSR point instruction with its dependent OsrBarrier
    * which provides type and variable information.
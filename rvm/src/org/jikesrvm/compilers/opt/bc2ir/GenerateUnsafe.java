@@ -0,0 +1,217 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.opt.bc2ir;
+
+import static org.jikesrvm.compilers.opt.ir.Operators.ATTEMPT_ADDR;
+import static org.jikesrvm.compilers.opt.ir.Operators.ATTEMPT_INT;
+import static org.jikesrvm.compilers.opt.ir.Operators.ATTEMPT_LONG;
+import static org.jikesrvm.compilers.opt.ir.Operators.FENCE;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_LOAD;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_STORE;
+import static org.jikesrvm.compilers.opt.ir.Operators.LONG_2ADDR;
+import static org.jikesrvm.compilers.opt.ir.Operators.LONG_LOAD;
+import static org.jikesrvm.compilers.opt.ir.Operators.LONG_STORE;
+import static org.jikesrvm.compilers.opt.ir.Operators.READ_CEILING;
+import static org.jikesrvm.compilers.opt.ir.Operators.REF_LOAD;
+import static org.jikesrvm.compilers.opt.ir.Operators.REF_STORE;
+import static org.jikesrvm.compilers.opt.ir.Operators.WRITE_FLOOR;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.classloader.Atom;
+import org.jikesrvm.classloader.MethodReference;
+import org.jikesrvm.classloader.TypeReference;
+import org.jikesrvm.compilers.opt.ir.Attempt;
+import org.jikesrvm.compilers.opt.ir.Empty;
+import org.jikesrvm.compilers.opt.ir.Instruction;
+import org.jikesrvm.compilers.opt.ir.Load;
+import org.jikesrvm.compilers.opt.ir.Operator;
+import org.jikesrvm.compilers.opt.ir.Store;
+import org.jikesrvm.compilers.opt.ir.operand.Operand;
+import org.jikesrvm.compilers.opt.ir.operand.RegisterOperand;
+import org.jikesrvm.mm.mminterface.Barriers;
+
+/**
+ * Intrinsics for the atomic and volatile accessors of {@code sun.misc.Unsafe}.<p>
+ *
+ * The library implements these methods on top of {@link org.jikesrvm.scheduler.Synchronization}
+ * and the Magic accessors, so they only reach the opt compiler's
+ * {@code ATTEMPT}, load and store operators after several levels of inlining.
+ * Generating the operators directly at the call site makes the cost of a
+ * compare-and-swap independent of the inliner, and lets the IA32 BURS rules
+ * fuse the {@code ATTEMPT} and the branch on its result into a single
+ * {@code LOCK CMPXCHG} and conditional jump.<p>
+ *
+ * Only the forms that take an object and a {@code long} offset are handled,
+ * and only when the plan needs no barrier on the accessed kind of field:
+ * otherwise the library code, which calls the barriers, is compiled as usual.
+ * The memory ordering is that of the library code: a volatile load is followed
+ * by a {@code READ_CEILING}, a volatile store is bracketed by a {@code WRITE_FLOOR}
+ * and a {@code FENCE}, and an ordered store is preceded by a {@code WRITE_FLOOR}.
+ */
+final class GenerateUnsafe {
+
+  private static final TypeReference SunMiscUnsafe = TypeReference.findOrCreate("Lsun/misc/Unsafe;");
+
+  private static final Atom compareAndSwapInt = Atom.findOrCreateAsciiAtom("compareAndSwapInt");
+  private static final Atom compareAndSwapLong = Atom.findOrCreateAsciiAtom("compareAndSwapLong");
+  private static final Atom compareAndSwapObject = Atom.findOrCreateAsciiAtom("compareAndSwapObject");
+  private static final Atom getIntVolatile = Atom.findOrCreateAsciiAtom("getIntVolatile");
+  private static final Atom getLongVolatile = Atom.findOrCreateAsciiAtom("getLongVolatile");
+  private static final Atom getObjectVolatile = Atom.findOrCreateAsciiAtom("getObjectVolatile");
+  private static final Atom putIntVolatile = Atom.findOrCreateAsciiAtom("putIntVolatile");
+  private static final Atom putLongVolatile = Atom.findOrCreateAsciiAtom("putLongVolatile");
+  private static final Atom putObjectVolatile = Atom.findOrCreateAsciiAtom("putObjectVolatile");
+  private static final Atom putOrderedInt = Atom.findOrCreateAsciiAtom("putOrderedInt");
+  private static final Atom putOrderedLong = Atom.findOrCreateAsciiAtom("putOrderedLong");
+  private static final Atom putOrderedObject = Atom.findOrCreateAsciiAtom("putOrderedObject");
+
+  private GenerateUnsafe() {
+    // prevent instantiation
+  }
+
+  /**
+   * @param meth the target of a call
+   * @return whether the call may be to an intrinsic of this class
+   */
+  static boolean isUnsafe(MethodReference meth) {
+    return meth.getType() == SunMiscUnsafe;
+  }
+
+  /**
+   * Generate the IR for a call to one of the intrinsics of this class,
+   * updating the expression stack as necessary.
+   *
+   * @param bc2ir the bc2ir object that is generating the
+   *              ir containing the call
+   * @param gc must be bc2ir.gc
+   * @param meth the called method
+   * @return {@code true} if and only if the intrinsic was generated
+   */
+  static boolean generateUnsafe(BC2IR bc2ir, GenerationContext gc, MethodReference meth) {
+    TypeReference[] types = meth.getParameterTypes();
+    if (types.length < 2 || types[0] != TypeReference.JavaLangObject || types[1] != TypeReference.Long) {
+      return false;
+    }
+    Atom name = meth.getName();
+    if (name == compareAndSwapInt) {
+      if (!VM.BuildForIA32 || Barriers.NEEDS_INT_PUTFIELD_BARRIER || Barriers.NEEDS_INT_GETFIELD_BARRIER) {
+        return false;
+      }
+      Operand newValue = bc2ir.popInt();
+      Operand oldValue = bc2ir.popInt();
+      return generateAttempt(bc2ir, gc, ATTEMPT_INT, oldValue, newValue);
+    } else if (name == compareAndSwapLong) {
+      if (!VM.BuildForIA32 || Barriers.NEEDS_LONG_PUTFIELD_BARRIER || Barriers.NEEDS_LONG_GETFIELD_BARRIER) {
+        return false;
+      }
+      Operand newValue = bc2ir.popLong();
+      Operand oldValue = bc2ir.popLong();
+      return generateAttempt(bc2ir, gc, ATTEMPT_LONG, oldValue, newValue);
+    } else if (name == compareAndSwapObject) {
+      if (!VM.BuildForIA32 || Barriers.NEEDS_OBJECT_PUTFIELD_BARRIER || Barriers.NEEDS_OBJECT_GETFIELD_BARRIER) {
+        return false;
+      }
+      Operand newValue = bc2ir.popRef();
+      Operand oldValue = bc2ir.popRef();
+      return generateAttempt(bc2ir, gc, ATTEMPT_ADDR, oldValue, newValue);
+    } else if (name == getIntVolatile) {
+      if (Barriers.NEEDS_INT_GETFIELD_BARRIER) return false;
+      return generateVolatileLoad(bc2ir, gc, INT_LOAD, TypeReference.Int);
+    } else if (name == getLongVolatile) {
+      if (Barriers.NEEDS_LONG_GETFIELD_BARRIER) return false;
+      return generateVolatileLoad(bc2ir, gc, LONG_LOAD, TypeReference.Long);
+    } else if (name == getObjectVolatile) {
+      if (Barriers.NEEDS_OBJECT_GETFIELD_BARRIER) return false;
+      return generateVolatileLoad(bc2ir, gc, REF_LOAD, TypeReference.JavaLangObject);
+    } else if (name == putIntVolatile || name == putOrderedInt) {
+      if (Barriers.NEEDS_INT_PUTFIELD_BARRIER) return false;
+      return generateStore(bc2ir, INT_STORE, bc2ir.popInt(), name == putIntVolatile);
+    } else if (name == putLongVolatile || name == putOrderedLong) {
+      if (Barriers.NEEDS_LONG_PUTFIELD_BARRIER) return false;
+      return generateStore(bc2ir, LONG_STORE, bc2ir.popLong(), name == putLongVolatile);
+    } else if (name == putObjectVolatile || name == putOrderedObject) {
+      if (Barriers.NEEDS_OBJECT_PUTFIELD_BARRIER) return false;
+      return generateStore(bc2ir, REF_STORE, bc2ir.popRef(), name == putObjectVolatile);
+    }
+    return false;
+  }
+
+  private static boolean generateAttempt(BC2IR bc2ir, GenerationContext gc, Operator operator,
+                                         Operand oldValue, Operand newValue) {
+    Operand offset = popOffset(bc2ir);
+    Operand object = bc2ir.popRef();
+    RegisterOperand test = gc.getTemps().makeTempBoolean();
+    if (!popUnsafe(bc2ir)) {
+      bc2ir.appendInstruction(Attempt.create(operator, test, object, offset, oldValue, newValue, null));
+    }
+    bc2ir.push(test.copyD2U());
+    return true;
+  }
+
+  private static boolean generateVolatileLoad(BC2IR bc2ir, GenerationContext gc, Operator operator,
+                                              TypeReference type) {
+    Operand offset = popOffset(bc2ir);
+    Operand object = bc2ir.popRef();
+    RegisterOperand result = gc.getTemps().makeTemp(type);
+    if (!popUnsafe(bc2ir)) {
+      bc2ir.appendInstruction(Load.create(operator, result, object, offset, null));
+      bc2ir.appendInstruction(Empty.create(READ_CEILING));
+    }
+    if (type.isLongType()) {
+      bc2ir.pushDual(result.copyD2U());
+    } else {
+      bc2ir.push(result.copyD2U());
+    }
+    return true;
+  }
+
+  private static boolean generateStore(BC2IR bc2ir, Operator operator, Operand value, boolean isVolatile) {
+    Operand offset = popOffset(bc2ir);
+    Operand object = bc2ir.popRef();
+    if (!popUnsafe(bc2ir)) {
+      bc2ir.appendInstruction(Empty.create(WRITE_FLOOR));
+      bc2ir.appendInstruction(Store.create(operator, value, object, offset, null));
+      if (isVolatile) {
+        bc2ir.appendInstruction(Empty.create(FENCE));
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Pops the {@code long} offset of an accessor and converts it to an Offset.
+   *
+   * @param bc2ir the bc2ir object generating the call
+   * @return the offset
+   */
+  private static Operand popOffset(BC2IR bc2ir) {
+    Instruction s = bc2ir._unaryHelper(LONG_2ADDR, bc2ir.popLong(), TypeReference.Offset);
+    if (s != null) {
+      bc2ir.appendInstruction(s);
+    }
+    return bc2ir.popAddress();
+  }
+
+  /**
+   * Pops the receiver of the call and null checks it, as the call would.
+   *
+   * @param bc2ir the bc2ir object generating the call
+   * @return {@code true} if the receiver is null, so that the call
+   *  always raises a null pointer exception
+   */
+  private static boolean popUnsafe(BC2IR bc2ir) {
+    Operand receiver = bc2ir.popRef();
+    bc2ir.clearCurrentGuard();
+    return bc2ir.do_NullCheck(receiver);
+  }
+}
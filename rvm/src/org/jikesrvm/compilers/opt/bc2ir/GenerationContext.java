@@ -708,6 +708,19 @@ public final class GenerationContext {
     return new BranchProfileOperand(prob);
   }
 
+  /**
+   * @param bcIndex the bytecode index of a conditional branch
+   * @return the baseline profile of the branch, or {@code null} if
+   *  there is none
+   */
+  ConditionalBranchProfile getConditionalBranchProfile(int bcIndex) {
+    if (branchProfiles != null) {
+      return (ConditionalBranchProfile) branchProfiles.getEntry(bcIndex);
+    } else {
+      return null;
+    }
+  }
+
   SwitchBranchProfile getSwitchProfile(int bcIndex) {
     if (branchProfiles != null) {
       return (SwitchBranchProfile) branchProfiles.getEntry(bcIndex);
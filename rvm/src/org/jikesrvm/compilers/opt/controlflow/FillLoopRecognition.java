@@ -0,0 +1,619 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.opt.controlflow;
+
+import static org.jikesrvm.compilers.opt.ir.Operators.ARRAYLENGTH;
+import static org.jikesrvm.compilers.opt.ir.Operators.ARRAYLENGTH_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.BOUNDS_CHECK_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.BYTE_ASTORE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.CALL;
+import static org.jikesrvm.compilers.opt.ir.Operators.DOUBLE_ASTORE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.DOUBLE_AS_LONG_BITS;
+import static org.jikesrvm.compilers.opt.ir.Operators.FLOAT_ASTORE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.FLOAT_AS_INT_BITS;
+import static org.jikesrvm.compilers.opt.ir.Operators.GOTO;
+import static org.jikesrvm.compilers.opt.ir.Operators.GOTO_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.GUARD_COMBINE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.GUARD_MOVE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_ADD_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_ASTORE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_IFCMP;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_IFCMP_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_MOVE;
+import static org.jikesrvm.compilers.opt.ir.Operators.LONG_ASTORE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.NULL_CHECK_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.REF_IFCMP;
+import static org.jikesrvm.compilers.opt.ir.Operators.SHORT_ASTORE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.YIELDPOINT_BACKEDGE_opcode;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Enumeration;
+
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.classloader.TypeReference;
+import org.jikesrvm.compilers.opt.DefUse;
+import org.jikesrvm.compilers.opt.OptOptions;
+import org.jikesrvm.compilers.opt.driver.CompilerPhase;
+import org.jikesrvm.compilers.opt.ir.AStore;
+import org.jikesrvm.compilers.opt.ir.BasicBlock;
+import org.jikesrvm.compilers.opt.ir.Binary;
+import org.jikesrvm.compilers.opt.ir.BoundsCheck;
+import org.jikesrvm.compilers.opt.ir.Call;
+import org.jikesrvm.compilers.opt.ir.Goto;
+import org.jikesrvm.compilers.opt.ir.GuardedUnary;
+import org.jikesrvm.compilers.opt.ir.IR;
+import org.jikesrvm.compilers.opt.ir.IRTools;
+import org.jikesrvm.compilers.opt.ir.IfCmp;
+import org.jikesrvm.compilers.opt.ir.Instruction;
+import org.jikesrvm.compilers.opt.ir.Label;
+import org.jikesrvm.compilers.opt.ir.Move;
+import org.jikesrvm.compilers.opt.ir.NullCheck;
+import org.jikesrvm.compilers.opt.ir.Register;
+import org.jikesrvm.compilers.opt.ir.Unary;
+import org.jikesrvm.compilers.opt.ir.operand.BranchProfileOperand;
+import org.jikesrvm.compilers.opt.ir.operand.ConditionOperand;
+import org.jikesrvm.compilers.opt.ir.operand.DoubleConstantOperand;
+import org.jikesrvm.compilers.opt.ir.operand.FloatConstantOperand;
+import org.jikesrvm.compilers.opt.ir.operand.IntConstantOperand;
+import org.jikesrvm.compilers.opt.ir.operand.LongConstantOperand;
+import org.jikesrvm.compilers.opt.ir.operand.MethodOperand;
+import org.jikesrvm.compilers.opt.ir.operand.NullConstantOperand;
+import org.jikesrvm.compilers.opt.ir.operand.Operand;
+import org.jikesrvm.compilers.opt.ir.operand.RegisterOperand;
+import org.jikesrvm.compilers.opt.util.GraphNode;
+import org.jikesrvm.mm.mminterface.Barriers;
+import org.jikesrvm.runtime.Entrypoints;
+import org.jikesrvm.util.BitVector;
+
+/**
+ * Replaces counted loops that store a loop invariant value into
+ * consecutive elements of an array of primitives by a call to one of the
+ * {@code arrayfill} routines of {@link org.jikesrvm.runtime.Memory},
+ * which fill the array 8 bytes at a time.<p>
+ *
+ * A loop is recognized if it consists only of the store, the null and
+ * bounds checks of the store, an increment of the index by one and a
+ * {@code <} test of the index against a loop invariant bound or the length
+ * of a loop invariant array.  The loop is versioned: the fill routine is
+ * called only if the array is not null and the range of indices lies
+ * within the array, so that none of the checks in the loop can fail.
+ * Otherwise the original loop runs.  Stores into arrays whose element
+ * type needs an array store barrier in the selected plan are left alone.
+ */
+public class FillLoopRecognition extends CompilerPhase {
+
+  /**
+   * Loops with more real instructions than this are not considered.
+   */
+  private static final int MAX_INSTRUCTIONS = 32;
+
+  @Override
+  public String getName() {
+    return "Fill Loop Recognition";
+  }
+
+  /**
+   * Constructor for this compiler phase
+   */
+  private static final Constructor<CompilerPhase> constructor =
+      getCompilerPhaseConstructor(FillLoopRecognition.class);
+
+  /**
+   * Get a constructor object for this compiler phase
+   * @return compiler phase constructor
+   */
+  @Override
+  public Constructor<CompilerPhase> getClassConstructor() {
+    return constructor;
+  }
+
+  @Override
+  public boolean shouldPerform(OptOptions options) {
+    return options.CONTROL_FILL_LOOPS;
+  }
+
+  @Override
+  public void perform(IR ir) {
+    if (ir.hasReachableExceptionHandlers()) return;
+    new BuildLST().perform(ir);
+    LSTGraph lstg = ir.HIRInfo.loopStructureTree;
+    if (lstg == null) return;
+
+    ArrayList<LSTNode> leaves = new ArrayList<LSTNode>();
+    findLeafLoops((LSTNode) lstg.firstNode(), leaves);
+    if (leaves.isEmpty()) return;
+
+    DefUse.computeDU(ir);
+    boolean changed = false;
+    for (LSTNode node : leaves) {
+      FillLoop fill = FillLoop.match(node, ir);
+      if (fill != null) {
+        fill.transform(ir);
+        DefUse.computeDU(ir);
+        changed = true;
+      }
+    }
+    if (changed) {
+      new BuildLST().perform(ir);
+    }
+  }
+
+  private static void findLeafLoops(LSTNode t, ArrayList<LSTNode> leaves) {
+    Enumeration<GraphNode> e = t.outNodes();
+    if (!e.hasMoreElements()) {
+      if (t.loop != null) {
+        leaves.add(t);
+      }
+    } else {
+      while (e.hasMoreElements()) {
+        findLeafLoops((LSTNode) e.nextElement(), leaves);
+      }
+    }
+  }
+
+  /**
+   * A loop that has been recognized as a fill of an array.
+   */
+  private static final class FillLoop {
+    /** the loop header */
+    private final BasicBlock header;
+    /** the only block outside the loop that enters it */
+    private final BasicBlock pred;
+    /** the block that the loop exits to */
+    private final BasicBlock exit;
+    /** the store of the loop */
+    private final Instruction store;
+    /** the index of the store, which the loop increments */
+    private final Register iterator;
+    /** the loop invariant bound of the index, or null if it is the length of {@link #boundArray} */
+    private final Operand bound;
+    /** the array whose length is the bound of the index, or null */
+    private final Operand boundArray;
+
+    private FillLoop(BasicBlock header, BasicBlock pred, BasicBlock exit, Instruction store,
+                     Register iterator, Operand bound, Operand boundArray) {
+      this.header = header;
+      this.pred = pred;
+      this.exit = exit;
+      this.store = store;
+      this.iterator = iterator;
+      this.bound = bound;
+      this.boundArray = boundArray;
+    }
+
+    /**
+     * Checks whether a leaf loop fills an array.
+     *
+     * @param node the loop
+     * @param ir the governing IR
+     * @return the recognized loop, or {@code null} if the loop
+     *  is not a fill of an array
+     */
+    static FillLoop match(LSTNode node, IR ir) {
+      BasicBlock header = node.header;
+      BitVector loop = node.loop;
+      if (header.getInfrequent()) return null;
+
+      // only the header may be entered from outside the loop,
+      // and only from a single block
+      BasicBlock pred = null;
+      int blocks = 0;
+      for (Enumeration<BasicBlock> e = ir.getBasicBlocks(loop); e.hasMoreElements();) {
+        BasicBlock b = e.nextElement();
+        blocks++;
+        for (Enumeration<BasicBlock> in = b.getIn(); in.hasMoreElements();) {
+          BasicBlock p = in.nextElement();
+          if (CFGTransformations.inLoop(p, loop)) continue;
+          if (b != header || pred != null) return null;
+          pred = p;
+        }
+      }
+      if (pred == null) return null;
+
+      // the blocks must form a single cycle with a single exit;
+      // collect the instructions in the order they are executed
+      // from the header
+      ArrayList<Instruction> body = new ArrayList<Instruction>();
+      BasicBlock exitingBlock = null;
+      BasicBlock exit = null;
+      BasicBlock b = header;
+      int visited = 0;
+      do {
+        if (++visited > blocks) return null;
+        BasicBlock next = null;
+        for (Enumeration<BasicBlock> e = b.getNormalOut(); e.hasMoreElements();) {
+          BasicBlock succ = e.nextElement();
+          if (CFGTransformations.inLoop(succ, loop)) {
+            if (next != null) return null;
+            next = succ;
+          } else {
+            if (exit != null) return null;
+            exit = succ;
+            exitingBlock = b;
+          }
+        }
+        if (next == null) return null;
+        for (Enumeration<Instruction> e = b.forwardRealInstrEnumerator(); e.hasMoreElements();) {
+          body.add(e.nextElement());
+          if (body.size() > MAX_INSTRUCTIONS) return null;
+        }
+        b = next;
+      } while (b != header);
+      if (visited != blocks || exit == null) return null;
+
+      // classify the instructions
+      Instruction store = null;
+      Instruction increment = null;
+      Instruction test = null;
+      Instruction length = null;
+      for (Instruction s : body) {
+        switch (s.getOpcode()) {
+          case GOTO_opcode:
+          case YIELDPOINT_BACKEDGE_opcode:
+          case NULL_CHECK_opcode:
+          case BOUNDS_CHECK_opcode:
+          case GUARD_COMBINE_opcode:
+          case GUARD_MOVE_opcode:
+            break;
+          case BYTE_ASTORE_opcode:
+          case SHORT_ASTORE_opcode:
+          case INT_ASTORE_opcode:
+          case LONG_ASTORE_opcode:
+          case FLOAT_ASTORE_opcode:
+          case DOUBLE_ASTORE_opcode:
+            if (store != null) return null;
+            store = s;
+            break;
+          case INT_ADD_opcode:
+            if (increment != null) return null;
+            increment = s;
+            break;
+          case INT_IFCMP_opcode:
+            if (test != null) return null;
+            test = s;
+            break;
+          case ARRAYLENGTH_opcode:
+            if (length != null) return null;
+            length = s;
+            break;
+          default:
+            return null;
+        }
+      }
+      if (store == null || increment == null || test == null) return null;
+      if (needsStoreBarrier(store)) return null;
+      if (test.getBasicBlock() != exitingBlock) return null;
+
+      // the store: a[i] = v with a and v loop invariant
+      Operand array = AStore.getArray(store);
+      Operand index = AStore.getIndex(store);
+      if (!array.isRegister() || !isInvariant(array, loop)) return null;
+      if (!isInvariant(AStore.getValue(store), loop)) return null;
+      if (!index.isRegister()) return null;
+      Register iterator = index.asRegister().getRegister();
+
+      // the increment: i = i + 1
+      if (Binary.getResult(increment).getRegister() != iterator) return null;
+      Operand val1 = Binary.getVal1(increment);
+      Operand val2 = Binary.getVal2(increment);
+      if (isRegister(val2, iterator)) {
+        Operand op = val1;
+        val1 = val2;
+        val2 = op;
+      }
+      if (!isRegister(val1, iterator) || !(val2 instanceof IntConstantOperand) ||
+          ((IntConstantOperand) val2).value != 1) {
+        return null;
+      }
+      for (RegisterOperand def = iterator.defList; def != null; def = def.getNext()) {
+        if (def.instruction != increment && inLoop(def.instruction, loop)) return null;
+      }
+
+      // the test: stay in the loop while i < n
+      ConditionOperand cond = (ConditionOperand) IfCmp.getCond(test).copy();
+      BasicBlock target = Label.getBlock(IfCmp.getTarget(test).target).block;
+      if (!CFGTransformations.inLoop(target, loop)) {
+        cond.flipCode();
+      }
+      Operand lhs = IfCmp.getVal1(test);
+      Operand rhs = IfCmp.getVal2(test);
+      if (isRegister(rhs, iterator)) {
+        Operand op = lhs;
+        lhs = rhs;
+        rhs = op;
+        cond.flipOperands();
+      }
+      if (!isRegister(lhs, iterator) || !cond.isLESS()) return null;
+
+      // the bound is loop invariant or the length of a loop invariant array
+      Operand bound = null;
+      Operand boundArray = null;
+      if (length == null) {
+        if (!isInvariant(rhs, loop)) return null;
+        bound = rhs;
+      } else {
+        boundArray = GuardedUnary.getVal(length);
+        if (!boundArray.isRegister() || !isInvariant(boundArray, loop)) return null;
+        if (!isRegister(rhs, GuardedUnary.getResult(length).getRegister())) return null;
+        for (RegisterOperand def = rhs.asRegister().getRegister().defList; def != null; def = def.getNext()) {
+          if (def.instruction != length && inLoop(def.instruction, loop)) return null;
+        }
+        // the length must be computed before it is tested
+        if (body.indexOf(length) > body.indexOf(test)) return null;
+      }
+
+      // the loop is either do { a[i] = v; i++; } while (i < n)
+      // or while (i < n) { a[i] = v; i++; }, entered at the top
+      int storeIndex = body.indexOf(store);
+      int incrementIndex = body.indexOf(increment);
+      int testIndex = body.indexOf(test);
+      int first;
+      if (storeIndex < incrementIndex && incrementIndex < testIndex) {
+        first = -1;
+      } else if (testIndex < storeIndex && storeIndex < incrementIndex) {
+        first = testIndex;
+      } else {
+        return null;
+      }
+
+      // the checks must be those of the store and of the bound
+      for (int i = 0; i < body.size(); i++) {
+        Instruction s = body.get(i);
+        if (s.getOpcode() == NULL_CHECK_opcode) {
+          Operand ref = NullCheck.getRef(s);
+          if (!isSameRegister(ref, array) && !(boundArray != null && isSameRegister(ref, boundArray))) {
+            return null;
+          }
+        } else if (s.getOpcode() == BOUNDS_CHECK_opcode) {
+          if (!isSameRegister(BoundsCheck.getRef(s), array) || !isRegister(BoundsCheck.getIndex(s), iterator)) {
+            return null;
+          }
+        }
+        // apart from the increment and the test, i must only be used
+        // before it is incremented
+        if (s != increment && s != test && (i <= first || i > incrementIndex)) {
+          for (Enumeration<Operand> e = s.getUses(); e.hasMoreElements();) {
+            if (isRegister(e.nextElement(), iterator)) return null;
+          }
+        }
+      }
+
+      // nothing computed in the loop, other than i, is used after it
+      for (Instruction s : body) {
+        for (Enumeration<Operand> e = s.getDefs(); e.hasMoreElements();) {
+          Operand def = e.nextElement();
+          if (!def.isRegister() || def.asRegister().getRegister() == iterator) continue;
+          for (RegisterOperand use = def.asRegister().getRegister().useList; use != null; use = use.getNext()) {
+            if (!inLoop(use.instruction, loop)) return null;
+          }
+        }
+      }
+
+      return new FillLoop(header, pred, exit, store, iterator, bound, boundArray);
+    }
+
+    /**
+     * Transforms
+     * <pre>
+     *   pred:
+     *     goto header
+     *   header:
+     *     LOOP (i from i0 while i &lt; n)
+     *   exit:
+     * </pre>
+     * into
+     * <pre>
+     *   pred:
+     *     goto check0
+     *   check0:
+     *     if a == null goto pad
+     *     if b == null goto pad
+     *   check1:
+     *     len = a.length
+     *     n = b.length
+     *     if i &lt; 0 goto pad
+     *     if i &gt;= n goto pad
+     *     if n &gt; len goto pad
+     *   fill:
+     *     arrayfill(a, i, n, v)
+     *     i = n
+     *     goto exit
+     *   pad:
+     *     goto header
+     *   header:
+     *     LOOP
+     *   exit:
+     * </pre>
+     *
+     * @param ir the governing IR
+     */
+    void transform(IR ir) {
+      int bcIndex = header.firstInstruction().getBytecodeIndex();
+      float frequency = pred.getExecutionFrequency();
+      BasicBlock check0 = header.createSubBlock(bcIndex, ir);
+      BasicBlock check1 = header.createSubBlock(bcIndex, ir);
+      BasicBlock fill = header.createSubBlock(bcIndex, ir);
+      BasicBlock pad = header.createSubBlock(bcIndex, ir);
+      check0.setExecutionFrequency(frequency);
+      check1.setExecutionFrequency(frequency);
+      fill.setExecutionFrequency(frequency);
+      pad.setExecutionFrequency(frequency);
+      pad.setLandingPad();
+
+      pred.redirectOuts(header, check0, ir);
+      ir.cfg.insertAfterInCodeOrder(pred, check0);
+      ir.cfg.insertAfterInCodeOrder(check0, check1);
+      ir.cfg.insertAfterInCodeOrder(check1, fill);
+      ir.cfg.insertAfterInCodeOrder(fill, pad);
+
+      Operand array = AStore.getArray(store);
+      RegisterOperand arrayGuard = ir.regpool.makeTempValidation();
+      check0.appendInstruction(IfCmp.create(REF_IFCMP, arrayGuard, copy(array), new NullConstantOperand(),
+                                            ConditionOperand.EQUAL(), pad.makeJumpTarget(),
+                                            BranchProfileOperand.unlikely()));
+      RegisterOperand boundGuard = arrayGuard;
+      if (boundArray != null && !isSameRegister(boundArray, array)) {
+        boundGuard = ir.regpool.makeTempValidation();
+        check0.appendInstruction(IfCmp.create(REF_IFCMP, boundGuard, copy(boundArray), new NullConstantOperand(),
+                                              ConditionOperand.EQUAL(), pad.makeJumpTarget(),
+                                              BranchProfileOperand.unlikely()));
+      }
+      check0.appendInstruction(Goto.create(GOTO, check1.makeJumpTarget()));
+
+      RegisterOperand length = ir.regpool.makeTempInt();
+      check1.appendInstruction(GuardedUnary.create(ARRAYLENGTH, length, copy(array), arrayGuard.copyD2U()));
+      Operand n;
+      if (boundArray != null) {
+        RegisterOperand boundLength = ir.regpool.makeTempInt();
+        check1.appendInstruction(GuardedUnary.create(ARRAYLENGTH, boundLength, copy(boundArray),
+                                                     boundGuard.copyD2U()));
+        n = boundLength;
+      } else {
+        n = bound;
+      }
+      check1.appendInstruction(IfCmp.create(INT_IFCMP, ir.regpool.makeTempValidation(), index(),
+                                            new IntConstantOperand(0), ConditionOperand.LESS(),
+                                            pad.makeJumpTarget(), BranchProfileOperand.unlikely()));
+      check1.appendInstruction(IfCmp.create(INT_IFCMP, ir.regpool.makeTempValidation(), index(),
+                                            copy(n), ConditionOperand.GREATER_EQUAL(),
+                                            pad.makeJumpTarget(), BranchProfileOperand.unlikely()));
+      check1.appendInstruction(IfCmp.create(INT_IFCMP, ir.regpool.makeTempValidation(), copy(n),
+                                            length.copyD2U(), ConditionOperand.GREATER(),
+                                            pad.makeJumpTarget(), BranchProfileOperand.unlikely()));
+      check1.appendInstruction(Goto.create(GOTO, fill.makeJumpTarget()));
+
+      RVMMethod target;
+      Operand value = AStore.getValue(store);
+      switch (store.getOpcode()) {
+        case BYTE_ASTORE_opcode:
+          target = Entrypoints.arrayFill8BitMethod;
+          value = copy(value);
+          break;
+        case SHORT_ASTORE_opcode:
+          target = Entrypoints.arrayFill16BitMethod;
+          value = copy(value);
+          break;
+        case INT_ASTORE_opcode:
+          target = Entrypoints.arrayFill32BitMethod;
+          value = copy(value);
+          break;
+        case FLOAT_ASTORE_opcode:
+          target = Entrypoints.arrayFill32BitMethod;
+          if (value instanceof FloatConstantOperand) {
+            value = new IntConstantOperand(Float.floatToRawIntBits(((FloatConstantOperand) value).value));
+          } else {
+            RegisterOperand bits = ir.regpool.makeTempInt();
+            fill.appendInstruction(Unary.create(FLOAT_AS_INT_BITS, bits, copy(value)));
+            value = bits.copyD2U();
+          }
+          break;
+        case LONG_ASTORE_opcode:
+          target = Entrypoints.arrayFill64BitMethod;
+          value = copy(value);
+          break;
+        default:
+          target = Entrypoints.arrayFill64BitMethod;
+          if (value instanceof DoubleConstantOperand) {
+            value = new LongConstantOperand(Double.doubleToRawLongBits(((DoubleConstantOperand) value).value));
+          } else {
+            RegisterOperand bits = ir.regpool.makeTempLong();
+            fill.appendInstruction(Unary.create(DOUBLE_AS_LONG_BITS, bits, copy(value)));
+            value = bits.copyD2U();
+          }
+          break;
+      }
+      fill.appendInstruction(Call.create4(CALL, null, IRTools.AC(target.getOffset()), MethodOperand.STATIC(target),
+                                          null, copy(array), index(), copy(n), value));
+      fill.appendInstruction(Move.create(INT_MOVE, new RegisterOperand(iterator, TypeReference.Int), copy(n)));
+      fill.appendInstruction(Goto.create(GOTO, exit.makeJumpTarget()));
+
+      pad.appendInstruction(Goto.create(GOTO, header.makeJumpTarget()));
+
+      check0.recomputeNormalOut(ir);
+      check1.recomputeNormalOut(ir);
+      fill.recomputeNormalOut(ir);
+      pad.recomputeNormalOut(ir);
+    }
+
+    private RegisterOperand index() {
+      return new RegisterOperand(iterator, TypeReference.Int);
+    }
+  }
+
+  /**
+   * Copies an operand for use outside the loop, dropping any
+   * guard that a register operand carries from inside the loop.
+   *
+   * @param op the operand
+   * @return a copy of the operand
+   */
+  private static Operand copy(Operand op) {
+    if (op.isRegister()) {
+      return new RegisterOperand(op.asRegister().getRegister(), op.asRegister().getType());
+    }
+    return op.copy();
+  }
+
+  /**
+   * The fill routines write the array directly, so a loop can only be
+   * replaced when the plan needs no barrier on its stores.  Byte and
+   * short stores also cover boolean and char arrays.
+   *
+   * @param store the array store of the loop
+   * @return whether the plan needs a barrier on the store
+   */
+  private static boolean needsStoreBarrier(Instruction store) {
+    switch (store.getOpcode()) {
+      case BYTE_ASTORE_opcode:
+        return Barriers.NEEDS_BYTE_ASTORE_BARRIER || Barriers.NEEDS_BOOLEAN_ASTORE_BARRIER;
+      case SHORT_ASTORE_opcode:
+        return Barriers.NEEDS_SHORT_ASTORE_BARRIER || Barriers.NEEDS_CHAR_ASTORE_BARRIER;
+      case INT_ASTORE_opcode:
+        return Barriers.NEEDS_INT_ASTORE_BARRIER;
+      case FLOAT_ASTORE_opcode:
+        return Barriers.NEEDS_FLOAT_ASTORE_BARRIER;
+      case LONG_ASTORE_opcode:
+        return Barriers.NEEDS_LONG_ASTORE_BARRIER;
+      default:
+        return Barriers.NEEDS_DOUBLE_ASTORE_BARRIER;
+    }
+  }
+
+  private static boolean inLoop(Instruction s, BitVector loop) {
+    return CFGTransformations.inLoop(s.getBasicBlock(), loop);
+  }
+
+  private static boolean isRegister(Operand op, Register r) {
+    return op != null && op.isRegister() && op.asRegister().getRegister() == r;
+  }
+
+  private static boolean isSameRegister(Operand op1, Operand op2) {
+    return op2.isRegister() && isRegister(op1, op2.asRegister().getRegister());
+  }
+
+  /**
+   * @param op an operand
+   * @param loop the blocks of a loop
+   * @return whether the operand is a constant or a register
+   *  that is not defined in the loop
+   */
+  private static boolean isInvariant(Operand op, BitVector loop) {
+    if (op.isConstant()) return true;
+    if (!op.isRegister()) return false;
+    for (RegisterOperand def = op.asRegister().getRegister().defList; def != null; def = def.getNext()) {
+      if (inLoop(def.instruction, loop)) return false;
+    }
+    return true;
+  }
+}
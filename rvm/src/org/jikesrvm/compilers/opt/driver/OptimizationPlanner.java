@@ -36,6 +36,7 @@ import org.jikesrvm.compilers.opt.controlflow.CFGTransformations;
 import org.jikesrvm.compilers.opt.controlflow.DominanceFrontier;
 import org.jikesrvm.compilers.opt.controlflow.DominatorsPhase;
 import org.jikesrvm.compilers.opt.controlflow.EstimateBlockFrequencies;
+import org.jikesrvm.compilers.opt.controlflow.FillLoopRecognition;
 import org.jikesrvm.compilers.opt.controlflow.LoopUnrolling;
 import org.jikesrvm.compilers.opt.controlflow.ReorderingPhase;
 import org.jikesrvm.compilers.opt.controlflow.StaticSplitting;
@@ -46,6 +47,7 @@ import org.jikesrvm.compilers.opt.hir2lir.ConvertHIRtoLIR;
 import org.jikesrvm.compilers.opt.hir2lir.ExpandRuntimeServices;
 import org.jikesrvm.compilers.opt.ir.IR;
 import org.jikesrvm.compilers.opt.regalloc.CoalesceMoves;
+import org.jikesrvm.compilers.opt.ssa.ArrayBoundsCheckElimination;
 import org.jikesrvm.compilers.opt.ssa.GCP;
 import org.jikesrvm.compilers.opt.ssa.LeaveSSA;
 import org.jikesrvm.compilers.opt.ssa.LiveRangeSplitting;
@@ -266,6 +268,9 @@ public class OptimizationPlanner {
     // Simple escape analysis and related transformations
     addComponent(p, new EscapeTransformations());
 
+    // Replace loops that fill arrays by calls to a fill routine
+    addComponent(p, new FillLoopRecognition());
+
     // Perform peephole branch optimizations to clean-up before SSA stuff
     addComponent(p, new BranchOptimizations(1, true, true));
 
@@ -334,6 +339,8 @@ public class OptimizationPlanner {
             new LoadElimination(5),
             // eliminate redundant conditional branches
             new RedundantBranchElimination(),
+            // eliminate redundant array bounds checks
+            new ArrayBoundsCheckElimination(),
             // path sensitive constant propagation
             new SSATuneUp(),
             // clean up Pi Nodes
@@ -17,6 +17,7 @@ import static org.jikesrvm.compilers.opt.ir.Operators.MONITOREXIT;
 import static org.jikesrvm.compilers.opt.ir.Operators.NEWARRAY_opcode;
 import static org.jikesrvm.compilers.opt.ir.Operators.NEW_opcode;
 
+import org.jikesrvm.VM;
 import org.jikesrvm.classloader.RVMType;
 import org.jikesrvm.compilers.opt.DefUse;
 import org.jikesrvm.compilers.opt.LocalConstantProp;
@@ -42,6 +43,8 @@ import org.jikesrvm.compilers.opt.ir.operand.RegisterOperand;
  * <ul>
  *  <li> 1. synchronization removal
  *  <li> 2. scalar replacement of aggregates and short arrays
+ *  <li> 3. scalar replacement of objects that escape only on infrequent
+ *          paths, which are allocated on those paths instead
  * </ul>
  */
 public class EscapeTransformations extends CompilerPhase {
@@ -68,7 +71,7 @@ public class EscapeTransformations extends CompilerPhase {
 
   @Override
   public final boolean shouldPerform(OptOptions options) {
-    return options.ESCAPE_MONITOR_REMOVAL || options.ESCAPE_SCALAR_REPLACE_AGGREGATES;
+    return options.ESCAPE_MONITOR_REMOVAL || options.ESCAPE_SCALAR_REPLACE_AGGREGATES || options.ESCAPE_PARTIAL;
   }
 
   @Override
@@ -92,10 +95,15 @@ public class EscapeTransformations extends CompilerPhase {
     DefUse.computeDU(ir);
     DefUse.recomputeSSA(ir);
     SimpleEscape analyzer = new SimpleEscape();
+    int replaced = 0;
+    int materialized = 0;
+    int unsynced = 0;
     // do multiple passes to catch chains of objects that can be removed
     boolean removedAggregate;
+    boolean materializedAggregate;
     do {
       removedAggregate = false;
+      materializedAggregate = false;
       FI_EscapeSummary summary = analyzer.simpleEscapeAnalysis(ir);
       // pass through registers. look for registers that point
       // to objects that do not escape. When found,
@@ -123,6 +131,16 @@ public class EscapeTransformations extends CompilerPhase {
             // org.jikesrvm.VM.sysWrite("Scalar replacing "+def+" in "+ir.method+"\n");
             s.transform();
             removedAggregate = true;
+            replaced++;
+          }
+        } else if (ir.options.ESCAPE_SCALAR_REPLACE_AGGREGATES && ir.options.ESCAPE_PARTIAL &&
+                   def.getOpcode() == NEW_opcode && New.getType(def).getVMType().isClassType()) {
+          // the object escapes. If it only escapes on infrequent paths,
+          // allocate it there so that the next pass can replace it
+          PartialEscapeReplacer p = PartialEscapeReplacer.getReplacer(def, ir);
+          if (p != null) {
+            materialized += p.transform();
+            materializedAggregate = true;
           }
         }
         // *********************************************************
@@ -136,6 +154,7 @@ public class EscapeTransformations extends CompilerPhase {
           if (unsync != null) {
             // VM.sysWrite("Removing synchronization on "+def+" in "+ir.method+"\n");
             unsync.transform();
+            unsynced++;
           }
         }
       }
@@ -144,7 +163,12 @@ public class EscapeTransformations extends CompilerPhase {
         // org.jikesrvm.VM.sysWrite("Cleaning up IR in "+ir.method+"\n");
         escapeCleanUp.perform(ir);
       }
-    } while (removedAggregate);
+    } while (removedAggregate || materializedAggregate);
+    if (ir.options.PRINT_ESCAPE_REPORT &&
+        (!ir.options.hasMETHOD_TO_PRINT() || ir.options.fuzzyMatchMETHOD_TO_PRINT(ir.method.toString()))) {
+      VM.sysWrite("Escape transformations in " + ir.method + ": " + replaced + " allocations scalar replaced, " +
+                  materialized + " allocations moved to infrequent paths, " + unsynced + " objects unsynchronized\n");
+    }
   }
 
   /**
@@ -0,0 +1,256 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.opt.escape;
+
+import static org.jikesrvm.compilers.opt.ir.Operators.GETFIELD;
+import static org.jikesrvm.compilers.opt.ir.Operators.GETFIELD_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.GET_OBJ_TIB_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.MONITORENTER_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.MONITOREXIT_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.NEW;
+import static org.jikesrvm.compilers.opt.ir.Operators.NULL_CHECK_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.PUTFIELD;
+import static org.jikesrvm.compilers.opt.ir.Operators.PUTFIELD_opcode;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.jikesrvm.classloader.RVMClass;
+import org.jikesrvm.classloader.RVMField;
+import org.jikesrvm.compilers.opt.DefUse;
+import org.jikesrvm.compilers.opt.ir.BasicBlock;
+import org.jikesrvm.compilers.opt.ir.GetField;
+import org.jikesrvm.compilers.opt.ir.IR;
+import org.jikesrvm.compilers.opt.ir.Instruction;
+import org.jikesrvm.compilers.opt.ir.New;
+import org.jikesrvm.compilers.opt.ir.PutField;
+import org.jikesrvm.compilers.opt.ir.Register;
+import org.jikesrvm.compilers.opt.ir.operand.AddressConstantOperand;
+import org.jikesrvm.compilers.opt.ir.operand.LocationOperand;
+import org.jikesrvm.compilers.opt.ir.operand.Operand;
+import org.jikesrvm.compilers.opt.ir.operand.RegisterOperand;
+import org.jikesrvm.compilers.opt.ir.operand.TrueGuardOperand;
+import org.jikesrvm.compilers.opt.ir.operand.TypeOperand;
+
+/**
+ * Class that prepares an object that escapes only on infrequent paths
+ * for scalar replacement.<p>
+ *
+ * In each infrequent block where the object escapes, a copy of the object
+ * is allocated and initialized from the original just before it first
+ * escapes, and the remaining uses in the block are made to use the copy.
+ * The original is then method local, so {@link ObjectReplacer} removes its
+ * allocation, and the frequent paths no longer allocate at all.<p>
+ *
+ * The copy is only correct if the original is dead once the copy exists,
+ * so each such block must not be part of a loop, and no other block that
+ * uses the original may be reachable from it.
+ */
+final class PartialEscapeReplacer {
+  /**
+   * type of the object
+   */
+  private final RVMClass klass;
+  /**
+   * the IR
+   */
+  private final IR ir;
+  /**
+   * the register holding the object reference
+   */
+  private final Register reg;
+  /**
+   * the infrequent blocks in which the object escapes
+   */
+  private final Set<BasicBlock> coldBlocks;
+  /**
+   * the instructions through which the object escapes
+   */
+  private final Set<Instruction> escapes;
+
+  /**
+   * Return an object representing this transformation for a given
+   * allocation site
+   *
+   * @param inst the allocation site
+   * @param ir the governing IR
+   * @return the object, or null if illegal
+   */
+  public static PartialEscapeReplacer getReplacer(Instruction inst, IR ir) {
+    Register r = New.getResult(inst).getRegister();
+    RVMClass klass = New.getType(inst).getVMType().asClass();
+    if (klass.hasFinalizer() || inst.getBasicBlock().getInfrequent()) {
+      return null;
+    }
+    Set<BasicBlock> useBlocks = new HashSet<BasicBlock>();
+    Set<BasicBlock> coldBlocks = new LinkedHashSet<BasicBlock>();
+    Set<Instruction> escapes = new HashSet<Instruction>();
+    for (RegisterOperand use = r.useList; use != null; use = use.getNext()) {
+      BasicBlock bb = use.instruction.getBasicBlock();
+      useBlocks.add(bb);
+      if (!isLocalUse(use)) {
+        if (!bb.getInfrequent()) {
+          return null;
+        }
+        coldBlocks.add(bb);
+        escapes.add(use.instruction);
+      }
+    }
+    if (coldBlocks.isEmpty()) {
+      return null;
+    }
+    // the original must be dead once a copy has been made
+    for (BasicBlock bb : coldBlocks) {
+      Set<BasicBlock> reachable = reachableFrom(bb);
+      if (reachable.contains(bb)) {
+        return null;
+      }
+      for (BasicBlock useBlock : useBlocks) {
+        if (reachable.contains(useBlock)) {
+          return null;
+        }
+      }
+    }
+    return new PartialEscapeReplacer(r, klass, coldBlocks, escapes, ir);
+  }
+
+  /**
+   * @param r the register holding the object reference
+   * @param klass the type of the object
+   * @param coldBlocks the infrequent blocks in which the object escapes
+   * @param escapes the instructions through which the object escapes
+   * @param ir the IR
+   */
+  private PartialEscapeReplacer(Register r, RVMClass klass, Set<BasicBlock> coldBlocks,
+                                Set<Instruction> escapes, IR ir) {
+    this.reg = r;
+    this.klass = klass;
+    this.coldBlocks = coldBlocks;
+    this.escapes = escapes;
+    this.ir = ir;
+  }
+
+  /**
+   * Perform the transformation
+   *
+   * @return the number of copies of the object that were allocated
+   */
+  public int transform() {
+    RegisterOperand def = reg.defList;
+    for (BasicBlock bb : coldBlocks) {
+      // find the first instruction through which the object escapes
+      Instruction first = null;
+      Set<Instruction> tail = new HashSet<Instruction>();
+      for (Enumeration<Instruction> e = bb.forwardInstrEnumerator(); e.hasMoreElements();) {
+        Instruction s = e.nextElement();
+        if (first == null && escapes.contains(s)) {
+          first = s;
+        }
+        if (first != null) {
+          tail.add(s);
+        }
+      }
+      RegisterOperand copy = materialize(first, def);
+      // uses from the first escape on refer to the copy
+      ArrayList<RegisterOperand> uses = new ArrayList<RegisterOperand>();
+      for (RegisterOperand use = reg.useList; use != null; use = use.getNext()) {
+        if (tail.contains(use.instruction)) {
+          uses.add(use);
+        }
+      }
+      for (RegisterOperand use : uses) {
+        DefUse.transferUse(use, copy);
+      }
+    }
+    return coldBlocks.size();
+  }
+
+  /**
+   * Allocate a copy of the object and copy the object's fields into it.
+   *
+   * @param before the instruction before which the copy is made
+   * @param def the definition of the original object
+   * @return the register holding the copy
+   */
+  private RegisterOperand materialize(Instruction before, RegisterOperand def) {
+    RegisterOperand copy = ir.regpool.makeTemp(def);
+    Instruction alloc = New.create(NEW, copy, (TypeOperand) New.getType(def.instruction).copy());
+    before.insertBefore(alloc);
+    DefUse.updateDUForNewInstruction(alloc);
+    for (RVMField f : klass.getInstanceFields()) {
+      RegisterOperand value = ir.regpool.makeTemp(f.getType());
+      Instruction get = GetField.create(GETFIELD, value, def.copyD2U(),
+                                        new AddressConstantOperand(f.getOffset()),
+                                        new LocationOperand(f), new TrueGuardOperand());
+      Instruction put = PutField.create(PUTFIELD, value.copyD2U(), copy.copyD2U(),
+                                        new AddressConstantOperand(f.getOffset()),
+                                        new LocationOperand(f), new TrueGuardOperand());
+      before.insertBefore(get);
+      before.insertBefore(put);
+      DefUse.updateDUForNewInstruction(get);
+      DefUse.updateDUForNewInstruction(put);
+    }
+    return copy.copyD2U();
+  }
+
+  /**
+   * Is a use of the object one that {@link ObjectReplacer} can replace
+   * without the object escaping?
+   *
+   * @param use the use to check
+   * @return {@code true} if the use does not need the object to exist
+   */
+  private static boolean isLocalUse(RegisterOperand use) {
+    Instruction inst = use.instruction;
+    switch (inst.getOpcode()) {
+      case GETFIELD_opcode:
+        return GetField.getRef(inst) == use;
+      case PUTFIELD_opcode: {
+        Operand value = PutField.getValue(inst);
+        return PutField.getRef(inst) == use &&
+            !(value.isRegister() && value.asRegister().getRegister() == use.getRegister());
+      }
+      case NULL_CHECK_opcode:
+      case GET_OBJ_TIB_opcode:
+      case MONITORENTER_opcode:
+      case MONITOREXIT_opcode:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * @param bb a basic block
+   * @return the blocks reachable from the given block's successors in
+   *  the factored control flow graph
+   */
+  private static Set<BasicBlock> reachableFrom(BasicBlock bb) {
+    Set<BasicBlock> reachable = new HashSet<BasicBlock>();
+    ArrayList<BasicBlock> worklist = new ArrayList<BasicBlock>();
+    worklist.add(bb);
+    while (!worklist.isEmpty()) {
+      BasicBlock b = worklist.remove(worklist.size() - 1);
+      for (Enumeration<BasicBlock> e = b.getOut(); e.hasMoreElements();) {
+        BasicBlock succ = e.nextElement();
+        if (reachable.add(succ)) {
+          worklist.add(succ);
+        }
+      }
+    }
+    return reachable;
+  }
+}
@@ -22,6 +22,9 @@ import org.jikesrvm.adaptive.database.callgraph.WeightedCallTargets;
 import org.jikesrvm.classloader.NormalMethod;
 import org.jikesrvm.classloader.RVMClass;
 import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.classloader.RVMType;
+import org.jikesrvm.compilers.baseline.ReceiverTypeProfile;
+import org.jikesrvm.compilers.baseline.ReceiverTypeProfiles;
 import org.jikesrvm.compilers.common.CompiledMethod;
 import org.jikesrvm.compilers.opt.OptOptions;
 import org.jikesrvm.compilers.opt.driver.OptimizingCompiler;
@@ -36,6 +39,9 @@ import org.jikesrvm.scheduler.RVMThread;
  *  <li>Always inline trivial methods that can be inlined without a guard
  *  <li>At O1 and greater use a mix of profile information and static heuristics
  *      to inline larger methods and methods that require guards.
+ *      The profile information comes from the dynamic call graph or, for call
+ *      sites the call graph knows nothing about, from the receiver type
+ *      profiles of baseline compiled code.
  * </ol>
  */
 public final class DefaultInlineOracle extends InlineTools implements InlineOracle {
@@ -141,6 +147,13 @@ public final class DefaultInlineOracle extends InlineTools implements InlineOrac
         }
       }
     }
+    if (targets == null && opts.INLINE_RECEIVER_PROFILES && !state.getHasPreciseTarget()) {
+      targets = getReceiverProfileTargets(caller, bcIndex, staticCallee, opts, verbose);
+      if (targets != null) {
+        if (verbose) VM.sysWriteln("\tFound receiver type profile");
+        purelyStatic = false;
+      }
+    }
 
     // Critical section: must prevent class hierarchy from changing while
     // we are inspecting it to determine how/whether to do the inline guard.
@@ -427,6 +440,56 @@ public final class DefaultInlineOracle extends InlineTools implements InlineOrac
     }
   }
 
+  /**
+   * Derive the likely targets of a virtual or interface call from the
+   * receiver type profile that baseline code collected for the call site.
+   * Only strongly skewed profiles are used: the (at most two) selected
+   * receiver types must each account for at least
+   * {@link OptOptions#INLINE_AI_MIN_CALLSITE_FRACTION} and together for at least
+   * {@link OptOptions#INLINE_RECEIVER_PROFILE_MIN_COVERAGE} of the receivers.
+   * The weight of each target is the fraction of receivers that dispatched to it.
+   *
+   * @param caller the method containing the call site
+   * @param bcIndex the bytecode index of the call site
+   * @param staticCallee the statically resolved callee
+   * @param opts controlling options object
+   * @param verbose whether to print a detailed report
+   * @return the profiled targets or {@code null} if there is no usable profile
+   */
+  private WeightedCallTargets getReceiverProfileTargets(RVMMethod caller, int bcIndex, RVMMethod staticCallee,
+                                                        OptOptions opts, boolean verbose) {
+    if (!(caller instanceof NormalMethod) || staticCallee.isStatic() || staticCallee.isObjectInitializer()) {
+      return null;
+    }
+    ReceiverTypeProfile profile = ReceiverTypeProfiles.getProfile((NormalMethod) caller, bcIndex);
+    if (profile == null) return null;
+    long total = profile.getTotalCount();
+    if (total < opts.INLINE_RECEIVER_PROFILE_MIN_SAMPLES) return null;
+    if (verbose) VM.sysWriteln("\tReceiver type profile: " + profile);
+
+    WeightedCallTargets result = null;
+    long covered = 0;
+    for (int i = 0; i < profile.getNumberOfTypes() && i < 2; i++) {
+      double fraction = (double) profile.getCount(i) / total;
+      if (fraction < opts.INLINE_AI_MIN_CALLSITE_FRACTION) break;
+      RVMType type = profile.getType(i);
+      if (!type.isClassType() || !type.isResolved()) continue;
+      RVMMethod target = type.findVirtualMethod(staticCallee.getName(), staticCallee.getDescriptor());
+      if (target == null) continue;
+      covered += profile.getCount(i);
+      if (result == null) {
+        result = WeightedCallTargets.create(target, fraction);
+      } else {
+        result = result.augmentCount(target, fraction);
+      }
+    }
+    if (result == null || covered < total * opts.INLINE_RECEIVER_PROFILE_MIN_COVERAGE) {
+      if (verbose) VM.sysWriteln("\tReceiver type profile not skewed enough");
+      return null;
+    }
+    return result.filter(staticCallee, false);
+  }
+
   /**
    * Logic to select the appropriate guarding mechanism for the edge
    * from caller to callee according to the controlling {@link OptOptions}.
@@ -261,6 +261,21 @@ public abstract class GenericStackManager extends IRTools {
    */
   private ActiveSet activeSet = null;
 
+  /**
+   * The number of stores to spill locations inserted by the spill code
+   */
+  private int spillCount;
+
+  /**
+   * The number of loads from spill locations inserted by the spill code
+   */
+  private int reloadCount;
+
+  /**
+   * The number of operands replaced by their spill locations
+   */
+  private int spillOperandCount;
+
   /**
    * Replaces all occurrences of register r1 in an instruction with register
    * r2.
@@ -339,6 +354,7 @@ public abstract class GenericStackManager extends IRTools {
     if (scratchContents != null) {
       int location = regAllocState.getSpill(scratchContents);
       insertSpillBefore(s, scratch.scratch, scratchContents, location);
+      spillCount++;
     }
 
   }
@@ -355,6 +371,7 @@ public abstract class GenericStackManager extends IRTools {
       // Restore the live contents into the scratch register.
       int location = regAllocState.getSpill(scratch.scratch);
       insertUnspillBefore(s, scratch.scratch, scratch.scratch, location);
+      reloadCount++;
     }
   }
 
@@ -527,6 +544,7 @@ public abstract class GenericStackManager extends IRTools {
       int location2 = regAllocState.getSpill(symb);
       if (location != location2) {
         insertSpillBefore(s, sr.scratch, current, location);
+        spillCount++;
       }
     }
 
@@ -705,6 +723,7 @@ public abstract class GenericStackManager extends IRTools {
       // location previous assigned to symbReg
       int location = regAllocState.getSpill(symb);
       insertUnspillBefore(s, sr.scratch, symb, location);
+      reloadCount++;
 
       // we have not yet written to sr, so mark it 'clean'
       sr.setDirty(false);
@@ -749,10 +768,12 @@ public abstract class GenericStackManager extends IRTools {
       // r if necessary.
       if (activeSet == null) {
         insertSpillBefore(s, r, r, spillLocation);
+        spillCount++;
         sr.setHadToSpill(true);
       } else {
         if (!isDeadBefore(r, s)) {
           insertSpillBefore(s, r, r, spillLocation);
+          spillCount++;
           sr.setHadToSpill(true);
         }
       }
@@ -1157,6 +1178,7 @@ public abstract class GenericStackManager extends IRTools {
                   if (VM.BuildForIA32) {
                     // No need to use a scratch register here.
                     replaceOperandWithSpillLocation(s, op.asRegister());
+                    spillOperandCount++;
                   } else {
                     if (VM.VerifyAssertions) {
                       if (s.operator() != YIELDPOINT_OSR) {
@@ -1183,6 +1205,30 @@ public abstract class GenericStackManager extends IRTools {
     }
   }
 
+  /**
+   * @return the number of stores to spill locations inserted by
+   *  {@link #insertSpillCode(ActiveSet)}
+   */
+  public final int getSpillCount() {
+    return spillCount;
+  }
+
+  /**
+   * @return the number of loads from spill locations inserted by
+   *  {@link #insertSpillCode(ActiveSet)}
+   */
+  public final int getReloadCount() {
+    return reloadCount;
+  }
+
+  /**
+   * @return the number of operands that {@link #insertSpillCode(ActiveSet)}
+   *  replaced by their spill locations
+   */
+  public final int getSpillOperandCount() {
+    return spillOperandCount;
+  }
+
   /**
    * Insert a spill of a physical register before instruction s.
    *
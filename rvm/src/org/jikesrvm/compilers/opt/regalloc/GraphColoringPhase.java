@@ -0,0 +1,536 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.opt.regalloc;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.compilers.opt.OptOptions;
+import org.jikesrvm.compilers.opt.OptimizingCompilerException;
+import org.jikesrvm.compilers.opt.driver.CompilerPhase;
+import org.jikesrvm.compilers.opt.ir.GenericPhysicalRegisterSet;
+import org.jikesrvm.compilers.opt.ir.IR;
+import org.jikesrvm.compilers.opt.ir.Register;
+import org.jikesrvm.compilers.opt.util.GraphEdge;
+import org.jikesrvm.compilers.opt.util.SpaceEffGraphNode;
+
+/**
+ * Graph coloring register allocation, an alternative to
+ * {@link LinearScanPhase} for the methods that are worth the extra
+ * compile time.<p>
+ *
+ * The allocator follows Chaitin and Briggs: it builds an interference
+ * graph between the live intervals computed by {@link IntervalAnalysis},
+ * simplifies the graph by removing nodes of insignificant degree (and,
+ * when there are none, the node with the least spill cost per neighbour),
+ * and then colors the nodes in the reverse order of their removal,
+ * optimistically trying to color the nodes that were removed as potential
+ * spills. Moves are not coalesced by merging nodes; instead the choice of
+ * color is biased towards the registers preferred by the
+ * {@link CoalesceGraph}.<p>
+ *
+ * A color is only ever chosen if the interval does not intersect the
+ * compound interval of the physical register, which holds both the uses
+ * of the physical register itself and the intervals already assigned to
+ * it. The results are therefore kept in the same form as those of linear
+ * scan, and the spill code and GC map phases that follow work unchanged.
+ */
+final class GraphColoringPhase extends CompilerPhase {
+
+  private static final Constructor<CompilerPhase> constructor = getCompilerPhaseConstructor(GraphColoringPhase.class);
+
+  /**
+   * A node of the interference graph.
+   */
+  private static final class Node {
+    /** the live interval of a symbolic register */
+    final CompoundInterval interval;
+    /** the number of registers that could hold the interval */
+    final int colors;
+    /** the estimated cost of spilling the interval */
+    final double cost;
+    /** may the interval be spilled? */
+    final boolean mustNotSpill;
+    /** the interfering nodes */
+    final LinkedHashSet<Node> neighbors = new LinkedHashSet<Node>();
+    /** the number of neighbors still in the graph during simplification */
+    int degree;
+    /** has the node been removed from the graph? */
+    boolean removed;
+
+    Node(CompoundInterval interval, int colors, double cost, boolean mustNotSpill) {
+      this.interval = interval;
+      this.colors = colors;
+      this.cost = cost;
+      this.mustNotSpill = mustNotSpill;
+    }
+  }
+
+  /**
+   * A node that may have to be spilled, ordered by its spill cost per
+   * neighbor at the time it was queued.
+   */
+  private static final class SpillCandidate implements Comparable<SpillCandidate> {
+    final Node node;
+    /** the degree of the node when it was queued */
+    final int degree;
+    final double metric;
+
+    SpillCandidate(Node node) {
+      this.node = node;
+      this.degree = node.degree;
+      this.metric = node.cost / (node.degree + 1);
+    }
+
+    @Override
+    public int compareTo(SpillCandidate other) {
+      return Double.compare(metric, other.metric);
+    }
+  }
+
+  /**
+   * Manager of spill locations
+   */
+  private SpillLocationManager spillManager;
+
+  private RegisterAllocatorState regAllocState;
+
+  private GenericRegisterRestrictions restrict;
+
+  private GenericPhysicalRegisterSet phys;
+
+  /**
+   * The intervals colored so far, by physical register
+   */
+  private HashMap<Register, ArrayList<CompoundInterval>> assigned;
+
+  private boolean spilled;
+
+  /**
+   * @param options the compiler options
+   * @return whether graph coloring rather than linear scan should be
+   *  used for a compilation with the given options
+   */
+  static boolean isSelected(OptOptions options) {
+    int level = options.REGALLOC_GRAPH_COLORING_LEVEL;
+    return level >= 0 && options.getOptLevel() >= level;
+  }
+
+  /**
+   * {@inheritDoc}
+   * @return compiler phase constructor
+   */
+  @Override
+  public Constructor<CompilerPhase> getClassConstructor() {
+    return constructor;
+  }
+
+  @Override
+  public boolean shouldPerform(OptOptions options) {
+    return isSelected(options);
+  }
+
+  @Override
+  public String getName() {
+    return "Graph Coloring";
+  }
+
+  @Override
+  public boolean printingEnabled(OptOptions options, boolean before) {
+    return false;
+  }
+
+  /**
+   * Perform graph coloring register allocation.
+   *
+   * @param ir the IR
+   */
+  @Override
+  public void perform(IR ir) {
+    spillManager = new SpillLocationManager(ir);
+    regAllocState = ir.MIRInfo.regAllocState;
+    restrict = ir.stackManager.getRestrictions();
+    phys = ir.regpool.getPhysicalRegisterSet();
+    assigned = new HashMap<Register, ArrayList<CompoundInterval>>();
+    spilled = false;
+
+    SpillCostEstimator spillCost = LinearScanPhase.determineSpillCostEstimator(ir);
+    // The spill code phase relies on the active set to find dead
+    // physical registers; it only uses the intervals recorded in
+    // regAllocState, so an empty set is all that is needed.
+    ir.MIRInfo.linearScanState.active = new ActiveSet(ir, spillManager, spillCost);
+
+    ArrayList<Node> nodes = buildInterferenceGraph(ir, spillCost);
+    ArrayList<Node> stack = simplify(nodes);
+    for (int i = stack.size() - 1; i >= 0; i--) {
+      select(ir, stack.get(i));
+    }
+
+    if (spilled) {
+      ir.MIRInfo.linearScanState.spilledSomething = true;
+    }
+  }
+
+  /**
+   * Builds the interference graph by sweeping over the basic intervals
+   * in order of increasing start point. Intervals of physical registers
+   * are not part of the graph; they are accounted for when colors
+   * are selected.
+   *
+   * @param ir the IR
+   * @param spillCost the spill cost estimates
+   * @return the nodes of the graph
+   */
+  private ArrayList<Node> buildInterferenceGraph(IR ir, SpillCostEstimator spillCost) {
+    // keyed by register, as compound intervals compare equal by their ranges
+    LinkedHashMap<Register, Node> nodes = new LinkedHashMap<Register, Node>();
+    HashMap<Integer, Integer> colorsByType = new HashMap<Integer, Integer>();
+    ArrayList<MappedBasicInterval> live = new ArrayList<MappedBasicInterval>();
+
+    for (BasicInterval b : ir.MIRInfo.linearScanState.intervals) {
+      MappedBasicInterval bi = (MappedBasicInterval) b;
+      CompoundInterval ci = bi.container;
+      Register r = ci.getRegister();
+
+      if (r.isPhysical()) {
+        // Mark the physical register as used by the method, leaving it
+        // free as linear scan does once the interval has expired.
+        r.allocateRegister();
+        r.deallocateRegister();
+        continue;
+      }
+
+      if (ir.options.FREQ_FOCUS_EFFORT && ci.isInfrequent() && !restrict.mustNotSpill(r)) {
+        // don't bother trying to find a register
+        if (!ci.isSpilled(regAllocState)) {
+          spill(ci);
+        }
+        continue;
+      }
+
+      Node n = nodes.get(r);
+      if (n == null) {
+        int type = GenericPhysicalRegisterSet.getPhysicalRegisterType(r);
+        Integer colors = colorsByType.get(type);
+        if (colors == null) {
+          colors = countColors(type);
+          colorsByType.put(type, colors);
+        }
+        n = new Node(ci, colors, spillCost.getCost(r), restrict.mustNotSpill(r));
+        nodes.put(r, n);
+      }
+
+      int start = bi.getBegin();
+      for (Iterator<MappedBasicInterval> e = live.iterator(); e.hasNext();) {
+        MappedBasicInterval other = e.next();
+        if (!other.endsAfter(start)) {
+          e.remove();
+          continue;
+        }
+        Node m = nodes.get(other.container.getRegister());
+        if (m != null && m != n &&
+            GenericPhysicalRegisterSet.getPhysicalRegisterType(m.interval.getRegister()) ==
+            GenericPhysicalRegisterSet.getPhysicalRegisterType(r)) {
+          n.neighbors.add(m);
+          m.neighbors.add(n);
+        }
+      }
+      live.add(bi);
+    }
+
+    ArrayList<Node> result = new ArrayList<Node>(nodes.values());
+    for (Node n : result) {
+      n.degree = n.neighbors.size();
+    }
+    return result;
+  }
+
+  /**
+   * @param type a physical register type
+   * @return the number of allocatable registers of the type
+   */
+  private int countColors(int type) {
+    int colors = 0;
+    for (Enumeration<Register> e = phys.enumerateVolatiles(type); e.hasMoreElements();) {
+      if (phys.isAllocatable(e.nextElement())) colors++;
+    }
+    for (Enumeration<Register> e = phys.enumerateNonvolatilesBackwards(type); e.hasMoreElements();) {
+      if (phys.isAllocatable(e.nextElement())) colors++;
+    }
+    return colors;
+  }
+
+  /**
+   * Removes the nodes from the graph one at a time, preferring nodes that
+   * are certain to be colorable. Nodes that must not be spilled are removed
+   * last, so that they are the first to be colored.
+   *
+   * @param nodes the nodes of the graph
+   * @return the nodes in the order they were removed
+   */
+  private ArrayList<Node> simplify(ArrayList<Node> nodes) {
+    ArrayList<Node> stack = new ArrayList<Node>(nodes.size());
+    ArrayList<Node> low = new ArrayList<Node>();
+    PriorityQueue<SpillCandidate> spills = new PriorityQueue<SpillCandidate>(Math.max(nodes.size(), 1));
+    for (Node n : nodes) {
+      if (!n.mustNotSpill) {
+        if (n.degree < n.colors) {
+          low.add(n);
+        } else {
+          spills.add(new SpillCandidate(n));
+        }
+      }
+    }
+
+    while (true) {
+      Node n = null;
+      while (n == null && !low.isEmpty()) {
+        Node candidate = low.remove(low.size() - 1);
+        if (!candidate.removed) n = candidate;
+      }
+      while (n == null && !spills.isEmpty()) {
+        // Every node left is of significant degree: choose the one that
+        // is cheapest to spill relative to the number of its neighbors.
+        // The degree of a node only falls, so the metric of a stale entry
+        // is a lower bound: requeue it with its current metric.
+        SpillCandidate candidate = spills.poll();
+        if (candidate.node.removed) continue;
+        if (candidate.degree != candidate.node.degree) {
+          spills.add(new SpillCandidate(candidate.node));
+        } else {
+          n = candidate.node;
+        }
+      }
+      if (n == null) break;
+      remove(n, stack, low);
+    }
+
+    for (Node n : nodes) {
+      if (!n.removed) {
+        remove(n, stack, null);
+      }
+    }
+    return stack;
+  }
+
+  private static void remove(Node n, ArrayList<Node> stack, ArrayList<Node> low) {
+    n.removed = true;
+    stack.add(n);
+    for (Node m : n.neighbors) {
+      if (!m.removed) {
+        m.degree--;
+        if (low != null && !m.mustNotSpill && m.degree == m.colors - 1) {
+          low.add(m);
+        }
+      }
+    }
+  }
+
+  /**
+   * Colors a node, or spills its interval if there is no color left.
+   *
+   * @param ir the IR
+   * @param n the node to color
+   */
+  private void select(IR ir, Node n) {
+    CompoundInterval ci = n.interval;
+    Register r = ci.getRegister();
+
+    if (ir.options.REGALLOC_COALESCE_MOVES) {
+      Register p = getPhysicalPreference(ir, ci);
+      if (p != null) {
+        assign(ci, p);
+        return;
+      }
+    }
+
+    int type = GenericPhysicalRegisterSet.getPhysicalRegisterType(r);
+    if (!restrict.allVolatilesForbidden(r)) {
+      for (Enumeration<Register> e = phys.enumerateVolatiles(type); e.hasMoreElements();) {
+        Register p = e.nextElement();
+        if (canAssign(ci, p)) {
+          assign(ci, p);
+          return;
+        }
+      }
+    }
+    for (Enumeration<Register> e = phys.enumerateNonvolatilesBackwards(type); e.hasMoreElements();) {
+      Register p = e.nextElement();
+      if (canAssign(ci, p)) {
+        assign(ci, p);
+        return;
+      }
+    }
+
+    if (!n.mustNotSpill) {
+      spill(ci);
+      return;
+    }
+
+    // The interval must be in a register: evict the intervals that hold
+    // a register it may use, if they can be spilled.
+    if (!restrict.allVolatilesForbidden(r)) {
+      for (Enumeration<Register> e = phys.enumerateVolatiles(type); e.hasMoreElements();) {
+        if (evictAndAssign(ci, e.nextElement())) return;
+      }
+    }
+    for (Enumeration<Register> e = phys.enumerateNonvolatilesBackwards(type); e.hasMoreElements();) {
+      if (evictAndAssign(ci, e.nextElement())) return;
+    }
+    OptimizingCompilerException.UNREACHABLE("GraphColoringPhase", "Could not allocate ", r.toString());
+  }
+
+  /**
+   * @param ci the interval to color
+   * @param p a physical register
+   * @return whether the interval may be assigned to the register
+   */
+  private boolean canAssign(CompoundInterval ci, Register p) {
+    if (p == null || !phys.isAllocatable(p) || p.isPinned() || restrict.isForbidden(ci.getRegister(), p)) {
+      return false;
+    }
+    CompoundInterval pInterval = regAllocState.getInterval(p);
+    return pInterval == null || !ci.intersects(pInterval);
+  }
+
+  private void assign(CompoundInterval ci, Register p) {
+    CompoundInterval pInterval = regAllocState.getInterval(p);
+    if (pInterval == null) {
+      regAllocState.setInterval(p, ci.copy(p));
+    } else {
+      if (VM.VerifyAssertions) VM._assert(!ci.intersects(pInterval));
+      pInterval.addAll(ci);
+    }
+    ci.assign(p);
+    ArrayList<CompoundInterval> list = assigned.get(p);
+    if (list == null) {
+      list = new ArrayList<CompoundInterval>();
+      assigned.put(p, list);
+    }
+    list.add(ci);
+    if (LinearScan.VERBOSE_DEBUG) System.out.println("Colored " + ci + " with " + p);
+  }
+
+  private void spill(CompoundInterval ci) {
+    ci.spill(spillManager, regAllocState);
+    // Every interval is allocated before any spill code is inserted, so
+    // the location may be shared with any interval that does not
+    // intersect this one.
+    spillManager.freeInterval(ci.getSpillInterval());
+    spilled = true;
+    if (LinearScan.VERBOSE_DEBUG) System.out.println("Spilled " + ci);
+  }
+
+  /**
+   * Assigns an interval to a physical register, spilling the intervals
+   * already assigned to the register that intersect it.
+   *
+   * @param ci the interval to assign
+   * @param p a physical register
+   * @return {@code true} if the interval was assigned, {@code false}
+   *  if that would mean spilling an interval that must not be spilled,
+   *  or the interval intersects a use of the register itself
+   */
+  private boolean evictAndAssign(CompoundInterval ci, Register p) {
+    if (p == null || !phys.isAllocatable(p) || p.isPinned() || restrict.isForbidden(ci.getRegister(), p)) {
+      return false;
+    }
+    ArrayList<CompoundInterval> list = assigned.get(p);
+    if (list == null) return false;
+    ArrayList<CompoundInterval> victims = new ArrayList<CompoundInterval>();
+    for (CompoundInterval other : list) {
+      if (other.intersects(ci)) {
+        if (restrict.mustNotSpill(other.getRegister())) return false;
+        victims.add(other);
+      }
+    }
+    CompoundInterval pInterval = regAllocState.getInterval(p);
+    CompoundInterval remaining = pInterval.copy(p);
+    for (CompoundInterval other : victims) {
+      remaining.removeAll(other);
+    }
+    if (ci.intersects(remaining)) return false;
+
+    for (CompoundInterval other : victims) {
+      pInterval.removeAll(other);
+      for (Iterator<CompoundInterval> e = list.iterator(); e.hasNext();) {
+        if (e.next() == other) e.remove();
+      }
+      spill(other);
+    }
+    assign(ci, p);
+    return true;
+  }
+
+  /**
+   * Finds the physical register that the interval is most strongly
+   * connected to by moves, either directly or through symbolic registers
+   * that have already been colored.
+   *
+   * @param ir the IR
+   * @param ci the interval in question
+   * @return the preferred register, {@code null} if there is none
+   *  that the interval may be assigned to
+   */
+  private Register getPhysicalPreference(IR ir, CompoundInterval ci) {
+    Register r = ci.getRegister();
+    CoalesceGraph graph = ir.stackManager.getPreferences().getGraph();
+    SpaceEffGraphNode node = graph.findNode(r);
+    if (node == null) return null;
+
+    HashMap<Register, Integer> map = new HashMap<Register, Integer>();
+    for (Enumeration<GraphEdge> in = node.inEdges(); in.hasMoreElements();) {
+      CoalesceGraph.Edge edge = (CoalesceGraph.Edge) in.nextElement();
+      addPreference(map, ci, ((CoalesceGraph.Node) edge.from()).getRegister(), edge.getWeight());
+    }
+    for (Enumeration<GraphEdge> out = node.outEdges(); out.hasMoreElements();) {
+      CoalesceGraph.Edge edge = (CoalesceGraph.Edge) out.nextElement();
+      addPreference(map, ci, ((CoalesceGraph.Node) edge.to()).getRegister(), edge.getWeight());
+    }
+
+    Register result = null;
+    int weight = -1;
+    for (Map.Entry<Register, Integer> entry : map.entrySet()) {
+      int w = entry.getValue();
+      if (w > weight) {
+        weight = w;
+        result = entry.getKey();
+      }
+    }
+    if (LinearScan.DEBUG_COALESCE && result != null) {
+      System.out.println("REGISTER PREFERENCE " + ci + " " + result);
+    }
+    return result;
+  }
+
+  private void addPreference(HashMap<Register, Integer> map, CompoundInterval ci, Register neighbor, int w) {
+    if (neighbor.isSymbolic()) {
+      neighbor = regAllocState.getMapping(neighbor);
+    }
+    if (neighbor != null && neighbor.isPhysical() &&
+        GenericPhysicalRegisterSet.getPhysicalRegisterType(neighbor) ==
+        GenericPhysicalRegisterSet.getPhysicalRegisterType(ci.getRegister()) &&
+        canAssign(ci, neighbor)) {
+      Integer oldW = map.get(neighbor);
+      map.put(neighbor, oldW == null ? w : oldW + w);
+    }
+  }
+}
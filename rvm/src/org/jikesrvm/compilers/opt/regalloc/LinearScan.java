@@ -30,6 +30,7 @@ public final class LinearScan extends OptimizationPlanCompositeElement {
           new OptimizationPlanElement[]{new OptimizationPlanAtomicElement(new IntervalAnalysis()),
                                             new OptimizationPlanAtomicElement(new RegisterRestrictionsPhase()),
                                             new OptimizationPlanAtomicElement(new LinearScanPhase()),
+                                            new OptimizationPlanAtomicElement(new GraphColoringPhase()),
                                             new OptimizationPlanAtomicElement(new UpdateGCMaps1()),
                                             new OptimizationPlanAtomicElement(new SpillCode()),
                                             new OptimizationPlanAtomicElement(new UpdateGCMaps2()),
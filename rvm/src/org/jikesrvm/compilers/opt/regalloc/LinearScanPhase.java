@@ -38,11 +38,12 @@ public final class LinearScanPhase extends CompilerPhase {
   }
 
   /**
-   * @return {@code true} because register allocation is required
+   * @return {@code true} unless the graph coloring allocator has been
+   *  selected instead
    */
   @Override
   public boolean shouldPerform(OptOptions options) {
-    return true;
+    return !GraphColoringPhase.isSelected(options);
   }
 
   @Override
@@ -101,7 +102,7 @@ public final class LinearScanPhase extends CompilerPhase {
     return active;
   }
 
-  private SpillCostEstimator determineSpillCostEstimator(IR ir) {
+  static SpillCostEstimator determineSpillCostEstimator(IR ir) {
     SpillCostEstimator spillCost = null;
     switch (ir.options.REGALLOC_SPILL_COST_ESTIMATE) {
       case OptOptions.REGALLOC_SIMPLE_SPILL_COST:
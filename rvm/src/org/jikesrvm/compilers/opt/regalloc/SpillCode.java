@@ -124,6 +124,14 @@ final class SpillCode extends CompilerPhase {
       stackMan.insertSpillCode(ir.MIRInfo.linearScanState.active);
     }
 
+    if (ir.options.PRINT_REGALLOC_REPORT) {
+      GenericStackManager stackMan = ir.stackManager;
+      VM.sysWrite("Register allocation of " + ir.method + " (" +
+                  (GraphColoringPhase.isSelected(ir.options) ? "graph coloring" : "linear scan") + "): " +
+                  stackMan.getSpillCount() + " spills, " + stackMan.getReloadCount() + " reloads, " +
+                  stackMan.getSpillOperandCount() + " spill location operands\n");
+    }
+
     if (VM.BuildForIA32 && !VM.BuildForSSE2Full) {
       rewriteFPStack(ir);
     }
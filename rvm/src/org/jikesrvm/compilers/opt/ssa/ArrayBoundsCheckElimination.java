@@ -0,0 +1,647 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.opt.ssa;
+
+import static org.jikesrvm.compilers.opt.ir.Operators.ARRAYLENGTH_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.BOUNDS_CHECK;
+import static org.jikesrvm.compilers.opt.ir.Operators.GUARD_MOVE;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_ADD_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_AND_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_IFCMP;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_MOVE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_SUB_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_USHR_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.NEWARRAY_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.NEWARRAY_UNRESOLVED_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.PHI_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.PI_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.REF_MOVE_opcode;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.compilers.opt.DefUse;
+import org.jikesrvm.compilers.opt.OptOptions;
+import org.jikesrvm.compilers.opt.controlflow.DominanceFrontier;
+import org.jikesrvm.compilers.opt.controlflow.DominatorsPhase;
+import org.jikesrvm.compilers.opt.driver.CompilerPhase;
+import org.jikesrvm.compilers.opt.driver.OptimizationPlanAtomicElement;
+import org.jikesrvm.compilers.opt.driver.OptimizationPlanCompositeElement;
+import org.jikesrvm.compilers.opt.driver.OptimizationPlanElement;
+import org.jikesrvm.compilers.opt.ir.Binary;
+import org.jikesrvm.compilers.opt.ir.BoundsCheck;
+import org.jikesrvm.compilers.opt.ir.GuardedUnary;
+import org.jikesrvm.compilers.opt.ir.IR;
+import org.jikesrvm.compilers.opt.ir.IfCmp;
+import org.jikesrvm.compilers.opt.ir.Instruction;
+import org.jikesrvm.compilers.opt.ir.Move;
+import org.jikesrvm.compilers.opt.ir.NewArray;
+import org.jikesrvm.compilers.opt.ir.Phi;
+import org.jikesrvm.compilers.opt.ir.Register;
+import org.jikesrvm.compilers.opt.ir.operand.ConditionOperand;
+import org.jikesrvm.compilers.opt.ir.operand.Operand;
+import org.jikesrvm.compilers.opt.ir.operand.RegisterOperand;
+
+/**
+ * Array bounds check elimination based on SSA form and PI nodes,
+ * following the ABCD algorithm (Bodik, Gupta and Sarkar, "ABCD: Eliminating
+ * Array Bounds Checks on Demand", PLDI 2000).
+ * <p>
+ * The constraints that the program imposes on its integer variables are
+ * collected into two inequality graphs, one for upper bounds and one for
+ * lower bounds. An edge <code>u --c--&gt; v</code> of the upper (lower)
+ * graph states that <code>v &lt;= u + c</code> (<code>v &gt;= u + c</code>)
+ * holds wherever v is defined. Constraints come from:
+ * <ul>
+ * <li> copies, PHIs and additions or subtractions of constants,
+ * <li> PI nodes on the edges of integer compares and after bounds checks,
+ * <li> array lengths (obtained by <code>arraylength</code> or known from
+ *      the array's allocation), which are non-negative.
+ * </ul>
+ * A bounds check <code>BOUNDS_CHECK a, i</code> is redundant if the
+ * upper graph shows <code>i - length(a) &lt;= -1</code> and the lower graph
+ * shows <code>i &gt;= 0</code>. Each such property is proven on demand by a
+ * depth first search backwards from i, where PHIs need all and other
+ * variables need any of their incoming constraints to establish the bound.
+ * Cycles through PHIs that do not weaken the bound are harmless.
+ * <p>
+ * Constraints from integer arithmetic are only used when the arithmetic
+ * cannot overflow in the direction that would invalidate them; the
+ * absence of overflow is itself proven on demand from the other graph.
+ */
+public final class ArrayBoundsCheckElimination extends OptimizationPlanCompositeElement {
+
+  @Override
+  public boolean shouldPerform(OptOptions options) {
+    return options.SSA_BOUNDS_CHECK_ELIMINATION;
+  }
+
+  /**
+   * Create this phase element as a composite of other elements
+   */
+  public ArrayBoundsCheckElimination() {
+    super("Array Bounds Check Elimination", new OptimizationPlanElement[]{
+        // Stage 1: Insert PI nodes on compares and after bounds checks
+        new OptimizationPlanAtomicElement(new InsertPiNodes()),
+
+        // Stage 2: PI insertion split edges, so recompute dominance information
+        new OptimizationPlanAtomicElement(new DominatorsPhase(true)),
+        new OptimizationPlanAtomicElement(new DominanceFrontier()),
+
+        // Stage 3: Require SSA form, which gives the PI nodes their own names
+        new OptimizationPlanAtomicElement(new EnsureSSA()),
+
+        // Stage 4: Do the optimization
+        new OptimizationPlanAtomicElement(new ABCD()),
+
+        // Stage 5: Turn the PI nodes back into moves
+        new OptimizationPlanAtomicElement(new RemovePiNodes())});
+  }
+
+  /**
+   * Inserts PI nodes for conditional branches and bounds checks,
+   * regardless of whether the stand-alone {@link PiNodes} phase is enabled.
+   */
+  private static final class InsertPiNodes extends CompilerPhase {
+
+    @Override
+    public String getName() {
+      return "ABCD Insert PI Nodes";
+    }
+
+    @Override
+    public void perform(IR ir) {
+      new PiNodes(true).perform(ir);
+    }
+
+    @Override
+    public CompilerPhase newExecution(IR ir) {
+      return this;
+    }
+  }
+
+  private static final class EnsureSSA extends CompilerPhase {
+
+    @Override
+    public String getName() {
+      return "ABCD Ensure SSA";
+    }
+
+    @Override
+    public void perform(IR ir) {
+      ir.desiredSSAOptions = new SSAOptions();
+      new EnterSSA().perform(ir);
+    }
+
+    @Override
+    public CompilerPhase newExecution(IR ir) {
+      return this;
+    }
+  }
+
+  private static final class RemovePiNodes extends CompilerPhase {
+
+    @Override
+    public String getName() {
+      return "ABCD Remove PI Nodes";
+    }
+
+    @Override
+    public void perform(IR ir) {
+      PiNodes.cleanUp(ir);
+    }
+
+    @Override
+    public CompilerPhase newExecution(IR ir) {
+      return this;
+    }
+  }
+
+  /**
+   * The transformation: build the inequality graphs and remove all bounds
+   * checks that they prove redundant.
+   */
+  private static final class ABCD extends CompilerPhase {
+    private static final boolean DEBUG = false;
+
+    @Override
+    public String getName() {
+      return "ABCD Transform";
+    }
+
+    /**
+     * Return this instance of this phase. This phase contains
+     * no per-compilation instance fields.
+     * @param ir not used
+     * @return this
+     */
+    @Override
+    public CompilerPhase newExecution(IR ir) {
+      return this;
+    }
+
+    @Override
+    public void perform(IR ir) {
+      if (ir.desiredSSAOptions.getAbort()) return;
+      DefUse.computeDU(ir);
+
+      Graphs g = new Graphs();
+      ArrayList<Instruction> checks = new ArrayList<Instruction>();
+      for (Enumeration<Instruction> e = ir.forwardInstrEnumerator(); e.hasMoreElements();) {
+        Instruction s = e.nextElement();
+        g.addConstraints(s);
+        if (s.operator() == BOUNDS_CHECK) {
+          checks.add(s);
+        }
+      }
+
+      int removed = 0;
+      for (Instruction s : checks) {
+        if (g.isRedundant(s)) {
+          if (DEBUG) VM.sysWrite("ABCD: eliminating " + s + "\n");
+          Move.mutate(s, GUARD_MOVE, BoundsCheck.getClearGuardResult(s), BoundsCheck.getClearGuard(s));
+          removed++;
+        }
+      }
+      if (ir.options.PRINT_BOUNDS_CHECK_REPORT &&
+          (!ir.options.hasMETHOD_TO_PRINT() || ir.options.fuzzyMatchMETHOD_TO_PRINT(ir.method.toString()))) {
+        VM.sysWrite("Bounds check elimination in " + ir.method + ": removed " + removed + " of " +
+                    checks.size() + " bounds checks\n");
+      }
+    }
+  }
+
+  /**
+   * A vertex of an inequality graph: an SSA integer variable, the length of
+   * an array, or the constant zero.
+   */
+  private static final class Vertex {
+    /** Register, array length key or {@link Graphs#ZERO} */
+    final Object name;
+    /** Constraints on this vertex in the upper bound graph */
+    final ArrayList<Edge> upperIn = new ArrayList<Edge>(2);
+    /** Constraints on this vertex in the lower bound graph */
+    final ArrayList<Edge> lowerIn = new ArrayList<Edge>(2);
+    /** Is this vertex defined by a PHI, i.e. must all constraints hold? */
+    boolean isPhi;
+    /**
+     * Is this a PHI with an operand that we could not model? Such a PHI
+     * has no provable bounds.
+     */
+    boolean hasUnknownOperand;
+
+    Vertex(Object name) {
+      this.name = name;
+    }
+
+    @Override
+    public String toString() {
+      return name.toString();
+    }
+  }
+
+  /**
+   * An edge <code>source --weight--&gt; v</code> of an inequality graph.
+   * If overflowCheck is not null, the constraint only holds if the
+   * overflowCheck vertex can be shown to be bounded by overflowLimit
+   * in the other graph.
+   */
+  private static final class Edge {
+    final Vertex source;
+    final long weight;
+    final Vertex overflowCheck;
+    final long overflowLimit;
+
+    Edge(Vertex source, long weight, Vertex overflowCheck, long overflowLimit) {
+      this.source = source;
+      this.weight = weight;
+      this.overflowCheck = overflowCheck;
+      this.overflowLimit = overflowLimit;
+    }
+  }
+
+  /** Key identifying the length of the array held in a register */
+  private static final class ArrayLength {
+    final Register array;
+
+    ArrayLength(Register array) {
+      this.array = array;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof ArrayLength && ((ArrayLength) o).array == array;
+    }
+
+    @Override
+    public int hashCode() {
+      return array.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return "length(" + array + ")";
+    }
+  }
+
+  /** Results of a (partial) proof, ordered so that meets and joins are min and max */
+  private static final int FALSE = 0;
+  private static final int REDUCED = 1;
+  private static final int TRUE = 2;
+
+  /**
+   * The upper and lower bound inequality graphs of a method and the
+   * demand driven prover that works on them.
+   */
+  private static final class Graphs {
+    static final String ZERO = "0";
+
+    /**
+     * Upper limit on the number of graph vertices visited to answer one
+     * query (including the overflow queries it causes). Keeps compile time
+     * linear in the number of bounds checks.
+     */
+    private static final int MAX_STEPS = 1000;
+
+    private final HashMap<Object, Vertex> vertices = new HashMap<Object, Vertex>();
+    private final Vertex zero = getVertex(ZERO);
+
+    /** Bounds currently being proven on the search path, per vertex */
+    private HashMap<Vertex, Long> active;
+    /** Remaining number of vertices the current query may visit */
+    private int budget;
+
+    Vertex getVertex(Object name) {
+      Vertex v = vertices.get(name);
+      if (v == null) {
+        v = new Vertex(name);
+        vertices.put(name, v);
+      }
+      return v;
+    }
+
+    /**
+     * @param array an operand holding an array
+     * @return the vertex for the length of the array or {@code null}
+     */
+    Vertex getLengthVertex(Operand array) {
+      if (!array.isRegister()) return null;
+      Register r = array.asRegister().getRegister();
+      // look through copies of the array reference
+      for (int i = 0; i < 10; i++) {
+        Instruction def = r.getFirstDef();
+        if (def == null) break;
+        Operand src;
+        if (def.getOpcode() == REF_MOVE_opcode) {
+          src = Move.getVal(def);
+        } else if (def.getOpcode() == PI_opcode) {
+          src = GuardedUnary.getVal(def);
+        } else {
+          break;
+        }
+        if (!src.isRegister()) break;
+        r = src.asRegister().getRegister();
+      }
+      ArrayLength key = new ArrayLength(r);
+      boolean isNew = !vertices.containsKey(key);
+      Vertex v = getVertex(key);
+      if (isNew) {
+        // 0 <= length <= Integer.MAX_VALUE
+        v.lowerIn.add(new Edge(zero, 0, null, 0));
+        v.upperIn.add(new Edge(zero, Integer.MAX_VALUE, null, 0));
+      }
+      return v;
+    }
+
+    /**
+     * Add an edge representing <code>v &lt;= op + c</code> (upper) or
+     * <code>v &gt;= op + c</code> (lower).
+     *
+     * @return whether an edge was added
+     */
+    private boolean addEdge(Vertex v, Operand op, long c, boolean upper) {
+      Vertex source;
+      if (op.isIntConstant()) {
+        source = zero;
+        c += op.asIntConstant().value;
+      } else if (op.isRegister() && op.asRegister().getRegister().isInteger()) {
+        source = getVertex(op.asRegister().getRegister());
+      } else {
+        return false;
+      }
+      (upper ? v.upperIn : v.lowerIn).add(new Edge(source, c, null, 0));
+      return true;
+    }
+
+    /**
+     * Add the constraints for <code>v = op + c</code>.
+     */
+    private void addSum(Vertex v, Operand op, long c) {
+      if (op.isIntConstant()) {
+        // should have been folded; v is a constant
+        addEdge(v, op, c, true);
+        addEdge(v, op, c, false);
+        return;
+      }
+      if (!op.isRegister() || !op.asRegister().getRegister().isInteger()) return;
+      Vertex u = getVertex(op.asRegister().getRegister());
+      if (c == 0) {
+        // a copy or PI node: both bounds always hold
+        v.upperIn.add(new Edge(u, 0, null, 0));
+        v.lowerIn.add(new Edge(u, 0, null, 0));
+      } else if (c > 0) {
+        // overflow makes v smaller, so the upper bound always holds
+        v.upperIn.add(new Edge(u, c, null, 0));
+        v.lowerIn.add(new Edge(u, c, u, Integer.MAX_VALUE - c));
+      } else {
+        // underflow makes v larger, so the lower bound always holds
+        v.upperIn.add(new Edge(u, c, u, Integer.MIN_VALUE - c));
+        v.lowerIn.add(new Edge(u, c, null, 0));
+      }
+    }
+
+    /**
+     * Add the constraints that instruction s imposes on the variable it defines.
+     *
+     * @param s an instruction
+     */
+    void addConstraints(Instruction s) {
+      switch (s.getOpcode()) {
+        case INT_MOVE_opcode: {
+          Vertex v = getVertex(Move.getResult(s).getRegister());
+          addSum(v, Move.getVal(s), 0);
+          break;
+        }
+        case INT_ADD_opcode:
+        case INT_SUB_opcode: {
+          Operand val1 = Binary.getVal1(s);
+          Operand val2 = Binary.getVal2(s);
+          boolean add = s.getOpcode() == INT_ADD_opcode;
+          if (add && val1.isIntConstant()) {
+            Operand tmp = val1;
+            val1 = val2;
+            val2 = tmp;
+          }
+          if (!val2.isIntConstant()) break;
+          long c = val2.asIntConstant().value;
+          Vertex v = getVertex(Binary.getResult(s).getRegister());
+          addSum(v, val1, add ? c : -c);
+          break;
+        }
+        case INT_AND_opcode: {
+          Operand val1 = Binary.getVal1(s);
+          Operand val2 = Binary.getVal2(s);
+          if (val1.isIntConstant()) {
+            Operand tmp = val1;
+            val1 = val2;
+            val2 = tmp;
+          }
+          if (!val2.isIntConstant() || val2.asIntConstant().value < 0) break;
+          // 0 <= v <= mask
+          Vertex v = getVertex(Binary.getResult(s).getRegister());
+          v.upperIn.add(new Edge(zero, val2.asIntConstant().value, null, 0));
+          v.lowerIn.add(new Edge(zero, 0, null, 0));
+          break;
+        }
+        case INT_USHR_opcode: {
+          Operand val2 = Binary.getVal2(s);
+          if (!val2.isIntConstant()) break;
+          int shift = val2.asIntConstant().value & 0x1f;
+          if (shift == 0) break;
+          // 0 <= v <= MAX_VALUE >>> (shift - 1)
+          Vertex v = getVertex(Binary.getResult(s).getRegister());
+          v.upperIn.add(new Edge(zero, -1 >>> shift, null, 0));
+          v.lowerIn.add(new Edge(zero, 0, null, 0));
+          break;
+        }
+        case ARRAYLENGTH_opcode: {
+          Vertex len = getLengthVertex(GuardedUnary.getVal(s));
+          if (len == null) break;
+          Vertex v = getVertex(GuardedUnary.getResult(s).getRegister());
+          v.upperIn.add(new Edge(len, 0, null, 0));
+          v.lowerIn.add(new Edge(len, 0, null, 0));
+          len.upperIn.add(new Edge(v, 0, null, 0));
+          len.lowerIn.add(new Edge(v, 0, null, 0));
+          break;
+        }
+        case NEWARRAY_opcode:
+        case NEWARRAY_UNRESOLVED_opcode: {
+          Vertex len = getLengthVertex(NewArray.getResult(s));
+          addEdge(len, NewArray.getSize(s), 0, true);
+          addEdge(len, NewArray.getSize(s), 0, false);
+          break;
+        }
+        case PHI_opcode: {
+          Operand result = Phi.getResult(s);
+          if (!result.isRegister() || !result.asRegister().getRegister().isInteger()) break;
+          Vertex v = getVertex(result.asRegister().getRegister());
+          v.isPhi = true;
+          for (int i = 0; i < Phi.getNumberOfValues(s); i++) {
+            Operand op = Phi.getValue(s, i);
+            if (!addEdge(v, op, 0, true) || !addEdge(v, op, 0, false)) {
+              v.hasUnknownOperand = true;
+            }
+          }
+          break;
+        }
+        case PI_opcode:
+          addPiConstraints(s);
+          break;
+        default:
+          break;
+      }
+    }
+
+    /**
+     * Add the constraints for a PI node: it is a copy of its operand which
+     * additionally satisfies the condition of the instruction it is linked to.
+     */
+    private void addPiConstraints(Instruction pi) {
+      RegisterOperand result = GuardedUnary.getResult(pi);
+      if (!result.getRegister().isInteger()) return;
+      Operand val = GuardedUnary.getVal(pi);
+      Vertex v = getVertex(result.getRegister());
+      addSum(v, val, 0);
+
+      Operand guard = GuardedUnary.getGuard(pi);
+      if (guard == null || !guard.isRegister()) return;
+      Instruction gen = guard.asRegister().getRegister().getFirstDef();
+      if (gen == null) return;
+
+      if (PiNodes.isBoundsCheckPi(pi) && gen.operator() == BOUNDS_CHECK) {
+        // 0 <= v <= length(array) - 1
+        Vertex len = getLengthVertex(BoundsCheck.getRef(gen));
+        if (len != null) {
+          v.upperIn.add(new Edge(len, -1, null, 0));
+        }
+        v.lowerIn.add(new Edge(zero, 0, null, 0));
+      } else if ((PiNodes.isTakenPi(pi) || PiNodes.isNotTakenPi(pi)) && gen.operator() == INT_IFCMP) {
+        if (!val.isRegister()) return;
+        Register r = val.asRegister().getRegister();
+        Operand val1 = IfCmp.getVal1(gen);
+        Operand val2 = IfCmp.getVal2(gen);
+        ConditionOperand cond = IfCmp.getCond(gen).copy().asCondition();
+        if (PiNodes.isNotTakenPi(pi)) cond.flipCode();
+        Operand other;
+        if (val1.isRegister() && val1.asRegister().getRegister() == r) {
+          other = val2;
+        } else if (val2.isRegister() && val2.asRegister().getRegister() == r) {
+          other = val1;
+          cond.flipOperands();
+        } else {
+          return;
+        }
+        if (other.isRegister() && other.asRegister().getRegister() == r) return;
+        // now v cond other holds
+        if (cond.isLESS()) {
+          addEdge(v, other, -1, true);
+        } else if (cond.isLESS_EQUAL()) {
+          addEdge(v, other, 0, true);
+        } else if (cond.isGREATER()) {
+          addEdge(v, other, 1, false);
+        } else if (cond.isGREATER_EQUAL()) {
+          addEdge(v, other, 0, false);
+        } else if (cond.isEQUAL()) {
+          addEdge(v, other, 0, true);
+          addEdge(v, other, 0, false);
+        }
+      }
+    }
+
+    /**
+     * @param s a bounds check
+     * @return whether the graphs show that s always succeeds
+     */
+    boolean isRedundant(Instruction s) {
+      Vertex len = getLengthVertex(BoundsCheck.getRef(s));
+      if (len == null) return false;
+      Operand index = BoundsCheck.getIndex(s);
+      if (index.isIntConstant()) {
+        int k = index.asIntConstant().value;
+        // length(array) >= k + 1
+        return k >= 0 && demandProve(zero, len, (long) k + 1, false);
+      }
+      if (!index.isRegister() || !index.asRegister().getRegister().isInteger()) return false;
+      Vertex i = getVertex(index.asRegister().getRegister());
+      // i - length(array) <= -1 and i - 0 >= 0
+      return demandProve(len, i, -1, true) && demandProve(zero, i, 0, false);
+    }
+
+    /**
+     * Start a new query.
+     *
+     * @param a the vertex to compare against
+     * @param v the vertex to bound
+     * @param c the bound
+     * @param upper whether to prove an upper bound
+     * @return whether <code>v - a &lt;= c</code> (upper) or
+     *  <code>v - a &gt;= c</code> (lower) was proven
+     */
+    private boolean demandProve(Vertex a, Vertex v, long c, boolean upper) {
+      budget = MAX_STEPS;
+      return subProve(a, v, c, upper);
+    }
+
+    /**
+     * Prove a bound with a fresh search path, sharing the budget of the
+     * enclosing query. Harmless cycles count as proof.
+     */
+    private boolean subProve(Vertex a, Vertex v, long c, boolean upper) {
+      HashMap<Vertex, Long> saved = active;
+      active = new HashMap<Vertex, Long>();
+      int result = prove(a, v, c, upper);
+      active = saved;
+      return result != FALSE;
+    }
+
+    /**
+     * The ABCD prover.
+     *
+     * @return {@link #TRUE}, {@link #REDUCED} or {@link #FALSE}
+     */
+    private int prove(Vertex a, Vertex v, long c, boolean upper) {
+      if (v == a && (upper ? c >= 0 : c <= 0)) return TRUE;
+      if (--budget < 0) return FALSE;
+      Long prev = active.get(v);
+      if (prev != null) {
+        // a cycle: amplifying if it weakened the bound we are trying to prove
+        return (upper ? c < prev : c > prev) ? FALSE : REDUCED;
+      }
+      ArrayList<Edge> in = upper ? v.upperIn : v.lowerIn;
+      if (in.isEmpty() || (v.isPhi && v.hasUnknownOperand)) return FALSE;
+
+      active.put(v, c);
+      int result = v.isPhi ? TRUE : FALSE;
+      for (Edge e : in) {
+        int r;
+        if (e.overflowCheck != null &&
+            !subProve(zero, e.overflowCheck, e.overflowLimit, !upper)) {
+          r = FALSE;
+        } else {
+          r = prove(a, e.source, c - e.weight, upper);
+        }
+        if (v.isPhi) {
+          result = Math.min(result, r);
+          if (result == FALSE) break;
+        } else {
+          result = Math.max(result, r);
+          if (result == TRUE) break;
+        }
+      }
+      active.remove(v);
+      return result;
+    }
+  }
+}
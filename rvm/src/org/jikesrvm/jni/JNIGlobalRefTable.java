@@ -14,34 +14,159 @@ package org.jikesrvm.jni;
 
 import java.lang.ref.WeakReference;
 import org.jikesrvm.VM;
+import org.jikesrvm.runtime.Entrypoints;
 import org.jikesrvm.runtime.Magic;
 import org.jikesrvm.mm.mminterface.MemoryManager;
+import org.jikesrvm.scheduler.Synchronization;
 import org.vmmagic.pragma.Entrypoint;
+import org.vmmagic.pragma.Inline;
 import org.vmmagic.pragma.Uninterruptible;
 import org.vmmagic.unboxed.ObjectReference;
 import org.vmmagic.unboxed.AddressArray;
 import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.Offset;
+import org.vmmagic.unboxed.Word;
 
 /**
  * Weak Global References are global references (negative numbers), with the
  * 2^30 bit UNset.  Mask in the 2^30 bit to get the real index into the table.
+ * <p>
+ * Slots of deleted references are reused.  They are kept on a free list
+ * that is threaded through the free slots themselves: a free slot holds
+ * the index of the next free slot, shifted left by one and with the low
+ * bit set, so that it can never be mistaken for a reference (see
+ * {@link #isFreeSlot(Address)}).  Slots are allocated from the free list,
+ * or failing that from the never used part of the table, without taking
+ * a lock.  Only growing the table takes a lock.
  */
 public class JNIGlobalRefTable {
 
   @Entrypoint
   public static AddressArray JNIGlobalRefs = AddressArray.create(100);
-  private static int free = 1;
+
+  /** The index of the first slot that has never been used */
+  @Entrypoint
+  private static volatile int highWater = 1;
+
+  /**
+   * The head of the free list.  The low 32 bits hold the index of the
+   * first free slot (0 if the list is empty).  The high 32 bits hold a
+   * version number that is incremented by every update, so that a slot
+   * that is popped and pushed again can not be mistaken for an unchanged
+   * list head.
+   */
+  @Entrypoint
+  private static volatile long freeList = 0;
+
+  /** Is the table being copied into a larger table? */
+  private static volatile boolean growing = false;
+
+  /** Lock held while the table is grown */
+  private static final Object growLock = new Object();
 
   static int newGlobalRef(Object referent) {
     if (VM.VerifyAssertions) VM._assert(MemoryManager.validRef(ObjectReference.fromObject(referent)));
 
-    if (free >= JNIGlobalRefs.length()) {
-      AddressArray newGlobalRefs = AddressArray.create(JNIGlobalRefs.length() * 2);
-      copyAndReplaceGlobalRefs(newGlobalRefs);
+    int index = allocateSlot();
+    if (!trySetSlot(index, Magic.objectAsAddress(referent))) {
+      synchronized (growLock) {
+        JNIGlobalRefs.set(index, Magic.objectAsAddress(referent));
+      }
+    }
+    return -index;
+  }
+
+  /**
+   * Allocates a slot, reusing a free slot if there is one.
+   *
+   * @return the index of the allocated slot
+   */
+  private static int allocateSlot() {
+    Offset freeListOffset = Entrypoints.JNIGlobalRefsFreeListField.getOffset();
+    while (true) {
+      long head = freeList;
+      int index = (int) head;
+      if (index == 0) {
+        break;
+      }
+      // If the slot has been reused since head was read, the version check fails
+      int next = JNIGlobalRefs.get(index).toInt() >>> 1;
+      long newHead = (((head >>> 32) + 1) << 32) | (next & 0xFFFFFFFFL);
+      if (Synchronization.tryCompareAndSwap(Magic.getJTOC(), freeListOffset, head, newHead)) {
+        return index;
+      }
     }
 
-    JNIGlobalRefs.set(free, Magic.objectAsAddress(referent));
-    return -free++;
+    int index = Synchronization.fetchAndAdd(Magic.getJTOC(), Entrypoints.JNIGlobalRefsHighWaterField.getOffset(), 1);
+    if (index >= STRONG_REF_BIT) {
+      VM.sysFail("JNI global reference table overflow");
+    }
+    if (index >= JNIGlobalRefs.length()) {
+      grow(index);
+    }
+    return index;
+  }
+
+  /**
+   * Returns a slot to the free list.
+   *
+   * @param index the index of the slot
+   */
+  private static void freeSlot(int index) {
+    Offset freeListOffset = Entrypoints.JNIGlobalRefsFreeListField.getOffset();
+    while (true) {
+      long head = freeList;
+      Address link = Address.fromIntZeroExtend(((int) head << 1) | 1);
+      if (!trySetSlot(index, link)) {
+        synchronized (growLock) {
+          JNIGlobalRefs.set(index, link);
+        }
+      }
+      long newHead = (((head >>> 32) + 1) << 32) | index;
+      if (Synchronization.tryCompareAndSwap(Magic.getJTOC(), freeListOffset, head, newHead)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Stores into a slot, unless the table is concurrently being grown, in
+   * which case the store may not have reached the table that is in use
+   * and the caller must repeat it while holding the lock.
+   *
+   * @param index the index of the slot
+   * @param value the value to store
+   * @return {@code true} if the store is known to have reached the table
+   */
+  @Uninterruptible
+  private static boolean trySetSlot(int index, Address value) {
+    AddressArray table = JNIGlobalRefs;
+    table.set(index, value);
+    Magic.fence();
+    return !growing && table == JNIGlobalRefs;
+  }
+
+  /**
+   * Grows the table so that it contains the given index.
+   *
+   * @param index the index
+   */
+  private static void grow(int index) {
+    synchronized (growLock) {
+      int length = JNIGlobalRefs.length();
+      if (index < length) {
+        return;
+      }
+      while (index >= length) {
+        length *= 2;
+      }
+      AddressArray newGlobalRefs = AddressArray.create(length);
+      growing = true;
+      Magic.fence();
+      copyAndReplaceGlobalRefs(newGlobalRefs);
+      Magic.fence();
+      growing = false;
+    }
   }
 
   @Uninterruptible
@@ -52,6 +177,26 @@ public class JNIGlobalRefTable {
     JNIGlobalRefs = newGlobalRefs;
   }
 
+  /**
+   * @return the number of slots at the start of the table that may be
+   *  in use; all later slots are empty
+   */
+  @Uninterruptible
+  public static int highWaterMark() {
+    int length = JNIGlobalRefs.length();
+    return highWater < length ? highWater : length;
+  }
+
+  /**
+   * @param value the contents of a slot
+   * @return {@code true} if the slot does not hold a reference
+   */
+  @Uninterruptible
+  @Inline
+  public static boolean isFreeSlot(Address value) {
+    return value.isZero() || !value.toWord().and(Word.one()).isZero();
+  }
+
   /* Weak references are returned with the STRONG_REF_BIT bit UNset.  */
   public static final int STRONG_REF_BIT = 1 << 30;
 
@@ -62,7 +207,8 @@ public class JNIGlobalRefTable {
 
   static void deleteGlobalRef(int index) {
     if (VM.VerifyAssertions) VM._assert(!isWeakRef(index));
-    JNIGlobalRefs.set(-index, Address.zero());
+    if (VM.VerifyAssertions) VM._assert(!isFreeSlot(JNIGlobalRefs.get(-index)));
+    freeSlot(-index);
   }
 
   static void deleteWeakRef(int index) {
@@ -125,8 +125,8 @@ public final class MemoryManager {
     HeapLayout.mmapper.markAsMapped(BOOT_IMAGE_CODE_START, BOOT_IMAGE_CODE_SIZE);
     HeapGrowthManager.boot(theBootRecord.initialHeapSize, theBootRecord.maximumHeapSize);
     DebugUtil.boot(theBootRecord);
-    Selected.Plan.get().enableAllocation();
     SynchronizedCounter.boot();
+    Selected.Plan.get().enableAllocation();
 
     Callbacks.addExitMonitor(new Callbacks.ExitMonitor() {
       @Override
@@ -52,17 +52,26 @@ public class OSRProfiler implements Callbacks.ExitMonitor {
       OSRProfiler.invalidations++;
     }
 
+    // an uncommon trap that has not yet fired too often is kept: only
+    // this frame continues in baseline code.  Once it is disabled, the
+    // recompiled method may keep its other traps and guarded inlining
+    int trap = UncommonTraps.notifyFired(state.meth, state.bcIndex);
+    if (trap == UncommonTraps.TRAP_KEPT) {
+      return;
+    }
+    boolean uncommonTrap = trap == UncommonTraps.TRAP_DISABLED;
+
     // find the root state
     while (state.callerState != null) {
       state = state.callerState;
     }
 
     // only invalidate the root state
-    invalidateState(state);
+    invalidateState(state, uncommonTrap);
   }
 
   // invalidate an execution state
-  private static synchronized void invalidateState(ExecutionState state) {
+  private static synchronized void invalidateState(ExecutionState state, boolean uncommonTrap) {
     // step 1: invalidate the compiled method with this OSR assumption
     //         how does this affect the performance?
     CompiledMethod mostRecentlyCompiledMethod = CompiledMethods.getCompiledMethod(state.cmid);
@@ -124,11 +133,12 @@ public class OSRProfiler implements Callbacks.ExitMonitor {
           VM._assert(cmplplan.getMethod() == state.meth);
         }
 
-        // for invalidated method, we do not perform OSR guarded inlining anymore.
+        // for invalidated method, we do not perform OSR guarded inlining anymore,
+        // unless it was an uncommon trap that fired.
         // the Options object may be shared by several methods,
         // we have to reset it back
         boolean savedOsr = cmplplan.options.OSR_GUARDED_INLINING;
-        cmplplan.options.OSR_GUARDED_INLINING = false;
+        cmplplan.options.OSR_GUARDED_INLINING = savedOsr && uncommonTrap;
         int newcmid = RuntimeCompiler.recompileWithOpt(cmplplan);
         cmplplan.options.OSR_GUARDED_INLINING = savedOsr;
 
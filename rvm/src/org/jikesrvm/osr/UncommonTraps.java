@@ -0,0 +1,113 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.osr;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.classloader.NormalMethod;
+
+/**
+ * Records the uncommon traps generated by the opt compiler.<p>
+ *
+ * An uncommon trap replaces a branch edge that the baseline profile
+ * never saw taken with an OSR point, which resumes execution in the
+ * baseline code at the edge's target.  A trap is identified by its
+ * method and the bytecode index at which it resumes.  Each time a trap
+ * fires, only the frame that took it continues in baseline code.  Once
+ * it has fired as often as the compilation's
+ * {@code OSR_UNCOMMON_TRAP_FIRE_LIMIT} allows, the compiled method is
+ * invalidated and recompiled (see {@link OSRProfiler}); the trap is then
+ * disabled, so the recompiled code keeps the edge.
+ */
+public final class UncommonTraps {
+
+  /** The OSR point was not an uncommon trap */
+  public static final int NOT_A_TRAP = 0;
+  /** The trap fired, but not yet often enough to recompile its method */
+  public static final int TRAP_KEPT = 1;
+  /** The trap has fired too often and is now disabled */
+  public static final int TRAP_DISABLED = 2;
+
+  /** Traps that have been generated and are not yet disabled, with the fires they have left */
+  private static final HashMap<Long, Integer> active = new HashMap<Long, Integer>();
+  /** Traps that have fired too often and must not be generated again */
+  private static final HashSet<Long> disabled = new HashSet<Long>();
+
+  private static int fired = 0;
+
+  private UncommonTraps() {
+    // prevent instantiation
+  }
+
+  private static Long key(NormalMethod method, int bcIndex) {
+    return Long.valueOf(((long) method.getId() << 32) | (bcIndex & 0xFFFFFFFFL));
+  }
+
+  /**
+   * Records that the opt compiler has generated a trap.  A trap that a
+   * recompilation generates again keeps the fires it has left.
+   *
+   * @param method the method containing the branch
+   * @param bcIndex the bytecode index at which the trap resumes
+   * @param fireLimit the number of times the trap may fire before its
+   *  method is recompiled
+   */
+  public static synchronized void register(NormalMethod method, int bcIndex, int fireLimit) {
+    Long key = key(method, bcIndex);
+    if (!active.containsKey(key)) {
+      active.put(key, Integer.valueOf(fireLimit));
+    }
+  }
+
+  /**
+   * @param method the method containing the branch
+   * @param bcIndex the bytecode index at which the trap would resume
+   * @return whether a trap here has fired too often, so the edge
+   *  should be compiled normally
+   */
+  public static synchronized boolean isDisabled(NormalMethod method, int bcIndex) {
+    return disabled.contains(key(method, bcIndex));
+  }
+
+  /**
+   * Called when an OSR point in opt code fires.  If the OSR point was
+   * an uncommon trap, its fire is counted, and the trap is disabled when
+   * it has no fires left.  An OSR point that shares its position with a
+   * disabled trap is no longer taken for the trap, so a failing inlining
+   * guard at the same position is still recognized.
+   *
+   * @param method the innermost method of the OSR point
+   * @param bcIndex the bytecode index at which the OSR point resumes
+   * @return {@link #NOT_A_TRAP}, {@link #TRAP_KEPT} or {@link #TRAP_DISABLED}
+   */
+  public static synchronized int notifyFired(NormalMethod method, int bcIndex) {
+    Long key = key(method, bcIndex);
+    Integer left = active.get(key);
+    if (left == null) {
+      return NOT_A_TRAP;
+    }
+    fired++;
+    if (VM.TraceOnStackReplacement) {
+      VM.sysWriteln("OSR uncommon trap " + fired + " : " + bcIndex + "@" + method);
+    }
+    if (left.intValue() > 1) {
+      active.put(key, Integer.valueOf(left.intValue() - 1));
+      return TRAP_KEPT;
+    }
+    active.remove(key);
+    disabled.add(key);
+    return TRAP_DISABLED;
+  }
+}
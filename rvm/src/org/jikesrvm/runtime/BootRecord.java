@@ -260,11 +260,21 @@ public class BootRecord {
   public Address sysMMapIP;
   public Address sysMMapErrnoIP;
   public Address sysMProtectIP;
+  public Address sysMAdviseHugePagesIP;
+  public Address sysPreTouchIP;
+  public Address sysMAdviseFreeIP;
+  public Address sysResidentBytesIP;
+
+  // NUMA memory placement
+  public Address sysNumaNodesIP;
+  public Address sysNumaNodeIP;
+  public Address sysNumaBindIP;
 
   // threads
   public Address sysNumProcessorsIP;
   public Address sysThreadBindSupportedIP;
   public Address sysThreadBindIP;
+  public Address sysThreadBindNodeIP;
   public Address sysThreadCreateIP;
   public Address sysThreadYieldIP;
   public Address sysGetThreadIdIP;
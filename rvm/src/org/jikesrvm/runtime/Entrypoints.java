@@ -404,6 +404,10 @@ public class Entrypoints {
 
   public static final RVMField JNIEnvBasePointerOnEntryToNative;
   public static final RVMField JNIGlobalRefsField;
+  public static final RVMField JNIGlobalRefsHighWaterField =
+      getField(org.jikesrvm.jni.JNIGlobalRefTable.class, "highWater", int.class);
+  public static final RVMField JNIGlobalRefsFreeListField =
+      getField(org.jikesrvm.jni.JNIGlobalRefTable.class, "freeList", long.class);
   public static final RVMField JNIRefsField;
   public static final RVMField JNIRefsTopField;
   public static final RVMField JNIRefsSavedFPField;
@@ -486,6 +490,8 @@ public class Entrypoints {
 
   public static final RVMField edgeCountersField =
       getField(org.jikesrvm.compilers.baseline.EdgeCounts.class, "data", int[][].class);
+  public static final NormalMethod recordReceiverTypeMethod =
+      getMethod(org.jikesrvm.compilers.baseline.ReceiverTypeProfiles.class, "recordReceiver", "(Ljava/lang/Object;II)V");
 
   public static final RVMField classLoadedCountField =
       getField(org.jikesrvm.classloader.JMXSupport.class, "classLoadedCount", int.class);
@@ -503,6 +509,10 @@ public class Entrypoints {
   public static final NormalMethod optNewArrayArrayMethod;
   public static final NormalMethod optNew2DArrayMethod;
   public static final NormalMethod sysArrayCopy;
+  public static final NormalMethod arrayFill8BitMethod;
+  public static final NormalMethod arrayFill16BitMethod;
+  public static final NormalMethod arrayFill32BitMethod;
+  public static final NormalMethod arrayFill64BitMethod;
 
   // Initialize opt-compiler specific fields
   static {
@@ -527,6 +537,14 @@ public class Entrypoints {
           getMethod(org.jikesrvm.compilers.opt.runtimesupport.OptLinker.class, "new2DArray", "(IIII)Ljava/lang/Object;");
       sysArrayCopy = getMethod("Ljava/lang/VMCommonLibrarySupport;", "arraycopy", "(Ljava/lang/Object;ILjava/lang/Object;II)V");
       sysArrayCopy.setRuntimeServiceMethod(false);
+      arrayFill8BitMethod =
+          getMethod(org.jikesrvm.runtime.Memory.class, "arrayfill8Bit", "(Ljava/lang/Object;III)V");
+      arrayFill16BitMethod =
+          getMethod(org.jikesrvm.runtime.Memory.class, "arrayfill16Bit", "(Ljava/lang/Object;III)V");
+      arrayFill32BitMethod =
+          getMethod(org.jikesrvm.runtime.Memory.class, "arrayfill32Bit", "(Ljava/lang/Object;III)V");
+      arrayFill64BitMethod =
+          getMethod(org.jikesrvm.runtime.Memory.class, "arrayfill64Bit", "(Ljava/lang/Object;IIJ)V");
     } else {
       specializedMethodsField = null;
       optThreadSwitchFromOsrOptMethod = null;
@@ -537,6 +555,10 @@ public class Entrypoints {
       optNewArrayArrayMethod = null;
       optNew2DArrayMethod = null;
       sysArrayCopy = null;
+      arrayFill8BitMethod = null;
+      arrayFill16BitMethod = null;
+      arrayFill32BitMethod = null;
+      arrayFill64BitMethod = null;
     }
   }
 
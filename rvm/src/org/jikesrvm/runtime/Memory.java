@@ -425,6 +425,134 @@ public class Memory {
     }
   }
 
+  @Inline
+  private static void fill8Bytes(Address dstPtr, long pattern) {
+    if (VM.BuildForIA32) {
+      dstPtr.store(pattern);
+    } else {
+      dstPtr.store(Magic.longBitsAsDouble(pattern));
+    }
+  }
+  @Inline
+  private static void fillElement(Address dstPtr, int logElementBytes, long pattern) {
+    if (logElementBytes == 0) {
+      dstPtr.store((byte) pattern);
+    } else if (logElementBytes == 1) {
+      dstPtr.store((short) pattern);
+    } else if (logElementBytes == 2) {
+      dstPtr.store((int) pattern);
+    } else {
+      dstPtr.store(pattern);
+    }
+  }
+
+  /**
+   * Low level fill of the elements <code>dst[from]</code> to <code>dst[to - 1]</code>
+   * of an 8Bit array with a value.
+   * <p>
+   * Assumption: <code>0 &lt;= from &lt;= to &lt;= dst.length</code>.
+   *
+   * @param dst   the destination array
+   * @param from  index of the first element to fill
+   * @param to    index after the last element to fill
+   * @param value the value, of which the low 8 bits are stored
+   */
+  public static void arrayfill8Bit(Object dst, int from, int to, int value) {
+    Address dstPtr = Magic.objectAsAddress(dst).plus(from);
+    alignedFill(dstPtr, to - from, 0, (value & 0xFFL) * 0x0101010101010101L);
+  }
+
+  /**
+   * Low level fill of the elements <code>dst[from]</code> to <code>dst[to - 1]</code>
+   * of a 16Bit array with a value.
+   * <p>
+   * Assumption: <code>0 &lt;= from &lt;= to &lt;= dst.length</code>.
+   *
+   * @param dst   the destination array
+   * @param from  index of the first element to fill
+   * @param to    index after the last element to fill
+   * @param value the value, of which the low 16 bits are stored
+   */
+  public static void arrayfill16Bit(Object dst, int from, int to, int value) {
+    Address dstPtr = Magic.objectAsAddress(dst).plus(from << LOG_BYTES_IN_SHORT);
+    alignedFill(dstPtr, (to - from) << LOG_BYTES_IN_SHORT, LOG_BYTES_IN_SHORT,
+                (value & 0xFFFFL) * 0x0001000100010001L);
+  }
+
+  /**
+   * Low level fill of the elements <code>dst[from]</code> to <code>dst[to - 1]</code>
+   * of a 32Bit array with a value.
+   * <p>
+   * Assumption: <code>0 &lt;= from &lt;= to &lt;= dst.length</code>.
+   *
+   * @param dst   the destination array
+   * @param from  index of the first element to fill
+   * @param to    index after the last element to fill
+   * @param value the bits of the value
+   */
+  public static void arrayfill32Bit(Object dst, int from, int to, int value) {
+    Address dstPtr = Magic.objectAsAddress(dst).plus(from << LOG_BYTES_IN_INT);
+    alignedFill(dstPtr, (to - from) << LOG_BYTES_IN_INT, LOG_BYTES_IN_INT,
+                (value & 0xFFFFFFFFL) * 0x0000000100000001L);
+  }
+
+  /**
+   * Low level fill of the elements <code>dst[from]</code> to <code>dst[to - 1]</code>
+   * of a 64Bit array with a value.
+   * <p>
+   * Assumption: <code>0 &lt;= from &lt;= to &lt;= dst.length</code>.
+   *
+   * @param dst   the destination array
+   * @param from  index of the first element to fill
+   * @param to    index after the last element to fill
+   * @param value the bits of the value
+   */
+  public static void arrayfill64Bit(Object dst, int from, int to, long value) {
+    Offset dstOffset = Offset.fromIntZeroExtend(from << LOG_BYTES_IN_DOUBLE);
+    alignedFill(Magic.objectAsAddress(dst).plus(dstOffset), (to - from) << LOG_BYTES_IN_DOUBLE,
+                LOG_BYTES_IN_DOUBLE, value);
+  }
+
+  /**
+   * Fill <code>fillBytes</code> bytes from <code>dstPtr</code> with copies of an element.
+   * <p>
+   * Assumption: <code>dstPtr</code> is aligned to the element size and
+   * <code>fillBytes</code> is a multiple of it.  The pattern holds the element
+   * replicated to fill 8 bytes, so that any 8 byte aligned word of the region
+   * can be filled with a single store.  A zero fill of a large region is
+   * done by C code.
+   *
+   * @param dstPtr The destination start address
+   * @param fillBytes The number of bytes to be filled
+   * @param logElementBytes The log of the element size
+   * @param pattern The element replicated to 8 bytes
+   */
+  @Inline
+  private static void alignedFill(Address dstPtr, int fillBytes, int logElementBytes, long pattern) {
+    if (USE_NATIVE && pattern == 0 && fillBytes > NATIVE_THRESHOLD) {
+      zero(false, dstPtr, Extent.fromIntZeroExtend(fillBytes));
+      return;
+    }
+    Address endPtr = dstPtr.plus(fillBytes);
+    if (BYTES_IN_COPY == 8) {
+      Word wordMask = Word.fromIntZeroExtend(BYTES_IN_COPY - 1);
+      Address wordEndPtr = endPtr.toWord().and(wordMask.not()).toAddress();
+      // elements up to the first 8 byte boundary
+      while (dstPtr.LT(wordEndPtr) && !dstPtr.toWord().and(wordMask).isZero()) {
+        fillElement(dstPtr, logElementBytes, pattern);
+        dstPtr = dstPtr.plus(1 << logElementBytes);
+      }
+      while (dstPtr.LT(wordEndPtr)) {
+        fill8Bytes(dstPtr, pattern);
+        dstPtr = dstPtr.plus(BYTES_IN_COPY);
+      }
+    }
+    while (dstPtr.LT(endPtr)) {
+      fillElement(dstPtr, logElementBytes, pattern);
+      dstPtr = dstPtr.plus(1 << logElementBytes);
+    }
+  }
+
   /**
    * Copies a region of memory.
    *
@@ -161,6 +161,69 @@ public abstract class SysCall {
   @SysCallTemplate
   public abstract int sysMProtect(Address start, Extent length, int prot);
 
+  /**
+   * Asks for a mapped range of memory to be backed by transparent huge pages.
+   *
+   * @param start start of the range
+   * @param length length of the range, in bytes
+   * @return 0 on success, otherwise the errno of the failure
+   */
+  @SysCallTemplate
+  public abstract int sysMAdviseHugePages(Address start, Extent length);
+
+  /**
+   * Faults in every page of a mapped range of memory without changing
+   * its contents.
+   *
+   * @param start start of the range
+   * @param length length of the range, in bytes
+   */
+  @SysCallTemplate
+  public abstract void sysPreTouch(Address start, Extent length);
+
+  /**
+   * Releases the physical pages backing a mapped range of memory.  The
+   * range stays mapped and reads as zero when it is next touched.
+   *
+   * @param start start of the range
+   * @param length length of the range, in bytes
+   * @return 0 on success, otherwise the errno of the failure
+   */
+  @SysCallTemplate
+  public abstract int sysMAdviseFree(Address start, Extent length);
+
+  /**
+   * @return the resident set size of the process in bytes, or 0 if it
+   * is not known
+   */
+  @SysCallTemplate
+  public abstract long sysResidentBytes();
+
+  // NUMA memory placement
+  /**
+   * @return the number of NUMA memory nodes, 1 if NUMA is not supported
+   */
+  @SysCallTemplate
+  public abstract int sysNumaNodes();
+
+  /**
+   * @return the NUMA memory node of the processor running the current
+   *  thread, 0 if NUMA is not supported
+   */
+  @SysCallTemplate
+  public abstract int sysNumaNode();
+
+  /**
+   * Prefers a NUMA memory node for a range of pages, migrating any
+   * pages already resident on another node.
+   * @param start the start of the range
+   * @param length the length of the range
+   * @param node the memory node
+   * @return 0 on success, -1 on failure
+   */
+  @SysCallTemplate
+  public abstract int sysNumaBind(Address start, Extent length, int node);
+
   // threads
   @SysCallTemplate
   public abstract int sysNumProcessors();
@@ -186,6 +249,13 @@ public abstract class SysCall {
   @SysCallTemplate
   public abstract void sysThreadBind(int cpuId);
 
+  /**
+   * Binds the current thread to the processors of a NUMA memory node.
+   * @param node the memory node
+   */
+  @SysCallTemplate
+  public abstract void sysThreadBindNode(int node);
+
   @SysCallTemplate
   public abstract void sysThreadYield();
 
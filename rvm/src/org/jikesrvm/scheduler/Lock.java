@@ -14,6 +14,8 @@ package org.jikesrvm.scheduler;
 
 import static org.jikesrvm.objectmodel.ThinLockConstants.TL_LOCK_ID_MASK;
 import static org.jikesrvm.objectmodel.ThinLockConstants.TL_LOCK_ID_SHIFT;
+import static org.jikesrvm.objectmodel.ThinLockConstants.TL_NUM_BITS_RC;
+import static org.jikesrvm.objectmodel.ThinLockConstants.TL_NUM_BITS_TID;
 import static org.jikesrvm.objectmodel.ThinLockConstants.TL_THREAD_ID_SHIFT;
 
 import org.jikesrvm.VM;
@@ -92,12 +94,12 @@ java.lang.Object#notifyAll}, and {@link java.lang.Object#wait()}.
  period?) examine heavy-weight locks and deflate any that havn't
  been held for a while (how long?).
  <LI> <EM>How many heavy-weight locks are needed? and how should they be
- managed?</EM>  Currently, each processor maintains a pool of free
- locks.  When a lock is inflated by a processor it is taken from
- this pool and when a lock is deflated by a processor it gets added
- to the processors pool.  Since inflation can happen on one processor
- and deflation on another, this can create an imbalance.  It might
- be worth investigating a scheme for balancing these local pools.
+ managed?</EM>  Currently, each thread maintains a small cache of free
+ locks.  When a lock is inflated by a thread it is taken from
+ this cache and when a lock is deflated by a thread it gets added
+ to the thread's cache.  Since inflation can happen on one thread
+ and deflation on another, the caches are balanced by moving batches
+ of locks to and from a global free list.
  <LI> <EM>Is there any advantage to using the {@link SpinLock#tryLock}
  method?</EM>
  </OL>
@@ -125,19 +127,24 @@ public final class Lock {
   /** Control the gathering of statistics */
   public static final boolean STATS = false;
 
-  /** The (fixed) number of entries in the lock table spine */
-  protected static final int LOCK_SPINE_SIZE = 128;
+  /** The initial number of entries in the lock table spine; the spine doubles as needed */
+  protected static final int INITIAL_LOCK_SPINE_SIZE = 16;
   /** The log size of each chunk in the spine */
   protected static final int LOG_LOCK_CHUNK_SIZE = 11;
   /** The size of each chunk in the spine */
   protected static final int LOCK_CHUNK_SIZE = 1 << LOG_LOCK_CHUNK_SIZE;
   /** The mask used to get the chunk-level index */
   protected static final int LOCK_CHUNK_MASK = LOCK_CHUNK_SIZE - 1;
-  /** The maximum possible number of locks */
-  protected static final int MAX_LOCKS = LOCK_SPINE_SIZE * LOCK_CHUNK_SIZE;
+  /** The maximum possible number of locks, limited by the bits for the lock id in a fat thin lock word */
+  protected static final int MAX_LOCKS = 1 << (TL_NUM_BITS_RC + TL_NUM_BITS_TID);
   /** The number of chunks to allocate on startup */
   protected static final int INITIAL_CHUNKS = 1;
 
+  /** The most free locks a thread caches before returning a batch to the global free list */
+  protected static final int MAX_CACHED_FREE_LOCKS = 16;
+  /** The number of free locks moved between a thread's cache and the global free list at a time */
+  protected static final int FREE_LOCK_BATCH = 8;
+
   /**
    * Should we give up or persist in the attempt to get a heavy-weight lock,
    * if its <code>mutex</code> microlock is held by another procesor.
@@ -173,8 +180,14 @@ public final class Lock {
   public static int lockOperations;
   /** Number of unlock operations */
   public static int unlockOperations;
-  /** Number of deflations */
-  public static int deflations;
+  /**
+   * Number of inflations.  Threads count their own inflations and add them
+   * to this total whenever they exchange a batch of locks with the global
+   * free list, and when they terminate.
+   */
+  private static int inflations;
+  /** Number of deflations, counted in the same way as inflations */
+  private static int deflations;
 
   /****************************************************************************
    * Instance
@@ -317,7 +330,7 @@ public final class Lock {
       VM._assert(entering.isEmpty());
       VM._assert(waiting.isEmpty());
     }
-    if (STATS) deflations++;
+    RVMThread.getCurrentThread().fatLockDeflations++;
     ThinLock.markDeflated(o, lockOffset, index);
     lockedObject = null;
     free(this);
@@ -448,7 +461,7 @@ public final class Lock {
   @Interruptible
   public static void init() {
     nextLockIndex = 1;
-    locks = new Lock[LOCK_SPINE_SIZE][];
+    locks = new Lock[INITIAL_LOCK_SPINE_SIZE][];
     for (int i = 0; i < INITIAL_CHUNKS; i++) {
       chunksAllocated++;
       locks[i] = new Lock[LOCK_CHUNK_SIZE];
@@ -463,8 +476,9 @@ public final class Lock {
 
   /**
    * Delivers up an unassigned heavy-weight lock.  Locks are allocated
-   * from processor specific regions or lists, so normally no synchronization
-   * is required to obtain a lock.
+   * from thread specific caches, so normally no synchronization
+   * is required to obtain a lock.  When the cache is empty it is refilled
+   * with a batch of locks from the global free list.
    * <p>
    * Collector threads cannot use heavy-weight locks.
    *
@@ -473,29 +487,29 @@ public final class Lock {
   @UnpreemptibleNoWarn("The caller is prepared to lose control when it allocates a lock")
   static Lock allocate() {
     RVMThread me = RVMThread.getCurrentThread();
-    if (me.cachedFreeLock != null) {
-      Lock l = me.cachedFreeLock;
-      me.cachedFreeLock = null;
+    Lock l = takeCachedLock(me);
+    if (l != null) {
       if (trace) {
         VM.sysWriteln("Lock.allocate: returning ",Magic.objectAsAddress(l),
                       ", a cached free lock from Thread #",me.getThreadSlot());
       }
-      l.active = true;
       return l;
     }
 
-    Lock l = null;
     while (l == null) {
       if (globalFreeLock != null) {
         lockAllocationMutex.lock();
-        l = globalFreeLock;
-        if (l != null) {
-          globalFreeLock = l.nextFreeLock;
-          l.nextFreeLock = null;
-          l.active = true;
+        for (int i = 0; i < FREE_LOCK_BATCH && globalFreeLock != null; i++) {
+          Lock free = globalFreeLock;
+          globalFreeLock = free.nextFreeLock;
           globalFreeLocks--;
+          free.nextFreeLock = me.cachedFreeLocks;
+          me.cachedFreeLocks = free;
+          me.numCachedFreeLocks++;
         }
+        flushCounts(me);
         lockAllocationMutex.unlock();
+        l = takeCachedLock(me);
         if (trace && l != null) {
           VM.sysWriteln("Lock.allocate: returning ",Magic.objectAsAddress(l),
                         " from the global freelist for Thread #",me.getThreadSlot());
@@ -506,7 +520,7 @@ public final class Lock {
         if (globalFreeLock == null) {
           // ok, it's still correct for us to be adding a new lock
           if (nextLockIndex >= MAX_LOCKS) {
-            VM.sysWriteln("Too many fat locks"); // make MAX_LOCKS bigger? we can keep going??
+            VM.sysWriteln("Too many fat locks"); // the lock id field of the thin lock word is full
             VM.sysFail("Exiting VM with fatal error");
           }
           l.index = nextLockIndex++;
@@ -536,57 +550,125 @@ public final class Lock {
     return l;
   }
 
+  /**
+   * Take a lock from a thread's cache of free locks.
+   *
+   * @param t the thread (which must be the current thread)
+   * @return the lock, marked active, or {@code null} if the cache is empty
+   */
+  private static Lock takeCachedLock(RVMThread t) {
+    Lock l = t.cachedFreeLocks;
+    if (l != null) {
+      t.cachedFreeLocks = l.nextFreeLock;
+      t.numCachedFreeLocks--;
+      l.nextFreeLock = null;
+      l.active = true;
+    }
+    return l;
+  }
+
   /**
    * Recycles an unused heavy-weight lock.  Locks are deallocated
-   * to processor specific lists, so normally no synchronization
-   * is required to obtain or release a lock.
+   * to thread specific caches, so normally no synchronization
+   * is required to obtain or release a lock.  When a cache grows too
+   * large a batch of its locks is returned to the global free list.
    *
    * @param l the unused lock
    */
   protected static void free(Lock l) {
     l.active = false;
     RVMThread me = RVMThread.getCurrentThread();
-    if (me.cachedFreeLock == null) {
-      if (trace) {
-        VM.sysWriteln("Lock.free: setting ",Magic.objectAsAddress(l),
-                      " as the cached free lock for Thread #",
-                      me.getThreadSlot());
-      }
-      me.cachedFreeLock = l;
-    } else {
-      if (trace) {
-        VM.sysWriteln("Lock.free: returning ",Magic.objectAsAddress(l),
-                      " to the global freelist for Thread #",
-                      me.getThreadSlot());
-      }
-      returnLock(l);
+    if (trace) {
+      VM.sysWriteln("Lock.free: caching ",Magic.objectAsAddress(l),
+                    " as a free lock for Thread #",
+                    me.getThreadSlot());
+    }
+    l.nextFreeLock = me.cachedFreeLocks;
+    me.cachedFreeLocks = l;
+    me.numCachedFreeLocks++;
+    if (me.numCachedFreeLocks > MAX_CACHED_FREE_LOCKS) {
+      returnCachedLocks(me, FREE_LOCK_BATCH);
     }
   }
-  static void returnLock(Lock l) {
+
+  /**
+   * Return free locks from a thread's cache to the global free list,
+   * and add the thread's inflation and deflation counts to the totals.
+   * Called when the cache overflows, and for all the cached locks when
+   * the thread terminates.
+   *
+   * @param t the thread (which must be the current thread)
+   * @param n the maximum number of locks to return
+   */
+  static void returnCachedLocks(RVMThread t, int n) {
+    Lock first = t.cachedFreeLocks;
+    Lock last = null;
+    int count = 0;
+    for (Lock l = first; l != null && count < n; l = l.nextFreeLock) {
+      last = l;
+      count++;
+    }
     if (trace) {
-      VM.sysWriteln("Lock.returnLock: returning ",Magic.objectAsAddress(l),
-                    " to the global freelist for Thread #",
-                    RVMThread.getCurrentThreadSlot());
+      VM.sysWriteln("Lock.returnCachedLocks: returning ",count,
+                    " locks to the global freelist for Thread #",
+                    t.getThreadSlot());
+    }
+    if (last != null) {
+      t.cachedFreeLocks = last.nextFreeLock;
+      t.numCachedFreeLocks -= count;
     }
     lockAllocationMutex.lock();
-    l.nextFreeLock = globalFreeLock;
-    globalFreeLock = l;
-    globalFreeLocks++;
-    globalLocksFreed++;
+    if (last != null) {
+      last.nextFreeLock = globalFreeLock;
+      globalFreeLock = first;
+      globalFreeLocks += count;
+      globalLocksFreed += count;
+    }
+    flushCounts(t);
     lockAllocationMutex.unlock();
   }
 
   /**
-   * Grow the locks table by allocating a new spine chunk.
+   * Add a thread's inflation and deflation counts to the totals.  The
+   * caller must hold the lock allocation mutex.
+   *
+   * @param t the thread (which must be the current thread)
+   */
+  private static void flushCounts(RVMThread t) {
+    inflations += t.fatLockInflations;
+    t.fatLockInflations = 0;
+    deflations += t.fatLockDeflations;
+    t.fatLockDeflations = 0;
+  }
+
+  /**
+   * Grow the locks table by allocating a new spine chunk, doubling
+   * the size of the spine first if it has no entry for the chunk.
    *
    * @param id the lock's index in the table
    */
   @UnpreemptibleNoWarn("The caller is prepared to lose control when it allocates a lock")
   static void growLocks(int id) {
     int spineId = id >> LOG_LOCK_CHUNK_SIZE;
-    if (spineId >= LOCK_SPINE_SIZE) {
+    if (id >= MAX_LOCKS) {
       VM.sysFail("Cannot grow lock array greater than maximum possible index");
     }
+    while (spineId >= locks.length) {
+      int oldLength = locks.length;
+      Lock[][] newSpine = new Lock[2 * oldLength][];
+
+      lockAllocationMutex.lock();
+      if (locks.length == oldLength) {
+        /* We got here first */
+        for (int i = 0; i < oldLength; i++) {
+          newSpine[i] = locks[i];
+        }
+        /* make sure the copied spine is visible before it is published */
+        Magic.sync();
+        locks = newSpine;
+      }
+      lockAllocationMutex.unlock();
+    }
     for (int i = chunksAllocated; i <= spineId; i++) {
       if (locks[i] != null) {
         /* We were beaten to it */
@@ -654,7 +736,11 @@ public final class Lock {
     VM.sysWriteInt(globalLocksFreed);
     VM.sysWrite(" locks freed, ");
     VM.sysWriteInt(globalFreeLocks);
-    VM.sysWrite(" free locks\n");
+    VM.sysWrite(" free locks, ");
+    VM.sysWriteInt(getInflations());
+    VM.sysWrite(" inflations, ");
+    VM.sysWriteInt(getDeflations());
+    VM.sysWrite(" deflations\n");
   }
 
   /**
@@ -693,6 +779,38 @@ public final class Lock {
    * Statistics
    */
 
+  /**
+   * Returns the number of heavy-weight lock inflations so far.  Sampling
+   * this periodically gives the inflation rate.  The count is not
+   * synchronized with threads that are inflating locks, so it is only
+   * approximate while they are running.
+   *
+   * @return the number of inflations
+   */
+  public static int getInflations() {
+    int count = inflations;
+    for (int i = 0; i < RVMThread.numThreads; i++) {
+      RVMThread t = RVMThread.threads[i];
+      if (t != null) count += t.fatLockInflations;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of heavy-weight lock deflations so far, with the
+   * same caveats as {@link #getInflations()}.
+   *
+   * @return the number of deflations
+   */
+  public static int getDeflations() {
+    int count = deflations;
+    for (int i = 0; i < RVMThread.numThreads; i++) {
+      RVMThread t = RVMThread.threads[i];
+      if (t != null) count += t.fatLockDeflations;
+    }
+    return count;
+  }
+
   /**
    * Set up callbacks to report statistics.
    */
@@ -712,6 +830,7 @@ public final class Lock {
     public void notifyAppRunStart(String app, int value) {
       lockOperations = 0;
       unlockOperations = 0;
+      inflations = 0;
       deflations = 0;
 
       ThinLock.notifyAppRunStart("", 0);
@@ -736,7 +855,10 @@ public final class Lock {
       VM.sysWrite(unlockOperations);
       VM.sysWrite(" unlock operations\n");
       VM.sysWrite("FatLocks: ");
-      VM.sysWrite(deflations);
+      VM.sysWrite(getInflations());
+      VM.sysWrite(" inflations\n");
+      VM.sysWrite("FatLocks: ");
+      VM.sysWrite(getDeflations());
       VM.sysWrite(" deflations\n");
 
       ThinLock.notifyExit(totalLocks);
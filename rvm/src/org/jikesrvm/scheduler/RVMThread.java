@@ -668,10 +668,20 @@ public final class RVMThread extends ThreadContext {
   private int uncaughtExceptionCount = 0;
 
   /**
-   * A cached free lock. Not a free list; this will only ever contain 0 or 1
-   * locks!
+   * A list of cached free locks, linked through the locks.  Managed by
+   * {@link Lock}, which keeps it short by moving batches of locks to and
+   * from the global free list.
    */
-  public Lock cachedFreeLock;
+  public Lock cachedFreeLocks;
+
+  /** The number of locks on {@link #cachedFreeLocks} */
+  public int numCachedFreeLocks;
+
+  /** The number of heavy-weight locks this thread has inflated since it last reported to {@link Lock} */
+  public int fatLockInflations;
+
+  /** The number of heavy-weight locks this thread has deflated since it last reported to {@link Lock} */
+  public int fatLockDeflations;
 
   /*
    * Wait/notify fields
@@ -1119,6 +1129,14 @@ public final class RVMThread extends ThreadContext {
    */
   public boolean osr_done = false;
 
+  /**
+   * Is this thread currently running the optimizing compiler? Used by
+   * {@link org.jikesrvm.compilers.common.RuntimeCompiler} to detect
+   * recursive opt compilation (ie when opt compilation causes a method
+   * to be compiled).
+   */
+  public boolean isOptCompiling = false;
+
   /**
    * The number of processors to use.
    */
@@ -2973,20 +2991,15 @@ public final class RVMThread extends ThreadContext {
    */
   @Unpreemptible
   private void terminateUnpreemptible() {
-    // return cached free lock
+    // return cached free locks
     if (traceAcct)
-      VM.sysWriteln("returning cached lock...");
+      VM.sysWriteln("returning cached locks...");
 
-    if (cachedFreeLock != null) {
-      if (Lock.trace) {
-        VM.sysWriteln("Thread #", threadSlot, ": about to free lock ",
-            Magic.objectAsAddress(cachedFreeLock));
-      }
-      if (VM.VerifyAssertions)
-        VM._assert(cachedFreeLock.mutex.latestContender != this);
-      Lock.returnLock(cachedFreeLock);
-      cachedFreeLock = null;
+    if (Lock.trace) {
+      VM.sysWriteln("Thread #", threadSlot, ": about to free ",
+          numCachedFreeLocks, " cached locks");
     }
+    Lock.returnCachedLocks(this, numCachedFreeLocks);
 
     if (traceAcct)
       VM.sysWriteln("adding to aboutToTerminate...");
@@ -462,6 +462,7 @@ public final class ThinLock {
       if (VM.VerifyAssertions) VM._assert(l != null);
       if (attemptToMarkInflated(
             o, lockOffset, bits, l.index, cnt)) {
+        RVMThread.getCurrentThread().fatLockInflations++;
         l.setLockedObject(o);
         l.setOwnerId(getLockOwner(bits));
         if (l.getOwnerId() != 0) {
@@ -0,0 +1,131 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+
+/**
+ * Measure allocation throughput as the number of allocating threads
+ * rises.  Each thread allocates the same volume, as a mix of small
+ * objects and large arrays (which go to the large object space), while
+ * keeping a small window of each live.  With no contention for the page
+ * resources the aggregate rate should grow with the number of threads,
+ * up to the number of processors.<p>
+ *
+ * Usage: <code>rvm ParallelAllocation [base|perf] [maxThreads]</code>
+ */
+public class ParallelAllocation {
+
+  /** The number of recently allocated objects each thread keeps live */
+  static final int WINDOW = 256;
+  /** Large arrays are between 16KB and 256KB */
+  static final int MIN_LARGE = 16 * 1024;
+  static final int MAX_LARGE = 256 * 1024;
+  /** One allocation in this many is a large array */
+  static final int LARGE_PERIOD = 64;
+
+  /** Has any run produced an unexpected result? */
+  static boolean failed = false;
+
+  static final class Node {
+    Node next;
+    final int value;
+    final int[] payload;
+
+    Node(Node next, int value) {
+      this.next = next;
+      this.value = value;
+      this.payload = new int[4];
+    }
+  }
+
+  static final class Allocator extends Thread {
+    private final long bytes;
+    private final int seed;
+    long allocated = 0;
+    long checksum = 0;
+
+    Allocator(long bytes, int seed) {
+      this.bytes = bytes;
+      this.seed = seed;
+    }
+
+    @Override
+    public void run() {
+      Object[] window = new Object[WINDOW];
+      Node list = null;
+      int x = seed;
+      for (int i = 0; allocated < bytes; i++) {
+        x = x * 1103515245 + 12345;
+        if (i % LARGE_PERIOD == 0) {
+          int size = MIN_LARGE + (x >>> 1) % (MAX_LARGE - MIN_LARGE);
+          byte[] array = new byte[size];
+          array[size - 1] = (byte) i;
+          window[(x >>> 8) % WINDOW] = array;
+          allocated += size;
+        } else {
+          list = new Node(i % 16 == 0 ? null : list, i);
+          window[(x >>> 8) % WINDOW] = list;
+          checksum += list.value;
+          allocated += 48;
+        }
+      }
+    }
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    boolean base = args.length == 0 || !(args[0].equals("opt") || args[0].equals("perf"));
+    int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : (base ? 8 : 64);
+    long bytesPerThread = (base ? 64L : 512L) << 20;
+
+    // warm up so that the allocation loop is compiled before it is timed
+    run(1, bytesPerThread / 4);
+
+    for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+      long start = System.nanoTime();
+      long total = run(threads, bytesPerThread);
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.println("ParallelAllocation: threads " + threads + "\t" + seconds + " (s) \t" +
+          ((total >> 20) / seconds) + "\t (Mb/s)");
+    }
+    if (!failed) {
+      System.out.println("ALL TESTS PASSED");
+    }
+  }
+
+  /**
+   * Run a number of allocating threads to completion.
+   *
+   * @param threads the number of threads
+   * @param bytesPerThread the volume each thread allocates
+   * @return the total volume allocated
+   */
+  private static long run(int threads, long bytesPerThread) throws InterruptedException {
+    Allocator[] allocators = new Allocator[threads];
+    for (int i = 0; i < threads; i++) {
+      allocators[i] = new Allocator(bytesPerThread, i + 1);
+    }
+    for (Allocator a : allocators) {
+      a.start();
+    }
+    long total = 0;
+    long checksum = 0;
+    for (Allocator a : allocators) {
+      a.join();
+      total += a.allocated;
+      checksum += a.checksum;
+    }
+    if (checksum == 0) {
+      System.out.println("Unexpected checksum");
+      failed = true;
+    }
+    return total;
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+/* Create and delete many global references
+ * Implement native methods from GlobalRefStress.java
+ */
+
+#include <stdio.h>
+#include <stdlib.h>             /* malloc() */
+
+#include <jni.h>
+#include "GlobalRefStress.h"
+
+int verbose=1;
+
+JNIEXPORT void JNICALL Java_GlobalRefStress_setVerboseOff
+(JNIEnv *env, jclass cls) {
+  verbose=0;
+}
+
+
+JNIEXPORT jint JNICALL Java_GlobalRefStress_churnGlobalRefs
+(JNIEnv *env, jclass cls, jobject obj, jint iterations, jint batch) {
+  jobject *refs = (jobject *) malloc(batch * sizeof(jobject));
+  int i, j;
+  for (i = 0; i < iterations; i += batch) {
+    for (j = 0; j < batch; j++) {
+      refs[j] = (*env)->NewGlobalRef(env, obj);
+    }
+    for (j = 0; j < batch; j++) {
+      if (!(*env)->IsSameObject(env, refs[j], obj)) {
+        if (verbose) fprintf(stderr, "churnGlobalRefs: reference %d does not refer to the object\n", j);
+        free(refs);
+        return 1;
+      }
+      (*env)->DeleteGlobalRef(env, refs[j]);
+    }
+  }
+  free(refs);
+  return 0;
+}
+
+
+JNIEXPORT jint JNICALL Java_GlobalRefStress_churnWeakRefs
+(JNIEnv *env, jclass cls, jobject obj, jint iterations, jint batch) {
+  jweak *refs = (jweak *) malloc(batch * sizeof(jweak));
+  int i, j;
+  for (i = 0; i < iterations; i += batch) {
+    for (j = 0; j < batch; j++) {
+      refs[j] = (*env)->NewWeakGlobalRef(env, obj);
+    }
+    for (j = 0; j < batch; j++) {
+      if (!(*env)->IsSameObject(env, refs[j], obj)) {
+        if (verbose) fprintf(stderr, "churnWeakRefs: reference %d does not refer to the object\n", j);
+        free(refs);
+        return 1;
+      }
+      (*env)->DeleteWeakGlobalRef(env, refs[j]);
+    }
+  }
+  free(refs);
+  return 0;
+}
@@ -0,0 +1,110 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+import org.jikesrvm.jni.JNIGlobalRefTable;
+
+/**
+ * Create and delete millions of global and weak global references from
+ * several threads, and check that the slots of deleted references are
+ * reused so that the global reference table does not keep growing.
+ */
+class GlobalRefStress {
+  static boolean verbose = true;         // set to true to get messages for each test
+  static boolean allTestPass = true;
+
+  static final int THREADS = 4;
+  static final int ITERATIONS = 1000000;
+  static final int BATCH = 16;
+
+  public static native void setVerboseOff();
+
+  /**
+   * Repeatedly create a batch of global references to an object, check
+   * them and delete them again.
+   *
+   * @return 0 if all references referred to the object
+   */
+  static native int churnGlobalRefs(Object obj, int iterations, int batch);
+
+  /** As churnGlobalRefs, but with weak global references */
+  static native int churnWeakRefs(Object obj, int iterations, int batch);
+
+  public static void main(String[] args) throws InterruptedException {
+    System.loadLibrary("GlobalRefStress");
+
+    if (args.length != 0) {
+      if (args[0].equals("-quiet")) {
+        verbose = false;
+        setVerboseOff();
+      }
+    }
+
+    // Make room for the references of every thread before measuring
+    final String obj = new String("global");
+    Thread[] warmup = startChurning(obj, BATCH * 64);
+    checkTest(join(warmup), "warm up");
+    int initialSize = JNIGlobalRefTable.highWaterMark();
+    printVerbose("table high water mark after warm up: " + initialSize);
+
+    Thread[] threads = startChurning(obj, ITERATIONS);
+    checkTest(join(threads), "churn " + THREADS * ITERATIONS * 2 + " references");
+
+    int finalSize = JNIGlobalRefTable.highWaterMark();
+    printVerbose("table high water mark after churn: " + finalSize);
+    // Each thread holds at most one batch at a time, so however the
+    // threads interleave the table can only grow by that much
+    checkTest(finalSize <= initialSize + THREADS * BATCH ? 0 : 1, "table size stays bounded");
+
+    if (allTestPass)
+      System.out.println("PASS: GlobalRefStress");
+    else
+      System.out.println("FAIL: GlobalRefStress");
+  }
+
+  static Thread[] startChurning(final Object obj, final int iterations) {
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          if (churnGlobalRefs(obj, iterations, BATCH) != 0 ||
+              churnWeakRefs(obj, iterations, BATCH) != 0) {
+            allTestPass = false;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    return threads;
+  }
+
+  static int join(Thread[] threads) throws InterruptedException {
+    for (Thread t : threads) {
+      t.join();
+    }
+    return allTestPass ? 0 : 1;
+  }
+
+  static void printVerbose(String str) {
+    if (verbose)
+      System.out.println(str);
+  }
+
+  static void checkTest(int returnValue, String testName) {
+    if (returnValue == 0) {
+      printVerbose("PASS: " + testName);
+    } else {
+      allTestPass = false;
+      printVerbose("FAIL: " + testName);
+    }
+  }
+}
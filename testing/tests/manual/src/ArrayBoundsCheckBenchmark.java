@@ -0,0 +1,118 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+
+/**
+ * Array-intensive kernels in the style of the Java Grande Forum (JGF)
+ * section 2 benchmarks, for measuring the effect of array bounds check
+ * elimination. Run it once normally and once with
+ * <code>-X:opt:ssa_bounds_check_elimination=false</code> and compare the
+ * reported rates.<p>
+ *
+ * Usage: <code>rvm ArrayBoundsCheckBenchmark [size] [iterations]</code>
+ */
+public class ArrayBoundsCheckBenchmark {
+
+  public static void main(String[] args) {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 250;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+    double[][] g = new double[size][size];
+    double[] x = new double[size * size];
+    double[] y = new double[size * size];
+    int[] data = new int[size * size];
+    java.util.Random r = new java.util.Random(101010);
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        g[i][j] = r.nextDouble() * 1e-6;
+      }
+    }
+    for (int i = 0; i < x.length; i++) {
+      x[i] = r.nextDouble();
+      data[i] = r.nextInt();
+    }
+
+    // warm up so that the kernels are opt compiled before they are timed
+    for (int w = 0; w < 3; w++) {
+      sor(g, 1.25, iterations);
+      stencil(x, y, iterations);
+      histogram(data, new int[256], iterations);
+    }
+
+    double checksum = 0;
+    long start = System.nanoTime();
+    checksum += sor(g, 1.25, iterations);
+    report("SOR", size, iterations, System.nanoTime() - start);
+
+    start = System.nanoTime();
+    checksum += stencil(x, y, iterations);
+    report("Stencil", size, iterations, System.nanoTime() - start);
+
+    start = System.nanoTime();
+    checksum += histogram(data, new int[256], iterations);
+    report("Histogram", size, iterations, System.nanoTime() - start);
+
+    System.out.println("Checksum: " + checksum);
+  }
+
+  private static void report(String kernel, int size, int iterations, long nanos) {
+    double seconds = nanos / 1e9;
+    System.out.println("Section2:" + kernel + ":Kernel:" + size + "\t" +
+        seconds + " (s) \t " + (iterations / seconds) + "\t (Iterations/s)");
+  }
+
+  /** Successive over-relaxation, as in JGF SOR */
+  private static double sor(double[][] g, double omega, int iterations) {
+    int m = g.length;
+    double omegaOverFour = omega * 0.25;
+    double oneMinusOmega = 1.0 - omega;
+    for (int p = 0; p < iterations; p++) {
+      for (int i = 1; i < m - 1; i++) {
+        double[] gi = g[i];
+        double[] gim1 = g[i - 1];
+        double[] gip1 = g[i + 1];
+        int n = gi.length;
+        if (gim1.length < n || gip1.length < n) continue;
+        for (int j = 1; j < n - 1; j++) {
+          gi[j] = omegaOverFour * (gim1[j] + gip1[j] + gi[j - 1] + gi[j + 1]) + oneMinusOmega * gi[j];
+        }
+      }
+    }
+    return g[m / 2][m / 2];
+  }
+
+  /** One-dimensional three point stencil */
+  private static double stencil(double[] x, double[] y, int iterations) {
+    int n = x.length;
+    if (y.length != n) return 0;
+    for (int p = 0; p < iterations; p++) {
+      for (int i = 1; i < n - 1; i++) {
+        y[i] = (x[i - 1] + x[i] + x[i + 1]) * (1.0 / 3);
+      }
+      double[] t = x;
+      x = y;
+      y = t;
+    }
+    return x[n / 2];
+  }
+
+  /** Histogram of the low bits of the data, using a masked index */
+  private static double histogram(int[] data, int[] buckets, int iterations) {
+    if (buckets.length < 256) return 0;
+    for (int p = 0; p < iterations; p++) {
+      for (int i = 0; i < data.length; i++) {
+        buckets[data[i] & 255]++;
+      }
+    }
+    return buckets[0];
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+
+/**
+ * A write-heavy cache workload for comparing the remembered set barriers
+ * of the generational plans: a large, long-lived map whose values are
+ * constantly replaced by freshly allocated objects, so that nearly every
+ * update creates an old-to-young pointer, many of them to the same
+ * slots.  Run it on an image built with the default remembered sets and
+ * on one built with <code>config.mmtk=cardMarking</code>, and compare
+ * the reported rates and collection times.<p>
+ *
+ * Usage: <code>rvm CardMarkingBenchmark [entries] [updates]</code>
+ */
+public class CardMarkingBenchmark {
+
+  static final class Value {
+    final int key;
+    final Object payload;
+
+    Value(int key, Object payload) {
+      this.key = key;
+      this.payload = payload;
+    }
+  }
+
+  public static void main(String[] args) {
+    int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 18;
+    int updates = args.length > 1 ? Integer.parseInt(args[1]) : 20000000;
+
+    HashMap<Integer, Value> map = new HashMap<Integer, Value>();
+    Value[] table = new Value[entries];
+    for (int i = 0; i < entries; i++) {
+      Value v = new Value(i, null);
+      map.put(i, v);
+      table[i] = v;
+    }
+    // promote the map and the table before timing
+    System.gc();
+
+    // warm up so that the update loops are opt compiled before they are timed
+    long checksum = updateTable(table, updates / 10, 1);
+    checksum += updateMap(map, entries, updates / 10, 1);
+
+    long gcTime = collectionTime();
+    long start = System.nanoTime();
+    checksum += updateTable(table, updates, 2);
+    report("Table", updates, System.nanoTime() - start, collectionTime() - gcTime);
+
+    gcTime = collectionTime();
+    start = System.nanoTime();
+    checksum += updateMap(map, entries, updates, 3);
+    report("Map", updates, System.nanoTime() - start, collectionTime() - gcTime);
+
+    System.out.println("Checksum: " + checksum);
+  }
+
+  private static void report(String kernel, int updates, long nanos, long gcMillis) {
+    double seconds = nanos / 1e9;
+    System.out.println("CardMarking:" + kernel + "\t" + seconds + " (s) \t " +
+        (updates / seconds) + "\t (updates/s) \t" + gcMillis + "\t (GC ms)");
+  }
+
+  /** @return the total time spent in collection so far, in milliseconds */
+  private static long collectionTime() {
+    long total = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(0, gc.getCollectionTime());
+    }
+    return total;
+  }
+
+  /** Replace random elements of an old array with young objects */
+  private static long updateTable(Value[] table, int updates, int seed) {
+    long checksum = 0;
+    int x = seed;
+    for (int i = 0; i < updates; i++) {
+      x = x * 1103515245 + 12345;
+      int index = (x >>> 1) % table.length;
+      Value old = table[index];
+      checksum += old.key;
+      table[index] = new Value(index, null);
+    }
+    return checksum;
+  }
+
+  /** Replace random values of an old map with young objects */
+  private static long updateMap(HashMap<Integer, Value> map, int entries, int updates, int seed) {
+    long checksum = 0;
+    int x = seed;
+    for (int i = 0; i < updates; i++) {
+      x = x * 1103515245 + 12345;
+      int key = (x >>> 1) % entries;
+      Value old = map.put(key, new Value(key, new int[4]));
+      checksum += old.key;
+    }
+    return checksum;
+  }
+}
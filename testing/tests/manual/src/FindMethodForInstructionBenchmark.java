@@ -0,0 +1,81 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+import org.jikesrvm.VM;
+import org.jikesrvm.classloader.RVMClass;
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.classloader.RVMType;
+import org.jikesrvm.compilers.common.CompiledMethod;
+import org.jikesrvm.compilers.common.CompiledMethods;
+import org.jikesrvm.runtime.Magic;
+import org.vmmagic.unboxed.Address;
+
+/**
+ * Measures the cost of {@link CompiledMethods#findMethodForInstruction}
+ * as the number of compiled methods grows. Methods of already loaded
+ * classes are force-compiled in steps, and after each step every installed
+ * method is looked up by an address inside its code.<p>
+ *
+ * Usage: <code>rvm FindMethodForInstructionBenchmark [step] [rounds]</code>
+ */
+public class FindMethodForInstructionBenchmark {
+
+  public static void main(String[] args) {
+    int step = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+    System.out.println("methods\tlookups\tns/lookup");
+    int nextType = 1;
+    while (true) {
+      int target = CompiledMethods.numCompiledMethods() + step;
+      while (CompiledMethods.numCompiledMethods() < target && nextType < RVMType.numTypes()) {
+        compileMethodsOf(RVMType.getType(nextType++));
+      }
+      measure(rounds);
+      if (nextType >= RVMType.numTypes()) break;
+    }
+  }
+
+  private static void compileMethodsOf(RVMType type) {
+    if (type == null || !type.isClassType() || !type.isResolved()) return;
+    RVMClass klass = type.asClass();
+    for (RVMMethod m : klass.getDeclaredMethods()) {
+      if (m.isAbstract() || m.isNative() || m.isCompiled()) continue;
+      try {
+        m.compile();
+      } catch (Throwable t) {
+        // some methods can't be compiled out of context; skip them
+      }
+    }
+  }
+
+  private static void measure(int rounds) {
+    int n = CompiledMethods.numCompiledMethods();
+    long lookups = 0;
+    long misses = 0;
+    VM.disableGC();
+    long start = System.nanoTime();
+    for (int r = 0; r < rounds; r++) {
+      for (int i = 1; i < n; i++) {
+        CompiledMethod cm = CompiledMethods.getCompiledMethodUnchecked(i);
+        if (cm == null || !cm.isCompiled()) continue;
+        Address ip = Magic.objectAsAddress(cm.getEntryCodeArray()).plus(1);
+        if (CompiledMethods.findMethodForInstruction(ip) != cm) misses++;
+        lookups++;
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    VM.enableGC();
+    System.out.println(n + "\t" + lookups + "\t" + (lookups == 0 ? 0 : elapsed / lookups) +
+        (misses == 0 ? "" : "\t(" + misses + " wrong results)"));
+  }
+}
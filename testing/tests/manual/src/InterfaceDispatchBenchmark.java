@@ -0,0 +1,182 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+
+/**
+ * Microbenchmark for interface method dispatch on receivers whose classes
+ * implement 2, 8 and 32 interfaces.  Successive calls go through
+ * successive interfaces of the receiver, so no two consecutive calls
+ * dispatch through the same interface.  With ITable-based interface
+ * invocation the cost of finding the ITable dominates; with
+ * IMT-based invocation the 32 interface case also exercises the IMT
+ * conflict resolution stubs.<p>
+ *
+ * Usage: <code>rvm InterfaceDispatchBenchmark [iterations]</code>
+ */
+public class InterfaceDispatchBenchmark {
+
+  interface I0 { int apply0(int x); }
+  interface I1 { int apply1(int x); }
+  interface I2 { int apply2(int x); }
+  interface I3 { int apply3(int x); }
+  interface I4 { int apply4(int x); }
+  interface I5 { int apply5(int x); }
+  interface I6 { int apply6(int x); }
+  interface I7 { int apply7(int x); }
+  interface I8 { int apply8(int x); }
+  interface I9 { int apply9(int x); }
+  interface I10 { int apply10(int x); }
+  interface I11 { int apply11(int x); }
+  interface I12 { int apply12(int x); }
+  interface I13 { int apply13(int x); }
+  interface I14 { int apply14(int x); }
+  interface I15 { int apply15(int x); }
+  interface I16 { int apply16(int x); }
+  interface I17 { int apply17(int x); }
+  interface I18 { int apply18(int x); }
+  interface I19 { int apply19(int x); }
+  interface I20 { int apply20(int x); }
+  interface I21 { int apply21(int x); }
+  interface I22 { int apply22(int x); }
+  interface I23 { int apply23(int x); }
+  interface I24 { int apply24(int x); }
+  interface I25 { int apply25(int x); }
+  interface I26 { int apply26(int x); }
+  interface I27 { int apply27(int x); }
+  interface I28 { int apply28(int x); }
+  interface I29 { int apply29(int x); }
+  interface I30 { int apply30(int x); }
+  interface I31 { int apply31(int x); }
+
+  static final class C2 implements I0, I1 {
+    public int apply0(int x) { return x + 0; }
+    public int apply1(int x) { return x + 1; }
+  }
+
+  static final class C8 implements I0, I1, I2, I3, I4, I5, I6, I7 {
+    public int apply0(int x) { return x + 0; }
+    public int apply1(int x) { return x + 1; }
+    public int apply2(int x) { return x + 2; }
+    public int apply3(int x) { return x + 3; }
+    public int apply4(int x) { return x + 4; }
+    public int apply5(int x) { return x + 5; }
+    public int apply6(int x) { return x + 6; }
+    public int apply7(int x) { return x + 7; }
+  }
+
+  static final class C32 implements I0, I1, I2, I3, I4, I5, I6, I7, I8, I9, I10, I11, I12, I13, I14, I15, I16, I17, I18, I19, I20, I21, I22, I23, I24, I25, I26, I27, I28, I29, I30, I31 {
+    public int apply0(int x) { return x + 0; }
+    public int apply1(int x) { return x + 1; }
+    public int apply2(int x) { return x + 2; }
+    public int apply3(int x) { return x + 3; }
+    public int apply4(int x) { return x + 4; }
+    public int apply5(int x) { return x + 5; }
+    public int apply6(int x) { return x + 6; }
+    public int apply7(int x) { return x + 7; }
+    public int apply8(int x) { return x + 8; }
+    public int apply9(int x) { return x + 9; }
+    public int apply10(int x) { return x + 10; }
+    public int apply11(int x) { return x + 11; }
+    public int apply12(int x) { return x + 12; }
+    public int apply13(int x) { return x + 13; }
+    public int apply14(int x) { return x + 14; }
+    public int apply15(int x) { return x + 15; }
+    public int apply16(int x) { return x + 16; }
+    public int apply17(int x) { return x + 17; }
+    public int apply18(int x) { return x + 18; }
+    public int apply19(int x) { return x + 19; }
+    public int apply20(int x) { return x + 20; }
+    public int apply21(int x) { return x + 21; }
+    public int apply22(int x) { return x + 22; }
+    public int apply23(int x) { return x + 23; }
+    public int apply24(int x) { return x + 24; }
+    public int apply25(int x) { return x + 25; }
+    public int apply26(int x) { return x + 26; }
+    public int apply27(int x) { return x + 27; }
+    public int apply28(int x) { return x + 28; }
+    public int apply29(int x) { return x + 29; }
+    public int apply30(int x) { return x + 30; }
+    public int apply31(int x) { return x + 31; }
+  }
+
+  public static void main(String[] args) {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+    Object[] receivers = { new C2(), new C8(), new C32() };
+    int[] interfaces = { 2, 8, 32 };
+
+    // warm up so that the dispatch loop is opt compiled before it is timed
+    for (int w = 0; w < 3; w++) {
+      for (int r = 0; r < receivers.length; r++) {
+        dispatch(receivers[r], interfaces[r], iterations / 10);
+      }
+    }
+
+    long checksum = 0;
+    for (int r = 0; r < receivers.length; r++) {
+      long start = System.nanoTime();
+      checksum += dispatch(receivers[r], interfaces[r], iterations);
+      report(interfaces[r], iterations, System.nanoTime() - start);
+    }
+    System.out.println("Checksum: " + checksum);
+  }
+
+  private static void report(int interfaces, int iterations, long nanos) {
+    double seconds = nanos / 1e9;
+    System.out.println("InterfaceDispatch:" + interfaces + "\t" +
+        seconds + " (s) \t " + (nanos / (double) iterations) + "\t (ns/call)");
+  }
+
+  /**
+   * Invoke an interface method of <code>o</code> through each of its first
+   * <code>n</code> interfaces in turn.
+   */
+  private static long dispatch(Object o, int n, int iterations) {
+    long sum = 0;
+    for (int i = 0; i < iterations; i++) {
+      switch (i % n) {
+        case 0: sum += ((I0) o).apply0(i); break;
+        case 1: sum += ((I1) o).apply1(i); break;
+        case 2: sum += ((I2) o).apply2(i); break;
+        case 3: sum += ((I3) o).apply3(i); break;
+        case 4: sum += ((I4) o).apply4(i); break;
+        case 5: sum += ((I5) o).apply5(i); break;
+        case 6: sum += ((I6) o).apply6(i); break;
+        case 7: sum += ((I7) o).apply7(i); break;
+        case 8: sum += ((I8) o).apply8(i); break;
+        case 9: sum += ((I9) o).apply9(i); break;
+        case 10: sum += ((I10) o).apply10(i); break;
+        case 11: sum += ((I11) o).apply11(i); break;
+        case 12: sum += ((I12) o).apply12(i); break;
+        case 13: sum += ((I13) o).apply13(i); break;
+        case 14: sum += ((I14) o).apply14(i); break;
+        case 15: sum += ((I15) o).apply15(i); break;
+        case 16: sum += ((I16) o).apply16(i); break;
+        case 17: sum += ((I17) o).apply17(i); break;
+        case 18: sum += ((I18) o).apply18(i); break;
+        case 19: sum += ((I19) o).apply19(i); break;
+        case 20: sum += ((I20) o).apply20(i); break;
+        case 21: sum += ((I21) o).apply21(i); break;
+        case 22: sum += ((I22) o).apply22(i); break;
+        case 23: sum += ((I23) o).apply23(i); break;
+        case 24: sum += ((I24) o).apply24(i); break;
+        case 25: sum += ((I25) o).apply25(i); break;
+        case 26: sum += ((I26) o).apply26(i); break;
+        case 27: sum += ((I27) o).apply27(i); break;
+        case 28: sum += ((I28) o).apply28(i); break;
+        case 29: sum += ((I29) o).apply29(i); break;
+        case 30: sum += ((I30) o).apply30(i); break;
+        case 31: sum += ((I31) o).apply31(i); break;
+      }
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.opttests.optimizations;
+
+import org.vmmagic.pragma.NoInline;
+
+/**
+ * Array accesses whose bounds checks array bounds check elimination
+ * can remove, and accesses that look similar but must still throw.
+ */
+public class BoundsCheckElimination {
+
+  public static void main(String[] args) {
+    BoundsCheckElimination bce = new BoundsCheckElimination();
+    bce.main();
+  }
+
+  private void main() {
+    int[] a = new int[10];
+    for (int i = 0; i < a.length; i++) {
+      a[i] = i + 1;
+    }
+    System.out.println("--- Redundant checks ---");
+    System.out.println("sumUp: " + sumUp(a));
+    System.out.println("sumDown: " + sumDown(a));
+    System.out.println("sumPairs: " + sumPairs(a));
+    System.out.println("sumBounded: " + sumBounded(a, 5));
+    System.out.println("sumBounded: " + sumBounded(a, 10));
+    System.out.println("sumNew: " + sumNew(7));
+    System.out.println("reverse: " + reverse(a));
+    System.out.println("checkedTwice: " + checkedTwice(a, 3));
+    System.out.println("masked: " + masked(new int[16], 12345));
+    System.out.println("constantIndex: " + constantIndex(a));
+    System.out.println("guarded: " + guarded(a, 4) + " " + guarded(a, 10) + " " + guarded(a, -1));
+
+    System.out.println("--- Required checks ---");
+    offByOne(a);
+    startAtMinusOne(a);
+    boundedByWrongArray(a, new int[11]);
+    wrapAround(a, Integer.MAX_VALUE);
+    wrapAroundDown(a, Integer.MIN_VALUE);
+    checkedTwice(a, 10);
+    checkedTwice(a, -1);
+    constantIndex(new int[2]);
+    masked(new int[8], 12345);
+  }
+
+  @NoInline
+  private static int sumUp(int[] a) {
+    int sum = 0;
+    for (int i = 0; i < a.length; i++) {
+      sum += a[i];
+    }
+    return sum;
+  }
+
+  @NoInline
+  private static int sumDown(int[] a) {
+    int sum = 0;
+    for (int i = a.length - 1; i >= 0; i--) {
+      sum += a[i];
+    }
+    return sum;
+  }
+
+  @NoInline
+  private static int sumPairs(int[] a) {
+    int sum = 0;
+    for (int i = 1; i < a.length; i++) {
+      sum += a[i] * a[i - 1];
+    }
+    return sum;
+  }
+
+  @NoInline
+  private static int sumBounded(int[] a, int n) {
+    int sum = 0;
+    if (n <= a.length) {
+      for (int i = 0; i < n; i++) {
+        sum += a[i];
+      }
+    }
+    return sum;
+  }
+
+  @NoInline
+  private static int sumNew(int n) {
+    int[] b = new int[n];
+    for (int i = 0; i < n; i++) {
+      b[i] = i * i;
+    }
+    int sum = 0;
+    for (int i = 0; i < n; i++) {
+      sum += b[i];
+    }
+    return sum;
+  }
+
+  @NoInline
+  private static int reverse(int[] a) {
+    int[] b = a.clone();
+    for (int i = 0, j = b.length - 1; i < j; i++, j--) {
+      int t = b[i];
+      b[i] = b[j];
+      b[j] = t;
+    }
+    return b[0] * 100 + b[b.length - 1];
+  }
+
+  @NoInline
+  private static int guarded(int[] a, int x) {
+    // both bounds are established by the compares and reach the
+    // access through PI nodes and copies
+    if (x >= 0 && x < a.length) {
+      return a[x];
+    }
+    return -1;
+  }
+
+  @NoInline
+  private static int checkedTwice(int[] a, int i) {
+    try {
+      // the second access is covered by the first
+      return a[i] + a[i];
+    } catch (ArrayIndexOutOfBoundsException e) {
+      System.out.println("checkedTwice(" + i + "): caught " + e.getClass().getName());
+      return -1;
+    }
+  }
+
+  @NoInline
+  private static int masked(int[] a, int x) {
+    try {
+      // only redundant if a.length > 15
+      a[x & 15] = x;
+      return a[x & 15];
+    } catch (ArrayIndexOutOfBoundsException e) {
+      System.out.println("masked(length " + a.length + "): caught " + e.getClass().getName());
+      return -1;
+    }
+  }
+
+  @NoInline
+  private static int constantIndex(int[] a) {
+    try {
+      // the check of a[1] is implied by the check of a[2]
+      return a[2] + a[1];
+    } catch (ArrayIndexOutOfBoundsException e) {
+      System.out.println("constantIndex(length " + a.length + "): caught " + e.getClass().getName());
+      return -1;
+    }
+  }
+
+  @NoInline
+  private static void offByOne(int[] a) {
+    int sum = 0;
+    try {
+      for (int i = 0; i <= a.length; i++) {
+        sum += a[i];
+      }
+      System.out.println("offByOne: no exception");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      System.out.println("offByOne: caught " + e.getClass().getName() + " after sum " + sum);
+    }
+  }
+
+  @NoInline
+  private static void startAtMinusOne(int[] a) {
+    int sum = 0;
+    try {
+      for (int i = -1; i < a.length; i++) {
+        sum += a[i];
+      }
+      System.out.println("startAtMinusOne: no exception");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      System.out.println("startAtMinusOne: caught " + e.getClass().getName() + " after sum " + sum);
+    }
+  }
+
+  @NoInline
+  private static void boundedByWrongArray(int[] a, int[] b) {
+    int sum = 0;
+    try {
+      for (int i = 0; i < b.length; i++) {
+        sum += a[i];
+      }
+      System.out.println("boundedByWrongArray: no exception");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      System.out.println("boundedByWrongArray: caught " + e.getClass().getName() + " after sum " + sum);
+    }
+  }
+
+  @NoInline
+  private static void wrapAround(int[] a, int n) {
+    try {
+      if (n >= 0) {
+        // n + 1 overflows to Integer.MIN_VALUE, so the index is negative
+        int i = n + 1;
+        System.out.println("wrapAround: no exception, read " + a[i]);
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      System.out.println("wrapAround: caught " + e.getClass().getName());
+    }
+  }
+
+  @NoInline
+  private static void wrapAroundDown(int[] a, int n) {
+    try {
+      if (n < a.length) {
+        // n - 1 underflows to Integer.MAX_VALUE, so the index is too large
+        int i = n - 1;
+        System.out.println("wrapAroundDown: no exception, read " + a[i]);
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      System.out.println("wrapAroundDown: caught " + e.getClass().getName());
+    }
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.opttests.optimizations;
+
+import java.util.Arrays;
+
+import org.vmmagic.pragma.NoInline;
+
+/**
+ * Loops that store a loop invariant value into consecutive array
+ * elements, which fill loop recognition may replace by a call to a fill
+ * routine, and similar loops whose checks must still fail in the
+ * original loop.
+ */
+public class FillLoops {
+
+  public static void main(String[] args) {
+    System.out.println("--- Element widths ---");
+    byte[] b = new byte[21];
+    fillBytes(b, 3, 19, (byte) -7);
+    System.out.println("bytes: " + Arrays.toString(b));
+    boolean[] z = new boolean[21];
+    fillBooleans(z, 1, 20, true);
+    System.out.println("booleans: " + Arrays.toString(z));
+    short[] s = new short[13];
+    fillShorts(s, 2, 11, (short) -12345);
+    System.out.println("shorts: " + Arrays.toString(s));
+    char[] c = new char[13];
+    fillChars(c, 1, 12, 'x');
+    System.out.println("chars: " + new String(c, 1, 11) + " " + (int) c[0] + " " + (int) c[12]);
+    int[] i = new int[11];
+    fillInts(i, 1, 10, 0x12345678);
+    System.out.println("ints: " + Arrays.toString(i));
+    float[] f = new float[11];
+    fillFloats(f, 3, 9, -0.0f);
+    System.out.println("floats: " + Arrays.toString(f) + " " + Float.floatToRawIntBits(f[3]));
+    fillFloats(f, 0, 2, Float.NaN);
+    System.out.println("floats: " + Arrays.toString(f));
+    long[] l = new long[7];
+    fillLongs(l, 1, 6, 0x123456789abcdefL);
+    System.out.println("longs: " + Arrays.toString(l));
+    double[] d = new double[7];
+    fillDoubles(d, 2, 7, -1.5);
+    System.out.println("doubles: " + Arrays.toString(d));
+    Object[] o = new Object[9];
+    fillObjects(o, 2, 8, "o");
+    System.out.println("objects: " + Arrays.toString(o));
+
+    System.out.println("--- Bounds ---");
+    int[] a = new int[10];
+    fillToLength(a, 4, 3);
+    System.out.println("fillToLength: " + Arrays.toString(a));
+    fillInts(a, 5, 5, 9);
+    System.out.println("empty: " + Arrays.toString(a));
+    fillInts(a, 7, 2, 9);
+    System.out.println("backwards: " + Arrays.toString(a));
+    fillLarge(100000, 123456);
+
+    System.out.println("--- Required checks ---");
+    tryFillInts("past the end", new int[10], 6, 12, 5);
+    tryFillInts("negative start", new int[10], -2, 4, 5);
+    tryFillInts("null array", null, 0, 4, 5);
+    tryFillBytes("past the end", new byte[10], 8, 11, (byte) 5);
+    tryFillLongs("past the end", new long[4], 1, 5, 5L);
+    int[] shortArray = new int[5];
+    try {
+      fillBoundedBy(shortArray, new int[8], 6);
+      System.out.println("boundedByLonger: no exception");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      System.out.println("boundedByLonger: caught " + e.getClass().getName() + ", " + Arrays.toString(shortArray));
+    }
+    int[] same = new int[6];
+    fillBoundedBy(same, same, 4);
+    System.out.println("boundedBySame: " + Arrays.toString(same));
+
+    System.out.println("--- Aliasing ---");
+    int[] src = {1, 2, 3, 4, 5, 6, 7, 8};
+    copyFirst(src, 2, 8);
+    System.out.println("copyFirst: " + Arrays.toString(src));
+    int[] shifted = {1, 2, 3, 4, 5, 6, 7, 8};
+    copyPrevious(shifted, 3, 8);
+    System.out.println("copyPrevious: " + Arrays.toString(shifted));
+    int[] counted = new int[8];
+    fillCounted(counted, 1, 7);
+    System.out.println("fillCounted: " + Arrays.toString(counted));
+    Object[] objects = new Object[6];
+    fillObjects(objects, 0, 6, objects);
+    System.out.println("selfReference: " + (objects[0] == objects && objects[5] == objects));
+  }
+
+  @NoInline
+  private static void fillBytes(byte[] a, int from, int to, byte v) {
+    for (int i = from; i < to; i++) {
+      a[i] = v;
+    }
+  }
+
+  @NoInline
+  private static void fillBooleans(boolean[] a, int from, int to, boolean v) {
+    for (int i = from; i < to; i++) {
+      a[i] = v;
+    }
+  }
+
+  @NoInline
+  private static void fillShorts(short[] a, int from, int to, short v) {
+    for (int i = from; i < to; i++) {
+      a[i] = v;
+    }
+  }
+
+  @NoInline
+  private static void fillChars(char[] a, int from, int to, char v) {
+    for (int i = from; i < to; i++) {
+      a[i] = v;
+    }
+  }
+
+  @NoInline
+  private static void fillInts(int[] a, int from, int to, int v) {
+    for (int i = from; i < to; i++) {
+      a[i] = v;
+    }
+  }
+
+  @NoInline
+  private static void fillFloats(float[] a, int from, int to, float v) {
+    for (int i = from; i < to; i++) {
+      a[i] = v;
+    }
+  }
+
+  @NoInline
+  private static void fillLongs(long[] a, int from, int to, long v) {
+    for (int i = from; i < to; i++) {
+      a[i] = v;
+    }
+  }
+
+  @NoInline
+  private static void fillDoubles(double[] a, int from, int to, double v) {
+    for (int i = from; i < to; i++) {
+      a[i] = v;
+    }
+  }
+
+  @NoInline
+  private static void fillObjects(Object[] a, int from, int to, Object v) {
+    // reference stores need the write barrier of the plan
+    for (int i = from; i < to; i++) {
+      a[i] = v;
+    }
+  }
+
+  @NoInline
+  private static void fillToLength(int[] a, int from, int v) {
+    for (int i = from; i < a.length; i++) {
+      a[i] = v;
+    }
+  }
+
+  @NoInline
+  private static void fillBoundedBy(int[] a, int[] bound, int v) {
+    for (int i = 0; i < bound.length; i++) {
+      a[i] = v;
+    }
+  }
+
+  @NoInline
+  private static void fillLarge(int n, int v) {
+    int[] a = new int[n];
+    fillInts(a, 1, n - 1, v);
+    long sum = 0;
+    for (int i = 0; i < n; i++) {
+      sum += a[i];
+    }
+    System.out.println("fillLarge: " + a[0] + " " + a[1] + " " + a[n - 2] + " " + a[n - 1] + " " + sum);
+  }
+
+  @NoInline
+  private static void copyFirst(int[] a, int from, int to) {
+    // the value is loaded from the array, so it is not loop invariant
+    for (int i = from; i < to; i++) {
+      a[i] = a[0];
+    }
+  }
+
+  @NoInline
+  private static void copyPrevious(int[] a, int from, int to) {
+    for (int i = from; i < to; i++) {
+      a[i] = a[i - 1];
+    }
+  }
+
+  @NoInline
+  private static void fillCounted(int[] a, int from, int to) {
+    // the value changes in the loop
+    int v = 0;
+    for (int i = from; i < to; i++) {
+      a[i] = v;
+      v += 3;
+    }
+  }
+
+  private static void tryFillInts(String what, int[] a, int from, int to, int v) {
+    try {
+      fillInts(a, from, to, v);
+      System.out.println("ints " + what + ": no exception");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      System.out.println("ints " + what + ": caught " + e.getClass().getName() + ", " + Arrays.toString(a));
+    } catch (NullPointerException e) {
+      System.out.println("ints " + what + ": caught " + e.getClass().getName());
+    }
+  }
+
+  private static void tryFillBytes(String what, byte[] a, int from, int to, byte v) {
+    try {
+      fillBytes(a, from, to, v);
+      System.out.println("bytes " + what + ": no exception");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      System.out.println("bytes " + what + ": caught " + e.getClass().getName() + ", " + Arrays.toString(a));
+    }
+  }
+
+  private static void tryFillLongs(String what, long[] a, int from, int to, long v) {
+    try {
+      fillLongs(a, from, to, v);
+      System.out.println("longs " + what + ": no exception");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      System.out.println("longs " + what + ": caught " + e.getClass().getName() + ", " + Arrays.toString(a));
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.opttests.optimizations;
+
+import org.vmmagic.pragma.NoInline;
+
+/**
+ * An object that escapes only in an exception handler, which the
+ * opt compiler treats as infrequent.  The allocation can be moved
+ * into the handler and the object scalar replaced on the common path.
+ */
+public class PartialEscape {
+
+  static class Point {
+    int x;
+    int y;
+  }
+
+  static Point leaked;
+
+  public static void main(String[] args) {
+    System.out.println("sumOrLeak: " + sumOrLeak(3, 4));
+    System.out.println("leaked: " + (leaked == null ? "none" : leaked.x + "," + leaked.y));
+    System.out.println("sumOrLeak: " + sumOrLeak(-3, 4));
+    System.out.println("leaked: " + (leaked == null ? "none" : leaked.x + "," + leaked.y));
+    System.out.println("sumOrLeak: " + sumOrLeak(5, 6));
+    System.out.println("leaked: " + (leaked == null ? "none" : leaked.x + "," + leaked.y));
+  }
+
+  @NoInline
+  private static int sumOrLeak(int x, int y) {
+    Point p = new Point();
+    p.x = x;
+    p.y = y;
+    try {
+      check(x);
+    } catch (IllegalArgumentException e) {
+      // the only place where the point escapes
+      leaked = p;
+      return -1;
+    }
+    return p.x + p.y;
+  }
+
+  @NoInline
+  private static void check(int x) {
+    if (x < 0) {
+      throw new IllegalArgumentException();
+    }
+  }
+}
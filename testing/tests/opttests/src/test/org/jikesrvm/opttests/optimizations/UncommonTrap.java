@@ -0,0 +1,93 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.opttests.optimizations;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.adaptive.controller.Controller;
+import org.jikesrvm.classloader.Atom;
+import org.jikesrvm.classloader.NormalMethod;
+import org.jikesrvm.classloader.TypeReference;
+import org.jikesrvm.compilers.common.RuntimeCompiler;
+import org.jikesrvm.compilers.opt.OptOptions;
+import org.jikesrvm.compilers.opt.driver.CompilationPlan;
+import org.jikesrvm.compilers.opt.driver.OptimizationPlanner;
+import org.vmmagic.pragma.NoInline;
+
+/**
+ * A branch that is never taken while its method runs in baseline code
+ * becomes an uncommon trap when the method is compiled at O2.  Taking
+ * the branch must continue correctly in baseline code through OSR; the
+ * opt code is only replaced once the trap has fired as often as the
+ * fire limit allows.<p>
+ *
+ * Traps are only generated in adaptive builds with recompilation
+ * enabled.  Elsewhere only the results are checked.
+ */
+public class UncommonTrap {
+
+  private static final int FIRE_LIMIT = 2;
+
+  private static boolean success = true;
+
+  public static void main(String[] args) {
+    // warm up in baseline code: the branch profile never sees x < 0
+    int sum = 0;
+    for (int i = 0; i < 2000; i++) {
+      sum += absPlusOne(i);
+    }
+    check("warm up", sum == 2001000);
+
+    if (VM.BuildForAdaptiveSystem && VM.BuildForOptCompiler && Controller.options.ENABLE_RECOMPILATION) {
+      NormalMethod method = (NormalMethod) TypeReference.findOrCreate(UncommonTrap.class).peekType().
+          asClass().findDeclaredMethod(Atom.findOrCreateAsciiAtom("absPlusOne"));
+      OptOptions options = new OptOptions();
+      options.setOptLevel(2);
+      options.OSR_UNCOMMON_TRAP_FIRE_LIMIT = FIRE_LIMIT;
+      CompilationPlan plan =
+          new CompilationPlan(method, OptimizationPlanner.createOptimizationPlan(options), null, options);
+      int cmid = RuntimeCompiler.recompileWithOpt(plan);
+      check("opt compilation", cmid != -1);
+
+      // the first fire continues in baseline code and keeps the opt code
+      check("first fire", absPlusOne(-5) == 6);
+      check("opt code kept", method.getCurrentCompiledMethod().getId() == cmid);
+
+      // the second fire reaches the limit: the method is recompiled
+      check("second fire", absPlusOne(-7) == 8);
+      check("method recompiled", method.getCurrentCompiledMethod().getId() != cmid);
+    }
+
+    check("after the traps", absPlusOne(3) == 4 && absPlusOne(-3) == 4);
+
+    if (success) {
+      System.out.println("ALL TESTS PASSED");
+    } else {
+      System.out.println("FAILURE");
+    }
+  }
+
+  @NoInline
+  private static int absPlusOne(int x) {
+    if (x < 0) {
+      return 1 - x;
+    }
+    return x + 1;
+  }
+
+  private static void check(String what, boolean ok) {
+    if (!ok) {
+      System.out.println(what + ": FAILED");
+      success = false;
+    }
+  }
+}
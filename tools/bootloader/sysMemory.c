@@ -17,6 +17,11 @@
 #include <errno.h> // error numbers
 #include <string.h> // memcpy & memmove
 #include <sys/mman.h> // mmap
+#ifdef RVM_FOR_LINUX
+#include <sys/stat.h> // stat
+#include <sys/syscall.h> // SYS_mbind, SYS_getcpu
+#include <unistd.h> // syscall
+#endif
 
 int inRVMAddressSpace(Address a);
 
@@ -257,6 +262,162 @@ EXTERNAL int sysMProtect(char *start, size_t length, int prot)
   return mprotect(start, length, prot);
 }
 
+/** madvise advice values from linux/mman.h, which older headers may lack */
+#ifndef MADV_HUGEPAGE
+#define MADV_HUGEPAGE 14
+#endif
+#ifndef MADV_POPULATE_WRITE
+#define MADV_POPULATE_WRITE 23
+#endif
+
+/**
+ * Ask for a range of memory to be backed by transparent huge pages.
+ * Taken:     start address (Java ADDRESS)
+ *            length of region (Java EXTENT)
+ * Returned:  0 (success) or errno (failure) (Java int)
+ */
+EXTERNAL int sysMAdviseHugePages(void *start, Extent length)
+{
+  TRACE_PRINTF("%s: sysMAdviseHugePages %p %zu\n", Me, start, (size_t) length);
+#ifdef RVM_FOR_LINUX
+  if (madvise(start, length, MADV_HUGEPAGE) != 0) {
+    return errno;
+  }
+  return 0;
+#else
+  return EINVAL;
+#endif
+}
+
+/**
+ * Fault in every page of a range of mapped memory without changing
+ * its contents, so that later accesses do not take page faults.  The
+ * pages may be in use by other threads.
+ * Taken:     start address (Java ADDRESS)
+ *            length of region (Java EXTENT)
+ */
+EXTERNAL void sysPreTouch(void *start, Extent length)
+{
+  char *page;
+  char *end = (char *) start + length;
+  size_t pageSize = (size_t) getpagesize();
+  TRACE_PRINTF("%s: sysPreTouch %p %zu\n", Me, start, (size_t) length);
+#ifdef RVM_FOR_LINUX
+  if (madvise(start, length, MADV_POPULATE_WRITE) == 0) {
+    return;
+  }
+#endif
+  /* Fall back to touching each page; an atomic add of zero is safe
+     against concurrent writes to the same word. */
+  for (page = (char *) start; page < end; page += pageSize) {
+    __sync_fetch_and_add((int *) page, 0);
+  }
+}
+
+/**
+ * Release the physical pages backing a range of mapped memory.  The
+ * range stays mapped, and reads as zero when it is next touched.
+ * Taken:     start address (Java ADDRESS)
+ *            length of region (Java EXTENT)
+ * Returned:  0 (success) or errno (failure) (Java int)
+ */
+EXTERNAL int sysMAdviseFree(void *start, Extent length)
+{
+  TRACE_PRINTF("%s: sysMAdviseFree %p %zu\n", Me, start, (size_t) length);
+  if (madvise(start, length, MADV_DONTNEED) != 0) {
+    return errno;
+  }
+  return 0;
+}
+
+/**
+ * Returned:  the resident set size of the process, in bytes, or 0 if
+ *            it is not known (Java long)
+ */
+EXTERNAL long long sysResidentBytes()
+{
+  long long resident = 0;
+  TRACE_PRINTF("%s: sysResidentBytes\n", Me);
+#ifdef RVM_FOR_LINUX
+  FILE *statm = fopen("/proc/self/statm", "r");
+  if (statm != NULL) {
+    if (fscanf(statm, "%*s %lld", &resident) != 1) {
+      resident = 0;
+    }
+    fclose(statm);
+  }
+#endif
+  return resident * getpagesize();
+}
+
+/** The largest number of memory nodes that is supported */
+#define MAX_NUMA_NODES 64
+/** Memory policy constants from linux/mempolicy.h */
+#define NUMA_MPOL_PREFERRED 1
+#define NUMA_MPOL_MF_MOVE (1 << 1)
+#define BITS_IN_NODE_MASK_WORD (8 * sizeof(unsigned long))
+
+/**
+ * Count the NUMA memory nodes of the machine.
+ * Returned:  the number of memory nodes, 1 if NUMA is not supported
+ */
+EXTERNAL int sysNumaNodes()
+{
+  int nodes = 1;
+  TRACE_PRINTF("%s: sysNumaNodes\n", Me);
+#ifdef RVM_FOR_LINUX
+  char path[64];
+  struct stat info;
+  for (nodes = 0; nodes < MAX_NUMA_NODES; nodes++) {
+    snprintf(path, sizeof(path), "/sys/devices/system/node/node%d", nodes);
+    if (stat(path, &info) != 0) break;
+  }
+  if (nodes == 0) nodes = 1;
+#endif
+  return nodes;
+}
+
+/**
+ * Find the NUMA memory node of the processor the calling thread is
+ * running on.
+ * Returned:  the node, 0 if NUMA is not supported
+ */
+EXTERNAL int sysNumaNode()
+{
+#if defined(RVM_FOR_LINUX) && defined(SYS_getcpu)
+  unsigned int cpu, node;
+  if (syscall(SYS_getcpu, &cpu, &node, NULL) == 0) {
+    return (int) node;
+  }
+#endif
+  return 0;
+}
+
+/**
+ * Prefer a NUMA memory node for a range of pages.  Pages which are
+ * already resident on another node are migrated.
+ * Taken:     start address (Java ADDRESS)
+ *            length of region (Java EXTENT)
+ *            memory node (Java int)
+ * Returned:  0 (success) or -1 (failure) (Java int)
+ */
+EXTERNAL int sysNumaBind(void *start, Extent length, int node)
+{
+  TRACE_PRINTF("%s: sysNumaBind %p %zu %d\n", Me, start, (size_t) length, node);
+#if defined(RVM_FOR_LINUX) && defined(SYS_mbind)
+  unsigned long mask[MAX_NUMA_NODES / BITS_IN_NODE_MASK_WORD + 1];
+  if (node < 0 || node >= MAX_NUMA_NODES) {
+    return -1;
+  }
+  memset(mask, 0, sizeof(mask));
+  mask[node / BITS_IN_NODE_MASK_WORD] = 1UL << (node % BITS_IN_NODE_MASK_WORD);
+  return syscall(SYS_mbind, start, (unsigned long) length, NUMA_MPOL_PREFERRED,
+                 mask, (unsigned long) (sizeof(mask) * 8), NUMA_MPOL_MF_MOVE) == 0 ? 0 : -1;
+#else
+  return 0;
+#endif
+}
+
 /** Memory to memory copy. Memory regions must not overlap. */
 EXTERNAL void sysCopy(void *dst, const void *src, Extent cnt)
 {
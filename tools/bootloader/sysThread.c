@@ -472,6 +472,48 @@ EXTERNAL void sysThreadBind(int cpuId)
 #endif
 }
 
+/**
+ * Bind the calling thread to the processors of a NUMA memory node.
+ * Taken:     node [in] the memory node
+ */
+EXTERNAL void sysThreadBindNode(int node)
+{
+  TRACE_PRINTF("%s: sysThreadBindNode %d\n", Me, node);
+#ifndef RVM_FOR_HARMONY
+#ifdef RVM_FOR_LINUX
+  char path[64];
+  FILE *list;
+  cpu_set_t cpuset;
+  int first, last, cpu, separator;
+
+  snprintf(path, sizeof(path), "/sys/devices/system/node/node%d/cpulist", node);
+  list = fopen(path, "r");
+  if (list == NULL) {
+    return;
+  }
+  /* the list is a comma separated list of ranges, e.g. 0-3,8-11 */
+  CPU_ZERO(&cpuset);
+  while (fscanf(list, "%d", &first) == 1) {
+    last = first;
+    separator = fgetc(list);
+    if (separator == '-') {
+      if (fscanf(list, "%d", &last) != 1) break;
+      separator = fgetc(list);
+    }
+    for (cpu = first; cpu <= last && cpu < CPU_SETSIZE; cpu++) {
+      CPU_SET(cpu, &cpuset);
+    }
+    if (separator != ',') break;
+  }
+  fclose(list);
+
+  if (CPU_COUNT(&cpuset) > 0) {
+    pthread_setaffinity_np(pthread_self(), sizeof(cpuset), &cpuset);
+  }
+#endif
+#endif
+}
+
 /**
  * Function called by pthread startup
  *